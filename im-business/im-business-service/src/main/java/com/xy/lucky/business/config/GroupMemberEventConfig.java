@@ -0,0 +1,20 @@
+package com.xy.lucky.business.config;
+
+import com.xy.lucky.core.constants.IMConstant;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 群成员变更事件交换机声明
+ * <p>
+ * fanout 交换机，由各 message 服务实例绑定自己的临时队列，见 GroupMemberEventPublisher
+ */
+@Configuration
+public class GroupMemberEventConfig {
+
+    @Bean
+    public FanoutExchange groupMemberExchange() {
+        return new FanoutExchange(IMConstant.MQ_GROUP_MEMBER_EXCHANGE, true, false);
+    }
+}
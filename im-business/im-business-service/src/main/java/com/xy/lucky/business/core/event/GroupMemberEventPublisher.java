@@ -0,0 +1,65 @@
+package com.xy.lucky.business.core.event;
+
+import com.xy.lucky.business.utils.RedisUtil;
+import com.xy.lucky.core.constants.IMConstant;
+import com.xy.lucky.core.model.IMGroupMemberChange;
+import com.xy.lucky.utils.json.JacksonUtils;
+import com.xy.lucky.utils.time.DateTimeUtils;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 群成员变更事件发布
+ * <p>
+ * - 成员变更成功后调用：先在 Redis 中自增该群的成员版本号，再发布到 fanout 交换机
+ * - message 服务据此失效本地群成员缓存；发布失败只记录日志，由缓存过期兜底
+ */
+@Slf4j
+@Component
+public class GroupMemberEventPublisher {
+
+    @Resource
+    private RabbitTemplate rabbitTemplate;
+
+    @Resource
+    private RedisUtil redisUtil;
+
+    /**
+     * 发布群成员变更事件
+     *
+     * @param groupId    群 ID
+     * @param changeType 变更类型
+     * @param memberIds  涉及的成员 ID
+     */
+    public void publish(String groupId, IMGroupMemberChange.ChangeType changeType, List<String> memberIds) {
+        try {
+            IMGroupMemberChange event = new IMGroupMemberChange()
+                    .setGroupId(groupId)
+                    .setVersion(nextVersion(groupId))
+                    .setChangeType(changeType)
+                    .setMemberIds(memberIds)
+                    .setChangeTime(DateTimeUtils.getCurrentUTCTimestamp());
+            rabbitTemplate.convertAndSend(IMConstant.MQ_GROUP_MEMBER_EXCHANGE, "", JacksonUtils.toJSONString(event));
+            log.debug("群成员变更事件已发布: groupId={}, type={}, version={}", groupId, changeType, event.getVersion());
+        } catch (Exception e) {
+            log.error("群成员变更事件发布失败: groupId={}, type={}", groupId, changeType, e);
+        }
+    }
+
+    /**
+     * 版本号获取失败时返回 0（未知版本），接收方会无条件失效缓存
+     */
+    private long nextVersion(String groupId) {
+        try {
+            Long version = redisUtil.increment(IMConstant.GROUP_MEMBER_VERSION_PREFIX + groupId);
+            return version != null ? version : 0L;
+        } catch (Exception e) {
+            log.warn("群成员版本号自增失败: groupId={}, error={}", groupId, e.getMessage());
+            return 0L;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.xy.lucky.business.service.impl;
 
 import com.xy.lucky.business.common.LockExecutor;
 import com.xy.lucky.business.config.IdGeneratorConstant;
+import com.xy.lucky.business.core.event.GroupMemberEventPublisher;
 import com.xy.lucky.business.domain.dto.GroupDto;
 import com.xy.lucky.business.domain.dto.GroupInviteDto;
 import com.xy.lucky.business.domain.dto.GroupMemberDto;
@@ -13,6 +14,7 @@ import com.xy.lucky.business.service.MuteService;
 import com.xy.lucky.core.constants.IMConstant;
 import com.xy.lucky.core.enums.*;
 import com.xy.lucky.core.model.IMGroupAction;
+import com.xy.lucky.core.model.IMGroupMemberChange;
 import com.xy.lucky.core.model.IMGroupMessage;
 import com.xy.lucky.core.model.IMSingleMessage;
 import com.xy.lucky.core.model.IMessage;
@@ -83,6 +85,8 @@ public class GroupServiceImpl implements GroupService {
 
     private final GroupMemberBeanMapper groupMemberBeanMapper;
 
+    private final GroupMemberEventPublisher groupMemberEventPublisher;
+
     /**
      * 获取群成员列表
      *
@@ -131,6 +135,8 @@ public class GroupServiceImpl implements GroupService {
 
             boolean success = groupMemberDubboService.removeOne(member.getGroupMemberId());
             if (success) {
+                groupMemberEventPublisher.publish(dto.getGroupId(), IMGroupMemberChange.ChangeType.QUIT,
+                        List.of(dto.getUserId()));
                 log.info("退出群聊成功: groupId={}, userId={}", dto.getGroupId(), dto.getUserId());
             }
         });
@@ -383,6 +389,7 @@ public class GroupServiceImpl implements GroupService {
                         if (!Boolean.TRUE.equals(groupMemberDubboService.creatOrModifyBatch(List.of(newMember)))) {
                             throw new GroupException("加入群聊失败");
                         }
+                        groupMemberEventPublisher.publish(groupId, IMGroupMemberChange.ChangeType.JOIN, List.of(userId));
 
                         updateGroupInfoAndNotify(groupId, inviterId, userId);
 
@@ -633,6 +640,8 @@ public class GroupServiceImpl implements GroupService {
             if (!groupMemberDubboService.removeOne(target.getGroupMemberId())) {
                 throw new GroupException("移除成员失败");
             }
+            groupMemberEventPublisher.publish(dto.getGroupId(), IMGroupMemberChange.ChangeType.KICK,
+                    List.of(dto.getTargetUserId()));
 
             // 清除该成员在群组中的禁言状态
             muteService.unmuteUserInGroup(dto.getGroupId(), dto.getTargetUserId());
@@ -933,6 +942,8 @@ public class GroupServiceImpl implements GroupService {
             for (ImGroupMemberPo member : members) {
                 groupMemberDubboService.removeOne(member.getGroupMemberId());
             }
+            groupMemberEventPublisher.publish(dto.getGroupId(), IMGroupMemberChange.ChangeType.DISMISS,
+                    members.stream().map(ImGroupMemberPo::getMemberId).toList());
 
             // 更新群状态为已解散
             ImGroupPo update = new ImGroupPo()
@@ -71,4 +71,14 @@ public class RedisUtil {
         Boolean result = redisTemplate.opsForValue().setIfAbsent(key, value, Duration.ofSeconds(expireSeconds));
         return result != null && result;
     }
+
+    /**
+     * 自增并返回自增后的值
+     *
+     * @param key 键
+     * @return 自增后的值
+     */
+    public Long increment(String key) {
+        return redisTemplate.opsForValue().increment(key);
+    }
 }
@@ -0,0 +1,60 @@
+package com.xy.lucky.connect.benchmark;
+
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.Configuration;
+import com.xy.lucky.spring.annotations.core.Service;
+import com.xy.lucky.spring.index.BeanIndex;
+import com.xy.lucky.spring.utils.ClassUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 容器启动时发现 Bean 的冷启动耗时：类路径扫描 vs 编译期 Bean 索引
+ * <p>
+ * 每个 fork 是新 JVM，只测一次，包含类加载开销，对应节点冷启动场景。
+ * 扫描需要遍历 jar 条目并加载包下全部类；索引只读取 META-INF/im-spring/bean.index 并加载其中的组件类。
+ * <p>
+ * 运行：java -jar im-connect-benchmark/target/benchmarks.jar BeanDiscoveryBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class BeanDiscoveryBenchmark {
+
+    private static final String BASE_PACKAGE = "com.xy.lucky.connect";
+
+    @Benchmark
+    public List<Class<?>> classpathScan() throws Exception {
+        List<Class<?>> beans = new ArrayList<>();
+        for (Class<?> cls : ClassUtils.scan(BASE_PACKAGE)) {
+            if (cls.isAnnotationPresent(Configuration.class)
+                    || cls.isAnnotationPresent(Component.class)
+                    || cls.isAnnotationPresent(Service.class)) {
+                beans.add(cls);
+            }
+        }
+        return beans;
+    }
+
+    @Benchmark
+    public List<Class<?>> beanIndex() throws Exception {
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        BeanIndex index = BeanIndex.load(classLoader);
+        List<Class<?>> beans = new ArrayList<>();
+        for (BeanIndex.IndexedBean bean : index.getBeans(BASE_PACKAGE)) {
+            beans.add(ClassUtils.forName(bean.getClassName(), classLoader));
+        }
+        return beans;
+    }
+}
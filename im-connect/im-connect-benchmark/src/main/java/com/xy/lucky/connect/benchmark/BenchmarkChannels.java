@@ -0,0 +1,57 @@
+package com.xy.lucky.connect.benchmark;
+
+import com.xy.lucky.connect.channel.CompactUserChannelStore;
+import com.xy.lucky.connect.channel.ConcurrentUserChannelStore;
+import com.xy.lucky.connect.channel.UserChannelStore;
+import com.xy.lucky.core.constants.IMConstant;
+import com.xy.lucky.core.enums.IMDeviceType;
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.AttributeKey;
+
+/**
+ * 基准测试共用的连接/用户构造
+ */
+final class BenchmarkChannels {
+
+    private static final AttributeKey<String> USER_ATTR = AttributeKey.valueOf(IMConstant.IM_USER);
+    private static final AttributeKey<String> DEVICE_ATTR = AttributeKey.valueOf(IMConstant.IM_DEVICE_TYPE);
+
+    private BenchmarkChannels() {
+    }
+
+    static UserChannelStore newStore(String name, int users) {
+        return "map".equalsIgnoreCase(name)
+                ? new ConcurrentUserChannelStore()
+                : new CompactUserChannelStore(users);
+    }
+
+    static String[] userIds(int users) {
+        String[] ids = new String[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = String.valueOf(100_000_000L + i);
+        }
+        return ids;
+    }
+
+    /**
+     * 使用真实 DefaultChannelId，并像 UserChannelMap 一样在 Channel 上打好用户/设备标签
+     */
+    static Channel[] channels(String[] ids, IMDeviceType deviceType) {
+        Channel[] channels = new Channel[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            Channel channel = new EmbeddedChannel(DefaultChannelId.newInstance());
+            channel.attr(USER_ATTR).set(ids[i]);
+            channel.attr(DEVICE_ATTR).set(deviceType.getType());
+            channels[i] = channel;
+        }
+        return channels;
+    }
+
+    static void close(Channel[] channels) {
+        for (Channel channel : channels) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.xy.lucky.connect.benchmark;
+
+import com.xy.lucky.connect.netty.service.tcp.codec.json.TcpJsonMessageHandler;
+import com.xy.lucky.connect.netty.service.websocket.codec.json.JsonMessageDecoder;
+import com.xy.lucky.connect.netty.service.websocket.codec.json.JsonMessageEncoder;
+import com.xy.lucky.connect.netty.service.websocket.codec.json.JsonMessageHandler;
+import com.xy.lucky.core.model.IMessageWrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON 编解码耗时（WebSocket 处理器 / 编码器 / 解码器，TCP 处理器 / 编码器 / 解码器）
+ * <p>
+ * - TCP 的输入输出均为拆帧后的单帧内容（长度头由 LengthFieldPrepender / LengthFieldBasedFrameDecoder 处理，不计入）
+ * - 解码输入为 JsonMessageHandler 编码出的同一份字节，每次调用使用 retainedDuplicate
+ * <p>
+ * 运行：java -jar im-connect-benchmark/target/benchmarks.jar JsonCodecBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class JsonCodecBenchmark {
+
+    @Param({CodecPayloads.SINGLE, CodecPayloads.GROUP, CodecPayloads.HEARTBEAT})
+    public String payload;
+
+    private IMessageWrap<Object> message;
+    private ByteBuf encoded;
+
+    private EmbeddedChannel wsHandler;
+    private EmbeddedChannel wsEncoder;
+    private EmbeddedChannel wsDecoder;
+    private EmbeddedChannel tcpHandler;
+    private EmbeddedChannel tcpEncoder;
+    private EmbeddedChannel tcpDecoder;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        message = CodecPayloads.of(payload);
+        JsonMessageHandler handler = new JsonMessageHandler();
+        encoded = handler.encodeContent(PooledByteBufAllocator.DEFAULT, message);
+
+        wsHandler = new EmbeddedChannel(handler);
+        wsEncoder = new EmbeddedChannel(new JsonMessageEncoder());
+        wsDecoder = new EmbeddedChannel(new JsonMessageDecoder());
+        tcpHandler = new EmbeddedChannel(new TcpJsonMessageHandler());
+        tcpEncoder = new EmbeddedChannel(new com.xy.lucky.connect.netty.service.tcp.codec.json.JsonMessageEncoder());
+        tcpDecoder = new EmbeddedChannel(new com.xy.lucky.connect.netty.service.tcp.codec.json.JsonMessageDecoder());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoded.release();
+        wsHandler.finishAndReleaseAll();
+        wsEncoder.finishAndReleaseAll();
+        wsDecoder.finishAndReleaseAll();
+        tcpHandler.finishAndReleaseAll();
+        tcpEncoder.finishAndReleaseAll();
+        tcpDecoder.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int wsHandlerEncode() {
+        return encode(wsHandler);
+    }
+
+    @Benchmark
+    public Object wsHandlerDecode() {
+        wsHandler.writeInbound(new TextWebSocketFrame(encoded.retainedDuplicate()));
+        return wsHandler.readInbound();
+    }
+
+    @Benchmark
+    public int wsEncoderEncode() {
+        return encode(wsEncoder);
+    }
+
+    @Benchmark
+    public Object wsDecoderDecode() {
+        wsDecoder.writeInbound(new TextWebSocketFrame(encoded.retainedDuplicate()));
+        return wsDecoder.readInbound();
+    }
+
+    @Benchmark
+    public int tcpHandlerEncode() {
+        return encode(tcpHandler);
+    }
+
+    @Benchmark
+    public Object tcpHandlerDecode() {
+        tcpHandler.writeInbound(encoded.retainedDuplicate());
+        return tcpHandler.readInbound();
+    }
+
+    @Benchmark
+    public int tcpEncoderEncode() {
+        return encode(tcpEncoder);
+    }
+
+    @Benchmark
+    public Object tcpDecoderDecode() {
+        tcpDecoder.writeInbound(encoded.retainedDuplicate());
+        return tcpDecoder.readInbound();
+    }
+
+    private int encode(EmbeddedChannel channel) {
+        channel.writeOutbound(message);
+        return CodecPayloads.releaseOutbound(channel);
+    }
+}
@@ -0,0 +1,47 @@
+package com.xy.lucky.connect.benchmark;
+
+import com.google.protobuf.Any;
+import com.xy.lucky.connect.netty.service.websocket.codec.proto.ProtobufMessageHandler;
+import com.xy.lucky.connect.utils.JacksonUtil;
+import com.xy.lucky.connect.utils.ProtoJsonUtils;
+import com.xy.lucky.core.model.IMessageWrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+/**
+ * 消息体编码体积对比：google.protobuf.Struct vs 强类型消息体（im_message_body.proto）vs JSON
+ * <p>
+ * - data：IMessageWrap.data 打包后的 Any 字节数（含 type_url）
+ * - frame：ProtobufMessageHandler 编码出的完整 IMessageWrap 字节数，JSON 为 JacksonUtil 序列化字节数
+ * <p>
+ * 运行：java -cp im-connect-benchmark/target/benchmarks.jar com.xy.lucky.connect.benchmark.MessageBodySizeReport
+ */
+public final class MessageBodySizeReport {
+
+    private MessageBodySizeReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-10s %12s %12s %12s %12s %12s%n",
+                "payload", "structData", "typedData", "structFrame", "typedFrame", "jsonFrame");
+        for (String payload : new String[]{CodecPayloads.SINGLE, CodecPayloads.GROUP, CodecPayloads.HEARTBEAT}) {
+            IMessageWrap<Object> message = CodecPayloads.of(payload);
+            Object data = message.getData();
+            int structData = data == null ? 0 : ProtoJsonUtils.packAny(data).getSerializedSize();
+            Any typed = data == null ? null : ProtoJsonUtils.packAny(message.getCode(), data);
+            int typedData = typed == null ? 0 : typed.getSerializedSize();
+            System.out.printf("%-10s %12d %12d %12d %12d %12d%n", payload, structData, typedData,
+                    frameSize(message, false), frameSize(message, true), JacksonUtil.toByteArray(message).length);
+        }
+    }
+
+    private static int frameSize(IMessageWrap<Object> message, boolean typedBody) throws Exception {
+        ProtoJsonUtils.setTypedBodyEnabled(typedBody);
+        ByteBuf content = new ProtobufMessageHandler().encodeContent(UnpooledByteBufAllocator.DEFAULT, message);
+        try {
+            return content.readableBytes();
+        } finally {
+            content.release();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.xy.lucky.connect.benchmark;
+
+import com.xy.lucky.connect.netty.service.websocket.codec.proto.ProtobufMessageDecoder;
+import com.xy.lucky.connect.netty.service.websocket.codec.proto.ProtobufMessageEncoder;
+import com.xy.lucky.connect.netty.service.websocket.codec.proto.ProtobufMessageHandler;
+import com.xy.lucky.connect.utils.ProtoJsonUtils;
+import com.xy.lucky.core.model.IMessageWrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protobuf 编解码耗时（WebSocket 处理器 / 编码器 / 解码器，TCP 编码器 / 解码器）
+ * <p>
+ * - 每个编解码器挂在独立的 EmbeddedChannel 上，经 pipeline 调用，与线上调用路径一致
+ * - 解码输入为 ProtobufMessageHandler 编码出的同一份字节，每次调用使用 retainedDuplicate
+ * - typedBody=true 为强类型消息体（im_message_body.proto），false 为 google.protobuf.Struct
+ * <p>
+ * 运行：java -jar im-connect-benchmark/target/benchmarks.jar ProtobufCodecBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class ProtobufCodecBenchmark {
+
+    @Param({CodecPayloads.SINGLE, CodecPayloads.GROUP, CodecPayloads.HEARTBEAT})
+    public String payload;
+
+    @Param({"true", "false"})
+    public boolean typedBody;
+
+    private IMessageWrap<Object> message;
+    private ByteBuf encoded;
+
+    private EmbeddedChannel wsHandler;
+    private EmbeddedChannel wsEncoder;
+    private EmbeddedChannel wsDecoder;
+    private EmbeddedChannel tcpEncoder;
+    private EmbeddedChannel tcpDecoder;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        message = CodecPayloads.of(payload);
+        ProtoJsonUtils.setTypedBodyEnabled(typedBody);
+        ProtobufMessageHandler handler = new ProtobufMessageHandler();
+        encoded = handler.encodeContent(PooledByteBufAllocator.DEFAULT, message);
+
+        wsHandler = new EmbeddedChannel(handler);
+        wsEncoder = new EmbeddedChannel(new ProtobufMessageEncoder());
+        wsDecoder = new EmbeddedChannel(new ProtobufMessageDecoder());
+        tcpEncoder = new EmbeddedChannel(new com.xy.lucky.connect.netty.service.tcp.codec.proto.ProtobufMessageEncoder());
+        tcpDecoder = new EmbeddedChannel(new com.xy.lucky.connect.netty.service.tcp.codec.proto.ProtobufMessageDecoder());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoded.release();
+        wsHandler.finishAndReleaseAll();
+        wsEncoder.finishAndReleaseAll();
+        wsDecoder.finishAndReleaseAll();
+        tcpEncoder.finishAndReleaseAll();
+        tcpDecoder.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int wsHandlerEncode() {
+        return encode(wsHandler);
+    }
+
+    @Benchmark
+    public Object wsHandlerDecode() {
+        return decode(wsHandler);
+    }
+
+    @Benchmark
+    public int wsEncoderEncode() {
+        return encode(wsEncoder);
+    }
+
+    @Benchmark
+    public Object wsDecoderDecode() {
+        return decode(wsDecoder);
+    }
+
+    @Benchmark
+    public int tcpEncoderEncode() {
+        return encode(tcpEncoder);
+    }
+
+    @Benchmark
+    public Object tcpDecoderDecode() {
+        return decode(tcpDecoder);
+    }
+
+    private int encode(EmbeddedChannel channel) {
+        channel.writeOutbound(message);
+        return CodecPayloads.releaseOutbound(channel);
+    }
+
+    private Object decode(EmbeddedChannel channel) {
+        channel.writeInbound(new BinaryWebSocketFrame(encoded.retainedDuplicate()));
+        return channel.readInbound();
+    }
+}
@@ -0,0 +1,88 @@
+package com.xy.lucky.connect.benchmark;
+
+import com.google.protobuf.Any;
+import com.xy.lucky.connect.utils.JacksonUtil;
+import com.xy.lucky.connect.utils.ProtoJsonUtils;
+import com.xy.lucky.core.model.IMessageWrap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化工具耗时：ProtoJsonUtils.packAny / unpackAny 与 JacksonUtil 序列化 / 反序列化
+ * <p>
+ * packAny / unpackAny 只处理消息 data 部分（心跳无 data，测的是空 Struct 路径）；
+ * packTypedAny / unpackTypedAny 为按消息类型编码的强类型消息体（im_message_body.proto），体积对比见 MessageBodySizeReport
+ * <p>
+ * 运行：java -jar im-connect-benchmark/target/benchmarks.jar SerializationBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({CodecPayloads.SINGLE, CodecPayloads.GROUP, CodecPayloads.HEARTBEAT})
+    public String payload;
+
+    private IMessageWrap<Object> message;
+    private Any packed;
+    private Any packedTyped;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        message = CodecPayloads.of(payload);
+        packed = ProtoJsonUtils.packAny(message.getData());
+        packedTyped = ProtoJsonUtils.packAny(message.getCode(), message.getData());
+        json = JacksonUtil.toJSONString(message);
+    }
+
+    @Benchmark
+    public Any packAny() {
+        return ProtoJsonUtils.packAny(message.getData());
+    }
+
+    @Benchmark
+    public Object unpackAny() {
+        return ProtoJsonUtils.unpackAny(packed);
+    }
+
+    @Benchmark
+    public Any packTypedAny() {
+        return ProtoJsonUtils.packAny(message.getCode(), message.getData());
+    }
+
+    @Benchmark
+    public Object unpackTypedAny() {
+        return ProtoJsonUtils.unpackAny(packedTyped);
+    }
+
+    @Benchmark
+    public String jacksonToJsonString() {
+        return JacksonUtil.toJSONString(message);
+    }
+
+    @Benchmark
+    public byte[] jacksonToByteArray() {
+        return JacksonUtil.toByteArray(message);
+    }
+
+    @Benchmark
+    public IMessageWrap<?> jacksonParseObject() {
+        return JacksonUtil.parseObject(json, IMessageWrap.class);
+    }
+}
@@ -0,0 +1,95 @@
+package com.xy.lucky.connect.benchmark;
+
+import com.xy.lucky.connect.channel.UserChannelStore;
+import com.xy.lucky.core.enums.IMDeviceType;
+import io.netty.channel.Channel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserChannelStore 查询/绑定延迟对比（compact vs map）
+ * <p>
+ * 运行：java -jar im-connect-benchmark/target/benchmarks.jar UserChannelStoreBenchmark
+ * 每连接内存占用见 {@link UserChannelStoreFootprint}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class UserChannelStoreBenchmark {
+
+    @Param({"compact", "map"})
+    public String store;
+
+    @Param({"100000"})
+    public int users;
+
+    private UserChannelStore channelStore;
+    private String[] userIds;
+    private Channel[] channels;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        channelStore = BenchmarkChannels.newStore(store, users);
+        userIds = BenchmarkChannels.userIds(users);
+        channels = BenchmarkChannels.channels(userIds, IMDeviceType.ANDROID);
+        for (int i = 0; i < users; i++) {
+            channelStore.bind(userIds[i], IMDeviceType.DeviceGroup.MOBILE, channels[i], false);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkChannels.close(channels);
+    }
+
+    @Benchmark
+    public Channel get(Cursor cursor) {
+        return channelStore.get(userIds[cursor.next(users)], IMDeviceType.DeviceGroup.MOBILE);
+    }
+
+    @Benchmark
+    public Collection<Channel> getAll(Cursor cursor) {
+        return channelStore.getAll(userIds[cursor.next(users)]);
+    }
+
+    @Benchmark
+    public boolean rebind(Cursor cursor) {
+        int i = cursor.next(users);
+        channelStore.remove(userIds[i], IMDeviceType.DeviceGroup.MOBILE, channels[i]);
+        return channelStore.bind(userIds[i], IMDeviceType.DeviceGroup.MOBILE, channels[i], false).isEmpty();
+    }
+
+    /**
+     * 每线程独立的伪随机游标，避免共享计数器的争用干扰测量
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int seed = (int) System.nanoTime() | 1;
+
+        int next(int bound) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return (seed & Integer.MAX_VALUE) % bound;
+        }
+    }
+}
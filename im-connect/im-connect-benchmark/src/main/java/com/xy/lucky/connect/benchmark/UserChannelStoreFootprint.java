@@ -0,0 +1,52 @@
+package com.xy.lucky.connect.benchmark;
+
+import com.xy.lucky.connect.channel.UserChannelStore;
+import com.xy.lucky.core.enums.IMDeviceType;
+import io.netty.channel.Channel;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * UserChannelStore 每连接内存占用对比（compact vs map）
+ * <p>
+ * - 用 JOL 统计绑定后（存储 + Channel + userId）的对象图大小，减去绑定前 Channel 与 userId 的大小
+ * - 结果即为存储结构为每个连接额外付出的堆内存（含 map 后端 channelId 字符串）
+ * <p>
+ * 运行：java -cp im-connect-benchmark/target/benchmarks.jar com.xy.lucky.connect.benchmark.UserChannelStoreFootprint [users]
+ */
+public final class UserChannelStoreFootprint {
+
+    private UserChannelStoreFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        for (String name : new String[]{"compact", "map"}) {
+            measure(name, users, false);
+            measure(name, users, true);
+        }
+    }
+
+    private static void measure(String name, int users, boolean multiDevice) {
+        String[] userIds = BenchmarkChannels.userIds(users);
+        Channel[] mobile = BenchmarkChannels.channels(userIds, IMDeviceType.ANDROID);
+        Channel[] desktop = multiDevice ? BenchmarkChannels.channels(userIds, IMDeviceType.WIN) : new Channel[0];
+        long baseline = GraphLayout.parseInstance(userIds, mobile, desktop).totalSize();
+
+        UserChannelStore store = BenchmarkChannels.newStore(name, users);
+        for (int i = 0; i < users; i++) {
+            store.bind(userIds[i], IMDeviceType.DeviceGroup.MOBILE, mobile[i], false);
+            if (multiDevice) {
+                store.bind(userIds[i], IMDeviceType.DeviceGroup.DESKTOP, desktop[i], false);
+            }
+        }
+
+        // 按大小相减而非按地址 subtract，避免两次采样之间 GC 移动对象造成误差
+        long bytes = GraphLayout.parseInstance(store, userIds, mobile, desktop).totalSize() - baseline;
+        int connections = store.connectionCount();
+        System.out.printf("%-8s users=%d connections=%d total=%.1f MB perUser=%d B perConnection=%d B%n",
+                name, users, connections, bytes / 1024.0 / 1024.0, bytes / users, bytes / connections);
+
+        BenchmarkChannels.close(mobile);
+        BenchmarkChannels.close(desktop);
+    }
+}
@@ -0,0 +1,137 @@
+package com.xy.lucky.connect.channel;
+
+import com.xy.lucky.core.enums.IMDeviceType;
+import io.netty.channel.Channel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 紧凑型用户通道存储
+ * <p>
+ * - 每个用户只占一个 ConcurrentHashMap 节点 + 一个按 DeviceGroup.ordinal() 下标的 Channel 数组
+ * - 不再为每个用户创建内层 Map、UserChannel 对象和 channelId 字符串，Channel 按实例比较
+ * - 数组写时复制（分组数很少，复制成本可忽略），修改在 compute 内完成，读无锁
+ * - userId 建议直接传入 Channel 属性上的同一个字符串实例，不额外保留副本
+ */
+public class CompactUserChannelStore implements UserChannelStore {
+
+    private static final IMDeviceType.DeviceGroup[] GROUPS = IMDeviceType.DeviceGroup.values();
+
+    private final ConcurrentHashMap<String, Channel[]> channels;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public CompactUserChannelStore() {
+        this(16);
+    }
+
+    public CompactUserChannelStore(int initialCapacity) {
+        this.channels = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    @Override
+    public List<Channel> bind(String userId, IMDeviceType.DeviceGroup group, Channel channel, boolean exclusive) {
+        final int index = group.ordinal();
+        final List<Channel> displaced = new ArrayList<>(0);
+        channels.compute(userId, (k, old) -> {
+            Channel[] next = old == null ? new Channel[GROUPS.length] : old.clone();
+            int delta = 0;
+            for (int i = 0; i < next.length; i++) {
+                Channel existing = next[i];
+                if (existing == null || existing == channel || (i != index && !exclusive)) {
+                    continue;
+                }
+                displaced.add(existing);
+                next[i] = null;
+                delta--;
+            }
+            if (next[index] == null) {
+                next[index] = channel;
+                delta++;
+            }
+            connections.addAndGet(delta);
+            return next;
+        });
+        return displaced;
+    }
+
+    @Override
+    public Channel get(String userId, IMDeviceType.DeviceGroup group) {
+        Channel[] slots = channels.get(userId);
+        return slots != null ? slots[group.ordinal()] : null;
+    }
+
+    @Override
+    public Collection<Channel> getAll(String userId) {
+        Channel[] slots = channels.get(userId);
+        if (slots == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<Channel> result = new ArrayList<>(slots.length);
+        for (Channel channel : slots) {
+            if (channel != null) {
+                result.add(channel);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Channel remove(String userId, IMDeviceType.DeviceGroup group) {
+        final int index = group.ordinal();
+        final Channel[] removed = new Channel[1];
+        channels.computeIfPresent(userId, (k, old) -> {
+            removed[0] = old[index];
+            return removed[0] == null ? old : without(old, index);
+        });
+        return removed[0];
+    }
+
+    @Override
+    public boolean remove(String userId, IMDeviceType.DeviceGroup group, Channel channel) {
+        final int index = group.ordinal();
+        final boolean[] removed = new boolean[1];
+        channels.computeIfPresent(userId, (k, old) -> {
+            if (old[index] != channel) {
+                return old;
+            }
+            removed[0] = true;
+            return without(old, index);
+        });
+        return removed[0];
+    }
+
+    @Override
+    public List<String> userIds() {
+        return new ArrayList<>(channels.keySet());
+    }
+
+    @Override
+    public int userCount() {
+        return channels.size();
+    }
+
+    @Override
+    public int connectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * 移除指定槽位，全部为空时返回 null 以删除用户节点
+     */
+    private Channel[] without(Channel[] old, int index) {
+        connections.decrementAndGet();
+        Channel[] next = old.clone();
+        next[index] = null;
+        for (Channel channel : next) {
+            if (channel != null) {
+                return next;
+            }
+        }
+        return null;
+    }
+}
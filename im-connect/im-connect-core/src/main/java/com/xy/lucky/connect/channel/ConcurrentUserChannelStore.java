@@ -0,0 +1,128 @@
+package com.xy.lucky.connect.channel;
+
+import com.xy.lucky.connect.domain.IMUserChannel;
+import com.xy.lucky.connect.domain.IMUserChannel.UserChannel;
+import com.xy.lucky.core.constants.IMConstant;
+import com.xy.lucky.core.enums.IMDeviceType;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于嵌套 ConcurrentHashMap 的用户通道存储（原实现）
+ * <p>
+ * - 用户 -> IMUserChannel -> (DeviceGroup -> UserChannel)
+ * - 保留 channelId、设备类型等明细，便于诊断；内存占用明显高于 CompactUserChannelStore
+ */
+public class ConcurrentUserChannelStore implements UserChannelStore {
+
+    private static final AttributeKey<String> DEVICE_ATTR = AttributeKey.valueOf(IMConstant.IM_DEVICE_TYPE);
+
+    private final ConcurrentHashMap<String, IMUserChannel> userChannels = new ConcurrentHashMap<>();
+
+    @Override
+    public List<Channel> bind(String userId, IMDeviceType.DeviceGroup group, Channel channel, boolean exclusive) {
+        IMUserChannel imUserChannel = userChannels.computeIfAbsent(userId, k -> new IMUserChannel(userId, new ConcurrentHashMap<>()));
+        Map<IMDeviceType.DeviceGroup, UserChannel> channelMap = imUserChannel.getUserChannelMap();
+        List<Channel> displaced = new ArrayList<>(0);
+
+        UserChannel existing = channelMap.get(group);
+        if (existing != null && existing.getChannel() != channel && channelMap.remove(group, existing)) {
+            displaced.add(existing.getChannel());
+        }
+        if (exclusive) {
+            for (Map.Entry<IMDeviceType.DeviceGroup, UserChannel> entry : channelMap.entrySet()) {
+                UserChannel uc = entry.getValue();
+                if (entry.getKey() != group && uc != null && channelMap.remove(entry.getKey(), uc)) {
+                    displaced.add(uc.getChannel());
+                }
+            }
+        }
+
+        String type = channel.attr(DEVICE_ATTR).get();
+        channelMap.put(group, new UserChannel(channel.id().asLongText(),
+                IMDeviceType.ofOrDefault(type, IMDeviceType.WEB), group, channel));
+        return displaced;
+    }
+
+    @Override
+    public Channel get(String userId, IMDeviceType.DeviceGroup group) {
+        IMUserChannel im = userChannels.get(userId);
+        if (im == null) {
+            return null;
+        }
+        UserChannel uc = im.getChannelByGroup(group);
+        return uc != null ? uc.getChannel() : null;
+    }
+
+    @Override
+    public Collection<Channel> getAll(String userId) {
+        IMUserChannel im = userChannels.get(userId);
+        if (im == null) {
+            return Collections.emptyList();
+        }
+        Collection<UserChannel> values = im.getUserChannelMap().values();
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ArrayList<Channel> channels = new ArrayList<>(values.size());
+        for (UserChannel userChannel : values) {
+            if (userChannel != null && userChannel.getChannel() != null) {
+                channels.add(userChannel.getChannel());
+            }
+        }
+        return channels;
+    }
+
+    @Override
+    public Channel remove(String userId, IMDeviceType.DeviceGroup group) {
+        IMUserChannel im = userChannels.get(userId);
+        if (im == null) {
+            return null;
+        }
+        UserChannel removed = im.getUserChannelMap().remove(group);
+        if (im.getUserChannelMap().isEmpty()) {
+            userChannels.remove(userId, im);
+        }
+        return removed != null ? removed.getChannel() : null;
+    }
+
+    @Override
+    public boolean remove(String userId, IMDeviceType.DeviceGroup group, Channel channel) {
+        IMUserChannel im = userChannels.get(userId);
+        if (im == null) {
+            return false;
+        }
+        UserChannel uc = im.getUserChannelMap().get(group);
+        // 只有当 Map 中的 Channel ID 与当前关闭的一致时才移除，防止误删新连接
+        if (uc == null || !channel.id().asLongText().equals(uc.getChannelId())
+                || !im.getUserChannelMap().remove(group, uc)) {
+            return false;
+        }
+        if (im.getUserChannelMap().isEmpty()) {
+            userChannels.remove(userId, im);
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> userIds() {
+        return new ArrayList<>(userChannels.keySet());
+    }
+
+    @Override
+    public int userCount() {
+        return userChannels.size();
+    }
+
+    @Override
+    public int connectionCount() {
+        return userChannels.values().stream().mapToInt(im -> im.getUserChannelMap().size()).sum();
+    }
+}
@@ -2,26 +2,28 @@ package com.xy.lucky.connect.channel;
 
 import com.xy.lucky.connect.config.LogConstant;
 import com.xy.lucky.connect.config.properties.NettyProperties;
-import com.xy.lucky.connect.domain.IMUserChannel;
-import com.xy.lucky.connect.domain.IMUserChannel.UserChannel;
 import com.xy.lucky.core.constants.IMConstant;
 import com.xy.lucky.core.enums.IMDeviceType;
 import com.xy.lucky.core.enums.IMessageType;
 import com.xy.lucky.core.model.IMessageWrap;
 import com.xy.lucky.spring.annotations.core.Autowired;
 import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.PostConstruct;
 import io.netty.channel.Channel;
 import io.netty.util.AttributeKey;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * 用户 -> 多设备 Channel 管理
  * - 同组设备互斥由 IMDeviceType.isConflicting 决定
  * - 新连接会替换冲突或相同类型的旧连接并优雅关闭旧连接
  * - Channel.closeFuture 注册幂等清理
+ * - 存储后端由 netty.config.channelStore 选择，默认 compact（见 CompactUserChannelStore）
  */
 @Slf4j(topic = LogConstant.Channel)
 @Component
@@ -30,12 +32,20 @@ public class UserChannelMap {
     private static final AttributeKey<String> USER_ATTR = AttributeKey.valueOf(IMConstant.IM_USER);
     private static final AttributeKey<String> DEVICE_ATTR = AttributeKey.valueOf(IMConstant.IM_DEVICE_TYPE);
 
-    // 用户 -> 多设备映射
-    private final ConcurrentHashMap<String, IMUserChannel> userChannels = new ConcurrentHashMap<>();
-
     @Autowired
     private NettyProperties nettyProperties;
 
+    // 用户 -> 多设备映射
+    private UserChannelStore store = new CompactUserChannelStore();
+
+    @PostConstruct
+    public void init() {
+        if ("map".equalsIgnoreCase(nettyProperties.getChannelStore())) {
+            store = new ConcurrentUserChannelStore();
+        }
+        log.info("用户通道存储后端: {}", store.getClass().getSimpleName());
+    }
+
     /**
      * 添加并绑定用户通道
      * @param userId 用户ID
@@ -48,40 +58,29 @@ public class UserChannelMap {
 
         final IMDeviceType dt = deviceType == null ? IMDeviceType.WEB : deviceType;
         final IMDeviceType.DeviceGroup group = dt.getGroup();
-        final String channelId = ch.id().asLongText();
 
-        log.debug("尝试绑定用户通道: userId={}, group={}, type={}, channelId={}", userId, group, dt.getType(), channelId);
+        log.debug("尝试绑定用户通道: userId={}, group={}, type={}, channelId={}", userId, group, dt.getType(), ch.id());
 
         // 1. 在 Channel 上打标签，便于后续清理和诊断
         ch.attr(USER_ATTR).set(userId);
         ch.attr(DEVICE_ATTR).set(dt.getType());
 
-        IMUserChannel imUserChannel = userChannels.computeIfAbsent(userId, k -> new IMUserChannel(userId, new ConcurrentHashMap<>()));
-        Map<IMDeviceType.DeviceGroup, UserChannel> channelMap = imUserChannel.getUserChannelMap();
-
-        // 3. 处理同组互斥：如果该分组已存在其他连接，则踢出
-        UserChannel existing = channelMap.get(group);
-        if (existing != null && !channelId.equals(existing.getChannelId())) {
-            log.info("触发同组互斥踢人: userId={}, group={}, oldChannelId={}, newChannelId={}", userId, group, existing.getChannelId(), channelId);
-            channelMap.remove(group, existing);
-            safeKickAndClose(userId, existing, "同类型设备登录，您已被强制下线");
-        }
-
-        if (Boolean.FALSE.equals(nettyProperties.getMultiDeviceEnabled())) {
-            for (Map.Entry<IMDeviceType.DeviceGroup, UserChannel> entry : channelMap.entrySet()) {
-                IMDeviceType.DeviceGroup g = entry.getKey();
-                UserChannel uc = entry.getValue();
-                if (g != group && uc != null) {
-                    log.info("触发全局单点登录踢人: userId={}, group={}, kickedGroup={}", userId, group, g);
-                    channelMap.remove(g, uc);
-                    safeKickAndClose(userId, uc, "账号在其他端登录，您已被强制下线");
-                }
+        // 2. 绑定，同组互斥；关闭多设备登录时同时踢出其他分组
+        boolean exclusive = Boolean.FALSE.equals(nettyProperties.getMultiDeviceEnabled());
+        List<Channel> displaced = store.bind(userId, group, ch, exclusive);
+
+        // 3. 关闭被替换的旧连接
+        for (Channel old : displaced) {
+            IMDeviceType.DeviceGroup oldGroup = IMDeviceType.getDeviceGroupOrDefault(old.attr(DEVICE_ATTR).get(), group);
+            if (oldGroup == group) {
+                log.info("触发同组互斥踢人: userId={}, group={}, oldChannelId={}, newChannelId={}", userId, group, old.id(), ch.id());
+                safeKickAndClose(userId, old, oldGroup, "同类型设备登录，您已被强制下线");
+            } else {
+                log.info("触发全局单点登录踢人: userId={}, group={}, kickedGroup={}", userId, group, oldGroup);
+                safeKickAndClose(userId, old, oldGroup, "账号在其他端登录，您已被强制下线");
             }
         }
 
-        UserChannel newUc = new UserChannel(channelId, dt, group, ch);
-        channelMap.put(group, newUc);
-
         ch.closeFuture().addListener(future -> removeByChannel(ch));
 
         log.info("用户通道绑定成功: userId={}, group={}, type={}", userId, group, dt.getType());
@@ -92,10 +91,7 @@ public class UserChannelMap {
      */
     public Channel getChannel(String userId, IMDeviceType deviceType) {
         if (userId == null || deviceType == null) return null;
-        IMUserChannel im = userChannels.get(userId);
-        if (im == null) return null;
-        UserChannel uc = im.getUserChannelMap().get(deviceType.getGroup());
-        return uc != null ? uc.getChannel() : null;
+        return store.get(userId, deviceType.getGroup());
     }
 
     /**
@@ -103,24 +99,7 @@ public class UserChannelMap {
      */
     public Collection<Channel> getChannelsByUser(String userId) {
         if (userId == null) return Collections.emptyList();
-        IMUserChannel im = userChannels.get(userId);
-        if (im == null) return Collections.emptyList();
-
-        Collection<UserChannel> values = im.getUserChannelMap().values();
-        if (values.isEmpty()) {
-            return Collections.emptyList();
-        }
-        ArrayList<Channel> channels = new ArrayList<>(values.size());
-        for (UserChannel userChannel : values) {
-            if (userChannel == null) {
-                continue;
-            }
-            Channel channel = userChannel.getChannel();
-            if (channel != null) {
-                channels.add(channel);
-            }
-        }
-        return channels;
+        return store.getAll(userId);
     }
 
     /**
@@ -128,18 +107,12 @@ public class UserChannelMap {
      */
     public void removeChannel(String userId, String deviceTypeStr, boolean close) {
         if (userId == null || deviceTypeStr == null) return;
-        IMUserChannel im = userChannels.get(userId);
-        if (im == null) return;
 
         IMDeviceType dt = IMDeviceType.ofOrDefault(deviceTypeStr, IMDeviceType.WEB);
-        UserChannel removed = im.getUserChannelMap().remove(dt.getGroup());
+        Channel removed = store.remove(userId, dt.getGroup());
 
-        if (removed != null && close && removed.getChannel() != null && removed.getChannel().isActive()) {
-            removed.getChannel().close();
-        }
-
-        if (im.getUserChannelMap().isEmpty()) {
-            userChannels.remove(userId, im);
+        if (removed != null && close && removed.isActive()) {
+            removed.close();
         }
     }
 
@@ -152,18 +125,10 @@ public class UserChannelMap {
         String type = channel.attr(DEVICE_ATTR).get();
 
         if (userId != null && type != null) {
-            IMUserChannel im = userChannels.get(userId);
-            if (im != null) {
-                IMDeviceType.DeviceGroup group = IMDeviceType.getDeviceGroupOrDefault(type, IMDeviceType.DeviceGroup.WEB);
-                UserChannel uc = im.getUserChannelMap().get(group);
-                // 只有当 Map 中的 Channel ID 与当前关闭的一致时才移除，防止误删新连接
-                if (uc != null && channel.id().asLongText().equals(uc.getChannelId())) {
-                    im.getUserChannelMap().remove(group);
-                    if (im.getUserChannelMap().isEmpty()) {
-                        userChannels.remove(userId);
-                    }
-                    log.debug("已清理离线通道: userId={}, type={}, group={}", userId, type, group);
-                }
+            IMDeviceType.DeviceGroup group = IMDeviceType.getDeviceGroupOrDefault(type, IMDeviceType.DeviceGroup.WEB);
+            // 只有当分组上仍是当前关闭的 Channel 时才移除，防止误删新连接
+            if (store.remove(userId, group, channel)) {
+                log.debug("已清理离线通道: userId={}, type={}, group={}", userId, type, group);
             }
         }
     }
@@ -171,8 +136,7 @@ public class UserChannelMap {
     /**
      * 优雅地向旧连接发送踢人指令并关闭
      */
-    private void safeKickAndClose(String userId, UserChannel oldUc, String reason) {
-        Channel ch = oldUc.getChannel();
+    private void safeKickAndClose(String userId, Channel ch, IMDeviceType.DeviceGroup group, String reason) {
         if (ch == null || !ch.isActive()) return;
 
         try {
@@ -182,22 +146,29 @@ public class UserChannelMap {
 
             // 发送消息并添加监听器，消息发送完成后关闭连接
             ch.writeAndFlush(kickMsg).addListener(future -> {
-                log.info("踢人指令已送达，关闭旧连接: userId={}, group={}", userId, oldUc.getGroup());
+                log.info("踢人指令已送达，关闭旧连接: userId={}, group={}", userId, group);
                 ch.close();
             });
         } catch (Exception e) {
-            log.error("发送踢人消息异常: userId={}, group={}", userId, oldUc.getGroup(), e);
+            log.error("发送踢人消息异常: userId={}, group={}", userId, group, e);
             ch.close();
         }
     }
 
+    /**
+     * 当前在线用户 ID 快照（弱一致），用于批量迁移等运维操作
+     */
+    public List<String> getOnlineUserIds() {
+        return store.userIds();
+    }
+
     // --- 统计相关的简易方法 ---
 
     public int getOnlineUserCount() {
-        return userChannels.size();
+        return store.userCount();
     }
 
     public int getTotalConnectionCount() {
-        return userChannels.values().stream().mapToInt(im -> im.getUserChannelMap().size()).sum();
+        return store.connectionCount();
     }
 }
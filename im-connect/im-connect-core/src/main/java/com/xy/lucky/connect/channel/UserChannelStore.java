@@ -0,0 +1,67 @@
+package com.xy.lucky.connect.channel;
+
+import com.xy.lucky.core.enums.IMDeviceType;
+import io.netty.channel.Channel;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 用户 -> 设备分组 -> Channel 的存储后端
+ * <p>
+ * - 每个设备分组最多一个 Channel，绑定时返回被替换（或单点登录下被踢出）的旧 Channel，由调用方负责关闭
+ * - Channel 一律按实例比较，不依赖 channelId 字符串
+ * - 实现需保证线程安全
+ */
+public interface UserChannelStore {
+
+    /**
+     * 绑定用户通道
+     *
+     * @param userId    用户ID
+     * @param group     设备分组
+     * @param channel   新连接
+     * @param exclusive 是否踢出其他分组的连接（关闭多设备登录时为 true）
+     * @return 被替换的旧连接，无则为空列表
+     */
+    List<Channel> bind(String userId, IMDeviceType.DeviceGroup group, Channel channel, boolean exclusive);
+
+    /**
+     * 获取用户在指定分组上的连接
+     */
+    Channel get(String userId, IMDeviceType.DeviceGroup group);
+
+    /**
+     * 获取用户所有在线连接
+     */
+    Collection<Channel> getAll(String userId);
+
+    /**
+     * 移除用户在指定分组上的连接
+     *
+     * @return 被移除的连接，无则为 null
+     */
+    Channel remove(String userId, IMDeviceType.DeviceGroup group);
+
+    /**
+     * 仅当分组上仍是该连接实例时才移除，防止误删同组新连接
+     *
+     * @return 是否移除
+     */
+    boolean remove(String userId, IMDeviceType.DeviceGroup group, Channel channel);
+
+    /**
+     * 当前在线用户 ID 快照（弱一致）
+     */
+    List<String> userIds();
+
+    /**
+     * 在线用户数
+     */
+    int userCount();
+
+    /**
+     * 在线连接数
+     */
+    int connectionCount();
+}
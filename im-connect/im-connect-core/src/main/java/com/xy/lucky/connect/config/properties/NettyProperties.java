@@ -27,6 +27,9 @@ import java.util.List;
  *       enable: true
  *       port:
  *         - 19000
+ *     flush:
+ *       enable: true
+ *       explicitFlushAfterFlushes: 256
  * </pre>
  */
 @Data
@@ -39,6 +42,11 @@ public class NettyProperties {
      */
     private String protocol = "proto";
 
+    /**
+     * proto 协议下消息体是否使用强类型（im_message_body.proto），关闭后统一使用 google.protobuf.Struct
+     */
+    private boolean typedBody = true;
+
     /**
      * 心跳间隔时间（毫秒）
      */
@@ -64,6 +72,11 @@ public class NettyProperties {
      */
     private Boolean multiDeviceEnabled = false;
 
+    /**
+     * 用户通道存储后端：compact（按设备分组下标的数组，低内存）或 map（嵌套 ConcurrentHashMap）
+     */
+    private String channelStore = "compact";
+
     /**
      * TCP 配置
      */
@@ -76,6 +89,48 @@ public class NettyProperties {
     @NestedConfigurationProperty
     private WebSocketConfig websocket = new WebSocketConfig();
 
+    /**
+     * 出站 flush 合并配置
+     */
+    @NestedConfigurationProperty
+    private FlushConfig flush = new FlushConfig();
+
+    /**
+     * 接入与消息限流配置
+     */
+    @NestedConfigurationProperty
+    private LimiterConfig limiter = new LimiterConfig();
+
+    /**
+     * 传输层与监听 Socket 配置
+     */
+    @NestedConfigurationProperty
+    private TransportConfig transport = new TransportConfig();
+
+    /**
+     * 慢消费者（出站缓冲积压）治理配置
+     */
+    @NestedConfigurationProperty
+    private SlowConsumerConfig slowConsumer = new SlowConsumerConfig();
+
+    /**
+     * 连接排空与迁移配置
+     */
+    @NestedConfigurationProperty
+    private DrainConfig drain = new DrainConfig();
+
+    /**
+     * 入站解码限制配置
+     */
+    @NestedConfigurationProperty
+    private DecodeConfig decode = new DecodeConfig();
+
+    /**
+     * WebSocket 出站压缩配置
+     */
+    @NestedConfigurationProperty
+    private CompressionConfig compression = new CompressionConfig();
+
     /**
      * TCP 配置
      */
@@ -112,5 +167,281 @@ public class NettyProperties {
          */
         private List<Integer> port;
     }
-}
 
+    /**
+     * 出站 flush 合并配置
+     * <p>
+     * 同一 EventLoop tick 内排队的多次写合并为一次 flush（一次系统调用）
+     */
+    @Data
+    public static class FlushConfig {
+        /**
+         * 是否启用 flush 合并
+         */
+        private boolean enable = true;
+
+        /**
+         * 累计多少次 flush 请求后强制执行一次真实 flush
+         */
+        private int explicitFlushAfterFlushes = 256;
+
+        /**
+         * 没有读事件进行中时是否也合并（MQ 推送在读事件之外触发，需开启）
+         */
+        private boolean consolidateWhenNoReadInProgress = true;
+
+        /**
+         * 是否统计每次真实 flush 携带的消息条数
+         */
+        private boolean statsEnabled = true;
+    }
+
+    /**
+     * 接入与消息限流配置
+     * <p>
+     * 速率小于等于 0 表示关闭对应级别的限流
+     */
+    @Data
+    public static class LimiterConfig {
+        /**
+         * 是否启用限流
+         */
+        private boolean enable = true;
+
+        /**
+         * 全局每秒接入连接数
+         */
+        private double globalAcceptPerSecond = 2000;
+
+        /**
+         * 全局接入突发量
+         */
+        private int globalAcceptBurst = 4000;
+
+        /**
+         * 单 IP 每秒接入连接数
+         */
+        private double ipAcceptPerSecond = 20;
+
+        /**
+         * 单 IP 接入突发量
+         */
+        private int ipAcceptBurst = 50;
+
+        /**
+         * 单 IP 限流最多同时跟踪的地址数，超出后新地址只受全局限流约束
+         */
+        private int ipMaxEntries = 100000;
+
+        /**
+         * 单连接每秒业务消息数
+         */
+        private double userMessagesPerSecond = 50;
+
+        /**
+         * 单连接消息突发量
+         */
+        private int userMessageBurst = 100;
+
+        /**
+         * 同一连接连续被限流多少次后关闭连接，小于等于 0 表示只丢弃不关闭
+         */
+        private int closeAfterRejections = 200;
+    }
+
+    /**
+     * 传输层与监听 Socket 配置
+     * <p>
+     * 缓冲区大小小于等于 0 表示使用操作系统默认值
+     */
+    @Data
+    public static class TransportConfig {
+        /**
+         * 传输类型：auto（epoll 可用时使用 epoll，否则 NIO）、epoll、nio
+         */
+        private String nativeTransport = "auto";
+
+        /**
+         * 是否开启 SO_REUSEPORT，在同一端口绑定多个监听 Channel，由内核分摊 accept（仅 epoll 生效）
+         */
+        private boolean reusePort = false;
+
+        /**
+         * 开启 SO_REUSEPORT 时每个端口的监听 Channel 数，小于等于 0 时取 bossThreadSize
+         */
+        private int acceptorsPerPort = 0;
+
+        /**
+         * 监听 Socket 的全连接队列长度（SO_BACKLOG）
+         */
+        private int backlog = 1024;
+
+        /**
+         * 监听 Socket 的接收缓冲区（SO_RCVBUF），新连接继承该值
+         */
+        private int receiveBufferSize = 16 * 1024;
+
+        /**
+         * 连接的接收缓冲区（SO_RCVBUF）
+         */
+        private int childReceiveBufferSize = 0;
+
+        /**
+         * 连接的发送缓冲区（SO_SNDBUF）
+         */
+        private int childSendBufferSize = 0;
+    }
+
+    /**
+     * 慢消费者治理配置
+     * <p>
+     * 出站缓冲超过高水位时 Channel 变为不可写，持续不可写超过 unwritableTimeoutMs 后按 policy 处理：
+     * - drop：保留连接，丢弃后续推送直到缓冲回落到低水位
+     * - offline：解除用户路由（后续消息由 message 服务写入离线存储），缓冲排空后关闭连接
+     * - disconnect：立即关闭连接并释放缓冲
+     */
+    @Data
+    public static class SlowConsumerConfig {
+        /**
+         * 是否启用慢消费者处理策略（水位线始终生效）
+         */
+        private boolean enable = true;
+
+        /**
+         * 出站缓冲低水位（字节），回落到该值以下时 Channel 恢复可写
+         */
+        private int lowWaterMark = 32 * 1024;
+
+        /**
+         * 出站缓冲高水位（字节），超过该值时 Channel 变为不可写
+         */
+        private int highWaterMark = 64 * 1024;
+
+        /**
+         * 单连接出站缓冲上限（字节），超过后推送直接丢弃，小于等于 0 表示不限制
+         */
+        private long maxPendingBytes = 4 * 1024 * 1024;
+
+        /**
+         * 持续不可写多久后执行处理策略（毫秒）
+         */
+        private long unwritableTimeoutMs = 5000;
+
+        /**
+         * 处理策略：drop / offline / disconnect
+         */
+        private String policy = "drop";
+    }
+
+    /**
+     * 连接排空与迁移配置
+     * <p>
+     * 排空（drain）：从 Nacos 注销、拒绝新连接，分批向客户端发送重连提示并关闭连接，批量释放用户路由；
+     * 迁移（shed）：保持注册，仅将部分连接迁移到其他节点，用于过载节点卸载压力
+     */
+    @Data
+    public static class DrainConfig {
+        /**
+         * 停机时是否先排空连接
+         */
+        private boolean drainOnShutdown = true;
+
+        /**
+         * 每批迁移的用户数
+         */
+        private int batchSize = 200;
+
+        /**
+         * 批次间隔（毫秒），迁移速率约为 batchSize / batchIntervalMs
+         */
+        private long batchIntervalMs = 100;
+
+        /**
+         * 重连提示中的最小重连延迟（毫秒），需大于路由释放的批量窗口
+         */
+        private long reconnectMinDelayMs = 1000;
+
+        /**
+         * 重连延迟的随机抖动范围（毫秒），客户端在 [min, min + jitter) 内随机重连
+         */
+        private long reconnectJitterMs = 10000;
+
+        /**
+         * 停机排空的最长等待时间（毫秒），超时后剩余连接一次性发送提示并关闭
+         */
+        private long shutdownTimeoutMs = 30000;
+
+        /**
+         * 是否开放运维端点（/admin/drain、/admin/shed、/admin/resume），默认关闭
+         */
+        private boolean adminEnabled = false;
+
+        /**
+         * 运维端点绑定地址，默认只监听回环地址
+         */
+        private String adminHost = "127.0.0.1";
+
+        /**
+         * 运维端点端口（独立于指标端口）
+         */
+        private int adminPort = 9465;
+
+        /**
+         * 运维端点共享令牌，请求头 X-Admin-Token 须与之一致；为空时端点不挂载
+         */
+        private String adminToken;
+    }
+
+    /**
+     * 入站解码限制配置
+     * <p>
+     * 超过帧长度的 TCP 帧由 LengthFieldBasedFrameDecoder 拒绝，WebSocket 帧由 WebSocketServerProtocolHandler 以 1009 关闭；
+     * 嵌套层数同时作用于 protobuf 解析（递归深度）与 JSON 解析（对象 / 数组嵌套深度）
+     */
+    @Data
+    public static class DecodeConfig {
+        /**
+         * 单帧最大长度（字节），TCP 为去掉长度头后的负载长度，WebSocket 为帧负载长度
+         */
+        private int maxFrameLength = 640 * 1024;
+
+        /**
+         * 最大嵌套层数
+         */
+        private int maxNestingDepth = 64;
+    }
+
+    /**
+     * WebSocket permessage-deflate 压缩配置
+     * <p>
+     * 仅对握手时声明 permessage-deflate 的客户端生效；保留压缩上下文时每个收到过大消息的连接持有一个 Deflater（约 256KB），
+     * 连接数很大时可提高 minSize 或允许客户端要求不保留上下文
+     */
+    @Data
+    public static class CompressionConfig {
+        /**
+         * 是否启用（默认关闭：压缩上下文按连接分配，且会让群发共享帧退化为逐连接副本）
+         */
+        private boolean enable = false;
+
+        /**
+         * 压缩的最小消息大小（字节），小于该值的消息不压缩
+         */
+        private int minSize = 1024;
+
+        /**
+         * 压缩级别 0-9
+         */
+        private int compressionLevel = 6;
+
+        /**
+         * 是否保留压缩上下文（context takeover）；false 时握手声明双向 no_context_takeover，每条消息后释放 Deflater / Inflater
+         */
+        private boolean contextTakeover = false;
+
+        /**
+         * 是否允许客户端要求服务端不保留压缩上下文（server_no_context_takeover），仅 contextTakeover 为 true 时有意义
+         */
+        private boolean allowServerNoContext = true;
+    }
+}
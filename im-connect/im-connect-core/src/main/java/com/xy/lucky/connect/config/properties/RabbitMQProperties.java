@@ -18,6 +18,13 @@ import lombok.Data;
  *   exchange: IM-SERVER
  *   routingKeyPrefix: IM-
  *   errorQueue: im.error
+ *   prefetch: 200
+ *   ackAfterDispatch: true
+ *   dispatchThreads: 0
+ *   ackBatchSize: 32
+ *   ackFlushIntervalMs: 20
+ *   pauseUnwritableChannels: 1024
+ *   resumeUnwritableChannels: 512
  * </pre>
  */
 @Data
@@ -79,4 +86,35 @@ public class RabbitMQProperties {
      * 消费预取数量
      */
     private int prefetch = 200;
+
+    /**
+     * 消费模式：true 时分发完成后再批量确认，在途消息受 prefetch 约束；
+     * false 时沿用事件总线异步分发并立即确认
+     */
+    private boolean ackAfterDispatch = true;
+
+    /**
+     * 分发通道数（每个通道单线程，同一分区键按序处理），<=0 时取 CPU 核数的一半
+     */
+    private int dispatchThreads = 0;
+
+    /**
+     * 连续完成多少条后提交一次 basicAck(multiple=true)
+     */
+    private int ackBatchSize = 32;
+
+    /**
+     * 批量确认定时提交间隔（毫秒）
+     */
+    private long ackFlushIntervalMs = 20;
+
+    /**
+     * 出站缓冲超过高水位的连接数达到该值时暂停分发（消息留在 Broker 侧排队）
+     */
+    private int pauseUnwritableChannels = 1024;
+
+    /**
+     * 出站缓冲超过高水位的连接数降到该值以下时恢复分发
+     */
+    private int resumeUnwritableChannels = 512;
 }
@@ -1,5 +1,6 @@
 package com.xy.lucky.connect.domain;
 
+import com.xy.lucky.spring.event.PartitionedEvent;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,8 +11,23 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class MessageEvent {
+public class MessageEvent implements PartitionedEvent {
 
-    // 消息内容
+    // 消息内容（JSON）
     private String body;
+
+    // 内部二进制载荷（IMessageEnvelope），非空时优先使用
+    private byte[] envelope;
+
+    // 分区键（会话 / 群 ID），事件总线分区分发时同键事件按序处理
+    private String partitionKey;
+
+    public MessageEvent(String body) {
+        this.body = body;
+    }
+
+    @Override
+    public Object partitionKey() {
+        return partitionKey;
+    }
 }
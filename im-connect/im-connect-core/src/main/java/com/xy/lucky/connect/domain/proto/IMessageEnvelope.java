@@ -0,0 +1,94 @@
+package com.xy.lucky.connect.domain.proto;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * message -> connect 内部 MQ 载荷（im_message_wrap.proto 中的 IMessageEnvelope）
+ * <p>
+ * - 手写解析，只读出目标用户 ID，并记录 wrap 在原始字节中的位置，不复制 wrap 内容
+ * - wrap 即 IMessageProto.IMessageWrap 二进制，可直接作为 protobuf 客户端的下发内容
+ * - 仅在需要 code/requestId 等字段时才解析 wrap
+ * - json 为 message 服务附带的原始 JSON，非 protobuf 连接以它为准（Struct 数值为 double，会丢失 long 精度）
+ *
+ * @param ids        目标用户 ID
+ * @param body       原始 MQ 消息体
+ * @param wrapOffset wrap 在 body 中的起始位置
+ * @param wrapLength wrap 长度
+ * @param jsonOffset json 在 body 中的起始位置，未携带时为 -1
+ * @param jsonLength json 长度
+ */
+public record IMessageEnvelope(List<String> ids, byte[] body, int wrapOffset, int wrapLength,
+                               int jsonOffset, int jsonLength) {
+
+    private static final int IDS_FIELD = 1;
+    private static final int WRAP_FIELD = 2;
+    private static final int JSON_FIELD = 3;
+
+    /**
+     * 解析信封
+     *
+     * @param body MQ 消息体
+     * @return 信封
+     */
+    public static IMessageEnvelope parse(byte[] body) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(body);
+        List<String> ids = new ArrayList<>();
+        int wrapOffset = -1;
+        int wrapLength = 0;
+        int jsonOffset = -1;
+        int jsonLength = 0;
+        while (true) {
+            int tag = input.readTag();
+            if (tag == 0) {
+                break;
+            }
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (field == IDS_FIELD && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                ids.add(input.readStringRequireUtf8());
+            } else if (field == WRAP_FIELD && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                wrapLength = input.readRawVarint32();
+                wrapOffset = input.getTotalBytesRead();
+                input.skipRawBytes(wrapLength);
+            } else if (field == JSON_FIELD && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                jsonLength = input.readRawVarint32();
+                jsonOffset = input.getTotalBytesRead();
+                input.skipRawBytes(jsonLength);
+            } else if (!input.skipField(tag)) {
+                break;
+            }
+        }
+        if (wrapOffset < 0) {
+            throw new InvalidProtocolBufferException("IMessageEnvelope 缺少 wrap 字段");
+        }
+        return new IMessageEnvelope(ids, body, wrapOffset, wrapLength, jsonOffset, jsonLength);
+    }
+
+    /**
+     * 解析 wrap 为 protobuf 对象
+     */
+    public IMessageProto.IMessageWrap parseWrap() throws InvalidProtocolBufferException {
+        return IMessageProto.IMessageWrap.parseFrom(ByteBuffer.wrap(body, wrapOffset, wrapLength));
+    }
+
+    /**
+     * 是否携带原始 JSON
+     */
+    public boolean hasJson() {
+        return jsonOffset >= 0;
+    }
+
+    /**
+     * 原始 JSON 文本
+     */
+    public String json() {
+        return hasJson() ? new String(body, jsonOffset, jsonLength, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,476 @@
+package com.xy.lucky.connect.drain;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.xy.lucky.connect.channel.UserChannelMap;
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
+import com.xy.lucky.connect.nacos.NacosTemplate;
+import com.xy.lucky.connect.redis.UserRouteRegistry;
+import com.xy.lucky.connect.utils.JacksonUtil;
+import com.xy.lucky.core.constants.NacosMetadataConstants;
+import com.xy.lucky.core.enums.IMessageType;
+import com.xy.lucky.core.model.IMessageWrap;
+import com.xy.lucky.spring.annotations.core.Autowired;
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.PostConstruct;
+import com.xy.lucky.spring.annotations.core.PreDestroy;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 连接排空与迁移
+ * <p>
+ * - drain：从 Nacos 注销并拒绝新连接，按批次向客户端发送带随机重连延迟的 RECONNECT 提示后关闭连接，
+ * 同时批量释放用户路由（IM-USER-*），避免网关按旧路由把客户端粘回本节点；用于停机、缩容与滚动发布
+ * - shed：保持注册，在 Nacos metadata 中标记 draining，网关选路时跳过本节点，仅迁移指定数量的连接；用于过载卸载
+ * - 每批 batchSize 个用户、间隔 batchIntervalMs，客户端重连时间在 [min, min + jitter) 内随机分布，削平重连峰值
+ * - 同一时刻只运行一个任务；drain 优先，会取消进行中的 shed
+ * - 运维端点默认关闭；开启后使用独立端口（默认只绑定回环地址），请求须携带 X-Admin-Token 共享令牌，未配置令牌时不挂载
+ */
+@Slf4j(topic = LogConstant.Channel)
+@Component
+public class ConnectionDrainService {
+
+    private static final String ADMIN_DRAIN_PATH = "/admin/drain";
+    private static final String ADMIN_SHED_PATH = "/admin/shed";
+    private static final String ADMIN_RESUME_PATH = "/admin/resume";
+    private static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+    // drain 时用户快照的最大补充次数，防止个别无法移除的映射导致任务不结束
+    private static final int MAX_SNAPSHOT_REFRESHES = 3;
+
+    private final AtomicBoolean accepting = new AtomicBoolean(true);
+
+    @Autowired
+    private NettyProperties nettyProperties;
+
+    @Autowired
+    private UserChannelMap userChannelMap;
+
+    @Autowired
+    private UserRouteRegistry userRouteRegistry;
+
+    @Autowired
+    private NacosTemplate nacosTemplate;
+
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    private ScheduledExecutorService scheduler;
+
+    private HttpServer adminServer;
+
+    // 当前任务（仅在 synchronized 方法内替换）
+    private volatile DrainTask current;
+
+    // drain 时注销的端口，resume 时重新注册
+    private List<Integer> deregisteredPorts = List.of();
+
+    private boolean shutdownDrained;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "im-connect-drain");
+            t.setDaemon(true);
+            return t;
+        });
+        if (monitoringService != null) {
+            monitoringService.registerGauge(ConnectMetrics.DRAIN_ACTIVE, () -> isDraining() ? 1 : 0);
+        }
+        if (nettyProperties.getDrain().isAdminEnabled()) {
+            startAdminServer(nettyProperties.getDrain());
+        }
+    }
+
+    /**
+     * 启动运维端点：独立端口、单线程处理，共享令牌为空时拒绝启动
+     */
+    private void startAdminServer(NettyProperties.DrainConfig config) {
+        String token = config.getAdminToken();
+        if (token == null || token.isBlank()) {
+            log.warn("已开启连接排空运维端点但未配置 adminToken，端点不挂载");
+            return;
+        }
+        try {
+            adminServer = HttpServer.create(new InetSocketAddress(config.getAdminHost(), config.getAdminPort()), 4);
+            adminServer.setExecutor(scheduler);
+            adminServer.createContext(ADMIN_DRAIN_PATH, this::handleAdmin);
+            adminServer.createContext(ADMIN_SHED_PATH, this::handleAdmin);
+            adminServer.createContext(ADMIN_RESUME_PATH, this::handleAdmin);
+            adminServer.start();
+            log.info("连接排空运维端点已启动: http://{}:{} {}, {}, {}", config.getAdminHost(), config.getAdminPort(),
+                    ADMIN_DRAIN_PATH, ADMIN_SHED_PATH, ADMIN_RESUME_PATH);
+        } catch (IOException e) {
+            // 端点不可用不影响长连接服务
+            log.error("连接排空运维端点启动失败: host={}, port={}", config.getAdminHost(), config.getAdminPort(), e);
+        }
+    }
+
+    /**
+     * 是否接受新连接（drain 后为 false）
+     */
+    public boolean isAccepting() {
+        return accepting.get();
+    }
+
+    /**
+     * 是否有排空 / 迁移任务进行中
+     */
+    public boolean isDraining() {
+        DrainTask task = current;
+        return task != null && !task.done.isDone();
+    }
+
+    /**
+     * 排空本节点：注销服务、拒绝新连接并迁移全部连接
+     *
+     * @return 完成时给出迁移的连接数
+     */
+    public synchronized CompletableFuture<Integer> drain() {
+        DrainTask task = current;
+        if (task != null && !task.done.isDone()) {
+            if (task.mode == Mode.DRAIN) {
+                return task.done;
+            }
+            task.cancel();
+        }
+        accepting.set(false);
+        List<Integer> ports = nacosTemplate.deregisterAll();
+        if (!ports.isEmpty()) {
+            deregisteredPorts = ports;
+        }
+        log.warn("开始排空连接: onlineUsers={}, connections={}, deregisteredPorts={}",
+                userChannelMap.getOnlineUserCount(), userChannelMap.getTotalConnectionCount(), ports);
+        return start(Mode.DRAIN, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 迁移部分连接到其他节点（保持注册与接入）
+     *
+     * @param users 迁移的用户数
+     * @return 完成时给出迁移的连接数；已有任务进行中时返回该任务的结果
+     */
+    public synchronized CompletableFuture<Integer> shed(int users) {
+        DrainTask task = current;
+        if (task != null && !task.done.isDone()) {
+            log.warn("已有 {} 任务进行中，忽略本次迁移请求", task.mode);
+            return task.done;
+        }
+        if (users <= 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        nacosTemplate.updateMetadata(NacosMetadataConstants.DRAINING, Boolean.TRUE.toString());
+        log.warn("开始迁移连接: users={}, onlineUsers={}", users, userChannelMap.getOnlineUserCount());
+        CompletableFuture<Integer> done = start(Mode.SHED, users);
+        done.whenComplete((count, t) -> nacosTemplate.updateMetadata(NacosMetadataConstants.DRAINING, null));
+        return done;
+    }
+
+    /**
+     * 取消进行中的任务并恢复接入，drain 注销的端口重新注册
+     */
+    public synchronized void resume() {
+        DrainTask task = current;
+        if (task != null) {
+            task.cancel();
+        }
+        accepting.set(true);
+        for (Integer port : deregisteredPorts) {
+            nacosTemplate.registerNacos(port);
+        }
+        deregisteredPorts = List.of();
+        nacosTemplate.updateMetadata(NacosMetadataConstants.DRAINING, null);
+        log.info("已恢复接入");
+    }
+
+    /**
+     * 停机排空：最多等待 shutdownTimeoutMs，超时后剩余连接一次性发送提示并关闭（提示中的随机延迟仍可分散重连）
+     * <p>
+     * 由各服务在关闭监听端口前调用，可重复调用
+     */
+    @PreDestroy
+    public synchronized void drainForShutdown() {
+        if (shutdownDrained) {
+            return;
+        }
+        shutdownDrained = true;
+        NettyProperties.DrainConfig config = nettyProperties.getDrain();
+        if (config.isDrainOnShutdown()) {
+            DrainTask task = null;
+            try {
+                drain();
+                task = current;
+                int migrated = task.done.get(config.getShutdownTimeoutMs(), TimeUnit.MILLISECONDS);
+                log.info("停机排空完成: migrated={}", migrated);
+            } catch (TimeoutException e) {
+                task.cancel();
+                int rest = task.migrateRemaining();
+                log.warn("停机排空超时，剩余连接直接发送重连提示: migrated={}, rest={}", task.migrated, rest);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("停机排空失败", e);
+            }
+        }
+        if (adminServer != null) {
+            adminServer.stop(0);
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Integer> start(Mode mode, int limit) {
+        DrainTask task = new DrainTask(mode, limit);
+        current = task;
+        long interval = Math.max(1L, nettyProperties.getDrain().getBatchIntervalMs());
+        task.future = scheduler.scheduleWithFixedDelay(task, 0, interval, TimeUnit.MILLISECONDS);
+        return task.done;
+    }
+
+    /**
+     * 迁移一批用户：解除本地映射、发送重连提示后关闭连接，最后批量释放路由
+     *
+     * @return 迁移的连接数
+     */
+    private int migrate(List<String> userIds, Mode mode) {
+        NettyProperties.DrainConfig config = nettyProperties.getDrain();
+        List<String> released = new ArrayList<>(userIds.size());
+        int count = 0;
+        for (String userId : userIds) {
+            Collection<Channel> channels = userChannelMap.getChannelsByUser(userId);
+            if (channels.isEmpty()) {
+                continue;
+            }
+            for (Channel channel : channels) {
+                // 先解除映射，保证路由注销时本地已无该用户连接
+                userChannelMap.removeByChannel(channel);
+                sendReconnectHint(channel, mode, config);
+                count++;
+            }
+            released.add(userId);
+        }
+        if (!released.isEmpty()) {
+            try {
+                userRouteRegistry.unregisterAll(released);
+            } catch (Exception e) {
+                // 路由会随 TTL 过期，不影响连接迁移
+                log.error("批量释放用户路由失败: count={}", released.size(), e);
+            }
+        }
+        MetricsRegistry.global().counter(ConnectMetrics.DRAIN_MIGRATED_CONNECTIONS, "mode:" + mode.tag()).add(count);
+        return count;
+    }
+
+    private void sendReconnectHint(Channel channel, Mode mode, NettyProperties.DrainConfig config) {
+        if (!channel.isActive()) {
+            return;
+        }
+        long delay = Math.max(0L, config.getReconnectMinDelayMs())
+                + ThreadLocalRandom.current().nextLong(Math.max(1L, config.getReconnectJitterMs()));
+        IMessageWrap<Object> hint = new IMessageWrap<>()
+                .setCode(IMessageType.RECONNECT.getCode())
+                .setMessage("服务节点调整，请稍后重连")
+                .setMetadata(Map.of("reason", mode.tag(), "reconnectDelayMs", String.valueOf(delay)));
+        channel.writeAndFlush(hint).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    private void handleAdmin(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!authorized(exchange)) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            String path = exchange.getHttpContext().getPath();
+            if (ADMIN_DRAIN_PATH.equals(path) && "GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 200, status());
+                return;
+            }
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            switch (path) {
+                case ADMIN_DRAIN_PATH -> drain();
+                case ADMIN_SHED_PATH -> {
+                    int users = shedUsers(exchange.getRequestURI().getRawQuery());
+                    if (users <= 0) {
+                        respond(exchange, 400, Map.of("error", "需要参数 users=N 或 ratio=0~1"));
+                        return;
+                    }
+                    shed(users);
+                }
+                case ADMIN_RESUME_PATH -> resume();
+                default -> {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+            }
+            respond(exchange, 202, status());
+        } catch (Exception e) {
+            log.error("处理排空运维请求失败", e);
+        }
+    }
+
+    private boolean authorized(HttpExchange exchange) {
+        String expected = nettyProperties.getDrain().getAdminToken();
+        String actual = exchange.getRequestHeaders().getFirst(ADMIN_TOKEN_HEADER);
+        if (expected == null || expected.isBlank() || actual == null) {
+            return false;
+        }
+        // 定长比较，避免按响应时间猜测令牌
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int shedUsers(String query) {
+        if (query == null) {
+            return 0;
+        }
+        for (String pair : query.split("&")) {
+            String[] kv = pair.split("=", 2);
+            if (kv.length != 2) {
+                continue;
+            }
+            try {
+                if ("users".equals(kv[0])) {
+                    return Integer.parseInt(kv[1]);
+                }
+                if ("ratio".equals(kv[0])) {
+                    double ratio = Math.min(1D, Math.max(0D, Double.parseDouble(kv[1])));
+                    return (int) Math.ceil(userChannelMap.getOnlineUserCount() * ratio);
+                }
+            } catch (NumberFormatException ignored) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private Map<String, Object> status() {
+        DrainTask task = current;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("accepting", accepting.get());
+        status.put("draining", isDraining());
+        status.put("mode", task != null ? task.mode.tag() : null);
+        status.put("migrated", task != null ? task.migrated : 0);
+        status.put("onlineUsers", userChannelMap.getOnlineUserCount());
+        status.put("connections", userChannelMap.getTotalConnectionCount());
+        return status;
+    }
+
+    private void respond(HttpExchange exchange, int code, Object body) throws IOException {
+        byte[] bytes = JacksonUtil.toJSONString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private enum Mode {
+        DRAIN, SHED;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * 按批次迁移的任务，批次在 im-connect-drain 线程上执行
+     */
+    private final class DrainTask implements Runnable {
+        final Mode mode;
+        final CompletableFuture<Integer> done = new CompletableFuture<>();
+        volatile int migrated;
+        ScheduledFuture<?> future;
+        private int remainingUsers;
+        private int refreshes;
+        private Iterator<String> users;
+
+        DrainTask(Mode mode, int limit) {
+            this.mode = mode;
+            this.remainingUsers = limit;
+            this.users = userChannelMap.getOnlineUserIds().iterator();
+        }
+
+        @Override
+        public synchronized void run() {
+            try {
+                List<String> batch = nextBatch(Math.max(1, nettyProperties.getDrain().getBatchSize()));
+                if (batch.isEmpty()) {
+                    finish();
+                    return;
+                }
+                migrated += migrate(batch, mode);
+            } catch (Throwable t) {
+                log.error("连接迁移批次执行失败: mode={}", mode, t);
+            }
+        }
+
+        /**
+         * 在调用线程中一次性迁移剩余用户
+         *
+         * @return 本次迁移的连接数
+         */
+        synchronized int migrateRemaining() {
+            int count = 0;
+            List<String> batch;
+            while (!(batch = nextBatch(Integer.MAX_VALUE)).isEmpty()) {
+                count += migrate(batch, mode);
+            }
+            migrated += count;
+            done.complete(migrated);
+            return count;
+        }
+
+        void cancel() {
+            if (future != null) {
+                future.cancel(false);
+            }
+            done.complete(migrated);
+        }
+
+        private synchronized List<String> nextBatch(int size) {
+            List<String> batch = new ArrayList<>(Math.min(size, 1024));
+            while (batch.size() < size && remainingUsers > 0) {
+                if (!users.hasNext()) {
+                    // drain 时补充快照，覆盖排空过程中完成登录的连接
+                    if (mode != Mode.DRAIN || batch.size() > 0 || ++refreshes > MAX_SNAPSHOT_REFRESHES) {
+                        break;
+                    }
+                    List<String> rest = userChannelMap.getOnlineUserIds();
+                    if (rest.isEmpty()) {
+                        break;
+                    }
+                    users = rest.iterator();
+                }
+                batch.add(users.next());
+                remainingUsers--;
+            }
+            return batch;
+        }
+
+        private void finish() {
+            if (future != null) {
+                future.cancel(false);
+            }
+            if (done.complete(migrated)) {
+                log.info("连接{}完成: migrated={}", mode == Mode.DRAIN ? "排空" : "迁移", migrated);
+            }
+        }
+    }
+}
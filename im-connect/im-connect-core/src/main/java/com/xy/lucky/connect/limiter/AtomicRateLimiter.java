@@ -0,0 +1,50 @@
+package com.xy.lucky.connect.limiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * <p>
+ * - 使用 GCRA（通用信元速率算法）：只保存一个"理论到达时间"，CAS 推进，等价于容量为 burst、速率为 rate 的令牌桶
+ * - 状态只有一个 long，适合全局接入速率这类单一计数；按 key 独立计数见 KeyedRateLimiter
+ */
+public final class AtomicRateLimiter {
+
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private final AtomicLong tat = new AtomicLong();
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+
+    /**
+     * @param permitsPerSecond 每秒平均许可数
+     * @param burst            允许的突发许可数（桶容量）
+     */
+    public AtomicRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond 必须大于 0");
+        }
+        this.emissionIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, burst - 1);
+    }
+
+    /**
+     * 尝试获取一个许可
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime() - ORIGIN_NANOS;
+        while (true) {
+            long current = tat.get();
+            long base = Math.max(current, now);
+            if (base - now > burstToleranceNanos) {
+                return false;
+            }
+            if (tat.compareAndSet(current, base + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.xy.lucky.connect.limiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 key 独立计数的令牌桶（有界、自动过期）
+ * <p>
+ * - 每个 key 一个 GCRA 状态（理论到达时间），不同 key 互不影响，不会因哈希冲突误伤
+ * - 理论到达时间早于当前时间的条目等价于满桶，定期清理不改变限流结果，表中只保留最近仍有欠额的 key
+ * - 条目数达到上限且清理后仍满时，新 key 不再单独计数（放行并计入 overflowed），由上层的全局限流兜底
+ */
+public final class KeyedRateLimiter<K> {
+
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // 表满时提前清理的最小间隔，避免攻击流量下每次接入都全表扫描
+    private static final long FORCED_SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Map<K, AtomicLong> cells = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong lastSweepAt = new AtomicLong();
+    private final LongAdder overflowed = new LongAdder();
+
+    /**
+     * @param permitsPerSecond 每秒平均许可数
+     * @param burst            允许的突发许可数（桶容量）
+     * @param maxEntries       最多同时跟踪的 key 数
+     */
+    public KeyedRateLimiter(double permitsPerSecond, int burst, int maxEntries) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond 必须大于 0");
+        }
+        this.maxEntries = Math.max(1, maxEntries);
+        this.emissionIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, burst - 1);
+    }
+
+    /**
+     * 尝试为指定 key 获取一个许可
+     *
+     * @param key 限流对象（如对端 IP）
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(K key) {
+        long now = System.nanoTime() - ORIGIN_NANOS;
+        sweepIfDue(now, false);
+        AtomicLong cell = cells.get(key);
+        if (cell == null) {
+            if (cells.size() >= maxEntries && !sweepIfDue(now, true)) {
+                overflowed.increment();
+                return true;
+            }
+            cell = cells.computeIfAbsent(key, ignored -> new AtomicLong(now));
+        }
+        while (true) {
+            long tat = cell.get();
+            long base = Math.max(tat, now);
+            if (base - now > burstToleranceNanos) {
+                return false;
+            }
+            if (cell.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还一个已获取的许可（后续检查拒绝了本次请求时调用），不会使桶超过容量
+     *
+     * @param key 限流对象
+     */
+    public void release(K key) {
+        AtomicLong cell = cells.get(key);
+        if (cell == null) {
+            // 未单独计数（表满放行）或已被清理（桶已回满），无需归还
+            return;
+        }
+        long now = System.nanoTime() - ORIGIN_NANOS;
+        while (true) {
+            long tat = cell.get();
+            if (tat <= now || cell.compareAndSet(tat, Math.max(now, tat - emissionIntervalNanos))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前跟踪的 key 数
+     */
+    public int size() {
+        return cells.size();
+    }
+
+    /**
+     * 因表满未单独计数而放行的次数
+     */
+    public long overflowed() {
+        return overflowed.sum();
+    }
+
+    /**
+     * 清理已回满的条目；表满时（full 为 true）按更短的间隔提前清理
+     *
+     * @return 清理后是否还有空位
+     */
+    private boolean sweepIfDue(long now, boolean full) {
+        long last = lastSweepAt.get();
+        if (now - last < (full ? FORCED_SWEEP_INTERVAL_NANOS : SWEEP_INTERVAL_NANOS)) {
+            return cells.size() < maxEntries;
+        }
+        if (lastSweepAt.compareAndSet(last, now)) {
+            cells.entrySet().removeIf(entry -> entry.getValue().get() <= now);
+        }
+        return cells.size() < maxEntries;
+    }
+}
@@ -1,118 +1,123 @@
-//package com.xy.lucky.connect.limiter;
-//
-//import com.xy.lucky.connect.config.LogConstant;
-//import com.xy.lucky.connect.monitoring.MonitoringService;
-//import com.xy.lucky.spring.annotations.core.Autowired;
-//import com.xy.lucky.spring.annotations.core.Component;
-//import lombok.extern.slf4j.Slf4j;
-//
-//import java.util.Map;
-//import java.util.concurrent.ConcurrentHashMap;
-//import java.util.concurrent.atomic.AtomicInteger;
-//
-/// **
-// * 消息速率限制器
-// * - 限制单个用户的消息发送速率
-// * - 提供滑动窗口计数
-// * - 集成监控告警
-// */
-//@Slf4j(topic = LogConstant.Limiter)
-//@Component
-//public class MessageRateLimiter {
-//
-//    // 默认窗口大小（毫秒）
-//    private static final long DEFAULT_WINDOW_SIZE_MS = 1000;
-//
-//    // 默认单用户窗口内最大消息数
-//    private static final int DEFAULT_MAX_MESSAGES_PER_WINDOW = 20;
-//
-//    // 窗口大小（毫秒）
-//    private long windowSizeMs = DEFAULT_WINDOW_SIZE_MS;
-//
-//    // 单用户窗口内最大消息数
-//    private int maxMessagesPerWindow = DEFAULT_MAX_MESSAGES_PER_WINDOW;
-//
-//    // 用户消息计数窗口
-//    private final Map<String, UserWindow> userWindows = new ConcurrentHashMap<>();
-//
-//    @Autowired(required = false)
-//    private MonitoringService monitoringService;
-//
-//    /**
-//     * 检查用户是否可以发送新消息
-//     * @param userId 用户ID
-//     * @return 是否允许发送
-//     */
-//    public boolean allowMessage(String userId) {
-//        long now = System.currentTimeMillis();
-//
-//        // 获取或创建用户窗口
-//        UserWindow window = userWindows.computeIfAbsent(userId, k -> new UserWindow(now));
-//
-//        // 如果窗口已过期，重置窗口
-//        if (now - window.getStartTime() > windowSizeMs) {
-//            window.reset(now);
-//        }
-//
-//        // 检查是否超过限制
-//        if (window.getCount() >= maxMessagesPerWindow) {
-//            log.warn("用户消息速率超限: userId={}, count={}, limit={}",
-//                    userId, window.getCount(), maxMessagesPerWindow);
-//
-//            if (monitoringService != null) {
-//                monitoringService.incrementCounter("rate_limiter.limit_exceeded", "userId:" + userId);
-//            }
-//
-//            return false;
-//        }
-//
-//        // 增加计数
-//        window.incrementCount();
-//        return true;
-//    }
-//
-//    /**
-//     * 设置窗口大小（毫秒）
-//     */
-//    public void setWindowSizeMs(long windowSizeMs) {
-//        this.windowSizeMs = windowSizeMs;
-//        log.info("已更新消息窗口大小: {}ms", windowSizeMs);
-//    }
-//
-//    /**
-//     * 设置单用户窗口内最大消息数
-//     */
-//    public void setMaxMessagesPerWindow(int maxMessagesPerWindow) {
-//        this.maxMessagesPerWindow = maxMessagesPerWindow;
-//        log.info("已更新单用户窗口内最大消息数: {}", maxMessagesPerWindow);
-//    }
-//
-//    /**
-//     * 用户窗口
-//     */
-//    private static class UserWindow {
-//        private long startTime;
-//        private final AtomicInteger count = new AtomicInteger(0);
-//
-//        public UserWindow(long startTime) {
-//            this.startTime = startTime;
-//        }
-//
-//        public long getStartTime() {
-//            return startTime;
-//        }
-//
-//        public int getCount() {
-//            return count.get();
-//        }
-//
-//        public int incrementCount() {
-//            return count.incrementAndGet();
-//        }
-//
-//        public void reset(long newStartTime) {
-//            this.startTime = newStartTime;
-//            this.count.set(0);
-//        }
-//    }
-//}
\ No newline at end of file
+package com.xy.lucky.connect.limiter;
+
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.spring.annotations.core.Autowired;
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.PostConstruct;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接消息速率限制器
+ * <p>
+ * - 令牌桶（GCRA）状态保存在连接属性上，每个连接独立计额，在 LoginHandler 转发业务消息前检查
+ * - 被限流的消息直接丢弃；同一连接连续被限流超过阈值时判定为异常客户端，由调用方关闭连接，不会因其他连接的流量被误关
+ * - 只在连接所属 EventLoop 线程内读写桶状态，无需同步
+ */
+@Slf4j(topic = LogConstant.Limiter)
+@Component
+public class MessageRateLimiter {
+
+    public static final String COUNTER_MESSAGE_REJECTED = "limiter.message_rejected";
+    public static final String COUNTER_CHANNEL_CLOSED = "limiter.channel_closed";
+
+    private static final AttributeKey<Bucket> BUCKET_ATTR = AttributeKey.valueOf("im_message_rate_bucket");
+
+    @Autowired
+    private NettyProperties nettyProperties;
+
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    private boolean enabled;
+    private long emissionIntervalNanos;
+    private long burstToleranceNanos;
+    private int closeAfterRejections;
+
+    @PostConstruct
+    public void init() {
+        NettyProperties.LimiterConfig config = nettyProperties.getLimiter();
+        if (config == null || !config.isEnable() || config.getUserMessagesPerSecond() <= 0) {
+            log.info("用户消息限流未启用");
+            return;
+        }
+        emissionIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / config.getUserMessagesPerSecond()));
+        burstToleranceNanos = emissionIntervalNanos * Math.max(0, config.getUserMessageBurst() - 1);
+        closeAfterRejections = config.getCloseAfterRejections();
+        enabled = true;
+        log.info("连接消息限流已启用: rate={}/s, burst={}, closeAfterRejections={}",
+                config.getUserMessagesPerSecond(), config.getUserMessageBurst(), closeAfterRejections);
+    }
+
+    /**
+     * 检查连接是否可以继续发送消息（须在连接的 EventLoop 线程调用）
+     *
+     * @param userId  用户ID（仅用于日志）
+     * @param channel 消息来源连接
+     * @return 限流结果
+     */
+    public Decision tryAcquire(String userId, Channel channel) {
+        if (!enabled) {
+            return Decision.ALLOW;
+        }
+        Bucket bucket = channel.attr(BUCKET_ATTR).get();
+        if (bucket == null) {
+            bucket = new Bucket();
+            channel.attr(BUCKET_ATTR).set(bucket);
+        }
+        long now = System.nanoTime();
+        long base = bucket.initialized ? Math.max(bucket.tat, now) : now;
+        if (base - now <= burstToleranceNanos) {
+            bucket.tat = base + emissionIntervalNanos;
+            bucket.initialized = true;
+            bucket.rejected = 0;
+            return Decision.ALLOW;
+        }
+
+        int rejected = ++bucket.rejected;
+        if (monitoringService != null) {
+            monitoringService.incrementCounter(COUNTER_MESSAGE_REJECTED);
+        }
+        if (closeAfterRejections > 0 && rejected >= closeAfterRejections) {
+            log.warn("用户消息持续超限，关闭连接: userId={}, rejected={}", userId, rejected);
+            if (monitoringService != null) {
+                monitoringService.incrementCounter(COUNTER_CHANNEL_CLOSED);
+            }
+            return Decision.CLOSE;
+        }
+        log.debug("用户消息速率超限: userId={}, rejected={}", userId, rejected);
+        return Decision.REJECT;
+    }
+
+    /**
+     * 连接上的令牌桶状态：理论到达时间与连续被限流次数
+     */
+    private static final class Bucket {
+        private long tat;
+        private boolean initialized;
+        private int rejected;
+    }
+
+    /**
+     * 限流结果
+     */
+    public enum Decision {
+        /**
+         * 放行
+         */
+        ALLOW,
+        /**
+         * 丢弃本条消息
+         */
+        REJECT,
+        /**
+         * 丢弃并关闭连接
+         */
+        CLOSE
+    }
+}
@@ -1,23 +1,30 @@
 package com.xy.lucky.connect.message;
 
 
+import com.google.protobuf.Any;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.xy.lucky.connect.channel.UserChannelMap;
 import com.xy.lucky.connect.config.LogConstant;
 import com.xy.lucky.connect.domain.MessageEvent;
+import com.xy.lucky.connect.domain.proto.IMessageEnvelope;
+import com.xy.lucky.connect.domain.proto.IMessageProto;
+import com.xy.lucky.connect.netty.service.codec.SharedFrameWriter;
+import com.xy.lucky.connect.netty.service.websocket.codec.proto.ProtobufMessageHandler;
 import com.xy.lucky.connect.utils.JacksonUtil;
+import com.xy.lucky.connect.utils.ProtoJsonUtils;
 import com.xy.lucky.core.enums.IMessageType;
 import com.xy.lucky.core.model.IMessageWrap;
+import com.xy.lucky.core.proto.MessageBodyCodec;
 import com.xy.lucky.core.utils.StringUtils;
 import com.xy.lucky.spring.annotations.core.Autowired;
 import com.xy.lucky.spring.annotations.core.Component;
-import com.xy.lucky.spring.annotations.core.Value;
 import com.xy.lucky.spring.annotations.event.EventListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j(topic = LogConstant.Message)
 @Component
@@ -33,62 +40,111 @@ public class MessageHandler {
             IMessageType.GROUP_OPERATION,
             IMessageType.MESSAGE_OPERATION
     );
-    private final ConcurrentHashMap<String, Long> processedRequestIdMap = new ConcurrentHashMap<>();
-    private final AtomicLong processCounter = new AtomicLong(0);
 
-    @Value("${netty.config.mqDeduplicateWindowMs:300000}")
-    private long mqDeduplicateWindowMs;
-
-    @Value("${netty.config.mqDeduplicateMaxEntries:200000}")
-    private int mqDeduplicateMaxEntries;
+    @Autowired
+    private RequestIdDeduplicator requestIdDeduplicator;
 
     @EventListener(MessageEvent.class)
     public void handleMessage(MessageEvent messageEvent) {
+        if (messageEvent.getEnvelope() != null) {
+            dispatchEnvelope(messageEvent.getEnvelope());
+        } else {
+            dispatch(messageEvent.getBody());
+        }
+    }
+
+    /**
+     * 解析并分发一条 MQ 消息，调用返回即表示已写入目标 Channel
+     *
+     * @param body 消息体
+     * @return 分发过程中是否未发生异常（空消息、重复消息、未知类型均视为已处理）
+     */
+    public boolean dispatch(String body) {
         try {
-            String body = messageEvent.getBody();
             if (StringUtils.isBlank(body)) {
                 log.warn("收到空消息体，忽略处理");
-                return;
+                return true;
             }
 
             IMessageWrap<Object> messageWrap = JacksonUtil.parseObject(body, IMessageWrap.class);
             if (Objects.isNull(messageWrap)) {
                 log.warn("反序列化结果为 null，body={}", safeTruncate(body));
-                return;
+                return true;
             }
-            if (isDuplicate(messageWrap.getRequestId())) {
-                return;
+            if (requestIdDeduplicator.isDuplicate(messageWrap.getRequestId())) {
+                return true;
             }
 
             IMessageType msgType = IMessageType.getByCode(messageWrap.getCode());
             if (Objects.isNull(msgType)) {
                 log.warn("未知的消息类型 code={}, body={}", messageWrap.getCode(), safeTruncate(body));
-                return;
+                return true;
             }
 
             switch (msgType) {
-                case FORCE_LOGOUT -> forceLogout(messageWrap);
+                case FORCE_LOGOUT -> forceLogout(messageWrap.getIds(), messageWrap.getDeviceType());
                 default -> {
                     if (!FORWARD_TYPES.contains(msgType)) {
                         log.warn("没有为消息类型 {} 注册处理器，忽略该消息", msgType);
-                        return;
+                        return true;
                     }
                     forwardToTargets(msgType, messageWrap);
                 }
             }
             log.debug("消息分发完成，type={}, requestId={}", msgType, messageWrap.getRequestId());
+            return true;
         } catch (Exception e) {
             log.error("处理消息时出错，err={}", e.getMessage(), e);
+            return false;
         }
     }
 
-    private void forceLogout(IMessageWrap<Object> messageWrap) {
-        List<String> ids = messageWrap.getIds();
+    /**
+     * 分发 message 服务下发的二进制载荷（IMessageEnvelope）
+     * <p>
+     * protobuf 客户端直接复用 wrap 字节，仅在存在其他协议的连接时才转换为 POJO
+     *
+     * @param body MQ 消息体
+     * @return 分发过程中是否未发生异常
+     */
+    public boolean dispatchEnvelope(byte[] body) {
+        try {
+            IMessageEnvelope envelope = IMessageEnvelope.parse(body);
+            IMessageProto.IMessageWrap wrap = envelope.parseWrap();
+            String requestId = wrap.getRequestId();
+            if (requestIdDeduplicator.isDuplicate(requestId)) {
+                return true;
+            }
+
+            IMessageType msgType = IMessageType.getByCode(wrap.getCode());
+            if (Objects.isNull(msgType)) {
+                log.warn("未知的消息类型 code={}, requestId={}", wrap.getCode(), requestId);
+                return true;
+            }
+
+            switch (msgType) {
+                case FORCE_LOGOUT -> forceLogout(envelope.ids(), wrap.getDeviceType());
+                default -> {
+                    if (!FORWARD_TYPES.contains(msgType)) {
+                        log.warn("没有为消息类型 {} 注册处理器，忽略该消息", msgType);
+                        return true;
+                    }
+                    forwardEnvelopeToTargets(msgType, envelope, wrap);
+                }
+            }
+            log.debug("二进制消息分发完成，type={}, requestId={}", msgType, requestId);
+            return true;
+        } catch (Exception e) {
+            log.error("处理二进制消息时出错，err={}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void forceLogout(List<String> ids, String deviceType) {
         if (ids == null || ids.isEmpty()) {
             log.warn("[FORCE_LOGOUT] 消息目标 ID 列表为空，忽略处理");
             return;
         }
-        String deviceType = messageWrap.getDeviceType();
         for (String userId : ids) {
             log.info("执行强制下线指令: userId={}, deviceType={}", userId, deviceType);
             userChannelMap.removeChannel(userId, deviceType, true);
@@ -101,7 +157,64 @@ public class MessageHandler {
             log.warn("[{}] 消息目标 ID 列表为空，忽略处理", msgType.name());
             return;
         }
-        int pushCount = 0;
+        List<Channel> targets = collectTargets(msgType, ids);
+        // 同一消息按协议只编码一次，各 Channel 共享同一份池化内容
+        int pushCount = SharedFrameWriter.writeAndFlush(targets, messageWrap);
+        log.debug("消息推送完成: type={}, targetUserCount={}, pushedChannelCount={}, requestId={}",
+                msgType.name(), ids.size(), pushCount, messageWrap.getRequestId());
+    }
+
+    private void forwardEnvelopeToTargets(IMessageType msgType, IMessageEnvelope envelope, IMessageProto.IMessageWrap wrap)
+            throws InvalidProtocolBufferException {
+        List<String> ids = envelope.ids();
+        if (ids.isEmpty()) {
+            log.warn("[{}] 消息目标 ID 列表为空，忽略处理", msgType.name());
+            return;
+        }
+        List<Channel> targets = collectTargets(msgType, ids);
+        if (targets.isEmpty()) {
+            return;
+        }
+        // wrap 字节只拷贝一次到直接内存，protobuf 连接共享该内容
+        ByteBuf protoWrap;
+        if (!ProtoJsonUtils.isTypedBodyEnabled() && MessageBodyCodec.isTyped(wrap.getData().getTypeUrl())) {
+            // 未启用强类型消息体：message 服务已按强类型编码，转回 Struct 后再推送
+            byte[] legacy = wrap.toBuilder()
+                    .setData(Any.pack(ProtoJsonUtils.mapToStruct(MessageBodyCodec.unpack(wrap.getData()))))
+                    .build()
+                    .toByteArray();
+            protoWrap = ByteBufAllocator.DEFAULT.ioBuffer(legacy.length).writeBytes(legacy);
+        } else {
+            protoWrap = ByteBufAllocator.DEFAULT.ioBuffer(envelope.wrapLength());
+            protoWrap.writeBytes(envelope.body(), envelope.wrapOffset(), envelope.wrapLength());
+        }
+        try {
+            int pushCount = SharedFrameWriter.writeAndFlush(targets, protoWrap,
+                    () -> toPojo(envelope, wrap), wrap.getRequestId());
+            log.debug("二进制消息推送完成: type={}, targetUserCount={}, pushedChannelCount={}, requestId={}",
+                    msgType.name(), ids.size(), pushCount, wrap.getRequestId());
+        } finally {
+            protoWrap.release();
+        }
+    }
+
+    /**
+     * 非 protobuf 连接的下发对象：Struct 回退时信封携带原始 JSON，优先使用以避免 long 转为 double 造成精度丢失；强类型消息体直接由 wrap 还原
+     */
+    @SuppressWarnings("unchecked")
+    private IMessageWrap<?> toPojo(IMessageEnvelope envelope, IMessageProto.IMessageWrap wrap) {
+        if (envelope.hasJson()) {
+            IMessageWrap<Object> messageWrap = JacksonUtil.parseObject(envelope.json(), IMessageWrap.class);
+            if (messageWrap != null) {
+                return messageWrap.setIds(envelope.ids());
+            }
+            log.warn("信封 JSON 解析失败，回退 wrap 转换: requestId={}", wrap.getRequestId());
+        }
+        return ProtobufMessageHandler.toPojo(wrap).setIds(envelope.ids());
+    }
+
+    private List<Channel> collectTargets(IMessageType msgType, List<String> ids) {
+        List<Channel> targets = new ArrayList<>(ids.size());
         for (String userId : ids) {
             Collection<Channel> channels = userChannelMap.getChannelsByUser(userId);
             if (channels.isEmpty()) {
@@ -110,15 +223,13 @@ public class MessageHandler {
             }
             for (Channel channel : channels) {
                 if (channel != null && channel.isActive()) {
-                    channel.writeAndFlush(messageWrap, channel.voidPromise());
-                    pushCount++;
+                    targets.add(channel);
                 } else {
                     log.debug("用户 {} 的通道已失效，无法推送消息", userId);
                 }
             }
         }
-        log.debug("消息推送完成: type={}, targetUserCount={}, pushedChannelCount={}, requestId={}",
-                msgType.name(), ids.size(), pushCount, messageWrap.getRequestId());
+        return targets;
     }
 
     private String safeTruncate(String s) {
@@ -126,47 +237,4 @@ public class MessageHandler {
         final int MAX = 512;
         return s.length() <= MAX ? s : s.substring(0, MAX) + "...(truncated)";
     }
-
-    private boolean isDuplicate(String requestId) {
-        if (!StringUtils.hasText(requestId)) {
-            return false;
-        }
-        long now = System.currentTimeMillis();
-        long deduplicateWindowMs = Math.max(1000L, mqDeduplicateWindowMs);
-        Long previous = processedRequestIdMap.putIfAbsent(requestId, now);
-        if (previous == null) {
-            cleanupProcessedRequestIds(now, deduplicateWindowMs);
-            return false;
-        }
-        if (now - previous <= deduplicateWindowMs) {
-            cleanupProcessedRequestIds(now, deduplicateWindowMs);
-            return true;
-        }
-        processedRequestIdMap.put(requestId, now);
-        cleanupProcessedRequestIds(now, deduplicateWindowMs);
-        return false;
-    }
-
-    private void cleanupProcessedRequestIds(long now, long deduplicateWindowMs) {
-        long count = processCounter.incrementAndGet();
-        int maxEntries = Math.max(10000, mqDeduplicateMaxEntries);
-        if (count % 512 != 0 && processedRequestIdMap.size() < maxEntries) {
-            return;
-        }
-        long expireBefore = now - deduplicateWindowMs;
-        processedRequestIdMap.entrySet().removeIf(entry -> {
-            Long timestamp = entry.getValue();
-            return timestamp == null || timestamp < expireBefore;
-        });
-        int overflow = processedRequestIdMap.size() - maxEntries;
-        if (overflow <= 0) {
-            return;
-        }
-        Iterator<Map.Entry<String, Long>> iterator = processedRequestIdMap.entrySet().iterator();
-        while (overflow > 0 && iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-            overflow--;
-        }
-    }
 }
@@ -0,0 +1,284 @@
+package com.xy.lucky.connect.message;
+
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.core.utils.StringUtils;
+import com.xy.lucky.spring.annotations.core.Autowired;
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.PostConstruct;
+import com.xy.lucky.spring.annotations.core.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MQ 消息 requestId 去重窗口（按时间分桶轮转）
+ * <p>
+ * - 去重窗口切分为 buckets 个时间桶，组成环形数组，桶号 = 当前时间 / 桶时长
+ * - 写入只进入当前桶；桶过期时整体替换为新桶（一次 CAS），不再全量扫描删除，过期成本 O(1)
+ * - 每个桶带一个布隆过滤器，查询历史桶时先查布隆过滤器，命中后再查精确集合，不会误判重复
+ * - 布隆命中而精确集合未命中即为一次假阳性，每次桶轮转时上报假阳性率、条目数与估算内存
+ * - 条目数超过上限时提前淘汰最旧的桶，同样为 O(1)
+ */
+@Slf4j(topic = LogConstant.Message)
+@Component
+public class RequestIdDeduplicator {
+
+    public static final String METRIC_FALSE_POSITIVE_RATE = "mq.dedupe.false_positive_rate";
+    public static final String METRIC_ENTRIES = "mq.dedupe.entries";
+    public static final String METRIC_MEMORY_BYTES = "mq.dedupe.memory_bytes";
+    public static final String COUNTER_DUPLICATES = "mq.dedupe.duplicates";
+
+    /**
+     * 单条记录的估算占用：ConcurrentHashMap 节点 + 表槽位 + requestId 字符串（约 36 字符）
+     */
+    private static final long ESTIMATED_BYTES_PER_ENTRY = 112L;
+    private static final int BLOOM_HASHES = 3;
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+    private static final int OVERFLOW_CHECK_MASK = 1023;
+
+    @Value("${netty.config.mqDeduplicateWindowMs:300000}")
+    private long mqDeduplicateWindowMs;
+
+    @Value("${netty.config.mqDeduplicateMaxEntries:200000}")
+    private int mqDeduplicateMaxEntries;
+
+    @Value("${netty.config.mqDeduplicateBuckets:8}")
+    private int mqDeduplicateBuckets;
+
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    private final LongAdder negativeProbes = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final AtomicLong inserts = new AtomicLong();
+
+    private AtomicReferenceArray<Bucket> ring;
+    private int buckets;
+    private long bucketMs;
+    private int maxEntries;
+    private int bloomBits;
+
+    /**
+     * 早于该桶号的桶视为已淘汰（超出条目上限时推进）
+     */
+    private volatile long retiredBelow = Long.MIN_VALUE;
+    private volatile double lastFalsePositiveRate;
+
+    @PostConstruct
+    public void init() {
+        long windowMs = Math.max(1000L, mqDeduplicateWindowMs);
+        this.buckets = Math.max(2, Math.min(64, mqDeduplicateBuckets));
+        // 当前桶之外保留 buckets - 1 个完整历史桶，覆盖整个去重窗口
+        this.bucketMs = Math.max(1L, (windowMs + buckets - 2) / (buckets - 1));
+        this.maxEntries = Math.max(10000, mqDeduplicateMaxEntries);
+        int expectedPerBucket = Math.max(1, maxEntries / (buckets - 1));
+        long bits = Math.max(1024L, (long) expectedPerBucket * BLOOM_BITS_PER_ENTRY);
+        this.bloomBits = (int) Math.min(1L << 30, Long.highestOneBit(bits - 1) << 1);
+        this.ring = new AtomicReferenceArray<>(buckets);
+
+        log.info("MQ 去重窗口已初始化: windowMs={}, buckets={}, bucketMs={}, maxEntries={}, bloomBitsPerBucket={}",
+                windowMs, buckets, bucketMs, maxEntries, bloomBits);
+    }
+
+    /**
+     * 判断 requestId 是否在去重窗口内出现过；未出现过则登记
+     *
+     * @param requestId 请求 ID，为空时不去重
+     * @return 是否重复
+     */
+    public boolean isDuplicate(String requestId) {
+        if (!StringUtils.hasText(requestId)) {
+            return false;
+        }
+        long epoch = System.currentTimeMillis() / bucketMs;
+        Bucket current = currentBucket(epoch);
+
+        int h1 = requestId.hashCode();
+        int h2 = mix(h1);
+        long oldest = Math.max(current.epoch - (buckets - 1), retiredBelow);
+        int probes = 0;
+        for (int i = 1; i < buckets; i++) {
+            Bucket bucket = ring.get(slot(current.epoch - i));
+            if (bucket == null || bucket.epoch < oldest || bucket.epoch >= current.epoch) {
+                continue;
+            }
+            if (bucket.mightContain(h1, h2)) {
+                if (bucket.keys.contains(requestId)) {
+                    negativeProbes.add(probes);
+                    return duplicate();
+                }
+                falsePositives.increment();
+            }
+            probes++;
+        }
+        negativeProbes.add(probes);
+
+        if (!current.add(requestId, h1, h2)) {
+            return duplicate();
+        }
+        if ((inserts.incrementAndGet() & OVERFLOW_CHECK_MASK) == 0) {
+            retireOverflow(current.epoch);
+        }
+        return false;
+    }
+
+    /**
+     * 最近一个桶周期内的布隆过滤器假阳性率（假阳性次数 / 历史桶中实际不存在的查询次数）
+     */
+    public double falsePositiveRate() {
+        return lastFalsePositiveRate;
+    }
+
+    /**
+     * 当前窗口内的条目数
+     */
+    public long entries() {
+        long oldest = retiredBelow;
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null && bucket.epoch >= oldest) {
+                total += bucket.size.get();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 估算内存占用（布隆位图 + 精确集合）
+     */
+    public long estimatedMemoryBytes() {
+        long bloomBytes = 0;
+        for (int i = 0; i < buckets; i++) {
+            if (ring.get(i) != null) {
+                bloomBytes += bloomBits / 8;
+            }
+        }
+        return bloomBytes + entries() * ESTIMATED_BYTES_PER_ENTRY;
+    }
+
+    private Bucket currentBucket(long epoch) {
+        int slot = slot(epoch);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            // 时钟回拨或线程读到稍旧的时间时，沿用较新的桶
+            if (bucket != null && bucket.epoch >= epoch) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(epoch, bloomBits);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                onRotate();
+                return fresh;
+            }
+        }
+    }
+
+    /**
+     * 条目数超过上限时淘汰最旧的桶（不淘汰当前桶）
+     */
+    private void retireOverflow(long currentEpoch) {
+        long oldest = Math.max(currentEpoch - (buckets - 1), retiredBelow);
+        long start = oldest;
+        while (oldest < currentEpoch && entries() > maxEntries) {
+            int slot = slot(oldest);
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch == oldest) {
+                ring.compareAndSet(slot, bucket, null);
+            }
+            oldest++;
+            if (oldest > retiredBelow) {
+                retiredBelow = oldest;
+            }
+        }
+        if (oldest > start) {
+            log.warn("MQ 去重条目超过上限，提前淘汰最旧时间桶: maxEntries={}, retiredBuckets={}", maxEntries, oldest - start);
+        }
+    }
+
+    private void onRotate() {
+        long probes = negativeProbes.sumThenReset();
+        long fp = falsePositives.sumThenReset();
+        lastFalsePositiveRate = probes == 0 ? 0D : (double) fp / probes;
+        if (monitoringService != null) {
+            monitoringService.recordMetric(METRIC_FALSE_POSITIVE_RATE, lastFalsePositiveRate);
+            monitoringService.recordMetric(METRIC_ENTRIES, entries());
+            monitoringService.recordMetric(METRIC_MEMORY_BYTES, estimatedMemoryBytes());
+        }
+    }
+
+    private boolean duplicate() {
+        if (monitoringService != null) {
+            monitoringService.incrementCounter(COUNTER_DUPLICATES);
+        }
+        return true;
+    }
+
+    private int slot(long epoch) {
+        return (int) Math.floorMod(epoch, (long) buckets);
+    }
+
+    /**
+     * murmur3 fmix32，作为布隆过滤器的第二个哈希
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+
+    /**
+     * 单个时间桶：精确集合 + 布隆过滤器
+     */
+    private static final class Bucket {
+        private final long epoch;
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLongArray bloom;
+        private final int bitMask;
+
+        private Bucket(long epoch, int bits) {
+            this.epoch = epoch;
+            this.bloom = new AtomicLongArray(bits >>> 6);
+            this.bitMask = bits - 1;
+        }
+
+        /**
+         * 先置布隆位再写精确集合，保证并发读者不会出现"集合有而布隆无"的漏判
+         */
+        private boolean add(String key, int h1, int h2) {
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (h1 + i * h2) & bitMask;
+                long mask = 1L << bit;
+                int index = bit >>> 6;
+                if ((bloom.get(index) & mask) == 0) {
+                    bloom.getAndAccumulate(index, mask, (prev, m) -> prev | m);
+                }
+            }
+            if (!keys.add(key)) {
+                return false;
+            }
+            size.incrementAndGet();
+            return true;
+        }
+
+        private boolean mightContain(int h1, int h2) {
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (h1 + i * h2) & bitMask;
+                if ((bloom.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
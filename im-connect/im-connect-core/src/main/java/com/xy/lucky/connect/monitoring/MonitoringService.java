@@ -1,5 +1,7 @@
 package com.xy.lucky.connect.monitoring;
 
+import java.util.function.DoubleSupplier;
+
 /**
  * 监控服务接口
  * 提供异常监控、性能指标收集和告警功能
@@ -35,4 +37,17 @@ public interface MonitoringService {
      * 记录耗时
      */
     void recordTime(String name, long timeInMs, String... tags);
-}
\ No newline at end of file
+
+    /**
+     * 记录纳秒级耗时（热路径计时使用）
+     */
+    default void recordNanos(String name, long nanos, String... tags) {
+        recordTime(name, nanos / 1_000_000L, tags);
+    }
+
+    /**
+     * 注册回调式 Gauge，抓取指标时才计算
+     */
+    default void registerGauge(String name, DoubleSupplier supplier, String... tags) {
+    }
+}
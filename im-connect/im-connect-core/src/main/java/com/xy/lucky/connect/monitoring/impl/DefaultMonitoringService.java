@@ -2,26 +2,24 @@ package com.xy.lucky.connect.monitoring.impl;
 
 import com.xy.lucky.connect.config.LogConstant;
 import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
 import com.xy.lucky.spring.annotations.core.Component;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Arrays;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
 
 /**
  * 监控服务默认实现
  * - 记录异常和性能指标
- * - 提供基本的内存计数器
+ * - 指标写入进程内 MetricsRegistry，由 MetricsHttpServer 以 Prometheus 文本格式导出
  * - 可扩展为接入外部监控系统
  */
 @Slf4j(topic = LogConstant.Monitoring)
 @Component
 public class DefaultMonitoringService implements MonitoringService {
 
-    // 简单计数器，用于记录各类事件发生次数
-    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final MetricsRegistry registry = MetricsRegistry.global();
 
     @Override
     public void reportCritical(String context, Exception ex) {
@@ -44,41 +42,33 @@ public class DefaultMonitoringService implements MonitoringService {
 
     @Override
     public void recordMetric(String name, double value, String... tags) {
-        String key = formatMetricKey(name, tags);
-        log.debug("记录指标: {} = {}", key, value);
-        // TODO: 接入外部指标系统，如Prometheus
+        registry.summary(name, tags).record(value);
     }
 
     @Override
     public void incrementCounter(String name, String... tags) {
-        String key = formatMetricKey(name, tags);
-        counters.computeIfAbsent(key, k -> new AtomicLong(0)).incrementAndGet();
-        log.debug("计数器增加: {}", key);
+        registry.counter(name, tags).increment();
     }
 
     @Override
     public void recordTime(String name, long timeInMs, String... tags) {
-        String key = formatMetricKey(name, tags);
-        log.debug("记录耗时: {} = {}ms", key, timeInMs);
-        // TODO: 接入外部指标系统，如Prometheus
+        registry.timer(name, tags).record(TimeUnit.MILLISECONDS.toNanos(timeInMs));
     }
 
-    /**
-     * 获取当前计数器值
-     */
-    public long getCounterValue(String name, String... tags) {
-        String key = formatMetricKey(name, tags);
-        AtomicLong counter = counters.get(key);
-        return counter != null ? counter.get() : 0;
+    @Override
+    public void recordNanos(String name, long nanos, String... tags) {
+        registry.timer(name, tags).record(nanos);
+    }
+
+    @Override
+    public void registerGauge(String name, DoubleSupplier supplier, String... tags) {
+        registry.gauge(name, supplier, tags);
     }
 
     /**
-     * 格式化指标键名
+     * 获取当前计数器值
      */
-    private String formatMetricKey(String name, String... tags) {
-        if (tags == null || tags.length == 0) {
-            return name;
-        }
-        return name + ":" + String.join(",", Arrays.asList(tags));
+    public long getCounterValue(String name, String... tags) {
+        return registry.counter(name, tags).sum();
     }
-}
\ No newline at end of file
+}
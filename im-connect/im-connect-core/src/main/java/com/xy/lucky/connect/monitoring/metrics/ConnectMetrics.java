@@ -0,0 +1,165 @@
+package com.xy.lucky.connect.monitoring.metrics;
+
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.spring.event.PartitionedEventDispatcher;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+/**
+ * connect 节点指标名称与公共注册方法
+ */
+public final class ConnectMetrics {
+
+    /**
+     * 连接接入到鉴权通过（WebSocket 为收到升级请求并鉴权通过）的耗时
+     */
+    public static final String HANDSHAKE_LATENCY = "connect.handshake.latency";
+
+    /**
+     * 单次鉴权（token 提取与校验）耗时
+     */
+    public static final String AUTH_LATENCY = "connect.auth.latency";
+
+    /**
+     * 入站解码耗时，按 protocol 标签区分
+     */
+    public static final String DECODE_TIME = "connect.codec.decode";
+
+    /**
+     * 出站编码耗时，按 protocol 标签区分
+     */
+    public static final String ENCODE_TIME = "connect.codec.encode";
+
+    /**
+     * MQ 投递到达至写入目标连接出站缓冲的耗时
+     */
+    public static final String MQ_PUSH_LATENCY = "connect.mq.push.latency";
+
+    /**
+     * 每次真实 flush 时连接出站缓冲中待写字节数
+     */
+    public static final String OUTBOUND_PENDING_BYTES = "netty.outbound.pending_bytes";
+
+    /**
+     * 出站缓冲超过高水位的连接数
+     */
+    public static final String OUTBOUND_UNWRITABLE_CHANNELS = "netty.outbound.unwritable_channels";
+
+    /**
+     * 不可写连接出站缓冲中的待写字节总数
+     */
+    public static final String OUTBOUND_UNWRITABLE_PENDING_BYTES = "netty.outbound.unwritable_pending_bytes";
+
+    /**
+     * 慢消费者处理次数，按 action 标签区分（drop / offline / disconnect）
+     */
+    public static final String SLOW_CONSUMER_ACTIONS = "netty.slow_consumer.actions";
+
+    /**
+     * 因慢消费者被丢弃的推送数
+     */
+    public static final String SLOW_CONSUMER_DROPPED_PUSHES = "netty.slow_consumer.dropped_pushes";
+
+    /**
+     * WebSocket 压缩前字节数（仅统计实际压缩的消息）
+     */
+    public static final String WS_DEFLATE_INPUT_BYTES = "netty.ws.deflate.input_bytes";
+
+    /**
+     * WebSocket 压缩后字节数，与 input_bytes 之比为整体压缩比
+     */
+    public static final String WS_DEFLATE_OUTPUT_BYTES = "netty.ws.deflate.output_bytes";
+
+    /**
+     * 单条消息压缩后大小占压缩前的百分比
+     */
+    public static final String WS_DEFLATE_RATIO = "netty.ws.deflate.ratio_percent";
+
+    /**
+     * 单条消息压缩耗时
+     */
+    public static final String WS_DEFLATE_TIME = "netty.ws.deflate.time";
+
+    /**
+     * 因小于压缩阈值而未压缩的消息数
+     */
+    public static final String WS_DEFLATE_SKIPPED = "netty.ws.deflate.skipped";
+
+    /**
+     * 群发共享帧未压缩的消息数
+     */
+    public static final String WS_DEFLATE_SHARED_SKIPPED = "netty.ws.deflate.shared_skipped";
+
+    /**
+     * 路由注册中心因队列已满或已停机丢弃的注册 / 注销操作数
+     */
+    public static final String ROUTE_REGISTRY_DROPPED_OPS = "connect.route_registry.dropped_ops";
+
+    /**
+     * 排空 / 迁移过程中已发送重连提示的连接数，按 mode 标签区分（drain / shed）
+     */
+    public static final String DRAIN_MIGRATED_CONNECTIONS = "connect.drain.migrated_connections";
+
+    /**
+     * 是否正在排空 / 迁移（1 表示进行中）
+     */
+    public static final String DRAIN_ACTIVE = "connect.drain.active";
+
+    /**
+     * 每个 EventLoop 的待执行任务数
+     */
+    public static final String EVENTLOOP_PENDING_TASKS = "netty.eventloop.pending_tasks";
+
+    /**
+     * 分区通道排队事件数（ackAfterDispatch 模式下为 MQ 分发通道），按 lane 标签区分
+     */
+    public static final String EVENT_LANE_DEPTH = "connect.event.lane_depth";
+
+    /**
+     * 分区通道已满被拒绝的事件总数
+     */
+    public static final String EVENT_REJECTED = "connect.event.rejected";
+
+    private ConnectMetrics() {
+        throw new UnsupportedOperationException("工具类不允许实例化");
+    }
+
+    /**
+     * 为 EventLoopGroup 中每个 EventLoop 注册任务队列长度 Gauge
+     *
+     * @param monitoringService 监控服务，为 null 时忽略
+     * @param group             EventLoopGroup
+     * @param groupName         分组名称，作为 group 标签
+     */
+    public static void registerEventLoopGauges(MonitoringService monitoringService, EventLoopGroup group, String groupName) {
+        if (monitoringService == null || group == null) {
+            return;
+        }
+        int index = 0;
+        for (EventExecutor executor : group) {
+            if (executor instanceof SingleThreadEventExecutor loop) {
+                monitoringService.registerGauge(EVENTLOOP_PENDING_TASKS, loop::pendingTasks,
+                        "group:" + groupName, "loop:" + index);
+            }
+            index++;
+        }
+    }
+
+    /**
+     * 为分区通道（事件总线或 MQ 分发）注册队列深度与拒绝数 Gauge
+     *
+     * @param monitoringService 监控服务，为 null 时忽略
+     * @param dispatcher        分区分发器，未启用分区分发时为 null
+     */
+    public static void registerEventLaneGauges(MonitoringService monitoringService, PartitionedEventDispatcher dispatcher) {
+        if (monitoringService == null || dispatcher == null) {
+            return;
+        }
+        for (int lane = 0; lane < dispatcher.laneCount(); lane++) {
+            final int index = lane;
+            monitoringService.registerGauge(EVENT_LANE_DEPTH, () -> dispatcher.laneDepth(index), "lane:" + index);
+        }
+        monitoringService.registerGauge(EVENT_REJECTED, dispatcher::rejectedCount);
+    }
+}
@@ -0,0 +1,107 @@
+package com.xy.lucky.connect.monitoring.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对数线性分桶直方图（HDR 风格）
+ * <p>
+ * - 小于 128 的值逐一计数；更大的值按 2 的幂分段，每段再线性切成 64 个子桶，相对误差不超过 1/64
+ * - 记录只做一次数组原子自增 + 两次 LongAdder 累加，无锁、无分配，可在 EventLoop 热路径上使用
+ * - 超过上限（2^40 - 1）的值按上限计入；负值按 0 计入
+ * - 数据自启动以来累计，不做时间窗口衰减，速率类指标由抓取方按 count/sum 差值计算
+ */
+public final class LongHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR_LIMIT = SUB_COUNT << 1;
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值
+     */
+    public void record(long value) {
+        long v = value < 0 ? 0 : Math.min(value, MAX_VALUE);
+        counts.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        long current = max.get();
+        while (v > current && !max.compareAndSet(current, v)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * 生成快照（计数在读取期间可能继续变化，误差可忽略）
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            copy[i] = c;
+            total += c;
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    private static int indexOf(long v) {
+        if (v < LINEAR_LIMIT) {
+            return (int) v;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_COUNT + (int) ((v >>> shift) - SUB_COUNT);
+    }
+
+    /**
+     * 桶的代表值（桶区间中点）
+     */
+    private static long valueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int shift = offset / SUB_COUNT + 1;
+        long lower = (long) (offset % SUB_COUNT + SUB_COUNT) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+
+    /**
+     * 直方图快照
+     *
+     * @param counts 各桶计数
+     * @param count  总次数
+     * @param sum    总和
+     * @param max    最大值
+     */
+    public record Snapshot(long[] counts, long count, long sum, long max) {
+
+        /**
+         * 分位数对应的值
+         *
+         * @param quantile 0 ~ 1
+         */
+        public long valueAtQuantile(double quantile) {
+            if (count <= 0) {
+                return 0;
+            }
+            long target = Math.max(1L, (long) Math.ceil(quantile * count));
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= target) {
+                    return Math.min(valueOf(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.xy.lucky.connect.monitoring.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.PostConstruct;
+import com.xy.lucky.spring.annotations.core.PreDestroy;
+import com.xy.lucky.spring.annotations.core.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 指标抓取端点
+ * <p>
+ * - 基于 JDK 内置 HttpServer，单线程处理，不占用 Netty EventLoop
+ * - GET {path} 返回 Prometheus 文本格式，供 Prometheus 直接抓取
+ */
+@Slf4j(topic = LogConstant.Monitoring)
+@Component
+public class MetricsHttpServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Value("${metrics.enable:true}")
+    private boolean enable;
+
+    @Value("${metrics.port:9464}")
+    private int port;
+
+    @Value("${metrics.path:/metrics}")
+    private String path;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (!enable) {
+            log.info("指标端点未启用");
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 16);
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "im-metrics-http");
+                t.setDaemon(true);
+                return t;
+            });
+            server.setExecutor(executor);
+            server.createContext(path, this::handle);
+            server.start();
+            log.info("指标端点已启动: http://0.0.0.0:{}{}", port, path);
+        } catch (IOException e) {
+            // 端点不可用不影响长连接服务
+            log.error("指标端点启动失败: port={}", port, e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder sb = new StringBuilder(16 * 1024);
+            MetricsRegistry.global().writePrometheus(sb);
+            byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.xy.lucky.connect.monitoring.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 进程内指标注册表
+ * <p>
+ * - 计数器基于 LongAdder，计时与分布基于 LongHistogram，状态值基于 ValueSummary，另支持回调式 Gauge
+ * - 指标以 "名称 + 标签" 唯一确定，标签沿用 MonitoringService 的 "key:value" 写法
+ * - 热路径调用方应在初始化时取得 LongHistogram / LongAdder 实例并缓存，避免每次查表
+ * - 全局单例：协议编解码器等非容器管理的对象也可直接使用
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+    private final ConcurrentHashMap<String, Meter> meters = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * 计数器
+     */
+    public LongAdder counter(String name, String... tags) {
+        return (LongAdder) register(name, tags, Kind.COUNTER, LongAdder::new).impl();
+    }
+
+    /**
+     * 计时器（记录纳秒，导出为秒）
+     */
+    public LongHistogram timer(String name, String... tags) {
+        return (LongHistogram) register(name, tags, Kind.TIMER, LongHistogram::new).impl();
+    }
+
+    /**
+     * 分布直方图（按原始单位导出，如字节数、条数）
+     */
+    public LongHistogram histogram(String name, String... tags) {
+        return (LongHistogram) register(name, tags, Kind.HISTOGRAM, LongHistogram::new).impl();
+    }
+
+    /**
+     * 数值汇总
+     */
+    public ValueSummary summary(String name, String... tags) {
+        return (ValueSummary) register(name, tags, Kind.SUMMARY, ValueSummary::new).impl();
+    }
+
+    /**
+     * 回调式 Gauge，抓取时才计算；同名同标签重复注册时以最后一次为准
+     */
+    public void gauge(String name, DoubleSupplier supplier, String... tags) {
+        String labels = labels(tags);
+        meters.put(key(name, labels), new Meter(sanitize(name), labels, Kind.GAUGE, supplier));
+    }
+
+    /**
+     * 以 Prometheus 文本格式（0.0.4）输出全部指标
+     */
+    public void writePrometheus(StringBuilder out) {
+        List<Meter> sorted = new ArrayList<>(meters.values());
+        sorted.sort(Comparator.comparing(Meter::name).thenComparing(Meter::labels));
+        String lastType = null;
+        for (Meter meter : sorted) {
+            String typeKey = meter.kind() + meter.name();
+            boolean header = !typeKey.equals(lastType);
+            lastType = typeKey;
+            switch (meter.kind()) {
+                case COUNTER -> {
+                    String name = meter.name() + "_total";
+                    if (header) type(out, name, "counter");
+                    sample(out, name, meter.labels(), ((LongAdder) meter.impl()).sum());
+                }
+                case GAUGE -> {
+                    if (header) type(out, meter.name(), "gauge");
+                    double value;
+                    try {
+                        value = ((DoubleSupplier) meter.impl()).getAsDouble();
+                    } catch (RuntimeException e) {
+                        value = Double.NaN;
+                    }
+                    sample(out, meter.name(), meter.labels(), value);
+                }
+                case SUMMARY -> {
+                    ValueSummary summary = (ValueSummary) meter.impl();
+                    if (header) type(out, meter.name(), "summary");
+                    sample(out, meter.name() + "_count", meter.labels(), summary.count());
+                    sample(out, meter.name() + "_sum", meter.labels(), summary.sum());
+                    sample(out, meter.name() + "_last", meter.labels(), summary.last());
+                }
+                case TIMER -> writeHistogram(out, meter, meter.name() + "_seconds", 1D / NANOS_PER_SECOND, header);
+                case HISTOGRAM -> writeHistogram(out, meter, meter.name(), 1D, header);
+            }
+        }
+    }
+
+    private void writeHistogram(StringBuilder out, Meter meter, String name, double scale, boolean header) {
+        LongHistogram.Snapshot snapshot = ((LongHistogram) meter.impl()).snapshot();
+        if (header) type(out, name, "summary");
+        for (double q : QUANTILES) {
+            String labels = meter.labels().isEmpty()
+                    ? "quantile=\"" + q + "\""
+                    : meter.labels() + ",quantile=\"" + q + "\"";
+            sample(out, name, labels, snapshot.valueAtQuantile(q) * scale);
+        }
+        sample(out, name + "_count", meter.labels(), snapshot.count());
+        sample(out, name + "_sum", meter.labels(), snapshot.sum() * scale);
+        sample(out, name + "_max", meter.labels(), snapshot.max() * scale);
+    }
+
+    private Meter register(String name, String[] tags, Kind kind, Supplier<Object> factory) {
+        String labels = labels(tags);
+        Meter meter = meters.computeIfAbsent(key(name, labels), k -> new Meter(sanitize(name), labels, kind, factory.get()));
+        if (meter.kind() != kind) {
+            throw new IllegalArgumentException("指标类型冲突: " + name + " 已注册为 " + meter.kind());
+        }
+        return meter;
+    }
+
+    private static void type(StringBuilder out, String name, String type) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.9g", value));
+        }
+        out.append('\n');
+    }
+
+    private static String key(String name, String labels) {
+        return labels.isEmpty() ? name : name + '{' + labels + '}';
+    }
+
+    /**
+     * "key:value" 标签转换为 Prometheus 标签串；无冒号的标签记为 tag="..."
+     */
+    private static String labels(String[] tags) {
+        if (tags == null || tags.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String tag : tags) {
+            if (tag == null) {
+                continue;
+            }
+            int idx = tag.indexOf(':');
+            String key = idx > 0 ? sanitize(tag.substring(0, idx)) : "tag";
+            String value = idx > 0 ? tag.substring(idx + 1) : tag;
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+            sb.append(key).append("=\"").append(escape(value)).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String sanitize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (i > 0 && c >= '0' && c <= '9');
+            sb.append(valid ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private enum Kind {
+        COUNTER, GAUGE, SUMMARY, TIMER, HISTOGRAM
+    }
+
+    private record Meter(String name, String labels, Kind kind, Object impl) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.xy.lucky.connect.monitoring.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 数值汇总：次数、总和与最近一次的值
+ * <p>
+ * 对应 MonitoringService.recordMetric，既可用于分布类指标（sum / count 求均值），也可用于周期上报的状态值（取 last）
+ */
+public final class ValueSummary {
+
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private volatile double last;
+
+    public void record(double value) {
+        count.increment();
+        sum.add(value);
+        last = value;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double sum() {
+        return sum.sum();
+    }
+
+    public double last() {
+        return last;
+    }
+}
@@ -0,0 +1,94 @@
+package com.xy.lucky.connect.mq;
+
+import com.rabbitmq.client.Channel;
+import com.xy.lucky.connect.config.LogConstant;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 消费确认批量提交器（每个消费 Channel 一个）
+ * <p>
+ * - 消息分发完成后调用 settle 登记，仅对从上次确认位置起连续完成的 deliveryTag 做 basicAck(multiple=true)
+ * - 分发失败的消息立即单条 basicNack(requeue=false)，并视为已结算，不阻塞后续批量确认
+ * - 批量确认只提交到连续区间内最后一条成功的 deliveryTag：已拒绝的标签不能再作为 ack 目标，否则 Broker 以
+ * PRECONDITION_FAILED（unknown delivery tag）关闭消费 Channel；区间内被跳过的已拒绝标签不受 multiple 影响
+ * - 达到批量阈值或定时 flush 时提交，减少确认帧数量
+ */
+@Slf4j(topic = LogConstant.Rabbit)
+final class BatchAcknowledger {
+
+    private final Channel channel;
+    private final int batchSize;
+    // deliveryTag -> 是否分发成功
+    private final TreeMap<Long, Boolean> settledTags = new TreeMap<>();
+
+    private long lastAckedTag;
+    private long contiguousTag;
+    // 连续已结算区间内最后一条分发成功的 deliveryTag
+    private long ackableTag;
+
+    BatchAcknowledger(Channel channel, int batchSize) {
+        this.channel = channel;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 登记一条消息的处理结果
+     *
+     * @param deliveryTag 投递标签
+     * @param success     是否分发成功
+     */
+    synchronized void settle(long deliveryTag, boolean success) {
+        if (!success) {
+            nack(deliveryTag);
+        }
+        if (deliveryTag <= contiguousTag) {
+            return;
+        }
+        settledTags.put(deliveryTag, success);
+        // 推进连续已结算位置
+        long next = contiguousTag + 1;
+        while (!settledTags.isEmpty() && settledTags.firstKey() <= next) {
+            Map.Entry<Long, Boolean> first = settledTags.pollFirstEntry();
+            if (first.getKey() == next) {
+                if (first.getValue()) {
+                    ackableTag = next;
+                }
+                next++;
+            }
+        }
+        contiguousTag = next - 1;
+        if (ackableTag - lastAckedTag >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 提交到连续已结算区间内最后一条成功的消息
+     */
+    synchronized void flush() {
+        if (ackableTag <= lastAckedTag || !channel.isOpen()) {
+            return;
+        }
+        try {
+            channel.basicAck(ackableTag, true);
+            lastAckedTag = ackableTag;
+        } catch (IOException e) {
+            log.error("批量确认失败: deliveryTag={}", ackableTag, e);
+        }
+    }
+
+    private void nack(long deliveryTag) {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            channel.basicNack(deliveryTag, false, false);
+        } catch (IOException e) {
+            log.error("消息拒绝失败: deliveryTag={}", deliveryTag, e);
+        }
+    }
+}
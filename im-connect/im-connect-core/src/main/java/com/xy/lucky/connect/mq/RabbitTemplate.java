@@ -6,15 +6,22 @@ import com.xy.lucky.connect.config.LogConstant;
 import com.xy.lucky.connect.config.properties.RabbitMQProperties;
 import com.xy.lucky.connect.constant.ConnectConstants;
 import com.xy.lucky.connect.domain.MessageEvent;
+import com.xy.lucky.connect.message.MessageHandler;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.netty.service.flush.OutboundPressureGauge;
+import com.xy.lucky.core.constants.IMConstant;
 import com.xy.lucky.core.utils.StringUtils;
 import com.xy.lucky.spring.annotations.core.*;
 import com.xy.lucky.spring.event.ApplicationEventBus;
+import com.xy.lucky.spring.event.PartitionedEventDispatcher;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * RabbitMQ连接客户端工具类
@@ -53,6 +60,21 @@ public class RabbitTemplate {
     @Autowired
     private ApplicationEventBus applicationEventBus;
 
+    @Autowired
+    private MessageHandler messageHandler;
+
+    @Autowired
+    private OutboundPressureGauge outboundPressureGauge;
+
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    // ==================== 背压分发（ackAfterDispatch 模式） ====================
+    private PartitionedEventDispatcher dispatchExecutor;
+    private ScheduledExecutorService ackFlusher;
+    private volatile BatchAcknowledger acknowledger;
+    private volatile boolean dispatchPaused;
+
     public void sendToBroker(String routingKey, String message) {
         if (!StringUtils.hasText(routingKey) || !StringUtils.hasText(message)) {
             return;
@@ -79,9 +101,48 @@ public class RabbitTemplate {
     @PostConstruct
     public void init() {
         buildConnectionFactory();
+        if (rabbitProperties.isAckAfterDispatch()) {
+            initDispatcher();
+            ConnectMetrics.registerEventLaneGauges(monitoringService, dispatchExecutor);
+        } else {
+            ConnectMetrics.registerEventLaneGauges(monitoringService, applicationEventBus.getPartitionedDispatcher());
+        }
         startConsumer(); // 启动消费者监听
     }
 
+    /**
+     * 初始化分区分发通道与批量确认定时器
+     * <p>
+     * - 按消息头中的分区键（会话 / 群 ID）哈希到固定的单线程通道，同一会话的消息严格按 Broker 投递顺序处理
+     * - 每个通道容量与 prefetch 一致：Broker 最多投递 prefetch 条未确认消息，在途工作天然有界，消费线程不会被长时间阻塞
+     */
+    private void initDispatcher() {
+        int prefetch = resolvePrefetch();
+        int threads = rabbitProperties.getDispatchThreads() > 0
+                ? rabbitProperties.getDispatchThreads()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        this.dispatchExecutor = new PartitionedEventDispatcher("im-mq-dispatch", threads, prefetch,
+                PartitionedEventDispatcher.RejectionPolicy.BLOCK, 0);
+
+        this.ackFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "im-mq-ack-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1L, rabbitProperties.getAckFlushIntervalMs());
+        this.ackFlusher.scheduleWithFixedDelay(() -> {
+            BatchAcknowledger current = acknowledger;
+            if (current != null) {
+                current.flush();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+
+        log.info("MQ 背压分发已启用: lanes={}, prefetch={}, ackBatchSize={}, pause/resume={}/{}",
+                threads, prefetch, rabbitProperties.getAckBatchSize(),
+                rabbitProperties.getPauseUnwritableChannels(), rabbitProperties.getResumeUnwritableChannels());
+    }
+
     /**
      * 构建 ConnectionFactory 并设置连接参数和异常处理器
      * 配置自动重连机制
@@ -177,9 +238,7 @@ public class RabbitTemplate {
         while (!running.get()) {
             String exchangeName = rabbitProperties.getExchange();
             String errorQueue = rabbitProperties.getErrorQueue();
-            int prefetch = rabbitProperties.getPrefetch() > 0
-                    ? rabbitProperties.getPrefetch()
-                    : ConnectConstants.RabbitMQ.DEFAULT_PREFETCH;
+            int prefetch = resolvePrefetch();
             try {
                 connection = factory.newConnection();
                 consumerChannel = connection.createChannel();
@@ -190,35 +249,9 @@ public class RabbitTemplate {
                 publishChannel.queueDeclare(errorQueue, true, false, false, null);
                 publishChannel.queueBind(errorQueue, exchangeName, errorQueue);
                 consumerChannel.basicQos(prefetch);
-                DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-                    final long deliveryTag = delivery.getEnvelope().getDeliveryTag();
-                    final byte[] body = delivery.getBody();
-                    boolean success = false;
-                    try {
-                        String context = new String(body, StandardCharsets.UTF_8);
-                        applicationEventBus.publishEvent(new MessageEvent(context));
-                        success = true;
-                    } catch (Throwable t) {
-                        log.error("Failed to process message", t);
-                        try {
-                            sendErrorMessageSynchronized(delivery.getEnvelope(), body, t.getMessage());
-                        } catch (Exception ex) {
-                            log.error("Failed to send error message", ex);
-                        }
-                    } finally {
-                        synchronized (consumerChannel) {
-                            try {
-                                if (success) {
-                                    consumerChannel.basicAck(deliveryTag, false);
-                                } else {
-                                    consumerChannel.basicNack(deliveryTag, false, false);
-                                }
-                            } catch (IOException e) {
-                                log.error("Failed to ack/nack message", e);
-                            }
-                        }
-                    }
-                };
+                DeliverCallback deliverCallback = rabbitProperties.isAckAfterDispatch()
+                        ? createDispatchCallback(consumerChannel)
+                        : createEventBusCallback();
                 CancelCallback cancelCallback = consumerTag -> log.warn("Consumer cancelled: {}", consumerTag);
                 consumerChannel.basicConsume(queueName, false, deliverCallback, cancelCallback);
                 running.set(true);
@@ -232,6 +265,148 @@ public class RabbitTemplate {
     }
 
 
+    /**
+     * 事件总线模式：投递到事件总线异步分发后立即确认
+     */
+    private DeliverCallback createEventBusCallback() {
+        return (consumerTag, delivery) -> {
+            final long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+            final byte[] body = delivery.getBody();
+            boolean success = false;
+            try {
+                String partitionKey = partitionKey(delivery);
+                applicationEventBus.publishEvent(isProtoEnvelope(delivery)
+                        ? new MessageEvent(null, body, partitionKey)
+                        : new MessageEvent(new String(body, StandardCharsets.UTF_8), null, partitionKey));
+                success = true;
+            } catch (Throwable t) {
+                log.error("Failed to process message", t);
+                try {
+                    sendErrorMessageSynchronized(delivery.getEnvelope(), body, t.getMessage());
+                } catch (Exception ex) {
+                    log.error("Failed to send error message", ex);
+                }
+            } finally {
+                synchronized (consumerChannel) {
+                    try {
+                        if (success) {
+                            consumerChannel.basicAck(deliveryTag, false);
+                        } else {
+                            consumerChannel.basicNack(deliveryTag, false, false);
+                        }
+                    } catch (IOException e) {
+                        log.error("Failed to ack/nack message", e);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * 背压模式：按分区键交给有界分发通道，分发完成后批量确认
+     * <p>
+     * 未携带分区键的消息（旧版本生产者）按 deliveryTag 打散到各通道，不保证顺序
+     */
+    private DeliverCallback createDispatchCallback(Channel channel) {
+        BatchAcknowledger channelAcknowledger = new BatchAcknowledger(channel, rabbitProperties.getAckBatchSize());
+        this.acknowledger = channelAcknowledger;
+        return (consumerTag, delivery) -> {
+            long receivedNanos = System.nanoTime();
+            String partitionKey = partitionKey(delivery);
+            Object key = partitionKey != null ? partitionKey : delivery.getEnvelope().getDeliveryTag();
+            dispatchExecutor.execute(key, () -> dispatchDelivery(channelAcknowledger, delivery, receivedNanos));
+        };
+    }
+
+    /**
+     * 执行一次分发并登记确认结果
+     *
+     * @param receivedNanos 消费回调收到消息的时间，用于统计 MQ 到连接出站缓冲的推送耗时
+     */
+    private void dispatchDelivery(BatchAcknowledger channelAcknowledger, Delivery delivery, long receivedNanos) {
+        final long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        final byte[] body = delivery.getBody();
+        boolean success = false;
+        try {
+            awaitOutboundCapacity();
+            success = isProtoEnvelope(delivery)
+                    ? messageHandler.dispatchEnvelope(body)
+                    : messageHandler.dispatch(new String(body, StandardCharsets.UTF_8));
+            if (!success) {
+                sendErrorMessageSynchronized(delivery.getEnvelope(), body, "dispatch failed");
+            } else if (monitoringService != null) {
+                monitoringService.recordNanos(ConnectMetrics.MQ_PUSH_LATENCY, System.nanoTime() - receivedNanos);
+            }
+        } catch (Throwable t) {
+            log.error("Failed to dispatch message", t);
+            try {
+                sendErrorMessageSynchronized(delivery.getEnvelope(), body, t.getMessage());
+            } catch (Exception ex) {
+                log.error("Failed to send error message", ex);
+            }
+        } finally {
+            channelAcknowledger.settle(deliveryTag, success);
+        }
+    }
+
+    /**
+     * 出站缓冲压力过高时阻塞分发线程
+     * <p>
+     * 分发阻塞 -> 消息不确认 -> 未确认数达到 prefetch 后 Broker 停止投递，积压留在 Broker 侧
+     */
+    private void awaitOutboundCapacity() {
+        int pauseThreshold = rabbitProperties.getPauseUnwritableChannels();
+        if (pauseThreshold <= 0) {
+            return;
+        }
+        if (!dispatchPaused) {
+            int unwritable = outboundPressureGauge.unwritableChannels();
+            if (unwritable < pauseThreshold) {
+                return;
+            }
+            dispatchPaused = true;
+            log.warn("出站缓冲压力过高，暂停 MQ 分发: unwritableChannels={}", unwritable);
+        }
+        int resumeThreshold = Math.min(rabbitProperties.getResumeUnwritableChannels(), pauseThreshold);
+        while (dispatchPaused && running.get()) {
+            int unwritable = outboundPressureGauge.unwritableChannels();
+            if (unwritable < resumeThreshold) {
+                dispatchPaused = false;
+                log.info("出站缓冲压力恢复，继续 MQ 分发: unwritableChannels={}", unwritable);
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    /**
+     * 按 AMQP content-type 判断是否为内部二进制载荷，未声明时按 JSON 处理
+     */
+    private boolean isProtoEnvelope(Delivery delivery) {
+        AMQP.BasicProperties properties = delivery.getProperties();
+        return properties != null
+                && IMConstant.MQ_CONTENT_TYPE_PROTO_ENVELOPE.equals(properties.getContentType());
+    }
+
+    /**
+     * 读取 message 服务写入的分区键，旧版本生产者未携带时返回 null
+     */
+    private String partitionKey(Delivery delivery) {
+        AMQP.BasicProperties properties = delivery.getProperties();
+        if (properties == null || properties.getHeaders() == null) {
+            return null;
+        }
+        Object key = properties.getHeaders().get(IMConstant.MQ_HEADER_PARTITION_KEY);
+        return key != null ? key.toString() : null;
+    }
+
+    private int resolvePrefetch() {
+        return rabbitProperties.getPrefetch() > 0
+                ? rabbitProperties.getPrefetch()
+                : ConnectConstants.RabbitMQ.DEFAULT_PREFETCH;
+    }
+
+
     /**
      * 关闭并清理资源（safe）
      */
@@ -280,12 +455,29 @@ public class RabbitTemplate {
     public void shutdown() {
         log.info("Shutting down RabbitTemplate");
 
-        //
+        // 先停止分发并提交已完成消息的确认，未完成的由 Broker 重新投递
+        shutdownDispatcher();
         closeResourcesSafely();
 
         log.info("RabbitTemplate shutdown complete");
     }
 
+    /**
+     * 停止分发通道与批量确认定时器
+     */
+    private void shutdownDispatcher() {
+        if (dispatchExecutor == null) {
+            return;
+        }
+        dispatchPaused = false;
+        dispatchExecutor.close(5000);
+        ackFlusher.shutdownNow();
+        BatchAcknowledger current = acknowledger;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
     /**
      * 发送错误消息到 errorQueue，使用 publishChannel（同步保护）
      */
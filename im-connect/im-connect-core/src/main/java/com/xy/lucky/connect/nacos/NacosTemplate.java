@@ -245,7 +245,7 @@ public class NacosTemplate {
         try {
             NamingService ns = namingServiceRef.get();
             if (ns != null) {
-                ns.deregisterInstance(nacosProperties.getConfig().getName(), inst.getIp(), inst.getPort());
+                ns.deregisterInstance(nacosProperties.getConfig().getName(), nacosProperties.getConfig().getGroup(), inst);
                 log.info("Deregistered instance from Nacos: {}:{}", inst.getIp(), inst.getPort());
             } else {
                 log.warn("NamingService not initialized when deregistering port={}", port);
@@ -256,6 +256,45 @@ public class NacosTemplate {
         return true;
     }
 
+    /**
+     * 注销全部已注册的实例（不关闭 NamingService，可通过 registerNacos 重新注册）
+     *
+     * @return 被注销的端口
+     */
+    public List<Integer> deregisterAll() {
+        List<Integer> ports = new ArrayList<>(instances.keySet());
+        for (Integer port : ports) {
+            deregisterNacos(port);
+        }
+        return ports;
+    }
+
+    /**
+     * 更新全部实例的某个 metadata 并重新注册（registerInstance 会覆盖已有实例的 metadata）
+     *
+     * @param key   metadata 键
+     * @param value metadata 值，为 null 时移除该键
+     */
+    public void updateMetadata(String key, String value) {
+        NamingService ns = namingServiceRef.get();
+        for (Map.Entry<Integer, Instance> e : instances.entrySet()) {
+            Instance inst = e.getValue();
+            if (value == null) {
+                inst.getMetadata().remove(key);
+            } else {
+                inst.getMetadata().put(key, value);
+            }
+            if (ns == null) {
+                continue;
+            }
+            try {
+                ns.registerInstance(nacosProperties.getConfig().getName(), nacosProperties.getConfig().getGroup(), inst);
+            } catch (Exception ex) {
+                log.warn("Failed to update metadata {} for port={}: {}", key, e.getKey(), ex.getMessage());
+            }
+        }
+    }
+
     /**
      * 手动更新某个实例的 connection metadata 并向 Nacos 注册（更新）
      *
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.xy.lucky.connect.config.LogConstant;
 import com.xy.lucky.connect.domain.proto.IMessageProto;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
 import com.xy.lucky.connect.netty.service.HeartbeatTimeoutWheel;
 import com.xy.lucky.core.constants.IMConstant;
 import com.xy.lucky.core.model.IMessageWrap;
@@ -46,6 +48,8 @@ public class AuthHandler extends ChannelInboundHandlerAdapter {
     public static final AttributeKey<String> USER_ID_ATTR = AttributeKey.valueOf(IMConstant.IM_USER);
     public static final AttributeKey<String> DEVICE_TYPE_ATTR = AttributeKey.valueOf(IMConstant.IM_DEVICE_TYPE);
 
+    private static final AttributeKey<Long> ACCEPT_NANOS_ATTR = AttributeKey.valueOf("im_accept_nanos");
+
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final String BEARER_PREFIX = "bearer ";
 
@@ -61,6 +65,15 @@ public class AuthHandler extends ChannelInboundHandlerAdapter {
     @Autowired
     private HeartbeatTimeoutWheel heartbeatTimeoutWheel;
 
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        ctx.channel().attr(ACCEPT_NANOS_ATTR).set(System.nanoTime());
+        super.channelActive(ctx);
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         try {
@@ -87,7 +100,9 @@ public class AuthHandler extends ChannelInboundHandlerAdapter {
      * 处理 HTTP 握手请求 (WebSocket 升级)
      */
     private void handleHttpHandshake(ChannelHandlerContext ctx, FullHttpRequest request) {
+        long start = System.nanoTime();
         AuthResult result = extractFromHttpRequest(request);
+        recordAuthLatency(start);
 
         if (!result.isValid()) {
             log.warn("HTTP 握手鉴权失败: uri={}", request.uri());
@@ -118,7 +133,9 @@ public class AuthHandler extends ChannelInboundHandlerAdapter {
         // 标记读索引，便于后续传递完整数据
         buf.markReaderIndex();
 
+        long start = System.nanoTime();
         AuthResult result = extractFromByteBuf(buf);
+        recordAuthLatency(start);
 
         // 重置读索引，确保下游 Handler 能读取完整数据
         buf.resetReaderIndex();
@@ -140,7 +157,9 @@ public class AuthHandler extends ChannelInboundHandlerAdapter {
      * 处理 TCP 文本消息
      */
     private void handleString(ChannelHandlerContext ctx, String text) {
+        long start = System.nanoTime();
         AuthResult result = extractFromString(text);
+        recordAuthLatency(start);
 
         if (!result.isValid()) {
             log.warn("TCP String 鉴权失败");
@@ -159,7 +178,9 @@ public class AuthHandler extends ChannelInboundHandlerAdapter {
      * 处理已解码的 POJO 消息
      */
     private void handlePojo(ChannelHandlerContext ctx, IMessageWrap<?> pojo) {
+        long start = System.nanoTime();
         String userId = validateToken(pojo.getToken());
+        recordAuthLatency(start);
 
         if (userId == null) {
             log.warn("TCP POJO 鉴权失败");
@@ -386,6 +407,11 @@ public class AuthHandler extends ChannelInboundHandlerAdapter {
         }
         heartbeatTimeoutWheel.register(ctx.channel());
 
+        Long acceptNanos = ctx.channel().attr(ACCEPT_NANOS_ATTR).getAndSet(null);
+        if (acceptNanos != null && monitoringService != null) {
+            monitoringService.recordNanos(ConnectMetrics.HANDSHAKE_LATENCY, System.nanoTime() - acceptNanos);
+        }
+
         // 移除鉴权 Handler (已完成使命)
         try {
             pipeline.remove(this);
@@ -394,6 +420,12 @@ public class AuthHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    private void recordAuthLatency(long startNanos) {
+        if (monitoringService != null) {
+            monitoringService.recordNanos(ConnectMetrics.AUTH_LATENCY, System.nanoTime() - startNanos);
+        }
+    }
+
     private void sendUnauthorizedAndClose(ChannelHandlerContext ctx) {
         ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
     }
@@ -1,6 +1,7 @@
 package com.xy.lucky.connect.netty;
 
 import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.limiter.MessageRateLimiter;
 import com.xy.lucky.connect.netty.process.impl.LoginProcess;
 import com.xy.lucky.connect.netty.service.ChannelCleanupHelper;
 import com.xy.lucky.core.enums.IMessageType;
@@ -17,6 +18,7 @@ import lombok.extern.slf4j.Slf4j;
  * 登录消息处理器
  * <p>
  * - 处理 REGISTER 类型的登录消息
+ * - 登录后的业务消息先经过用户级限流再向后转发
  * - 连接断开时清理用户资源
  */
 @Slf4j(topic = LogConstant.Login)
@@ -32,6 +34,9 @@ public class LoginHandler extends SimpleChannelInboundHandler<IMessageWrap<Objec
     @Autowired
     private ChannelCleanupHelper cleanupHelper;
 
+    @Autowired
+    private MessageRateLimiter messageRateLimiter;
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, IMessageWrap<Object> message) {
         int code = message.getCode();
@@ -47,7 +52,7 @@ public class LoginHandler extends SimpleChannelInboundHandler<IMessageWrap<Objec
             }
         } else {
             if (loginDone) {
-                ctx.fireChannelRead(message);
+                forwardIfAllowed(ctx, message);
             } else {
                 log.warn("登录前收到非注册消息，关闭连接: code={}, channelId={}", code, ctx.channel().id().asShortText());
                 cleanupHelper.cleanup(ctx, "messageBeforeRegister", true);
@@ -55,6 +60,15 @@ public class LoginHandler extends SimpleChannelInboundHandler<IMessageWrap<Objec
         }
     }
 
+    private void forwardIfAllowed(ChannelHandlerContext ctx, IMessageWrap<Object> message) {
+        MessageRateLimiter.Decision decision = messageRateLimiter.tryAcquire(cleanupHelper.getUserId(ctx), ctx.channel());
+        switch (decision) {
+            case ALLOW -> ctx.fireChannelRead(message);
+            case REJECT -> log.debug("业务消息被限流丢弃: code={}, channelId={}", message.getCode(), ctx.channel().id().asShortText());
+            case CLOSE -> cleanupHelper.cleanup(ctx, "messageRateLimited", true);
+        }
+    }
+
     @Override
     public void handlerRemoved(ChannelHandlerContext ctx) {
         String userId = cleanupHelper.getUserId(ctx);
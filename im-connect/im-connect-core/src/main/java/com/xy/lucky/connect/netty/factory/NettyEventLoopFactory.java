@@ -8,26 +8,76 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 
+import java.util.Locale;
 import java.util.concurrent.ThreadFactory;
 
+/**
+ * Netty 传输层工厂
+ * <p>
+ * - 默认自动探测：Linux 且 epoll 原生库可用时使用 epoll，否则回退 NIO
+ * - 可通过配置 netty.config.transport.nativeTransport（auto / epoll / nio）或系统属性 netty.epoll.enable 指定
+ * - 显式要求 epoll 但不可用时回退 NIO，不阻止启动
+ */
 public class NettyEventLoopFactory {
 
     private static final String NETTY_EPOLL_ENABLE_KEY = "netty.epoll.enable";
     private static final String OS_NAME_KEY = "os.name";
     private static final String OS_LINUX_PREFIX = "linux";
 
-    // EPOLL 是否已启用
-    private static final boolean IS_EPOLL_ENABLED;
-
     // 是否linux
     private static final boolean IS_LINUX;
 
+    // epoll 原生库是否可用
+    private static final boolean IS_EPOLL_AVAILABLE;
+
+    // 未显式指定时使用的传输类型
+    private static final Transport DEFAULT_TRANSPORT;
+
     static {
         String osName = System.getProperty(OS_NAME_KEY);
-        IS_LINUX = osName != null && osName.toLowerCase().contains(OS_LINUX_PREFIX);
+        IS_LINUX = osName != null && osName.toLowerCase(Locale.ROOT).contains(OS_LINUX_PREFIX);
+        IS_EPOLL_AVAILABLE = IS_LINUX && Epoll.isAvailable();
+
+        // 兼容旧的系统属性：显式 false 时强制 NIO，未设置时自动探测
+        String epollEnabled = System.getProperty(NETTY_EPOLL_ENABLE_KEY);
+        DEFAULT_TRANSPORT = resolveTransport(epollEnabled == null ? "auto"
+                : Boolean.parseBoolean(epollEnabled) ? "epoll" : "nio");
+    }
+
+    /**
+     * 传输类型
+     */
+    public enum Transport {
+        EPOLL, NIO
+    }
+
+    /**
+     * 解析传输类型
+     *
+     * @param preferred auto / epoll / nio，为空视为 auto
+     * @return 实际可用的传输类型
+     */
+    public static Transport resolveTransport(String preferred) {
+        String mode = preferred == null ? "auto" : preferred.trim().toLowerCase(Locale.ROOT);
+        return switch (mode) {
+            case "nio" -> Transport.NIO;
+            case "epoll", "native", "auto", "" -> IS_EPOLL_AVAILABLE ? Transport.EPOLL : Transport.NIO;
+            default -> throw new IllegalArgumentException("不支持的传输类型: " + preferred);
+        };
+    }
+
+    /**
+     * 系统属性 / 自动探测得到的默认传输类型
+     */
+    public static Transport defaultTransport() {
+        return DEFAULT_TRANSPORT;
+    }
 
-        String epollEnabled = System.getProperty(NETTY_EPOLL_ENABLE_KEY, "false");
-        IS_EPOLL_ENABLED = Boolean.parseBoolean(epollEnabled) && IS_LINUX && Epoll.isAvailable();
+    /**
+     * epoll 原生库是否可用（不可用时 SO_REUSEPORT 多 acceptor 也无法开启）
+     */
+    public static boolean isEpollAvailable() {
+        return IS_EPOLL_AVAILABLE;
     }
 
     /**
@@ -37,12 +87,24 @@ public class NettyEventLoopFactory {
      * @return EventLoopGroup 实例
      */
     public static EventLoopGroup eventLoopGroup(int threads) {
+        return eventLoopGroup(threads, DEFAULT_TRANSPORT);
+    }
+
+    /**
+     * 按指定传输类型创建 EventLoopGroup
+     *
+     * @param threads   线程数
+     * @param transport 传输类型
+     * @return EventLoopGroup 实例
+     */
+    public static EventLoopGroup eventLoopGroup(int threads, Transport transport) {
+        boolean epoll = transport == Transport.EPOLL;
         // 使用自定义的 VirtualThreadFactory 来构造 EventLoopGroup
         ThreadFactory threadFactory = new NettyVirtualThreadFactory(
-                IS_EPOLL_ENABLED ? EpollEventLoopGroup.class : NioEventLoopGroup.class,
+                epoll ? EpollEventLoopGroup.class : NioEventLoopGroup.class,
                 Thread.MAX_PRIORITY
         );
-        return IS_EPOLL_ENABLED
+        return epoll
                 ? new EpollEventLoopGroup(threads, threadFactory)
                 : new NioEventLoopGroup(threads, threadFactory);
     }
@@ -54,6 +116,13 @@ public class NettyEventLoopFactory {
      * @return ServerSocketChannel 的 Class 对象
      */
     public static Class<? extends ServerSocketChannel> serverSocketChannelClass() {
-        return IS_EPOLL_ENABLED ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+        return serverSocketChannelClass(DEFAULT_TRANSPORT);
+    }
+
+    /**
+     * 按指定传输类型选择 ServerSocketChannel 类
+     */
+    public static Class<? extends ServerSocketChannel> serverSocketChannelClass(Transport transport) {
+        return transport == Transport.EPOLL ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
     }
 }
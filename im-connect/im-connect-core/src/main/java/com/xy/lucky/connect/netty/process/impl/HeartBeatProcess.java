@@ -2,9 +2,8 @@ package com.xy.lucky.connect.netty.process.impl;
 
 
 import com.xy.lucky.connect.config.LogConstant;
-import com.xy.lucky.connect.config.properties.NettyProperties;
 import com.xy.lucky.connect.netty.process.WebsocketProcess;
-import com.xy.lucky.connect.redis.RedisTemplate;
+import com.xy.lucky.connect.redis.UserRouteRegistry;
 import com.xy.lucky.connect.utils.MessageUtils;
 import com.xy.lucky.core.constants.IMConstant;
 import com.xy.lucky.core.enums.IMDeviceType;
@@ -15,6 +14,8 @@ import com.xy.lucky.core.utils.StringUtils;
 import com.xy.lucky.spring.annotations.core.Autowired;
 import com.xy.lucky.spring.annotations.core.Component;
 import com.xy.lucky.spring.annotations.core.Value;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
 import lombok.extern.slf4j.Slf4j;
@@ -31,9 +32,6 @@ public class HeartBeatProcess implements WebsocketProcess {
     private static final AttributeKey<String> DEVICE_ATTR = AttributeKey.valueOf(IMConstant.IM_DEVICE_TYPE);
     private static final AttributeKey<Long> LAST_ROUTE_CHECK_MS_ATTR = AttributeKey.valueOf("im_last_route_check_ms");
 
-    @Autowired
-    private NettyProperties nettyProperties;
-
     @Value("${auth.tokenExpired:2}")
     private Integer tokenExpired;
 
@@ -41,7 +39,7 @@ public class HeartBeatProcess implements WebsocketProcess {
     private long heartbeatRedisCheckIntervalMs;
 
     @Autowired
-    private RedisTemplate redisTemplate;
+    private UserRouteRegistry userRouteRegistry;
 
     @Override
     public void process(ChannelHandlerContext ctx, IMessageWrap sendInfo) {
@@ -60,17 +58,20 @@ public class HeartBeatProcess implements WebsocketProcess {
             return;
         }
 
-        String routeKey = IMConstant.USER_CACHE_PREFIX + userId;
         long now = System.currentTimeMillis();
         Long lastCheckTime = ctx.channel().attr(LAST_ROUTE_CHECK_MS_ATTR).get();
         if (lastCheckTime == null || now - lastCheckTime >= Math.max(1000L, heartbeatRedisCheckIntervalMs)) {
-            if (!redisTemplate.exists(routeKey)) {
-                log.warn("心跳处理失败：未识别的用户身份");
-                ctx.channel().writeAndFlush(IMessageWrap.builder().code(IMessageType.LOGOUT.getCode()));
-                ctx.close();
-                return;
-            }
             ctx.channel().attr(LAST_ROUTE_CHECK_MS_ATTR).set(now);
+            // 路由校验异步批量执行，路由已失效时再通知下线并关闭连接
+            Channel channel = ctx.channel();
+            String checkUserId = userId;
+            userRouteRegistry.checkExists(userId).thenAccept(exists -> {
+                if (!exists && channel.isActive()) {
+                    log.warn("心跳处理失败：用户路由已失效, userId={}", checkUserId);
+                    channel.writeAndFlush(IMessageWrap.builder().code(IMessageType.LOGOUT.getCode()).build())
+                            .addListener(ChannelFutureListener.CLOSE);
+                }
+            });
         }
 
         IMDeviceType deviceType = IMDeviceType.ofOrDefault(deviceTypeStr, IMDeviceType.WEB);
@@ -103,17 +104,12 @@ public class HeartBeatProcess implements WebsocketProcess {
 
         MessageUtils.send(ctx, sendInfo);
 
-        // 4. 续期 Redis 路由缓存
-        long ttlSeconds = toSeconds(nettyProperties.getHeartBeatTime() + nettyProperties.getTimeout());
-        redisTemplate.expire(routeKey, ttlSeconds);
+        // 4. 续期 Redis 路由缓存（窗口内批量 EXPIRE）
+        userRouteRegistry.renew(userId);
 
         if (log.isDebugEnabled()) {
             log.debug("心跳成功: userId={}, group={}, type={}", userId, deviceType.getGroup(), deviceType.getType());
         }
     }
 
-    private long toSeconds(long millis) {
-        return Math.max(1L, (millis + 999L) / 1000L);
-    }
-
 }
@@ -2,22 +2,155 @@ package com.xy.lucky.connect.netty.service;
 
 
 import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.netty.factory.NettyEventLoopFactory;
+import com.xy.lucky.connect.netty.service.codec.InboundDecoding;
+import com.xy.lucky.connect.utils.ProtoJsonUtils;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
 import lombok.extern.slf4j.Slf4j;
 
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 启停netty服务
+ * <p>
+ * - 统一创建 boss/worker 线程组并配置监听 Socket 参数（传输类型、SO_BACKLOG、缓冲区大小）
+ * - 开启 SO_REUSEPORT 时同一端口绑定多个监听 Channel，分布在不同 boss 线程上，由内核分摊新连接
+ * - 为连接设置出站缓冲水位线（WRITE_BUFFER_WATER_MARK）
  */
 @Slf4j(topic = LogConstant.Netty)
 public abstract class AbstractRemoteServer {
 
     // 启动标识（线程安全）
     protected final AtomicBoolean ready = new AtomicBoolean(false);
+    // 端口 -> 该端口上的监听 Channel（开启 SO_REUSEPORT 时一个端口对应多个）
+    protected final ConcurrentHashMap<Integer, List<Channel>> boundChannels = new ConcurrentHashMap<>();
     // Netty bootstrap / groups (从 AbstractRemoteServer 继承或在此定义)
     protected ServerBootstrap bootstrap;
     protected EventLoopGroup bossGroup;
     protected EventLoopGroup workerGroup;
+    // 实际使用的传输类型与每个端口的监听 Channel 数
+    protected NettyEventLoopFactory.Transport transport;
+    protected int acceptorsPerPort = 1;
+
+    /**
+     * 创建线程组与 ServerBootstrap，并应用监听 Socket 参数；childHandler 等业务配置由子类继续设置
+     *
+     * @param nettyProperties netty 配置
+     * @param serverName      服务名称，仅用于日志
+     */
+    protected void initBootstrap(NettyProperties nettyProperties, String serverName) {
+        ProtoJsonUtils.setTypedBodyEnabled(nettyProperties.isTypedBody());
+        InboundDecoding.configure(nettyProperties.getDecode());
+
+        NettyProperties.TransportConfig config = nettyProperties.getTransport();
+        transport = NettyEventLoopFactory.resolveTransport(config.getNativeTransport());
+        if ("epoll".equalsIgnoreCase(config.getNativeTransport()) && transport != NettyEventLoopFactory.Transport.EPOLL) {
+            log.warn("{} 配置了 epoll 但当前环境不可用，回退 NIO", serverName);
+        }
+
+        acceptorsPerPort = 1;
+        if (config.isReusePort()) {
+            if (transport == NettyEventLoopFactory.Transport.EPOLL) {
+                acceptorsPerPort = config.getAcceptorsPerPort() > 0
+                        ? config.getAcceptorsPerPort() : nettyProperties.getBossThreadSize();
+            } else {
+                log.warn("{} 开启了 reusePort 但未使用 epoll 传输，每个端口仍使用单个监听 Channel", serverName);
+            }
+        }
+
+        // 每个监听 Channel 固定注册在一个 boss 线程上，线程数不少于监听 Channel 数才能真正并行 accept
+        bossGroup = NettyEventLoopFactory.eventLoopGroup(Math.max(nettyProperties.getBossThreadSize(), acceptorsPerPort), transport);
+        workerGroup = NettyEventLoopFactory.eventLoopGroup(nettyProperties.getWorkThreadSize(), transport);
+
+        bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NettyEventLoopFactory.serverSocketChannelClass(transport))
+                // 设置TCP的参数，SO_BACKLOG表示队列大小，用于处理临时的高并发连接请求，合理设置能避免拒绝服务
+                .option(ChannelOption.SO_BACKLOG, config.getBacklog())
+                // 是否允许重用Socket地址，避免某些情况下的端口占用问题
+                .option(ChannelOption.SO_REUSEADDR, true);
+        if (config.getReceiveBufferSize() > 0) {
+            // 接收缓冲区大小，根据需要调整，以减少大流量情况下数据包丢失的风险
+            bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        if (config.getChildReceiveBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, config.getChildReceiveBufferSize());
+        }
+        if (config.getChildSendBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, config.getChildSendBufferSize());
+        }
+        if (acceptorsPerPort > 1) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+
+        // 出站缓冲水位线：超过高水位时 Channel 不可写，由 SlowConsumerGuard 统计与处理
+        NettyProperties.SlowConsumerConfig slowConsumer = nettyProperties.getSlowConsumer();
+        int lowWaterMark = Math.max(1, slowConsumer.getLowWaterMark());
+        int highWaterMark = Math.max(lowWaterMark, slowConsumer.getHighWaterMark());
+        bootstrap.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(lowWaterMark, highWaterMark));
+
+        log.info("{} 传输层: transport={}, acceptorsPerPort={}, backlog={}, rcvbuf={}, childRcvbuf={}, childSndbuf={}, waterMark=[{}, {}]",
+                serverName, transport, acceptorsPerPort, config.getBacklog(), config.getReceiveBufferSize(),
+                config.getChildReceiveBufferSize(), config.getChildSendBufferSize(), lowWaterMark, highWaterMark);
+    }
+
+    /**
+     * 绑定端口；开启 SO_REUSEPORT 时绑定 acceptorsPerPort 个监听 Channel，任一绑定失败则回滚已绑定的 Channel
+     *
+     * @param port 端口
+     * @return 该端口上的监听 Channel
+     */
+    protected List<Channel> bindPort(int port) throws InterruptedException {
+        List<Channel> channels = new ArrayList<>(acceptorsPerPort);
+        try {
+            for (int i = 0; i < acceptorsPerPort; i++) {
+                channels.add(bootstrap.bind(new InetSocketAddress(port)).sync().channel());
+            }
+        } catch (Exception e) {
+            channels.forEach(Channel::close);
+            throw e;
+        }
+
+        List<Channel> registered = new CopyOnWriteArrayList<>(channels);
+        boundChannels.put(port, registered);
+        // 监听 Channel 关闭时移出记录，全部关闭后移除端口
+        for (Channel channel : channels) {
+            channel.closeFuture().addListener((ChannelFutureListener) cf -> {
+                registered.remove(channel);
+                if (registered.isEmpty() && boundChannels.remove(port, registered)) {
+                    log.warn("端口 [{}] 的监听 Channel 已全部关闭", port);
+                }
+            });
+        }
+        return registered;
+    }
+
+    /**
+     * 关闭端口上的全部监听 Channel
+     *
+     * @param port 端口
+     * @return 端口是否存在绑定记录
+     */
+    protected boolean closePortChannels(int port) {
+        List<Channel> channels = boundChannels.remove(port);
+        if (channels == null) {
+            return false;
+        }
+        for (Channel channel : channels) {
+            channel.close().syncUninterruptibly();
+        }
+        return true;
+    }
 }
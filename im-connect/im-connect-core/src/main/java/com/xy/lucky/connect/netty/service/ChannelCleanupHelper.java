@@ -2,12 +2,12 @@ package com.xy.lucky.connect.netty.service;
 
 import com.xy.lucky.connect.channel.UserChannelMap;
 import com.xy.lucky.connect.config.LogConstant;
-import com.xy.lucky.connect.redis.RedisTemplate;
+import com.xy.lucky.connect.redis.UserRouteRegistry;
 import com.xy.lucky.core.constants.IMConstant;
+import com.xy.lucky.core.enums.IMDeviceType;
 import com.xy.lucky.core.utils.StringUtils;
 import com.xy.lucky.spring.annotations.core.Autowired;
 import com.xy.lucky.spring.annotations.core.Component;
-import com.xy.lucky.spring.annotations.core.Value;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
@@ -24,14 +24,11 @@ public class ChannelCleanupHelper {
     private static final AttributeKey<String> USER_ID_ATTR = AttributeKey.valueOf(IMConstant.IM_USER);
     private static final AttributeKey<String> DEVICE_TYPE_ATTR = AttributeKey.valueOf(IMConstant.IM_DEVICE_TYPE);
 
-    @Value("${brokerId}")
-    private String brokerId;
-
     @Autowired
     private UserChannelMap userChannelMap;
 
     @Autowired
-    private RedisTemplate redisTemplate;
+    private UserRouteRegistry userRouteRegistry;
 
     /**
      * 完整清理连接关联的所有资源
@@ -75,32 +72,41 @@ public class ChannelCleanupHelper {
         log.info("连接资源已清理: userId={}, device={}, channelId={}, reason={}", userId, deviceType, channelId, reason);
     }
 
+    /**
+     * 只解除单个连接的本地映射与该设备的路由，不关闭连接
+     * <p>
+     * 用户的其他设备仍在线时保留其路由，适用于需要先排空出站缓冲再关闭的场景（慢消费者降级）
+     *
+     * @param channel Channel
+     * @param reason  解除原因 (用于日志)
+     */
+    public void detachDevice(Channel channel, String reason) {
+        if (channel == null) return;
+
+        String userId = channel.attr(USER_ID_ATTR).get();
+        String deviceType = channel.attr(DEVICE_TYPE_ATTR).get();
+
+        userChannelMap.removeByChannel(channel);
+        if (StringUtils.hasText(userId)) {
+            userRouteRegistry.unregisterDevice(userId, IMDeviceType.ofOrDefault(deviceType, IMDeviceType.WEB));
+        }
+
+        log.info("连接已解除设备路由: userId={}, device={}, channelId={}, reason={}",
+                userId, deviceType, channel.id().asLongText(), reason);
+    }
+
     /**
      * 仅当用户在本 Broker 上没有任何活跃连接时，才清理 Redis 路由
+     * <p>
+     * 路由归属校验与删除由 UserRouteRegistry 异步批量执行，不阻塞 EventLoop
      */
     private void cleanupRedisRouteIfOrphan(String userId) {
-        String routeKey = IMConstant.USER_CACHE_PREFIX + userId;
-
         // 检查用户在本地是否还有活跃连接
         if (!userChannelMap.getChannelsByUser(userId).isEmpty()) {
             log.debug("用户 {} 仍有活跃连接，保留 Redis 路由", userId);
             return;
         }
-
-        // 检查 Redis 中的 brokerId 是否属于当前节点 (避免误删其他节点的路由)
-        String json = redisTemplate.get(routeKey);
-        if (!StringUtils.hasText(json)) {
-            return; // 已不存在，无需处理
-        }
-
-        // 简单字符串匹配检测 brokerId (比完整反序列化更高效)
-        if (StringUtils.hasText(brokerId) && !json.contains(brokerId)) {
-            log.debug("Redis 路由属于其他 Broker，跳过清理: userId={}", userId);
-            return;
-        }
-
-        redisTemplate.del(routeKey);
-        log.debug("已清理 Redis 路由: key={}", routeKey);
+        userRouteRegistry.unregister(userId);
     }
 
     /**
@@ -7,38 +7,41 @@ import com.xy.lucky.spring.annotations.core.Component;
 import com.xy.lucky.spring.annotations.core.PostConstruct;
 import com.xy.lucky.spring.annotations.core.PreDestroy;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.ScheduledFuture;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * 轻量级心跳超时检测时间轮
+ * 分层心跳超时检测时间轮（每个 EventLoop 一个）
  * <p>
  * 设计目标：
- * 1. 避免为每个连接创建独立定时任务，降低高并发场景下的调度开销
- * 2. 使用惰性失效策略，续期时不做 O(n) 删除
- * 3. 超时处理切回 Channel 的 EventLoop 执行，保证线程安全
+ * 1. 每个 EventLoop 独立一个时间轮，由该 EventLoop 自身驱动，超时处理无需跨线程，吞吐随 EventLoop 数量线性扩展
+ * 2. 每个连接只分配一个超时节点并挂在 Channel 属性上，续期只写一个 long 截止 tick，不分配对象、不生成字符串
+ * 3. 节点以侵入式双向链表挂在槽位上，加入/移除均为 O(1)
+ * 4. 多层级（每层 64 槽）结构，长超时逐层下沉，不再反复轮转 remainingRounds
+ * 5. 惰性续期：节点到期时才比对最新截止 tick，未到期则按新截止 tick 重新挂载
  */
 @Slf4j(topic = LogConstant.HeartBeat)
 @Component
 public class HeartbeatTimeoutWheel {
 
-    private static final int WHEEL_SIZE = 512;
-    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
-    private static final AttributeKey<Boolean> CLOSE_LISTENER_BOUND =
-            AttributeKey.valueOf("im_heartbeat_timeout_wheel_close_listener_bound");
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1L;
 
-    private final AtomicLong currentTick = new AtomicLong(0);
-    private final ConcurrentHashMap<String, TimeoutTask> latestTaskMap = new ConcurrentHashMap<>();
-    private final List<ConcurrentLinkedQueue<TimeoutTask>> buckets = new ArrayList<>(WHEEL_SIZE);
+    private static final AttributeKey<TimeoutNode> TIMEOUT_NODE =
+            AttributeKey.valueOf("im_heartbeat_timeout_node");
+
+    private final ConcurrentHashMap<EventLoop, LoopWheel> wheels = new ConcurrentHashMap<>();
     private final AtomicBoolean running = new AtomicBoolean(false);
 
-    private ScheduledExecutorService scheduler;
     private long tickMs;
     private long timeoutTicks;
 
@@ -53,162 +56,236 @@ public class HeartbeatTimeoutWheel {
         if (!running.compareAndSet(false, true)) {
             return;
         }
-
-        if (buckets.isEmpty()) {
-            for (int i = 0; i < WHEEL_SIZE; i++) {
-                buckets.add(new ConcurrentLinkedQueue<>());
-            }
-        }
-
         this.tickMs = resolveTickMs(nettyProperties.getHeartBeatTime());
         this.timeoutTicks = Math.max(1L, (nettyProperties.getHeartBeatTime() + tickMs - 1L) / tickMs);
 
-        ThreadFactory threadFactory = r -> {
-            Thread t = new Thread(r, "im-heartbeat-wheel");
-            t.setDaemon(true);
-            return t;
-        };
-        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
-        this.scheduler.scheduleAtFixedRate(this::onTick, tickMs, tickMs, TimeUnit.MILLISECONDS);
-
-        log.info("心跳时间轮已启动: tickMs={}, timeoutTicks={}, wheelSize={}", tickMs, timeoutTicks, WHEEL_SIZE);
+        log.info("心跳时间轮已启动: tickMs={}, timeoutTicks={}, levels={}, slotsPerLevel={}",
+                tickMs, timeoutTicks, LEVELS, SLOTS);
     }
 
     @PreDestroy
     public void shutdown() {
         running.set(false);
-        if (scheduler != null) {
-            scheduler.shutdownNow();
-        }
-        latestTaskMap.clear();
-        buckets.forEach(ConcurrentLinkedQueue::clear);
+        wheels.values().forEach(LoopWheel::stop);
+        wheels.clear();
         log.info("心跳时间轮已关闭");
     }
 
     /**
-     * 首次接入连接时注册超时任务
+     * 首次接入连接时注册超时节点
      */
     public void register(Channel channel) {
         renew(channel);
-        bindCloseListener(channel);
     }
 
     /**
-     * 收到业务消息后续期
+     * 收到业务消息后续期（只更新截止 tick）
      */
     public void renew(Channel channel) {
         if (!running.get() || channel == null || !channel.isActive()) {
             return;
         }
+        EventLoop eventLoop = channel.eventLoop();
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(() -> renew(channel));
+            return;
+        }
 
-        long expireTick = currentTick.get() + timeoutTicks;
-        TimeoutTask task = new TimeoutTask(channel, expireTick);
-        latestTaskMap.put(channel.id().asLongText(), task);
-        scheduleTask(task, currentTick.get());
+        TimeoutNode node = channel.attr(TIMEOUT_NODE).get();
+        if (node != null) {
+            node.deadlineTick = node.wheel.currentTick + timeoutTicks;
+            return;
+        }
+
+        LoopWheel wheel = wheels.computeIfAbsent(eventLoop, LoopWheel::new);
+        node = new TimeoutNode(channel, wheel);
+        node.deadlineTick = wheel.currentTick + timeoutTicks;
+        channel.attr(TIMEOUT_NODE).set(node);
+        wheel.schedule(node, node.deadlineTick);
+        channel.closeFuture().addListener(f -> unregister(channel));
     }
 
     /**
-     * 连接关闭时移除索引，桶内旧任务由惰性失效自动跳过
+     * 连接关闭时从槽位摘除节点
      */
     public void unregister(Channel channel) {
         if (channel == null) {
             return;
         }
-        latestTaskMap.remove(channel.id().asLongText());
-    }
-
-    private void bindCloseListener(Channel channel) {
-        if (channel == null) {
+        EventLoop eventLoop = channel.eventLoop();
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(() -> unregister(channel));
             return;
         }
-        Boolean bound = channel.attr(CLOSE_LISTENER_BOUND).get();
-        if (Boolean.TRUE.equals(bound)) {
-            return;
+        TimeoutNode node = channel.attr(TIMEOUT_NODE).getAndSet(null);
+        if (node != null) {
+            node.wheel.unlink(node);
         }
-        channel.attr(CLOSE_LISTENER_BOUND).set(Boolean.TRUE);
-        channel.closeFuture().addListener(f -> unregister(channel));
     }
 
-    private void onTick() {
-        if (!running.get()) {
-            return;
+    private long resolveTickMs(int heartbeatTimeMs) {
+        if (heartbeatTimeMs <= 0) {
+            return 1000L;
         }
-        try {
-            long tick = currentTick.incrementAndGet();
-            int slot = (int) (tick & WHEEL_MASK);
-            ConcurrentLinkedQueue<TimeoutTask> bucket = buckets.get(slot);
+        long adaptiveTick = heartbeatTimeMs / 8L;
+        return Math.max(200L, Math.min(1000L, adaptiveTick));
+    }
 
-            int batch = bucket.size();
-            for (int i = 0; i < batch; i++) {
-                TimeoutTask task = bucket.poll();
-                if (task == null) {
-                    continue;
-                }
+    /**
+     * 单个 EventLoop 上的分层时间轮，所有方法只在该 EventLoop 线程内调用
+     */
+    private final class LoopWheel {
 
-                String channelId = task.channel.id().asLongText();
-                TimeoutTask latest = latestTaskMap.get(channelId);
-                if (latest != task) {
-                    continue;
-                }
+        private final EventLoop eventLoop;
+        private final TimeoutNode[] heads = new TimeoutNode[LEVELS * SLOTS];
+        private final long startNanos;
+        private final long tickNanos;
+        private final ScheduledFuture<?> tickFuture;
 
-                if (task.remainingRounds > 0) {
-                    task.remainingRounds--;
-                    bucket.offer(task);
-                    continue;
-                }
+        private long currentTick;
 
-                if (task.expireTick > tick) {
-                    scheduleTask(task, tick);
-                    continue;
-                }
+        private LoopWheel(EventLoop eventLoop) {
+            this.eventLoop = eventLoop;
+            this.startNanos = System.nanoTime();
+            this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+            this.tickFuture = eventLoop.scheduleAtFixedRate(this::onTick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        }
 
-                if (!task.channel.isActive()) {
-                    latestTaskMap.remove(channelId, task);
-                    continue;
-                }
+        private void stop() {
+            tickFuture.cancel(false);
+        }
 
-                if (latestTaskMap.remove(channelId, task)) {
-                    fireTimeout(task.channel);
+        /**
+         * 按墙钟追赶 tick，避免调度抖动导致时间轮变慢
+         */
+        private void onTick() {
+            if (!running.get()) {
+                return;
+            }
+            try {
+                long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+                while (currentTick < targetTick) {
+                    advance();
                 }
+            } catch (Throwable t) {
+                log.error("心跳时间轮执行异常: {}", t.getMessage(), t);
             }
-        } catch (Throwable t) {
-            log.error("心跳时间轮执行异常: {}", t.getMessage(), t);
         }
-    }
 
-    private void scheduleTask(TimeoutTask task, long baseTick) {
-        long delayTicks = Math.max(1L, task.expireTick - baseTick);
-        long rounds = (delayTicks - 1L) / WHEEL_SIZE;
-        int slot = (int) (task.expireTick & WHEEL_MASK);
-        task.remainingRounds = rounds;
-        buckets.get(slot).offer(task);
-    }
+        private void advance() {
+            long tick = ++currentTick;
+
+            // 低位归零时，将上一层对应槽位的节点下沉
+            for (int level = 1; level < LEVELS; level++) {
+                if ((tick & ((1L << (SLOT_BITS * level)) - 1L)) != 0) {
+                    break;
+                }
+                int slot = level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                TimeoutNode node = detach(slot);
+                while (node != null) {
+                    TimeoutNode next = node.next;
+                    node.next = null;
+                    schedule(node, node.scheduledTick);
+                    node = next;
+                }
+            }
+
+            TimeoutNode node = detach((int) (tick & SLOT_MASK));
+            while (node != null) {
+                TimeoutNode next = node.next;
+                node.next = null;
+                expire(node, tick);
+                node = next;
+            }
+        }
 
-    private void fireTimeout(Channel channel) {
-        channel.eventLoop().execute(() -> {
+        private void expire(TimeoutNode node, long tick) {
+            Channel channel = node.channel;
             if (!channel.isActive()) {
+                channel.attr(TIMEOUT_NODE).compareAndSet(node, null);
                 return;
             }
-            cleanupHelper.cleanup(channel, "heartbeat_timeout_wheel", true);
-        });
-    }
+            // 期间有续期，按最新截止 tick 重新挂载
+            if (node.deadlineTick > tick) {
+                schedule(node, node.deadlineTick);
+                return;
+            }
+            if (channel.attr(TIMEOUT_NODE).compareAndSet(node, null)) {
+                cleanupHelper.cleanup(channel, "heartbeat_timeout_wheel", true);
+            }
+        }
 
-    private long resolveTickMs(int heartbeatTimeMs) {
-        if (heartbeatTimeMs <= 0) {
-            return 1000L;
+        /**
+         * 按与当前 tick 的距离选择层级与槽位
+         */
+        private void schedule(TimeoutNode node, long expireTick) {
+            long delay = Math.min(Math.max(0L, expireTick - currentTick), MAX_DELAY_TICKS);
+            long target = currentTick + delay;
+            int level = 0;
+            while (level < LEVELS - 1 && delay >= (1L << (SLOT_BITS * (level + 1)))) {
+                level++;
+            }
+            node.scheduledTick = target;
+            link(node, level * SLOTS + (int) ((target >>> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+
+        private void link(TimeoutNode node, int slot) {
+            TimeoutNode head = heads[slot];
+            node.slot = slot;
+            node.prev = null;
+            node.next = head;
+            if (head != null) {
+                head.prev = node;
+            }
+            heads[slot] = node;
+        }
+
+        private void unlink(TimeoutNode node) {
+            if (node.slot < 0) {
+                return;
+            }
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                heads[node.slot] = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.slot = -1;
+        }
+
+        /**
+         * 摘下整个槽位链表，返回表头（节点 next 仍保持链接，供调用方遍历）
+         */
+        private TimeoutNode detach(int slot) {
+            TimeoutNode head = heads[slot];
+            heads[slot] = null;
+            for (TimeoutNode node = head; node != null; node = node.next) {
+                node.prev = null;
+                node.slot = -1;
+            }
+            return head;
         }
-        long adaptiveTick = heartbeatTimeMs / 8L;
-        return Math.max(200L, Math.min(1000L, adaptiveTick));
     }
 
-    private static class TimeoutTask {
+    /**
+     * 每连接一个的超时节点，生命周期内复用
+     */
+    private static final class TimeoutNode {
         private final Channel channel;
-        private final long expireTick;
-        private long remainingRounds;
+        private final LoopWheel wheel;
+        private long deadlineTick;
+        private long scheduledTick;
+        private int slot = -1;
+        private TimeoutNode prev;
+        private TimeoutNode next;
 
-        private TimeoutTask(Channel channel, long expireTick) {
+        private TimeoutNode(Channel channel, LoopWheel wheel) {
             this.channel = channel;
-            this.expireTick = expireTick;
+            this.wheel = wheel;
         }
     }
 }
@@ -0,0 +1,83 @@
+package com.xy.lucky.connect.netty.service.codec;
+
+import com.google.protobuf.CodedInputStream;
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.domain.proto.IMessageProto;
+import com.xy.lucky.connect.utils.JacksonUtil;
+import com.xy.lucky.core.model.IMessageWrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.handler.codec.TooLongFrameException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+
+/**
+ * 入站帧解码工具
+ * <p>
+ * - 直接从 ByteBuf 解析，不复制为中间 byte[] / String
+ * - protobuf：单段缓冲使用 CodedInputStream.newInstance(nioBuffer)，复合缓冲使用 ByteBufInputStream 流式读取
+ * - JSON：由 JacksonUtil 从 ByteBuf 的字节源解析（堆缓冲直接读数组，直接缓冲流式读取）
+ * - 帧长度与嵌套层数受 netty.config.decode 限制
+ * <p>
+ * 解析不保留对 ByteBuf 的引用（未开启 aliasing），调用方可在解析后立即释放帧
+ */
+@Slf4j(topic = LogConstant.Netty)
+public final class InboundDecoding {
+
+    private static volatile int maxFrameLength = 640 * 1024;
+    private static volatile int maxNestingDepth = 64;
+
+    private InboundDecoding() {
+        throw new UnsupportedOperationException("工具类不允许实例化");
+    }
+
+    /**
+     * 应用解码限制（服务启动时调用）
+     */
+    public static void configure(NettyProperties.DecodeConfig config) {
+        maxFrameLength = config.getMaxFrameLength();
+        maxNestingDepth = config.getMaxNestingDepth();
+        JacksonUtil.setMaxNestingDepth(maxNestingDepth);
+        log.info("入站解码限制: maxFrameLength={}, maxNestingDepth={}", maxFrameLength, maxNestingDepth);
+    }
+
+    public static int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    /**
+     * 从帧内容解析 protobuf IMessageWrap，不移动 readerIndex
+     *
+     * @throws TooLongFrameException 帧超过长度限制
+     * @throws IOException           格式错误或嵌套层数超过限制
+     */
+    public static IMessageProto.IMessageWrap parseProto(ByteBuf content) throws IOException {
+        checkLength(content);
+        CodedInputStream input = content.nioBufferCount() == 1
+                ? CodedInputStream.newInstance(content.nioBuffer())
+                : CodedInputStream.newInstance(new ByteBufInputStream(content.duplicate()));
+        input.setRecursionLimit(maxNestingDepth);
+        input.setSizeLimit(maxFrameLength);
+        return IMessageProto.IMessageWrap.parseFrom(input);
+    }
+
+    /**
+     * 从帧内容解析 JSON IMessageWrap，不移动 readerIndex
+     *
+     * @return 解析结果，格式错误或嵌套层数超过限制时返回 null
+     * @throws TooLongFrameException 帧超过长度限制
+     */
+    public static IMessageWrap<?> parseJson(ByteBuf content) {
+        checkLength(content);
+        return JacksonUtil.parseObject(content, IMessageWrap.class);
+    }
+
+    private static void checkLength(ByteBuf content) {
+        int length = content.readableBytes();
+        if (length > maxFrameLength) {
+            throw new TooLongFrameException("帧长度 " + length + " 超过限制 " + maxFrameLength);
+        }
+    }
+}
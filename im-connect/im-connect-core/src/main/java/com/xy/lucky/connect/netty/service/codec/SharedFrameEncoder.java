@@ -0,0 +1,55 @@
+package com.xy.lucky.connect.netty.service.codec;
+
+import com.xy.lucky.core.model.IMessageWrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * 可共享帧编码器
+ * <p>
+ * - 由各协议编解码处理器实现（均为 @Sharable 单例）
+ * - encodeContent 只负责把消息序列化为一份池化 ByteBuf，可被多个 Channel 复用
+ * - wrapFrame 负责把（通常是 retainedDuplicate 后的）内容包装成该协议的出站帧
+ * <p>
+ * 群发场景下同一条消息只编码一次，每个目标 Channel 只分配一个轻量的帧对象
+ */
+public interface SharedFrameEncoder {
+
+    /**
+     * 将消息序列化为出站内容
+     *
+     * @param alloc 分配器（建议使用 Channel 的池化分配器）
+     * @param msg   消息
+     * @return 引用计数为 1 的 ByteBuf，由调用方负责 release
+     */
+    ByteBuf encodeContent(ByteBufAllocator alloc, IMessageWrap<?> msg) throws Exception;
+
+    /**
+     * 将内容包装为该协议的出站帧，帧接管 content 的一次引用
+     *
+     * @param content 已编码内容
+     * @return 可直接写入 Channel 的帧对象
+     */
+    Object wrapFrame(ByteBuf content);
+
+    /**
+     * 将多个 Channel 共享的内容包装为出站帧，默认与 wrapFrame 相同
+     * <p>
+     * WebSocket 实现返回 {@code SharedWebSocketFrame}，跳过逐连接的 permessage-deflate 压缩
+     *
+     * @param content 已编码内容（通常为 retainedDuplicate）
+     * @return 可直接写入 Channel 的帧对象
+     */
+    default Object wrapSharedFrame(ByteBuf content) {
+        return wrapFrame(content);
+    }
+
+    /**
+     * encodeContent 的产物是否即 IMessageProto.IMessageWrap 二进制
+     * <p>
+     * 为 true 时可直接复用 MQ 下发的 protobuf 内容，跳过 POJO 转换与重新编码
+     */
+    default boolean encodesProtoWrap() {
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+package com.xy.lucky.connect.netty.service.codec;
+
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.netty.service.flush.SlowConsumerGuard;
+import com.xy.lucky.core.model.IMessageWrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 一次编码、多路复用的出站写工具
+ * <p>
+ * - 按 Channel 上的协议处理器（pipeline 中名为 "protocol" 的 handler）分组
+ * - 每种协议只编码一次，得到池化、引用计数的 ByteBuf
+ * - 每个 Channel 写入 retainedDuplicate() 包装的帧，共享底层内存；多个目标时帧不再逐连接压缩
+ * - 协议处理器不支持共享编码时，回退为逐 Channel 写 POJO
+ * - 慢消费者（持续不可写或出站缓冲超限）的连接跳过本次推送
+ */
+@Slf4j(topic = LogConstant.Netty)
+public final class SharedFrameWriter {
+
+    /**
+     * 协议编解码处理器在 pipeline 中的名称
+     */
+    public static final String PROTOCOL_HANDLER_NAME = "protocol";
+
+    private SharedFrameWriter() {
+        throw new UnsupportedOperationException("工具类不允许实例化");
+    }
+
+    /**
+     * 向多个 Channel 推送同一条消息
+     *
+     * @param channels 目标 Channel
+     * @param msg      消息
+     * @return 实际写出的 Channel 数
+     */
+    public static int writeAndFlush(Collection<Channel> channels, IMessageWrap<?> msg) {
+        if (msg == null) {
+            return 0;
+        }
+        return writeAndFlush(channels, null, () -> msg, msg.getRequestId());
+    }
+
+    /**
+     * 向多个 Channel 推送一条已是 protobuf 二进制的消息
+     * <p>
+     * - 协议处理器支持 encodesProtoWrap 的 Channel 直接复用 protoWrap，不做任何编码
+     * - 其他 Channel 首次遇到时才通过 pojoSupplier 转换为 POJO，再按协议共享编码
+     *
+     * @param channels     目标 Channel
+     * @param protoWrap    IMessageProto.IMessageWrap 二进制，引用由调用方持有，本方法不释放
+     * @param pojoSupplier POJO 提供者（仅在需要时调用一次）
+     * @param requestId    请求 ID（日志用）
+     * @return 实际写出的 Channel 数
+     */
+    public static int writeAndFlush(Collection<Channel> channels, ByteBuf protoWrap,
+                                    Supplier<IMessageWrap<?>> pojoSupplier, String requestId) {
+        if (channels == null || channels.isEmpty()) {
+            return 0;
+        }
+
+        // 协议处理器均为单例，按实例身份分组即可
+        Map<SharedFrameEncoder, ByteBuf> encoded = new IdentityHashMap<>(4);
+        IMessageWrap<?> msg = null;
+        boolean pojoUnavailable = false;
+        int pushCount = 0;
+        boolean shared = channels.size() > 1;
+        try {
+            for (Channel channel : channels) {
+                if (channel == null || !channel.isActive() || !SlowConsumerGuard.admit(channel)) {
+                    continue;
+                }
+                SharedFrameEncoder encoder = resolveEncoder(channel);
+                if (encoder != null && protoWrap != null && encoder.encodesProtoWrap()) {
+                    channel.writeAndFlush(wrap(encoder, protoWrap.retainedDuplicate(), shared), channel.voidPromise());
+                    pushCount++;
+                    continue;
+                }
+
+                if (msg == null) {
+                    if (pojoUnavailable) {
+                        continue;
+                    }
+                    msg = pojoSupplier.get();
+                    if (msg == null) {
+                        pojoUnavailable = true;
+                        log.warn("消息转换失败，跳过非 protobuf 连接: requestId={}", requestId);
+                        continue;
+                    }
+                }
+                ByteBuf content = encoder != null ? encoded.get(encoder) : null;
+                if (encoder != null && content == null) {
+                    content = encodeQuietly(encoder, channel, msg);
+                    if (content != null) {
+                        encoded.put(encoder, content);
+                    }
+                }
+
+                if (content != null) {
+                    channel.writeAndFlush(wrap(encoder, content.retainedDuplicate(), shared), channel.voidPromise());
+                } else {
+                    channel.writeAndFlush(msg, channel.voidPromise());
+                }
+                pushCount++;
+            }
+        } finally {
+            for (ByteBuf content : encoded.values()) {
+                content.release();
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("共享编码推送完成: requestId={}, channels={}, encodings={}, protoReuse={}",
+                    requestId, pushCount, encoded.size(), protoWrap != null);
+        }
+        return pushCount;
+    }
+
+    /**
+     * 获取 Channel 的协议处理器（若支持共享编码）
+     */
+    public static SharedFrameEncoder resolveEncoder(Channel channel) {
+        ChannelHandler handler = channel.pipeline().get(PROTOCOL_HANDLER_NAME);
+        return handler instanceof SharedFrameEncoder encoder ? encoder : null;
+    }
+
+    private static Object wrap(SharedFrameEncoder encoder, ByteBuf content, boolean shared) {
+        return shared ? encoder.wrapSharedFrame(content) : encoder.wrapFrame(content);
+    }
+
+    private static ByteBuf encodeQuietly(SharedFrameEncoder encoder, Channel channel, IMessageWrap<?> msg) {
+        try {
+            return encoder.encodeContent(channel.alloc(), msg);
+        } catch (Exception e) {
+            log.error("共享编码失败，回退逐连接编码: requestId={}, encoder={}", msg.getRequestId(),
+                    encoder.getClass().getSimpleName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.xy.lucky.connect.netty.service.flush;
+
+import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+/**
+ * 出站写合并装配工具
+ * <p>
+ * - 使用 Netty FlushConsolidationHandler：读事件期间的 flush 延迟到 channelReadComplete，
+ * 读事件之外的 flush 合并为同一 EventLoop tick 内的一次调度 flush
+ * - 必须在 initChannel 中最先添加，保证后续所有 handler 发出的 flush 都经过它
+ * - 开启统计时，协议编解码器添加完成后再调用 {@link #installWriteCounter(ChannelPipeline)}，按消息而非编码后的分片计数
+ */
+public final class FlushCoalescing {
+
+    public static final String FLUSH_STATS_HANDLER_NAME = "flush-stats";
+    public static final String FLUSH_CONSOLIDATION_HANDLER_NAME = "flush-consolidation";
+    public static final String FLUSH_WRITE_COUNTER_HANDLER_NAME = "flush-write-counter";
+
+    private FlushCoalescing() {
+        throw new UnsupportedOperationException("工具类不允许实例化");
+    }
+
+    /**
+     * 按配置向 pipeline 添加 flush 合并相关处理器
+     */
+    public static void install(ChannelPipeline pipeline, NettyProperties.FlushConfig config, MonitoringService monitoringService) {
+        if (config == null || !config.isEnable()) {
+            return;
+        }
+        if (config.isStatsEnabled()) {
+            pipeline.addLast(FLUSH_STATS_HANDLER_NAME, new FlushStatsHandler(monitoringService));
+        }
+        pipeline.addLast(FLUSH_CONSOLIDATION_HANDLER_NAME, new FlushConsolidationHandler(
+                Math.max(1, config.getExplicitFlushAfterFlushes()), config.isConsolidateWhenNoReadInProgress()));
+    }
+
+    /**
+     * 在 pipeline 末尾（协议编码器之上）添加消息写计数器；未开启 flush 统计时不做任何事
+     */
+    public static void installWriteCounter(ChannelPipeline pipeline) {
+        if (pipeline.get(FLUSH_STATS_HANDLER_NAME) instanceof FlushStatsHandler stats) {
+            pipeline.addLast(FLUSH_WRITE_COUNTER_HANDLER_NAME, stats.writeCounter());
+        }
+    }
+}
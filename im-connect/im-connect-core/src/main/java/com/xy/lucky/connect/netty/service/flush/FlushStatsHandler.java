@@ -0,0 +1,75 @@
+package com.xy.lucky.connect.netty.service.flush;
+
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.monitoring.metrics.LongHistogram;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
+import com.xy.lucky.connect.monitoring.metrics.ValueSummary;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * flush 批量统计处理器
+ * <p>
+ * - 位于 FlushConsolidationHandler 之前（靠近 head），只观察真正下发到 Socket 的 flush
+ * - 写次数由 {@link #writeCounter()} 在协议编码器之上计数：帧编码器（如 LengthFieldPrepender 分别写出长度头与消息体）
+ * 会把一条消息拆成多次写，在 head 附近计数会随协议放大，在编码前计数各协议口径一致
+ * - 统计两次真实 flush 之间累计的消息写次数，上报为 writes_per_flush 指标
+ * - 同时记录每次真实 flush 时出站缓冲中的待写字节数分布
+ * - 指标实例在类加载时取出并缓存，flush 热路径上不再按名称查找注册表
+ * - 每个 Channel 独立实例，计数仅在 EventLoop 线程内读写，无需同步
+ */
+public class FlushStatsHandler extends ChannelOutboundHandlerAdapter {
+
+    public static final String METRIC_WRITES_PER_FLUSH = "netty.flush.writes_per_flush";
+
+    private static final ValueSummary WRITES_PER_FLUSH = MetricsRegistry.global().summary(METRIC_WRITES_PER_FLUSH);
+    private static final LongHistogram PENDING_BYTES = MetricsRegistry.global().histogram(ConnectMetrics.OUTBOUND_PENDING_BYTES);
+
+    // 为 null 时不上报，与 MonitoringService 未装配时的行为一致
+    private final MonitoringService monitoringService;
+
+    private final ChannelHandler writeCounter = new WriteCounter();
+
+    private int pendingWrites;
+
+    public FlushStatsHandler(MonitoringService monitoringService) {
+        this.monitoringService = monitoringService;
+    }
+
+    /**
+     * 同一 Channel 的消息写计数器，需添加在协议编码器之后（靠近 tail）
+     */
+    public ChannelHandler writeCounter() {
+        return writeCounter;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        int writes = pendingWrites;
+        pendingWrites = 0;
+        if (writes > 0 && monitoringService != null) {
+            WRITES_PER_FLUSH.record(writes);
+            ChannelOutboundBuffer buffer = ctx.channel().unsafe().outboundBuffer();
+            if (buffer != null) {
+                PENDING_BYTES.record(buffer.totalPendingWriteBytes());
+            }
+        }
+        ctx.flush();
+    }
+
+    /**
+     * 消息写计数，与所属 FlushStatsHandler 在同一 EventLoop 上执行
+     */
+    private final class WriteCounter extends ChannelOutboundHandlerAdapter {
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            pendingWrites++;
+            ctx.write(msg, promise);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.xy.lucky.connect.netty.service.flush;
+
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.spring.annotations.core.Autowired;
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.PostConstruct;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 出站缓冲压力计
+ * <p>
+ * - 统计出站缓冲超过高水位（Channel 不可写）的连接数
+ * - 仅在 channelWritabilityChanged 时增减计数，读取为一次 volatile 读，可供 MQ 消费侧高频判断
+ * - 连接关闭时若仍处于不可写状态，自动回退计数
+ */
+@Slf4j(topic = LogConstant.Netty)
+@Component
+@ChannelHandler.Sharable
+public class OutboundPressureGauge extends ChannelInboundHandlerAdapter {
+
+    public static final String HANDLER_NAME = "outbound-pressure";
+
+    private static final AttributeKey<Boolean> UNWRITABLE_COUNTED =
+            AttributeKey.valueOf("im_outbound_unwritable_counted");
+
+    private final AtomicInteger unwritableChannels = new AtomicInteger();
+
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    @PostConstruct
+    public void registerGauge() {
+        if (monitoringService != null) {
+            monitoringService.registerGauge(ConnectMetrics.OUTBOUND_UNWRITABLE_CHANNELS, unwritableChannels::get);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        boolean writable = ctx.channel().isWritable();
+        Boolean counted = ctx.channel().attr(UNWRITABLE_COUNTED).get();
+        if (!writable && !Boolean.TRUE.equals(counted)) {
+            ctx.channel().attr(UNWRITABLE_COUNTED).set(Boolean.TRUE);
+            unwritableChannels.incrementAndGet();
+        } else if (writable && Boolean.TRUE.equals(counted)) {
+            ctx.channel().attr(UNWRITABLE_COUNTED).set(Boolean.FALSE);
+            unwritableChannels.decrementAndGet();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (Boolean.TRUE.equals(ctx.channel().attr(UNWRITABLE_COUNTED).getAndSet(Boolean.FALSE))) {
+            unwritableChannels.decrementAndGet();
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 当前出站缓冲超过高水位的连接数
+     */
+    public int unwritableChannels() {
+        return unwritableChannels.get();
+    }
+}
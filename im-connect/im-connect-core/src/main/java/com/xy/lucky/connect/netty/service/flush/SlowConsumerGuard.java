@@ -0,0 +1,268 @@
+package com.xy.lucky.connect.netty.service.flush;
+
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
+import com.xy.lucky.connect.netty.service.ChannelCleanupHelper;
+import com.xy.lucky.core.constants.IMConstant;
+import com.xy.lucky.spring.annotations.core.Autowired;
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.PostConstruct;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 慢消费者治理
+ * <p>
+ * - Channel 超过高水位变为不可写时开始计时，持续不可写超过阈值后按配置策略处理（drop / offline / disconnect）
+ * - 推送前通过 {@link #admit(Channel)} 判断：处于丢弃状态或出站缓冲超过上限的连接直接跳过，避免积压继续增长；
+ * 上限与水位线无关，每次推送都检查，maxPendingBytes 小于高水位时同样生效
+ * - 缓冲回落到低水位恢复可写时解除丢弃状态；offline 策略只解除该设备的路由（用户其他设备不受影响），此时关闭该连接
+ * - 状态仅在 EventLoop 线程内修改，推送线程只读取 volatile 的丢弃标识
+ */
+@Slf4j(topic = LogConstant.Netty)
+@Component
+@ChannelHandler.Sharable
+public class SlowConsumerGuard extends ChannelInboundHandlerAdapter {
+
+    public static final String HANDLER_NAME = "slow-consumer";
+
+    private static final AttributeKey<State> STATE = AttributeKey.valueOf("im_slow_consumer_state");
+    private static final AttributeKey<String> USER_ID_ATTR = AttributeKey.valueOf(IMConstant.IM_USER);
+
+    private static final LongAdder DROPPED_PUSHES =
+            MetricsRegistry.global().counter(ConnectMetrics.SLOW_CONSUMER_DROPPED_PUSHES);
+
+    // 当前不可写的连接，用于统计积压字节
+    private final Set<Channel> unwritableChannels = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private NettyProperties nettyProperties;
+
+    @Autowired
+    private ChannelCleanupHelper cleanupHelper;
+
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    private boolean enabled;
+    private Policy policy;
+    private long unwritableTimeoutMs;
+    private long maxPendingBytes;
+
+    @PostConstruct
+    public void init() {
+        NettyProperties.SlowConsumerConfig config = nettyProperties.getSlowConsumer();
+        this.enabled = config.isEnable();
+        this.policy = Policy.of(config.getPolicy());
+        this.unwritableTimeoutMs = Math.max(1L, config.getUnwritableTimeoutMs());
+        this.maxPendingBytes = config.getMaxPendingBytes();
+        if (monitoringService != null) {
+            monitoringService.registerGauge(ConnectMetrics.OUTBOUND_UNWRITABLE_PENDING_BYTES, this::unwritablePendingBytes);
+        }
+        log.info("慢消费者治理: enable={}, policy={}, unwritableTimeoutMs={}, maxPendingBytes={}",
+                enabled, policy, unwritableTimeoutMs, maxPendingBytes);
+    }
+
+    /**
+     * 推送前判断是否允许向该连接写入
+     *
+     * @param channel 目标连接
+     * @return false 表示该连接处于丢弃状态或出站缓冲超过上限，本次推送应跳过
+     */
+    public static boolean admit(Channel channel) {
+        State state = channel.attr(STATE).get();
+        if (state == null) {
+            return true;
+        }
+        if (state.dropping || exceedsPendingLimit(channel, state.maxPendingBytes)) {
+            DROPPED_PUSHES.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean exceedsPendingLimit(Channel channel, long maxPendingBytes) {
+        if (maxPendingBytes <= 0) {
+            return false;
+        }
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        return buffer != null && buffer.totalPendingWriteBytes() > maxPendingBytes;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        ctx.channel().attr(STATE).set(new State(maxPendingBytes));
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        State state = ctx.channel().attr(STATE).get();
+        if (state != null) {
+            if (ctx.channel().isWritable()) {
+                onWritable(ctx, state);
+            } else {
+                onUnwritable(ctx, state);
+            }
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        unwritableChannels.remove(ctx.channel());
+        State state = ctx.channel().attr(STATE).get();
+        if (state != null) {
+            cancelTimeout(state);
+        }
+        super.channelInactive(ctx);
+    }
+
+    private void onUnwritable(ChannelHandlerContext ctx, State state) {
+        unwritableChannels.add(ctx.channel());
+        if (!enabled || state.timeout != null) {
+            return;
+        }
+        state.unwritableSinceNanos = System.nanoTime();
+        state.timeout = ctx.executor().schedule(() -> onTimeout(ctx, state), unwritableTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void onWritable(ChannelHandlerContext ctx, State state) {
+        Channel channel = ctx.channel();
+        unwritableChannels.remove(channel);
+        cancelTimeout(state);
+        if (state.degraded) {
+            // 路由已解除，积压排空后关闭连接，客户端重连后从离线存储补发
+            log.info("慢消费者出站缓冲已排空，关闭已降级连接: userId={}, channelId={}",
+                    channel.attr(USER_ID_ATTR).get(), channel.id().asShortText());
+            channel.close();
+            return;
+        }
+        if (state.dropping) {
+            state.dropping = false;
+            log.info("慢消费者恢复可写，继续推送: userId={}, channelId={}, stalledMs={}",
+                    channel.attr(USER_ID_ATTR).get(), channel.id().asShortText(), stalledMillis(state));
+        }
+    }
+
+    private void onTimeout(ChannelHandlerContext ctx, State state) {
+        state.timeout = null;
+        Channel channel = ctx.channel();
+        if (!channel.isActive() || channel.isWritable()) {
+            return;
+        }
+        String userId = channel.attr(USER_ID_ATTR).get();
+        if (state.degraded) {
+            // 降级后仍未排空，放弃剩余数据
+            log.warn("慢消费者降级后仍未排空，关闭连接: userId={}, channelId={}, stalledMs={}",
+                    userId, channel.id().asShortText(), stalledMillis(state));
+            channel.close();
+            return;
+        }
+
+        long pendingBytes = pendingBytes(channel);
+        switch (policy) {
+            case DROP -> {
+                state.dropping = true;
+                log.warn("慢消费者持续不可写，丢弃后续推送: userId={}, channelId={}, stalledMs={}, pendingBytes={}",
+                        userId, channel.id().asShortText(), stalledMillis(state), pendingBytes);
+            }
+            case OFFLINE -> {
+                state.dropping = true;
+                state.degraded = true;
+                log.warn("慢消费者持续不可写，降级为离线: userId={}, channelId={}, stalledMs={}, pendingBytes={}",
+                        userId, channel.id().asShortText(), stalledMillis(state), pendingBytes);
+                // 只解除该设备的本地映射与路由，该设备后续消息按离线处理；保留连接以排空已写入的数据
+                cleanupHelper.detachDevice(channel, "slowConsumerOffline");
+                state.timeout = ctx.executor().schedule(() -> onTimeout(ctx, state), unwritableTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            case DISCONNECT -> {
+                log.warn("慢消费者持续不可写，断开连接: userId={}, channelId={}, stalledMs={}, pendingBytes={}",
+                        userId, channel.id().asShortText(), stalledMillis(state), pendingBytes);
+                cleanupHelper.cleanup(channel, "slowConsumerDisconnect", true);
+            }
+        }
+        if (monitoringService != null) {
+            monitoringService.incrementCounter(ConnectMetrics.SLOW_CONSUMER_ACTIONS,
+                    "action:" + policy.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private void cancelTimeout(State state) {
+        if (state.timeout != null) {
+            state.timeout.cancel(false);
+            state.timeout = null;
+        }
+    }
+
+    private static long stalledMillis(State state) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - state.unwritableSinceNanos);
+    }
+
+    private static long pendingBytes(Channel channel) {
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        return buffer != null ? buffer.totalPendingWriteBytes() : 0L;
+    }
+
+    /**
+     * 当前不可写连接的出站缓冲积压字节总数
+     */
+    public long unwritablePendingBytes() {
+        long total = 0L;
+        for (Channel channel : unwritableChannels) {
+            total += pendingBytes(channel);
+        }
+        return total;
+    }
+
+    /**
+     * 慢消费者处理策略
+     */
+    public enum Policy {
+        DROP, OFFLINE, DISCONNECT;
+
+        static Policy of(String value) {
+            if (value == null || value.isBlank()) {
+                return DROP;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("未知的慢消费者策略: {}, 使用默认 drop", value);
+                return DROP;
+            }
+        }
+    }
+
+    /**
+     * 单连接状态
+     */
+    private static final class State {
+        final long maxPendingBytes;
+        // 推送线程读取
+        volatile boolean dropping;
+        // 以下字段仅在 EventLoop 线程内读写
+        boolean degraded;
+        long unwritableSinceNanos;
+        ScheduledFuture<?> timeout;
+
+        State(long maxPendingBytes) {
+            this.maxPendingBytes = maxPendingBytes;
+        }
+    }
+}
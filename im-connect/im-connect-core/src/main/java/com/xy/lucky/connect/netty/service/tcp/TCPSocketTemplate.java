@@ -2,10 +2,16 @@ package com.xy.lucky.connect.netty.service.tcp;
 
 import com.xy.lucky.connect.config.LogConstant;
 import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.drain.ConnectionDrainService;
+import com.xy.lucky.connect.limiter.ConnectionLimiter;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
 import com.xy.lucky.connect.nacos.NacosTemplate;
 import com.xy.lucky.connect.netty.AuthHandler;
-import com.xy.lucky.connect.netty.factory.NettyEventLoopFactory;
 import com.xy.lucky.connect.netty.service.AbstractRemoteServer;
+import com.xy.lucky.connect.netty.service.flush.FlushCoalescing;
+import com.xy.lucky.connect.netty.service.flush.OutboundPressureGauge;
+import com.xy.lucky.connect.netty.service.flush.SlowConsumerGuard;
 import com.xy.lucky.connect.netty.service.tcp.codec.json.TcpJsonMessageHandler;
 import com.xy.lucky.connect.utils.IPAddressUtil;
 import com.xy.lucky.spring.annotations.core.Autowired;
@@ -14,18 +20,15 @@ import com.xy.lucky.spring.annotations.core.PreDestroy;
 import com.xy.lucky.spring.annotations.core.Value;
 import com.xy.lucky.spring.boot.context.ApplicationArguments;
 import com.xy.lucky.spring.boot.context.ApplicationRunner;
-import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 import lombok.extern.slf4j.Slf4j;
 
-import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TCP 服务器模板（支持 JSON / Protobuf 协议）
@@ -53,9 +56,6 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
         PROTOCOL_MAP = Map.of("json", jsonHandler);
     }
 
-    // 并发 Map：端口 -> ChannelFuture，便于运行时管理单端口的关闭/重绑定
-    private final ConcurrentHashMap<Integer, ChannelFuture> channelFutures = new ConcurrentHashMap<>();
-
     // 使用配置类注入配置
     @Autowired
     private NettyProperties nettyProperties;
@@ -69,6 +69,21 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
     @Autowired
     private NacosTemplate nacosTemplate;
 
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    @Autowired
+    private OutboundPressureGauge outboundPressureGauge;
+
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    @Autowired
+    private ConnectionLimiter connectionLimiter;
+
+    @Autowired
+    private ConnectionDrainService connectionDrainService;
+
     @Override
     public void run(ApplicationArguments args) throws Exception {
         // 异步启动，不阻塞主线程
@@ -100,41 +115,46 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
             return;
         }
 
-        // 初始化 Netty
-        bootstrap = new ServerBootstrap();
-
-        bossGroup = NettyEventLoopFactory.eventLoopGroup(nettyProperties.getBossThreadSize());
-        workerGroup = NettyEventLoopFactory.eventLoopGroup(nettyProperties.getWorkThreadSize());
+        // 初始化 Netty（线程组、传输类型及监听 Socket 参数）
+        initBootstrap(nettyProperties, "TCP");
+        ConnectMetrics.registerEventLoopGauges(monitoringService, workerGroup, "tcp-worker");
 
         // 对象池优化
         bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
 
-        bootstrap.group(bossGroup, workerGroup)
-                // 设置服务端 NIO 通信类型
-                .channel(NettyEventLoopFactory.serverSocketChannelClass())
-                // TCP 参数配置
-                .option(ChannelOption.SO_BACKLOG, 1024)
-                .option(ChannelOption.SO_REUSEADDR, true)
-                .option(ChannelOption.SO_RCVBUF, 16 * 1024)
+        bootstrap
                 // 子 Channel 配置
                 .childOption(ChannelOption.SO_KEEPALIVE, true)
                 .childOption(ChannelOption.TCP_NODELAY, true)
                 .childHandler(new ChannelInitializer<Channel>() {
                     @Override
                     protected void initChannel(Channel ch) {
+                        // 排空中拒绝新连接；接入限流：被拒绝的连接直接关闭，不创建任何业务 Handler
+                        if (!connectionDrainService.isAccepting() || !connectionLimiter.tryAccept(ch)) {
+                            ch.close();
+                            return;
+                        }
+
                         ChannelPipeline pipeline = ch.pipeline();
 
                         String protocolType = nettyProperties.getProtocol();
 
+                        // 出站 flush 合并（需最先添加）
+                        FlushCoalescing.install(pipeline, nettyProperties.getFlush(), monitoringService);
+                        // 出站缓冲压力统计（供 MQ 消费背压）
+                        pipeline.addLast(OutboundPressureGauge.HANDLER_NAME, outboundPressureGauge);
+                        // 慢消费者治理（持续不可写时 drop / offline / disconnect）
+                        pipeline.addLast(SlowConsumerGuard.HANDLER_NAME, slowConsumerGuard);
+
                         // 帧解码器：处理 TCP 粘包/拆包
                         // 参数说明：
-                        // - maxFrameLength: 最大帧长度 10MB
+                        // - maxFrameLength: 最大帧长度（netty.config.decode.maxFrameLength，不含长度头）
                         // - lengthFieldOffset: 长度字段偏移量 0
                         // - lengthFieldLength: 长度字段本身长度 4 字节
                         // - lengthAdjustment: 长度调整值 0
                         // - initialBytesToStrip: 解码后跳过的字节数 4（跳过长度字段）
                         pipeline.addLast("frameDecoder", new LengthFieldBasedFrameDecoder(
-                                10 * 1024 * 1024, 0, 4, 0, 4));
+                                nettyProperties.getDecode().getMaxFrameLength() + 4, 0, 4, 0, 4));
 
                         // 帧编码器：在发送数据前添加 4 字节长度头
                         pipeline.addLast("frameEncoder", new LengthFieldPrepender(4));
@@ -145,6 +165,8 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
                         // 协议编解码器（JSON 或 Protobuf）
                         ChannelHandler handler = PROTOCOL_MAP.getOrDefault(protocolType, PROTOCOL_MAP.get("json"));
                         pipeline.addLast("protocol", handler);
+                        // flush 统计按消息计数（需在协议编解码器之后添加）
+                        FlushCoalescing.installWriteCounter(pipeline);
 
                         log.debug("TCP Channel 初始化完成, 序列化协议：{}", protocolType);
 
@@ -158,7 +180,7 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
         try {
             bindPorts();
             ready.set(true);
-            log.info("TCP 服务器启动完成, 端口: {}", channelFutures.keySet());
+            log.info("TCP 服务器启动完成, 端口: {}", boundChannels.keySet());
         } catch (Exception ex) {
             log.error("TCP 服务器启动失败", ex);
             shutdown();
@@ -199,21 +221,13 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
 
         List<Integer> tcpPorts = getTcpPorts();
         for (Integer port : tcpPorts) {
-            if (channelFutures.containsKey(port)) {
+            if (boundChannels.containsKey(port)) {
                 log.info("端口 {} 已存在绑定记录，跳过", port);
                 continue;
             }
             try {
-                ChannelFuture future = bootstrap.bind(new InetSocketAddress(port)).sync();
-                channelFutures.put(port, future);
-                log.info("TCP 端口绑定成功: {}", port);
-
-                // 添加 close future 监听，channel 关闭时清理 map
-                future.channel().closeFuture().addListener((ChannelFutureListener) cf -> {
-                    log.warn("TCP 端口 [{}] 的 Channel 已关闭", port);
-                    channelFutures.remove(port);
-                });
-
+                List<Channel> channels = bindPort(port);
+                log.info("TCP 端口绑定成功: {}, 监听 Channel 数: {}", port, channels.size());
             } catch (InterruptedException ie) {
                 Thread.currentThread().interrupt();
                 log.error("绑定端口被中断: {}", port, ie);
@@ -225,7 +239,7 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
         // 批量注册到 Nacos（可选，TCP 服务也可以注册）
         // nacosTemplate.batchRegisterNacos(tcpPorts);
 
-        if (channelFutures.isEmpty()) {
+        if (boundChannels.isEmpty()) {
             throw new IllegalStateException("未能绑定任何 TCP 端口，应用无法提供 TCP 服务");
         }
     }
@@ -239,22 +253,21 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
             log.info("TCP Server 未运行或已停止");
         } else {
             log.info("正在关闭 TCP 服务器...");
+            // 关闭端口前先排空连接，避免客户端同时重连
+            connectionDrainService.drainForShutdown();
         }
 
         try {
             // 先关闭所有 channel
-            for (Map.Entry<Integer, ChannelFuture> e : channelFutures.entrySet()) {
-                ChannelFuture f = e.getValue();
-                if (f != null && f.channel().isOpen()) {
-                    try {
-                        f.channel().close().syncUninterruptibly();
-                        log.info("已关闭 port={}", e.getKey());
-                    } catch (Exception ex) {
-                        log.warn("关闭 channel(port={}) 时异常", e.getKey(), ex);
-                    }
+            for (Integer port : List.copyOf(boundChannels.keySet())) {
+                try {
+                    closePortChannels(port);
+                    log.info("已关闭 port={}", port);
+                } catch (Exception ex) {
+                    log.warn("关闭 channel(port={}) 时异常", port, ex);
                 }
             }
-            channelFutures.clear();
+            boundChannels.clear();
 
             // 优雅停止 event loop group
             if (bossGroup != null) {
@@ -275,14 +288,11 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
      * 运行时关闭某端口
      */
     public boolean closePort(int port) {
-        ChannelFuture f = channelFutures.get(port);
-        if (f == null) {
-            log.warn("尝试关闭未绑定的端口: {}", port);
-            return false;
-        }
         try {
-            f.channel().close().syncUninterruptibly();
-            channelFutures.remove(port);
+            if (!closePortChannels(port)) {
+                log.warn("尝试关闭未绑定的端口: {}", port);
+                return false;
+            }
             log.info("已关闭端口: {}", port);
             return true;
         } catch (Exception e) {
@@ -295,14 +305,12 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
      * 运行时绑定新端口
      */
     public boolean bindNewPort(int port) {
-        if (channelFutures.containsKey(port)) {
+        if (boundChannels.containsKey(port)) {
             log.warn("端口 {} 已存在绑定", port);
             return false;
         }
         try {
-            ChannelFuture future = bootstrap.bind(new InetSocketAddress(port)).sync();
-            channelFutures.put(port, future);
-            future.channel().closeFuture().addListener((ChannelFutureListener) cf -> channelFutures.remove(port));
+            bindPort(port);
             log.info("动态绑定端口成功: {}", port);
             return true;
         } catch (Exception e) {
@@ -322,6 +330,6 @@ public class TCPSocketTemplate extends AbstractRemoteServer implements Applicati
      * 获取已绑定的端口列表
      */
     public List<Integer> getBoundPorts() {
-        return List.copyOf(channelFutures.keySet());
+        return List.copyOf(boundChannels.keySet());
     }
 }
@@ -1,46 +1,51 @@
 package com.xy.lucky.connect.netty.service.tcp.codec.json;
 
 import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.monitoring.metrics.LongHistogram;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
+import com.xy.lucky.connect.netty.service.codec.InboundDecoding;
+import com.xy.lucky.connect.netty.service.codec.SharedFrameEncoder;
 import com.xy.lucky.connect.utils.JacksonUtil;
 import com.xy.lucky.core.model.IMessageWrap;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import lombok.extern.slf4j.Slf4j;
 
-import java.nio.charset.StandardCharsets;
-
 /**
  * TCP JSON 消息编解码处理器（双工）
  * <p>
- * - 读取时：将 ByteBuf 解码为 IMessageWrap POJO
+ * - 读取时：将 ByteBuf 直接解码为 IMessageWrap POJO（无中间 byte[] / String）
  * - 写入时：将 IMessageWrap POJO 编码为 ByteBuf
  * <p>
  * 注意：前置 pipeline 应添加 LengthFieldBasedFrameDecoder 和 LengthFieldPrepender 进行帧处理
  */
 @Slf4j(topic = LogConstant.Netty)
 @ChannelHandler.Sharable
-public class TcpJsonMessageHandler extends ChannelDuplexHandler {
+public class TcpJsonMessageHandler extends ChannelDuplexHandler implements SharedFrameEncoder {
+
+    private static final LongHistogram DECODE_TIME =
+            MetricsRegistry.global().timer(ConnectMetrics.DECODE_TIME, "protocol:tcp-json");
+    private static final LongHistogram ENCODE_TIME =
+            MetricsRegistry.global().timer(ConnectMetrics.ENCODE_TIME, "protocol:tcp-json");
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof ByteBuf buf) {
             try {
-                // 读取所有可读字节
-                int len = buf.readableBytes();
-                byte[] bytes = new byte[len];
-                buf.readBytes(bytes);
-                String text = new String(bytes, StandardCharsets.UTF_8);
-
-                // 解析 JSON 为 IMessageWrap
-                IMessageWrap<?> pojo = JacksonUtil.parseObject(text, IMessageWrap.class);
+                long start = System.nanoTime();
+                // 直接从 ByteBuf 解析 JSON 为 IMessageWrap，不复制为 byte[] / String
+                IMessageWrap<?> pojo = InboundDecoding.parseJson(buf);
+                DECODE_TIME.record(System.nanoTime() - start);
                 if (pojo != null) {
                     ctx.fireChannelRead(pojo);
                 } else {
-                    log.warn("TCP JSON 解码结果为 null, text={}", truncate(text, 256));
+                    log.warn("TCP JSON 解码结果为 null, length={}", buf.readableBytes());
                 }
             } catch (Exception e) {
                 log.error("TCP JSON 解码失败: {}", e.getMessage());
@@ -62,31 +67,37 @@ public class TcpJsonMessageHandler extends ChannelDuplexHandler {
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         if (msg instanceof IMessageWrap<?> imMsg) {
             try {
-                String json = JacksonUtil.toJSONString(imMsg);
-                if (json != null) {
-                    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-                    ByteBuf buf = Unpooled.wrappedBuffer(bytes);
-                    ctx.write(buf, promise);
-                } else {
-                    log.warn("TCP JSON 编码结果为 null");
-                    ctx.write(msg, promise);
-                }
+                ctx.write(wrapFrame(encodeContent(ctx.alloc(), imMsg)), promise);
             } catch (Exception e) {
                 log.error("TCP JSON 编码失败: {}", e.getMessage());
                 ctx.write(msg, promise);
             }
         } else {
-            // 非 IMessageWrap，直接传递
+            // 非 IMessageWrap（含共享编码后的 ByteBuf），直接传递
             ctx.write(msg, promise);
         }
     }
 
     /**
-     * 截断字符串（避免日志过长）
+     * 直接序列化到池化 ByteBuf，长度头由 LengthFieldPrepender 追加
      */
-    private String truncate(String s, int maxLen) {
-        if (s == null) return "<null>";
-        return s.length() <= maxLen ? s : s.substring(0, maxLen) + "...(truncated)";
+    @Override
+    public ByteBuf encodeContent(ByteBufAllocator alloc, IMessageWrap<?> imMsg) throws Exception {
+        long start = System.nanoTime();
+        ByteBuf content = alloc.ioBuffer();
+        try (ByteBufOutputStream out = new ByteBufOutputStream(content)) {
+            JacksonUtil.writeTo(out, imMsg);
+            ENCODE_TIME.record(System.nanoTime() - start);
+            return content;
+        } catch (Exception e) {
+            content.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Object wrapFrame(ByteBuf content) {
+        return content;
     }
 }
 
@@ -1,9 +1,9 @@
 package com.xy.lucky.connect.netty.service.tcp.codec.proto;
 
 import com.xy.lucky.connect.domain.proto.IMessageProto;
+import com.xy.lucky.connect.netty.service.codec.InboundDecoding;
 import com.xy.lucky.connect.utils.ProtoJsonUtils;
 import com.xy.lucky.core.model.IMessageWrap;
-import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
@@ -23,16 +23,10 @@ public class ProtobufMessageDecoder extends MessageToMessageDecoder<BinaryWebSoc
                           BinaryWebSocketFrame frame,
                           List<Object> out) throws Exception {
 
-        // 从 frame 中取得完整字节数组
-        ByteBuf content = frame.content();
-        int len = content.readableBytes();
-        byte[] bytes = new byte[len];
-        content.getBytes(content.readerIndex(), bytes);
-
-        // 解析为 proto IMConnectMessage
+        // 直接从 frame 内容解析为 proto IMessageWrap，不复制为 byte[]
         IMessageProto.IMessageWrap proto;
         try {
-            proto = IMessageProto.IMessageWrap.parseFrom(bytes);
+            proto = InboundDecoding.parseProto(frame.content());
         } catch (Exception e) {
             log.warn("Failed to parse ImConnectProto.IMMessage: {}", e.getMessage());
             // 解析失败：可选择记录并丢弃/抛出/关闭连接。这里丢弃该帧以保持健壮性。
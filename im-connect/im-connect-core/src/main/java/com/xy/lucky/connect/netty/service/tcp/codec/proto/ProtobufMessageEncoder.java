@@ -28,10 +28,10 @@ public class ProtobufMessageEncoder extends MessageToMessageEncoder<IMessageWrap
             builder.putAllMetadata(msg.getMetadata());
         }
 
-        /* 2. data -> Any（万能处理） */
+        /* 2. data -> Any（有强类型定义的按消息类型编码，其余为 Struct） */
         Object data = msg.getData();
         if (data != null) {
-            builder.setData(ProtoJsonUtils.packAny(data));
+            builder.setData(ProtoJsonUtils.packAny(msg.getCode(), data));
         }
 
         byte[] bytes = builder.build().toByteArray();
@@ -2,12 +2,19 @@ package com.xy.lucky.connect.netty.service.websocket;
 
 import com.xy.lucky.connect.config.LogConstant;
 import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.drain.ConnectionDrainService;
+import com.xy.lucky.connect.limiter.ConnectionLimiter;
+import com.xy.lucky.connect.monitoring.MonitoringService;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
 import com.xy.lucky.connect.nacos.NacosTemplate;
 import com.xy.lucky.connect.netty.AuthHandler;
-import com.xy.lucky.connect.netty.factory.NettyEventLoopFactory;
 import com.xy.lucky.connect.netty.service.AbstractRemoteServer;
+import com.xy.lucky.connect.netty.service.flush.FlushCoalescing;
+import com.xy.lucky.connect.netty.service.flush.OutboundPressureGauge;
+import com.xy.lucky.connect.netty.service.flush.SlowConsumerGuard;
 import com.xy.lucky.connect.netty.service.websocket.codec.json.JsonMessageHandler;
 import com.xy.lucky.connect.netty.service.websocket.codec.proto.ProtobufMessageHandler;
+import com.xy.lucky.connect.netty.service.websocket.compression.WebSocketCompression;
 import com.xy.lucky.connect.utils.IPAddressUtil;
 import com.xy.lucky.spring.annotations.core.Autowired;
 import com.xy.lucky.spring.annotations.core.Component;
@@ -15,7 +22,6 @@ import com.xy.lucky.spring.annotations.core.PreDestroy;
 import com.xy.lucky.spring.annotations.core.Value;
 import com.xy.lucky.spring.boot.context.ApplicationArguments;
 import com.xy.lucky.spring.boot.context.ApplicationRunner;
-import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
 import io.netty.handler.codec.http.HttpObjectAggregator;
@@ -24,11 +30,9 @@ import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import lombok.extern.slf4j.Slf4j;
 
-import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket 服务（基于 Netty）
@@ -50,9 +54,6 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
         PROTOCOL_MAP = Map.of("json", jsonMessageHandler, "proto", protobufMessageHandler);
     }
 
-    // 并发 Map：端口 -> ChannelFuture，便于运行时管理单端口的关闭/重绑定
-    private final ConcurrentHashMap<Integer, ChannelFuture> channelFutures = new ConcurrentHashMap<>();
-
     // 使用配置类注入配置
     @Autowired
     private NettyProperties nettyProperties;
@@ -66,6 +67,21 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
     @Autowired
     private NacosTemplate nacosTemplate;
 
+    @Autowired(required = false)
+    private MonitoringService monitoringService;
+
+    @Autowired
+    private OutboundPressureGauge outboundPressureGauge;
+
+    @Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    @Autowired
+    private ConnectionLimiter connectionLimiter;
+
+    @Autowired
+    private ConnectionDrainService connectionDrainService;
+
     @Override
     public void run(ApplicationArguments args) throws Exception {
         // 异步启动，不阻塞主线程
@@ -97,25 +113,14 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
             return;
         }
 
-        // 初始化 Netty
-        bootstrap = new ServerBootstrap();
-
-        bossGroup = NettyEventLoopFactory.eventLoopGroup(nettyProperties.getBossThreadSize());
-
-        workerGroup = NettyEventLoopFactory.eventLoopGroup(nettyProperties.getWorkThreadSize());
+        // 初始化 Netty（线程组、传输类型及监听 Socket 参数）
+        initBootstrap(nettyProperties, "WebSocket");
+        ConnectMetrics.registerEventLoopGauges(monitoringService, workerGroup, "ws-worker");
 
         // 对象池优化（PooledByteBufAllocator）
         bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
 
-        bootstrap.group(bossGroup, workerGroup)
-                // 设置服务端NIO通信类型
-                .channel(NettyEventLoopFactory.serverSocketChannelClass())
-                // 设置TCP的参数，SO_BACKLOG表示队列大小，用于处理临时的高并发连接请求，合理设置能避免拒绝服务
-                .option(ChannelOption.SO_BACKLOG, 1024)
-                // 是否允许重用Socket地址，避免某些情况下的端口占用问题
-                .option(ChannelOption.SO_REUSEADDR, true)
-                // 接收缓冲区大小，根据需要调整，以减少大流量情况下数据包丢失的风险
-                .option(ChannelOption.SO_RCVBUF, 16 * 1024)
+        bootstrap
                 // 是否开启 TCP 底层心跳机制 保持长连接状态，避免连接频繁断开重连
                 .childOption(ChannelOption.SO_KEEPALIVE, true)
                 // TCP默认开启了 Nagle 算法，该算法的作用是尽可能的发送大数据快，减少网络传输。TCP_NODELAY 参数的作用就是控制是否启用 Nagle 算法。 禁用Nagle算法，减少延迟，提高实时性
@@ -124,11 +129,24 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
                 .childHandler(new ChannelInitializer<Channel>() {
                     @Override
                     protected void initChannel(Channel ch) {
+                        // 排空中拒绝新连接；接入限流：被拒绝的连接直接关闭，不创建任何业务 Handler
+                        if (!connectionDrainService.isAccepting() || !connectionLimiter.tryAccept(ch)) {
+                            ch.close();
+                            return;
+                        }
+
                         ChannelPipeline pipeline = ch.pipeline();
 
                         String wsPath = nettyProperties.getWebsocket().getPath();
                         String protocolType = nettyProperties.getProtocol();
 
+                        // 出站 flush 合并（需最先添加）
+                        FlushCoalescing.install(pipeline, nettyProperties.getFlush(), monitoringService);
+                        // 出站缓冲压力统计（供 MQ 消费背压）
+                        pipeline.addLast(OutboundPressureGauge.HANDLER_NAME, outboundPressureGauge);
+                        // 慢消费者治理（持续不可写时 drop / offline / disconnect）
+                        pipeline.addLast(SlowConsumerGuard.HANDLER_NAME, slowConsumerGuard);
+
                         // HTTP 编解码及聚合
                         pipeline.addLast("http-codec", new HttpServerCodec());
                         pipeline.addLast("aggregator", new HttpObjectAggregator(1024 * 128));
@@ -137,15 +155,21 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
                         // 权限/鉴权（自定义 handler）
                         pipeline.addLast("auth", authHandler);
 
-                        // WebSocket 协议处理
+                        // permessage-deflate 压缩（客户端协商后生效，小消息不压缩）
+                        WebSocketCompression.install(pipeline, nettyProperties.getCompression(),
+                                nettyProperties.getDecode().getMaxFrameLength());
+
+                        // WebSocket 协议处理（帧负载超过 netty.config.decode.maxFrameLength 时以 1009 关闭）
                         pipeline.addLast("ws-protocol", new WebSocketServerProtocolHandler(wsPath, protocolType, true,
-                                65536 * 10));
+                                nettyProperties.getDecode().getMaxFrameLength()));
 
                         ChannelOutboundHandler handler =
                                 PROTOCOL_MAP.getOrDefault(protocolType, PROTOCOL_MAP.get("proto"));
 
                         // 协议编解码器
                         pipeline.addLast("protocol", handler);
+                        // flush 统计按消息计数（需在协议编解码器之后添加）
+                        FlushCoalescing.installWriteCounter(pipeline);
 
                         log.info("序列化协议：{}", protocolType);
 
@@ -159,7 +183,7 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
         try {
             bindPorts();
             ready.set(true);
-            log.info("WebSocket 服务器启动完成, 端口: {}", channelFutures.keySet());
+            log.info("WebSocket 服务器启动完成, 端口: {}", boundChannels.keySet());
         } catch (Exception ex) {
             // 启动失败时保证资源被清理
             log.error("WebSocket 服务器启动失败", ex);
@@ -195,7 +219,7 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
     }
 
     /**
-     * 逐个绑定配置的端口。每个端口绑定成功后会保存 ChannelFuture 到 channelFutures 中并注册 close 回调清理。
+     * 逐个绑定配置的端口。每个端口绑定成功后会保存监听 Channel 到 boundChannels 中并注册 close 回调清理。
      */
     private void bindPorts() {
         // 先做基础校验（抛出异常由上层统一处理）
@@ -203,21 +227,13 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
 
         List<Integer> webSocketPort = getWebSocketPorts();
         for (Integer port : webSocketPort) {
-            if (channelFutures.containsKey(port)) {
+            if (boundChannels.containsKey(port)) {
                 log.info("端口 {} 已存在绑定记录，跳过", port);
                 continue;
             }
             try {
-                ChannelFuture future = bootstrap.bind(new InetSocketAddress(port)).sync();
-                channelFutures.put(port, future);
-                log.info("WebSocket 端口绑定成功: {}", port);
-
-                // 添加 close future 监听，channel 关闭时清理 map
-                future.channel().closeFuture().addListener((ChannelFutureListener) cf -> {
-                    log.warn("WebSocket 端口 [{}] 的 Channel 已关闭", port);
-                    channelFutures.remove(port);
-                });
-
+                List<Channel> channels = bindPort(port);
+                log.info("WebSocket 端口绑定成功: {}, 监听 Channel 数: {}", port, channels.size());
             } catch (InterruptedException ie) {
                 Thread.currentThread().interrupt();
                 log.error("绑定端口被中断: {}", port, ie);
@@ -232,7 +248,7 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
         nacosTemplate.batchRegisterNacos(webSocketPort);
 
 
-        if (channelFutures.isEmpty()) {
+        if (boundChannels.isEmpty()) {
             throw new IllegalStateException("未能绑定任何 WebSocket 端口，应用无法提供 WS 服务");
         }
     }
@@ -246,22 +262,21 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
             log.info("Netty 未运行或已停止");
         } else {
             log.info("正在关闭 Netty WebSocket 服务器...");
+            // 关闭端口前先排空连接，避免客户端同时重连
+            connectionDrainService.drainForShutdown();
         }
 
         try {
             // 先关闭所有 channel
-            for (Map.Entry<Integer, ChannelFuture> e : channelFutures.entrySet()) {
-                ChannelFuture f = e.getValue();
-                if (f != null && f.channel().isOpen()) {
-                    try {
-                        f.channel().close().syncUninterruptibly();
-                        log.info("已关闭 port={}", e.getKey());
-                    } catch (Exception ex) {
-                        log.warn("关闭 channel(port={}) 时异常", e.getKey(), ex);
-                    }
+            for (Integer port : List.copyOf(boundChannels.keySet())) {
+                try {
+                    closePortChannels(port);
+                    log.info("已关闭 port={}", port);
+                } catch (Exception ex) {
+                    log.warn("关闭 channel(port={}) 时异常", port, ex);
                 }
             }
-            channelFutures.clear();
+            boundChannels.clear();
 
             // 优雅停止 event loop group（等待其完成）
             if (bossGroup != null) {
@@ -280,14 +295,11 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
 
     // 可选扩展：运行时关闭某端口（便于热更新/下线）
     public boolean closePort(int port) {
-        ChannelFuture f = channelFutures.get(port);
-        if (f == null) {
-            log.warn("尝试关闭未绑定的端口: {}", port);
-            return false;
-        }
         try {
-            f.channel().close().syncUninterruptibly();
-            channelFutures.remove(port);
+            if (!closePortChannels(port)) {
+                log.warn("尝试关闭未绑定的端口: {}", port);
+                return false;
+            }
             log.info("已关闭端口: {}", port);
             return true;
         } catch (Exception e) {
@@ -298,14 +310,12 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
 
     // 可选扩展：运行时绑定新端口（简单示意）
     public boolean bindNewPort(int port) {
-        if (channelFutures.containsKey(port)) {
+        if (boundChannels.containsKey(port)) {
             log.warn("端口 {} 已存在绑定", port);
             return false;
         }
         try {
-            ChannelFuture future = bootstrap.bind(new InetSocketAddress(port)).sync();
-            channelFutures.put(port, future);
-            future.channel().closeFuture().addListener((ChannelFutureListener) cf -> channelFutures.remove(port));
+            bindPort(port);
             nacosTemplate.registerNacos(port); // 同样独立捕获异常
             log.info("动态绑定端口成功: {}", port);
             return true;
@@ -321,7 +331,7 @@ public class WebSocketTemplate extends AbstractRemoteServer implements Applicati
     }
 
     public List<Integer> getBoundPorts() {
-        return List.copyOf(channelFutures.keySet());
+        return List.copyOf(boundChannels.keySet());
     }
 
 
@@ -1,7 +1,7 @@
 package com.xy.lucky.connect.netty.service.websocket.codec.json;
 
 
-import com.xy.lucky.connect.utils.JacksonUtil;
+import com.xy.lucky.connect.netty.service.codec.InboundDecoding;
 import com.xy.lucky.core.model.IMessageWrap;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
@@ -15,6 +15,9 @@ public class JsonMessageDecoder extends MessageToMessageDecoder<TextWebSocketFra
     protected void decode(ChannelHandlerContext channelHandlerContext,
                           TextWebSocketFrame textWebSocketFrame,
                           List<Object> list) throws Exception {
-        list.add(JacksonUtil.parseObject(textWebSocketFrame.text(), IMessageWrap.class));
+        IMessageWrap<?> pojo = InboundDecoding.parseJson(textWebSocketFrame.content());
+        if (pojo != null) {
+            list.add(pojo);
+        }
     }
 }
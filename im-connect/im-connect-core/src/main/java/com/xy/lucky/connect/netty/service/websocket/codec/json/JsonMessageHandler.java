@@ -1,7 +1,16 @@
 package com.xy.lucky.connect.netty.service.websocket.codec.json;
 
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.monitoring.metrics.LongHistogram;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
+import com.xy.lucky.connect.netty.service.codec.InboundDecoding;
+import com.xy.lucky.connect.netty.service.codec.SharedFrameEncoder;
+import com.xy.lucky.connect.netty.service.websocket.compression.SharedWebSocketFrame;
 import com.xy.lucky.connect.utils.JacksonUtil;
 import com.xy.lucky.core.model.IMessageWrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -11,13 +20,20 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @ChannelHandler.Sharable
-public class JsonMessageHandler extends ChannelDuplexHandler {
+public class JsonMessageHandler extends ChannelDuplexHandler implements SharedFrameEncoder {
+
+    private static final LongHistogram DECODE_TIME =
+            MetricsRegistry.global().timer(ConnectMetrics.DECODE_TIME, "protocol:ws-json");
+    private static final LongHistogram ENCODE_TIME =
+            MetricsRegistry.global().timer(ConnectMetrics.ENCODE_TIME, "protocol:ws-json");
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof TextWebSocketFrame frame) {
             try {
-                IMessageWrap pojo = JacksonUtil.parseObject(frame.text(), IMessageWrap.class);
+                long start = System.nanoTime();
+                IMessageWrap<?> pojo = InboundDecoding.parseJson(frame.content());
+                DECODE_TIME.record(System.nanoTime() - start);
                 if (pojo != null) {
                     ctx.fireChannelRead(pojo);
                 } else {
@@ -38,20 +54,38 @@ public class JsonMessageHandler extends ChannelDuplexHandler {
         if (msg instanceof IMessageWrap) {
             IMessageWrap imMsg = (IMessageWrap) msg;
             try {
-                if (imMsg == null) {
-                    ctx.write(msg, promise);
-                    return;
-                }
-                String json = JacksonUtil.toJSONString(imMsg);
-                TextWebSocketFrame frame = new TextWebSocketFrame(json);
-                ctx.write(frame, promise);
+                ctx.write(wrapFrame(encodeContent(ctx.alloc(), imMsg)), promise);
             } catch (Exception e) {
                 log.error("JSON 编码失败", e);
                 ctx.write(msg, promise); // 或丢弃，根据业务
             }
         } else {
-            // 非 IMConnectMessage，直接 forward
+            // 非 IMConnectMessage（含共享编码后的帧），直接 forward
             ctx.write(msg, promise);
         }
     }
+
+    @Override
+    public ByteBuf encodeContent(ByteBufAllocator alloc, IMessageWrap<?> imMsg) throws Exception {
+        long start = System.nanoTime();
+        ByteBuf content = alloc.ioBuffer();
+        try (ByteBufOutputStream out = new ByteBufOutputStream(content)) {
+            JacksonUtil.writeTo(out, imMsg);
+            ENCODE_TIME.record(System.nanoTime() - start);
+            return content;
+        } catch (Exception e) {
+            content.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Object wrapFrame(ByteBuf content) {
+        return new TextWebSocketFrame(content);
+    }
+
+    @Override
+    public Object wrapSharedFrame(ByteBuf content) {
+        return new SharedWebSocketFrame.Text(content);
+    }
 }
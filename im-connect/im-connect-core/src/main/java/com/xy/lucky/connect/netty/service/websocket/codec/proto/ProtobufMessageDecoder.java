@@ -1,6 +1,7 @@
 package com.xy.lucky.connect.netty.service.websocket.codec.proto;
 
 import com.xy.lucky.connect.domain.proto.IMessageProto;
+import com.xy.lucky.connect.netty.service.codec.InboundDecoding;
 import com.xy.lucky.connect.utils.ProtoJsonUtils;
 import com.xy.lucky.core.model.IMessageWrap;
 import io.netty.channel.ChannelHandlerContext;
@@ -18,8 +19,7 @@ public class ProtobufMessageDecoder extends MessageToMessageDecoder<BinaryWebSoc
                           BinaryWebSocketFrame frame,
                           List<Object> out) throws Exception {
 
-        IMessageProto.IMessageWrap proto =
-                IMessageProto.IMessageWrap.parseFrom(frame.content().nioBuffer());
+        IMessageProto.IMessageWrap proto = InboundDecoding.parseProto(frame.content());
 
         IMessageWrap<Object> pojo = new IMessageWrap<>();
         pojo.setCode(proto.getCode());
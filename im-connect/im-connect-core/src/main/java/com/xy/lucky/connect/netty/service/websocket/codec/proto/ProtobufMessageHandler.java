@@ -1,9 +1,17 @@
 package com.xy.lucky.connect.netty.service.websocket.codec.proto;
 
+import com.google.protobuf.CodedOutputStream;
 import com.xy.lucky.connect.domain.proto.IMessageProto;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.monitoring.metrics.LongHistogram;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
+import com.xy.lucky.connect.netty.service.codec.InboundDecoding;
+import com.xy.lucky.connect.netty.service.codec.SharedFrameEncoder;
+import com.xy.lucky.connect.netty.service.websocket.compression.SharedWebSocketFrame;
 import com.xy.lucky.connect.utils.ProtoJsonUtils;
 import com.xy.lucky.core.model.IMessageWrap;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -14,35 +22,23 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @ChannelHandler.Sharable
-public class ProtobufMessageHandler extends ChannelDuplexHandler {
+public class ProtobufMessageHandler extends ChannelDuplexHandler implements SharedFrameEncoder {
+
+    private static final LongHistogram DECODE_TIME =
+            MetricsRegistry.global().timer(ConnectMetrics.DECODE_TIME, "protocol:ws-proto");
+    private static final LongHistogram ENCODE_TIME =
+            MetricsRegistry.global().timer(ConnectMetrics.ENCODE_TIME, "protocol:ws-proto");
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof BinaryWebSocketFrame) {
             BinaryWebSocketFrame frame = (BinaryWebSocketFrame) msg;
             try {
-                IMessageProto.IMessageWrap proto =
-                        IMessageProto.IMessageWrap.parseFrom(frame.content().nioBuffer());
-
-                IMessageWrap<Object> pojo = new IMessageWrap<>();
-                pojo.setCode(proto.getCode());
-                pojo.setToken(proto.getToken());
-                pojo.setRequestId(proto.getRequestId());
-                pojo.setTimestamp(proto.getTimestamp());
-                pojo.setClientIp(proto.getClientIp());
-                pojo.setUserAgent(proto.getUserAgent());
-                pojo.setMessage(proto.getMessage());
-                pojo.setDeviceName(proto.getDeviceName());
-                pojo.setDeviceType(proto.getDeviceType());
-                if (!proto.getMetadataMap().isEmpty()) {
-                    pojo.setMetadata(proto.getMetadataMap());
-                }
-
-                // 只处理 Any（有就解包）
-                if (proto.hasData()) {
-                    Object unpacked = ProtoJsonUtils.unpackAny(proto.getData());
-                    pojo.setData(unpacked);
-                }
+                long start = System.nanoTime();
+                IMessageProto.IMessageWrap proto = InboundDecoding.parseProto(frame.content());
+
+                IMessageWrap<Object> pojo = toPojo(proto);
+                DECODE_TIME.record(System.nanoTime() - start);
 
                 // 替换消息为 POJO 并 forward
                 ctx.fireChannelRead(pojo);
@@ -65,45 +61,97 @@ public class ProtobufMessageHandler extends ChannelDuplexHandler {
         if (msg instanceof IMessageWrap) {
             IMessageWrap imMsg = (IMessageWrap) msg;
             try {
-                if (imMsg == null) {
-                    ctx.write(msg, promise);
-                    return;
-                }
-
-                IMessageProto.IMessageWrap.Builder builder =
-                        IMessageProto.IMessageWrap.newBuilder();
-
-                /* 1. 基础字段 */
-                if (imMsg.getCode() != null) builder.setCode(imMsg.getCode());
-                if (imMsg.getToken() != null) builder.setToken(imMsg.getToken());
-                if (imMsg.getRequestId() != null) builder.setRequestId(imMsg.getRequestId());
-                if (imMsg.getTimestamp() != null) builder.setTimestamp(imMsg.getTimestamp());
-                if (imMsg.getClientIp() != null) builder.setClientIp(imMsg.getClientIp());
-                if (imMsg.getUserAgent() != null) builder.setUserAgent(imMsg.getUserAgent());
-                if (imMsg.getDeviceName() != null) builder.setDeviceName(imMsg.getDeviceName());
-                if (imMsg.getDeviceType() != null) builder.setDeviceType(imMsg.getDeviceType());
-                if (imMsg.getMessage() != null) builder.setMessage(imMsg.getMessage());
-                if (imMsg.getMetadata() != null && !imMsg.getMetadata().isEmpty()) {
-                    builder.putAllMetadata(imMsg.getMetadata());
-                }
-
-                /* 2. data -> Any（万能处理） */
-                Object data = imMsg.getData();
-                if (data != null) {
-                    builder.setData(ProtoJsonUtils.packAny(data));
-                }
-
-                /* 3. 输出二进制帧 */
-                byte[] bytes = builder.build().toByteArray();
-                BinaryWebSocketFrame frame = new BinaryWebSocketFrame(Unpooled.wrappedBuffer(bytes));
-                ctx.write(frame, promise);
+                ctx.write(wrapFrame(encodeContent(ctx.alloc(), imMsg)), promise);
             } catch (Exception e) {
                 log.error("Protobuf 编码失败", e);
                 ctx.write(msg, promise); // 或丢弃，根据业务
             }
         } else {
-            // 非 IMConnectMessage，直接 forward
+            // 非 IMConnectMessage（含共享编码后的帧），直接 forward
             ctx.write(msg, promise);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public ByteBuf encodeContent(ByteBufAllocator alloc, IMessageWrap<?> imMsg) throws Exception {
+        long start = System.nanoTime();
+        IMessageProto.IMessageWrap.Builder builder =
+                IMessageProto.IMessageWrap.newBuilder();
+
+        /* 1. 基础字段 */
+        if (imMsg.getCode() != null) builder.setCode(imMsg.getCode());
+        if (imMsg.getToken() != null) builder.setToken(imMsg.getToken());
+        if (imMsg.getRequestId() != null) builder.setRequestId(imMsg.getRequestId());
+        if (imMsg.getTimestamp() != null) builder.setTimestamp(imMsg.getTimestamp());
+        if (imMsg.getClientIp() != null) builder.setClientIp(imMsg.getClientIp());
+        if (imMsg.getUserAgent() != null) builder.setUserAgent(imMsg.getUserAgent());
+        if (imMsg.getDeviceName() != null) builder.setDeviceName(imMsg.getDeviceName());
+        if (imMsg.getDeviceType() != null) builder.setDeviceType(imMsg.getDeviceType());
+        if (imMsg.getMessage() != null) builder.setMessage(imMsg.getMessage());
+        if (imMsg.getMetadata() != null && !imMsg.getMetadata().isEmpty()) {
+            builder.putAllMetadata(imMsg.getMetadata());
+        }
+
+        /* 2. data -> Any（有强类型定义的按消息类型编码，其余为 Struct） */
+        Object data = imMsg.getData();
+        if (data != null) {
+            builder.setData(ProtoJsonUtils.packAny(imMsg.getCode(), data));
+        }
+
+        /* 3. 直接序列化到池化 ByteBuf，避免中间 byte[] */
+        IMessageProto.IMessageWrap proto = builder.build();
+        int size = proto.getSerializedSize();
+        ByteBuf content = alloc.ioBuffer(size);
+        try {
+            CodedOutputStream output = CodedOutputStream.newInstance(content.nioBuffer(content.writerIndex(), size));
+            proto.writeTo(output);
+            output.checkNoSpaceLeft();
+            content.writerIndex(content.writerIndex() + size);
+            ENCODE_TIME.record(System.nanoTime() - start);
+            return content;
+        } catch (Exception e) {
+            content.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Object wrapFrame(ByteBuf content) {
+        return new BinaryWebSocketFrame(content);
+    }
+
+    @Override
+    public Object wrapSharedFrame(ByteBuf content) {
+        return new SharedWebSocketFrame.Binary(content);
+    }
+
+    @Override
+    public boolean encodesProtoWrap() {
+        return true;
+    }
+
+    /**
+     * protobuf IMessageWrap 转换为 POJO
+     */
+    public static IMessageWrap<Object> toPojo(IMessageProto.IMessageWrap proto) {
+        IMessageWrap<Object> pojo = new IMessageWrap<>();
+        pojo.setCode(proto.getCode());
+        pojo.setToken(proto.getToken());
+        pojo.setRequestId(proto.getRequestId());
+        pojo.setTimestamp(proto.getTimestamp());
+        pojo.setClientIp(proto.getClientIp());
+        pojo.setUserAgent(proto.getUserAgent());
+        pojo.setMessage(proto.getMessage());
+        pojo.setDeviceName(proto.getDeviceName());
+        pojo.setDeviceType(proto.getDeviceType());
+        if (!proto.getMetadataMap().isEmpty()) {
+            pojo.setMetadata(proto.getMetadataMap());
+        }
+
+        // 只处理 Any（有就解包）
+        if (proto.hasData()) {
+            pojo.setData(ProtoJsonUtils.unpackAny(proto.getData()));
+        }
+        return pojo;
+    }
+}
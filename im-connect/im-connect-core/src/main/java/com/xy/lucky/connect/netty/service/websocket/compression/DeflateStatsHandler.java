@@ -0,0 +1,89 @@
+package com.xy.lucky.connect.netty.service.websocket.compression;
+
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.monitoring.metrics.LongHistogram;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * permessage-deflate 压缩阈值与统计
+ * <p>
+ * - 作为压缩编码器的过滤器：小于 minSize 的完整文本 / 二进制消息、群发共享帧跳过压缩；分片消息不跳过（压缩过程中不允许跳过）
+ * - 作为出站处理器位于压缩编码器之后（靠近 head）：过滤器放行时记录原始大小与开始时间，
+ * 压缩后的帧（RSV1）经过时记录压缩后大小、压缩比与耗时
+ * - 每个 Channel 独立实例，状态仅在 EventLoop 线程内读写，无需同步
+ */
+public class DeflateStatsHandler extends ChannelOutboundHandlerAdapter
+        implements WebSocketExtensionFilterProvider, WebSocketExtensionFilter {
+
+    private static final int RSV1 = 0x4;
+
+    private static final LongAdder INPUT_BYTES = MetricsRegistry.global().counter(ConnectMetrics.WS_DEFLATE_INPUT_BYTES);
+    private static final LongAdder OUTPUT_BYTES = MetricsRegistry.global().counter(ConnectMetrics.WS_DEFLATE_OUTPUT_BYTES);
+    private static final LongAdder SKIPPED = MetricsRegistry.global().counter(ConnectMetrics.WS_DEFLATE_SKIPPED);
+    private static final LongAdder SHARED_SKIPPED = MetricsRegistry.global().counter(ConnectMetrics.WS_DEFLATE_SHARED_SKIPPED);
+    private static final LongHistogram RATIO = MetricsRegistry.global().histogram(ConnectMetrics.WS_DEFLATE_RATIO);
+    private static final LongHistogram TIME = MetricsRegistry.global().timer(ConnectMetrics.WS_DEFLATE_TIME);
+
+    private final int minSize;
+
+    private int pendingInputBytes;
+    private long startNanos;
+
+    public DeflateStatsHandler(int minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    public WebSocketExtensionFilter encoderFilter() {
+        return this;
+    }
+
+    @Override
+    public WebSocketExtensionFilter decoderFilter() {
+        return WebSocketExtensionFilter.NEVER_SKIP;
+    }
+
+    @Override
+    public boolean mustSkip(WebSocketFrame frame) {
+        if (!(frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame)
+                || !frame.isFinalFragment() || (frame.rsv() & RSV1) != 0) {
+            return false;
+        }
+        if (frame instanceof SharedWebSocketFrame) {
+            SHARED_SKIPPED.increment();
+            return true;
+        }
+        int size = frame.content().readableBytes();
+        if (size < minSize) {
+            SKIPPED.increment();
+            return true;
+        }
+        pendingInputBytes = size;
+        startNanos = System.nanoTime();
+        return false;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (pendingInputBytes > 0 && msg instanceof WebSocketFrame frame && (frame.rsv() & RSV1) != 0) {
+            int input = pendingInputBytes;
+            int output = frame.content().readableBytes();
+            pendingInputBytes = 0;
+            TIME.record(System.nanoTime() - startNanos);
+            INPUT_BYTES.add(input);
+            OUTPUT_BYTES.add(output);
+            RATIO.record(output * 100L / input);
+        }
+        ctx.write(msg, promise);
+    }
+}
@@ -0,0 +1,26 @@
+package com.xy.lucky.connect.netty.service.websocket.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+/**
+ * 群发共享内容的 WebSocket 帧标记
+ * <p>
+ * - SharedFrameWriter 向多个连接写同一份 retainedDuplicate 内容时使用
+ * - 压缩过滤器遇到该标记直接跳过：逐连接压缩会为每个接收者各生成一份压缩副本，抵消共享编码节省的内存与 CPU
+ */
+public interface SharedWebSocketFrame {
+
+    final class Text extends TextWebSocketFrame implements SharedWebSocketFrame {
+        public Text(ByteBuf content) {
+            super(content);
+        }
+    }
+
+    final class Binary extends BinaryWebSocketFrame implements SharedWebSocketFrame {
+        public Binary(ByteBuf content) {
+            super(content);
+        }
+    }
+}
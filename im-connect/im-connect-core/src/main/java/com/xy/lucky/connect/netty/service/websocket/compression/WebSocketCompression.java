@@ -0,0 +1,81 @@
+package com.xy.lucky.connect.netty.service.websocket.compression;
+
+import com.xy.lucky.connect.config.properties.NettyProperties;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WebSocket permessage-deflate 装配工具
+ * <p>
+ * - 仅在客户端握手时声明 permessage-deflate 才生效，未声明的客户端不受影响
+ * - 小于 minSize 的完整消息、群发共享的帧（{@link SharedWebSocketFrame}）不压缩（RSV1 = 0）
+ * - 默认不保留压缩上下文（no_context_takeover）：每条消息压缩 / 解压后释放 Deflater、Inflater，
+ * 空闲连接不再常驻约 256KB 的压缩窗口；开启 contextTakeover 后以内存换压缩比
+ * - 解压上限取 decode.maxFrameLength，防止压缩炸弹
+ * - 需添加在 HttpObjectAggregator 之后、WebSocketServerProtocolHandler 之前
+ */
+public final class WebSocketCompression {
+
+    public static final String COMPRESSION_HANDLER_NAME = "ws-compression";
+    public static final String COMPRESSION_STATS_HANDLER_NAME = "ws-compression-stats";
+
+    private static final String PERMESSAGE_DEFLATE_EXTENSION = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT = "server_no_context_takeover";
+    private static final String CLIENT_NO_CONTEXT = "client_no_context_takeover";
+
+    private WebSocketCompression() {
+        throw new UnsupportedOperationException("工具类不允许实例化");
+    }
+
+    /**
+     * 按配置向 pipeline 添加压缩扩展处理器
+     */
+    public static void install(ChannelPipeline pipeline, NettyProperties.CompressionConfig config, int maxInflatedLength) {
+        if (config == null || !config.isEnable()) {
+            return;
+        }
+        DeflateStatsHandler stats = new DeflateStatsHandler(config.getMinSize());
+        WebSocketServerExtensionHandshaker handshaker = new PerMessageDeflateServerExtensionHandshaker(
+                config.getCompressionLevel(),
+                // 允许客户端限制服务端窗口大小
+                true,
+                PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE,
+                // 允许客户端要求服务端不保留压缩上下文（以 CPU 换内存）；不保留上下文模式下必须允许
+                config.isAllowServerNoContext() || !config.isContextTakeover(),
+                // 不保留上下文模式下要求客户端也不保留，服务端解压后即可释放 Inflater
+                !config.isContextTakeover(),
+                stats,
+                maxInflatedLength);
+        // 统计处理器位于压缩扩展处理器之前（靠近 head），观察压缩后的帧
+        pipeline.addLast(COMPRESSION_STATS_HANDLER_NAME, stats);
+        pipeline.addLast(COMPRESSION_HANDLER_NAME, new WebSocketServerExtensionHandler(
+                config.isContextTakeover() ? handshaker : new NoContextTakeoverHandshaker(handshaker)));
+    }
+
+    /**
+     * 为客户端的 permessage-deflate 提议补上双向 no_context_takeover
+     * <p>
+     * RFC 7692 允许服务端在客户端未提议时于响应中声明这两个参数，netty 据此在每条消息结束后释放压缩上下文
+     */
+    private record NoContextTakeoverHandshaker(WebSocketServerExtensionHandshaker delegate)
+            implements WebSocketServerExtensionHandshaker {
+
+        @Override
+        public WebSocketServerExtension handshakeExtension(WebSocketExtensionData data) {
+            if (!PERMESSAGE_DEFLATE_EXTENSION.equals(data.name())) {
+                return delegate.handshakeExtension(data);
+            }
+            Map<String, String> parameters = new HashMap<>(data.parameters());
+            parameters.putIfAbsent(SERVER_NO_CONTEXT, null);
+            parameters.putIfAbsent(CLIENT_NO_CONTEXT, null);
+            return delegate.handshakeExtension(new WebSocketExtensionData(data.name(), parameters));
+        }
+    }
+}
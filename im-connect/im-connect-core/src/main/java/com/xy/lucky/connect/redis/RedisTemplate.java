@@ -169,6 +169,21 @@ public class RedisTemplate {
         });
     }
 
+    /**
+     * 在同一个 Pipeline 中执行一批命令，执行完毕后统一 sync
+     * <p>
+     * action 中返回的 Response 在本方法返回后即可读取
+     *
+     * @param action 向 Pipeline 追加命令的回调
+     */
+    public void pipelined(Consumer<Pipeline> action) {
+        executeVoid(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            action.accept(pipeline);
+            pipeline.sync();
+        });
+    }
+
     // ======================== 字符串相关 ========================
 
     /**
@@ -0,0 +1,480 @@
+package com.xy.lucky.connect.redis;
+
+import com.xy.lucky.connect.channel.UserChannelMap;
+import com.xy.lucky.connect.config.LogConstant;
+import com.xy.lucky.connect.config.properties.NettyProperties;
+import com.xy.lucky.connect.monitoring.metrics.ConnectMetrics;
+import com.xy.lucky.connect.monitoring.metrics.MetricsRegistry;
+import com.xy.lucky.connect.utils.JacksonUtil;
+import com.xy.lucky.core.constants.IMConstant;
+import com.xy.lucky.core.enums.IMDeviceType;
+import com.xy.lucky.core.model.IMRegisterUser;
+import com.xy.lucky.core.utils.StringUtils;
+import com.xy.lucky.spring.annotations.core.Autowired;
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.PostConstruct;
+import com.xy.lucky.spring.annotations.core.PreDestroy;
+import com.xy.lucky.spring.annotations.core.Value;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户路由异步注册中心
+ * <p>
+ * 设计目标：
+ * 1. Netty EventLoop 上不再直接访问 Redis，登录/心跳/下线只做入队，立即返回
+ * 2. 单线程按固定窗口（默认 10ms）批量出队，每个窗口最多两次 Pipeline 往返：
+ * 一次批量 GET 读取待合并的路由，一次批量写入 SETEX/DEL/EXPIRE/PFADD/EXISTS
+ * 3. 同一用户的多次续期、多次路由校验在窗口内自动去重
+ * 4. 队列有界且只由写出线程访问 Redis：续期满了直接丢弃（下次心跳会再次续期）；
+ * 注册/注销满了也丢弃并计数，丢失的注册由心跳路由校验发现后让客户端重新登录，丢失的注销随 TTL 过期
+ * 5. 路由校验只在注册/注销队列清空的批次中应答，且 EXISTS 排在同一 Pipeline 的写入之后，不会越过尚未写出的注册；
+ * 持续登录使队列始终非空时，校验最多推迟 maxCheckDelayMs 后随当前批次应答，避免永远得不到应答
+ */
+@Slf4j(topic = LogConstant.Redis)
+@Component
+public class UserRouteRegistry {
+
+    /**
+     * 日活统计 HyperLogLog 键前缀
+     */
+    private static final String ACTIVE_USERS_PREFIX = "IM-ACTIVE-USERS-";
+    private static final long ACTIVE_USERS_TTL_SECONDS = 30L * 24 * 3600;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final Set<String> pendingRenewals = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingActiveUsers = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, CompletableFuture<Boolean>> pendingChecks = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final LongAdder droppedOps = MetricsRegistry.global().counter(ConnectMetrics.ROUTE_REGISTRY_DROPPED_OPS);
+
+    private BlockingQueue<RouteOp> routeOps;
+    private ScheduledExecutorService flusher;
+
+    /**
+     * 校验开始被推迟的时间（纳秒），-1 表示当前没有被推迟的校验；只由写出线程访问
+     */
+    private long checksDeferredSince = -1L;
+
+    @Value("${brokerId}")
+    private String brokerId;
+
+    @Value("${netty.config.routeRegistry.flushIntervalMs:10}")
+    private long flushIntervalMs;
+
+    @Value("${netty.config.routeRegistry.maxBatchSize:2048}")
+    private int maxBatchSize;
+
+    @Value("${netty.config.routeRegistry.queueCapacity:65536}")
+    private int queueCapacity;
+
+    @Value("${netty.config.routeRegistry.maxCheckDelayMs:200}")
+    private long maxCheckDelayMs;
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    @Autowired
+    private UserChannelMap userChannelMap;
+
+    @Autowired
+    private NettyProperties nettyProperties;
+
+    @PostConstruct
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        this.flushIntervalMs = Math.max(1L, flushIntervalMs);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.queueCapacity = Math.max(maxBatchSize, queueCapacity);
+        this.maxCheckDelayMs = Math.max(flushIntervalMs, maxCheckDelayMs);
+        this.routeOps = new LinkedBlockingQueue<>(queueCapacity);
+
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "im-route-registry");
+            t.setDaemon(true);
+            return t;
+        };
+        this.flusher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        log.info("用户路由注册中心已启动: flushIntervalMs={}, maxBatchSize={}, queueCapacity={}, maxCheckDelayMs={}",
+                flushIntervalMs, maxBatchSize, queueCapacity, maxCheckDelayMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                if (!flusher.awaitTermination(2, TimeUnit.SECONDS)) {
+                    flusher.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                flusher.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 停机前把剩余操作写出，避免路由残留
+        try {
+            while (flushBatch()) {
+                // 继续直到队列清空
+            }
+        } catch (Exception e) {
+            log.warn("停机时写出剩余路由操作失败: {}", e.getMessage());
+        }
+        pendingChecks.values().forEach(f -> f.complete(Boolean.TRUE));
+        pendingChecks.clear();
+        log.info("用户路由注册中心已关闭: droppedOps={}", droppedOps.sum());
+    }
+
+    /**
+     * 登录注册：合并当前设备到用户全局路由并刷新过期时间
+     */
+    public void register(String userId, String token, IMDeviceType deviceType, String requestId) {
+        RouteOp op = new Register(userId, token, deviceType.getGroup().name(),
+                new IMRegisterUser.Driver(requestId, deviceType.getType()));
+        enqueue(op);
+    }
+
+    /**
+     * 下线注销：执行时若用户在本节点已无连接，且路由归属本节点，则删除路由
+     */
+    public void unregister(String userId) {
+        enqueue(new Unregister(userId));
+    }
+
+    /**
+     * 单设备注销（慢消费者降级时使用）：执行时若该设备分组在本节点仍无连接，且路由归属本节点，则只移除该分组的设备；
+     * 用户在本节点已无任何连接时删除路由
+     */
+    public void unregisterDevice(String userId, IMDeviceType deviceType) {
+        enqueue(new UnregisterDevice(userId, deviceType));
+    }
+
+    /**
+     * 批量下线注销（连接迁移时使用），队列已满或已停机时丢弃剩余部分，路由随 TTL 过期
+     */
+    public void unregisterAll(Collection<String> userIds) {
+        int dropped = 0;
+        for (String userId : userIds) {
+            if (!running.get() || !routeOps.offer(new Unregister(userId))) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            droppedOps.add(dropped);
+            log.warn("路由操作队列不可用，丢弃批量注销（路由随 TTL 过期）: count={}", dropped);
+        }
+    }
+
+    /**
+     * 续期用户路由，窗口内同一用户只续期一次
+     */
+    public void renew(String userId) {
+        if (!running.get()) {
+            return;
+        }
+        if (pendingRenewals.size() >= queueCapacity) {
+            log.debug("路由续期队列已满，丢弃本次续期: userId={}", userId);
+            return;
+        }
+        pendingRenewals.add(userId);
+    }
+
+    /**
+     * 记录日活，窗口内合并为一次 PFADD
+     */
+    public void markActive(String userId) {
+        if (!running.get() || pendingActiveUsers.size() >= queueCapacity) {
+            return;
+        }
+        pendingActiveUsers.add(userId);
+    }
+
+    /**
+     * 异步校验用户路由是否存在，窗口内同一用户共享一次 EXISTS
+     * <p>
+     * - 在此之前入队的注册/注销写出后才应答
+     * - Redis 异常时按存在处理，避免因缓存抖动批量踢人
+     */
+    public CompletableFuture<Boolean> checkExists(String userId) {
+        if (!running.get() || pendingChecks.size() >= queueCapacity) {
+            return CompletableFuture.completedFuture(Boolean.TRUE);
+        }
+        return pendingChecks.computeIfAbsent(userId, k -> new CompletableFuture<>());
+    }
+
+    private void enqueue(RouteOp op) {
+        if (running.get() && routeOps.offer(op)) {
+            return;
+        }
+        // 调用方在 EventLoop 上，不做同步 Redis 回退
+        droppedOps.increment();
+        log.warn("路由操作队列不可用，丢弃本次{}: userId={}",
+                op instanceof Register ? "注册（心跳校验后重新登录）" : "注销（路由随 TTL 过期）", op.userId());
+    }
+
+    /**
+     * 定时任务入口：循环写出直到本轮无数据或达到批量上限
+     */
+    private void flush() {
+        try {
+            int rounds = 0;
+            while (flushBatch() && ++rounds < 8) {
+                // 积压时连续写出多个批次
+            }
+        } catch (Throwable t) {
+            log.error("路由批量写出异常", t);
+        }
+    }
+
+    /**
+     * 写出一个批次
+     *
+     * @return 本批次是否有数据
+     */
+    private boolean flushBatch() {
+        // 先摘取校验再出队操作：校验之前入队的注册/注销此时都已在队列中
+        Map<String, CompletableFuture<Boolean>> drainedChecks = drainChecks();
+        List<RouteOp> ops = new ArrayList<>();
+        routeOps.drainTo(ops, maxBatchSize);
+        // 注册/注销仍有积压时，校验可能越过尚未写出的注册而误判路由失效，留到积压清空的批次再应答；
+        // 推迟超过 maxCheckDelayMs 后不再等待，此时校验之前入队的注册通常已写出，个别误判由客户端重新登录修正
+        boolean deferred = !drainedChecks.isEmpty() && !routeOps.isEmpty() && !checkDelayExpired();
+        if (deferred) {
+            deferChecks(drainedChecks);
+        } else if (!drainedChecks.isEmpty()) {
+            checksDeferredSince = -1L;
+        }
+        Map<String, CompletableFuture<Boolean>> checks = deferred ? Map.of() : drainedChecks;
+        List<String> renewals = drain(pendingRenewals);
+        List<String> actives = drain(pendingActiveUsers);
+
+        if (ops.isEmpty() && renewals.isEmpty() && actives.isEmpty() && checks.isEmpty()) {
+            return false;
+        }
+
+        long ttlSeconds = routeTtlSeconds();
+        Map<String, Response<Boolean>> existsResponses = new HashMap<>(checks.size() * 2);
+        try {
+            Map<String, IMRegisterUser> states = ops.isEmpty() ? Map.of() : applyOps(ops, loadRoutes(ops));
+
+            redisTemplate.pipelined(pipeline -> {
+                writeRoutes(pipeline, states, ttlSeconds);
+                for (String userId : renewals) {
+                    pipeline.expire(routeKey(userId), ttlSeconds);
+                }
+                if (!actives.isEmpty()) {
+                    String activeKey = ACTIVE_USERS_PREFIX + LocalDate.now().format(DATE_FORMATTER);
+                    pipeline.pfadd(activeKey, actives.toArray(new String[0]));
+                    pipeline.expire(activeKey, ACTIVE_USERS_TTL_SECONDS);
+                }
+                for (String userId : checks.keySet()) {
+                    existsResponses.put(userId, pipeline.exists(routeKey(userId)));
+                }
+            });
+
+            checks.forEach((userId, future) -> future.complete(existsResponses.get(userId).get()));
+        } catch (Exception e) {
+            log.error("路由批量写出失败: ops={}, renewals={}, actives={}, checks={}",
+                    ops.size(), renewals.size(), actives.size(), checks.size(), e);
+            checks.values().forEach(f -> f.complete(Boolean.TRUE));
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("路由批量写出: ops={}, renewals={}, actives={}, checks={}",
+                    ops.size(), renewals.size(), actives.size(), checks.size());
+        }
+        return true;
+    }
+
+    /**
+     * 一次 Pipeline 读取本批次涉及的所有路由
+     */
+    private Map<String, String> loadRoutes(List<RouteOp> ops) {
+        Map<String, Response<String>> responses = new LinkedHashMap<>();
+        redisTemplate.pipelined(pipeline -> {
+            for (RouteOp op : ops) {
+                String key = routeKey(op.userId());
+                if (!responses.containsKey(key)) {
+                    responses.put(key, pipeline.get(key));
+                }
+            }
+        });
+        Map<String, String> current = new HashMap<>(responses.size() * 2);
+        responses.forEach((key, response) -> current.put(key, response.get()));
+        return current;
+    }
+
+    /**
+     * 按入队顺序在内存中应用操作，得到每个路由键的最终状态（null 表示删除）
+     */
+    private Map<String, IMRegisterUser> applyOps(List<RouteOp> ops, Map<String, String> current) {
+        Map<String, IMRegisterUser> states = new LinkedHashMap<>();
+        for (RouteOp op : ops) {
+            String key = routeKey(op.userId());
+            IMRegisterUser user = states.containsKey(key) ? states.get(key) : parse(current.get(key));
+
+            if (op instanceof Register register) {
+                if (user == null) {
+                    user = new IMRegisterUser().setUserId(register.userId()).setDrivers(new HashMap<>());
+                }
+                if (user.getDrivers() == null) {
+                    user.setDrivers(new HashMap<>());
+                }
+                user.setToken(register.token())
+                        .setBrokerId(brokerId)
+                        .getDrivers().put(register.group(), register.driver());
+                states.put(key, user);
+            } else if (op instanceof Unregister) {
+                // 执行时再次确认：用户可能已在本节点重新登录
+                if (user == null || !userChannelMap.getChannelsByUser(op.userId()).isEmpty() || !ownedHere(user)) {
+                    continue;
+                }
+                states.put(key, null);
+            } else if (op instanceof UnregisterDevice device) {
+                // 执行时再次确认：该设备分组可能已在本节点重新登录
+                if (user == null || userChannelMap.getChannel(op.userId(), device.deviceType()) != null || !ownedHere(user)) {
+                    continue;
+                }
+                if (userChannelMap.getChannelsByUser(op.userId()).isEmpty()) {
+                    states.put(key, null);
+                    continue;
+                }
+                if (user.getDrivers() != null) {
+                    user.getDrivers().remove(device.deviceType().getGroup().name());
+                }
+                states.put(key, user);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * 避免误删其他节点的路由
+     */
+    private boolean ownedHere(IMRegisterUser user) {
+        if (StringUtils.hasText(brokerId) && !brokerId.equals(user.getBrokerId())) {
+            log.debug("Redis 路由属于其他 Broker，跳过清理: userId={}", user.getUserId());
+            return false;
+        }
+        return true;
+    }
+
+    private void writeRoutes(Pipeline pipeline, Map<String, IMRegisterUser> states, long ttlSeconds) {
+        states.forEach((key, user) -> {
+            if (user == null) {
+                pipeline.del(key);
+            } else {
+                pipeline.setex(key, ttlSeconds, JacksonUtil.toJSONString(user));
+            }
+        });
+    }
+
+    private IMRegisterUser parse(String json) {
+        if (!StringUtils.hasText(json)) {
+            return null;
+        }
+        try {
+            return JacksonUtil.parseObject(json, IMRegisterUser.class);
+        } catch (Exception e) {
+            log.warn("解析用户路由失败，将被覆盖: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private List<String> drain(Set<String> pending) {
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<String> drained = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+        Iterator<String> it = pending.iterator();
+        while (it.hasNext() && drained.size() < maxBatchSize) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    private Map<String, CompletableFuture<Boolean>> drainChecks() {
+        if (pendingChecks.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, CompletableFuture<Boolean>> drained = new HashMap<>();
+        Iterator<Map.Entry<String, CompletableFuture<Boolean>>> it = pendingChecks.entrySet().iterator();
+        while (it.hasNext() && drained.size() < maxBatchSize) {
+            Map.Entry<String, CompletableFuture<Boolean>> entry = it.next();
+            // 仅当映射未被替换时才摘除，保证每个 future 都会被完成
+            if (pendingChecks.remove(entry.getKey(), entry.getValue())) {
+                drained.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 校验是否已推迟超过 maxCheckDelayMs；首次推迟时开始计时
+     */
+    private boolean checkDelayExpired() {
+        long now = System.nanoTime();
+        if (checksDeferredSince < 0) {
+            checksDeferredSince = now;
+            return false;
+        }
+        if (now - checksDeferredSince < TimeUnit.MILLISECONDS.toNanos(maxCheckDelayMs)) {
+            return false;
+        }
+        log.debug("路由校验推迟超过 {}ms，随当前批次应答: queued={}", maxCheckDelayMs, routeOps.size());
+        return true;
+    }
+
+    /**
+     * 将已摘取的校验放回；期间同一用户已有新的校验时，跟随新校验的结果完成
+     */
+    private void deferChecks(Map<String, CompletableFuture<Boolean>> checks) {
+        checks.forEach((userId, future) -> {
+            CompletableFuture<Boolean> current = pendingChecks.putIfAbsent(userId, future);
+            if (current != null) {
+                current.whenComplete((exists, e) -> future.complete(exists == null || exists));
+            }
+        });
+    }
+
+    private long routeTtlSeconds() {
+        long millis = nettyProperties.getHeartBeatTime() + nettyProperties.getTimeout();
+        return Math.max(1L, (millis + 999L) / 1000L);
+    }
+
+    private static String routeKey(String userId) {
+        return IMConstant.USER_CACHE_PREFIX + userId;
+    }
+
+    /**
+     * 路由变更操作
+     */
+    private sealed interface RouteOp permits Register, Unregister, UnregisterDevice {
+        String userId();
+    }
+
+    private record Register(String userId, String token, String group, IMRegisterUser.Driver driver) implements RouteOp {
+    }
+
+    private record Unregister(String userId) implements RouteOp {
+    }
+
+    private record UnregisterDevice(String userId, IMDeviceType deviceType) implements RouteOp {
+    }
+}
@@ -3,6 +3,8 @@ package com.xy.lucky.connect.utils;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -12,10 +14,15 @@ import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.xy.lucky.connect.config.LogConstant;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.LinkedHashMap;
 
@@ -103,6 +110,62 @@ public final class JacksonUtil {
         }
     }
 
+    /**
+     * 从 ByteBuf 解析对象，不复制为 byte[] / String，不移动 readerIndex
+     * <p>
+     * 堆缓冲直接按数组区间解析，直接缓冲通过 ByteBufInputStream 流式解析；超过嵌套层数限制时不再尝试兼容解析
+     *
+     * @param buf   JSON 字节
+     * @param clazz 目标类型
+     * @return 转换后的对象，失败返回 null
+     */
+    public static <T> T parseObject(ByteBuf buf, Class<T> clazz) {
+        if (buf == null || !buf.isReadable()) {
+            return null;
+        }
+        try {
+            return readValue(MAPPER, buf, clazz);
+        } catch (Exception e) {
+            StreamConstraintsException violation = constraintViolation(e);
+            if (violation != null) {
+                log.warn("JSON 超过解析限制，目标类型：{}，原因：{}", clazz.getName(), violation.getOriginalMessage());
+                return null;
+            }
+            try {
+                return readValue(COMPAT_TYPED_MAPPER, buf, clazz);
+            } catch (Exception ignored) {
+            }
+            try {
+                return readValue(LEGACY_WRAPPER_TYPED_MAPPER, buf, clazz);
+            } catch (Exception ignored) {
+            }
+            log.error("JSON 解析失败，目标类型：{}，JSON 字符串：{}", clazz.getName(),
+                    buf.toString(buf.readerIndex(), Math.min(buf.readableBytes(), 256), StandardCharsets.UTF_8), e);
+            return null;
+        }
+    }
+
+    private static <T> T readValue(ObjectMapper mapper, ByteBuf buf, Class<T> clazz) throws IOException {
+        if (buf.hasArray()) {
+            return mapper.readValue(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes(), clazz);
+        }
+        // ByteBufInputStream 同时实现 DataInput，需按 InputStream 调用
+        InputStream in = new ByteBufInputStream(buf.duplicate());
+        return mapper.readValue(in, clazz);
+    }
+
+    /**
+     * 解析限制异常可能被 databind 包装，沿 cause 链查找
+     */
+    private static StreamConstraintsException constraintViolation(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof StreamConstraintsException violation) {
+                return violation;
+            }
+        }
+        return null;
+    }
+
     public static <T> T parseJSONArray(String jsonArray, TypeReference<T> reference) {
         try {
             return MAPPER.readValue(jsonArray, reference);
@@ -222,6 +285,13 @@ public final class JacksonUtil {
         }
     }
 
+    /**
+     * 对象写入输出流（如 ByteBufOutputStream），避免中间 String/byte[]
+     */
+    public static void writeTo(OutputStream out, Object object) throws IOException {
+        MAPPER.writeValue(out, object);
+    }
+
     /**
      * 对象写入文件
      */
@@ -299,6 +369,18 @@ public final class JacksonUtil {
         return jsonObject.has(key) ? jsonObject.get(key) : null;
     }
 
+    /**
+     * 设置解析时允许的最大对象 / 数组嵌套层数（作用于所有解析方法）
+     */
+    public static void setMaxNestingDepth(int maxNestingDepth) {
+        StreamReadConstraints constraints = StreamReadConstraints.builder()
+                .maxNestingDepth(maxNestingDepth)
+                .build();
+        MAPPER.getFactory().setStreamReadConstraints(constraints);
+        COMPAT_TYPED_MAPPER.getFactory().setStreamReadConstraints(constraints);
+        LEGACY_WRAPPER_TYPED_MAPPER.getFactory().setStreamReadConstraints(constraints);
+    }
+
     private static void configureMapper(ObjectMapper mapper) {
         mapper.setSerializationInclusion(JsonInclude.Include.ALWAYS);
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
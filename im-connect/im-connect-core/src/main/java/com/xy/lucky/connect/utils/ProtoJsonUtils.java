@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.*;
 import com.google.protobuf.util.JsonFormat;
 import com.google.protobuf.util.Values;
+import com.xy.lucky.core.proto.MessageBodyCodec;
 
 import java.io.IOException;
 import java.util.*;
@@ -17,6 +18,7 @@ import java.util.*;
  * - 支持高效的 Map/List -> google.protobuf.Struct/Value 转换（避免不必要的 Json 字符串解析）
  * - 支持将 protobuf Message pack 进 Any（Any.pack）
  * - 支持稳健的 Any 解包（优先 protobuf 二进制解析，失败回退为 JSON 文本解析，再回退为原始 bytes）
+ * - 已定义强类型的消息（im_message_body.proto）按消息类型编码为强类型 Any，其余仍使用 Struct
  * <p>
  * 设计原则：
  * - 兼容性优先：能兼容后端把 JSON 文本直接放进 Any.value（例如 value 为 "\"registrar\""）
@@ -25,6 +27,7 @@ import java.util.*;
  * <p>
  * 使用示例：
  * - Any a = ProtoJsonUtils.packAny(someObj);
+ * - Any a = ProtoJsonUtils.packAny(messageWrap.getCode(), messageWrap.getData());
  * - Object obj = ProtoJsonUtils.unpackAny(a);
  */
 public final class ProtoJsonUtils {
@@ -36,6 +39,9 @@ public final class ProtoJsonUtils {
     private static final JsonFormat.Printer JSON_PRINTER = JsonFormat.printer().omittingInsignificantWhitespace();
     private static final JsonFormat.Parser JSON_PARSER = JsonFormat.parser().ignoringUnknownFields();
 
+    // 是否按消息类型输出强类型消息体，关闭后统一输出 Struct（兼容未升级的 protobuf 客户端）
+    private static volatile boolean typedBodyEnabled = true;
+
     private ProtoJsonUtils() {
         // 工具类，不允许实例化
     }
@@ -44,6 +50,45 @@ public final class ProtoJsonUtils {
     // 对外 API
     // ===============================
 
+    public static boolean isTypedBodyEnabled() {
+        return typedBodyEnabled;
+    }
+
+    public static void setTypedBodyEnabled(boolean enabled) {
+        typedBodyEnabled = enabled;
+    }
+
+    /**
+     * 按消息类型把消息体打包成 protobuf Any
+     * <p>
+     * 消息类型定义了强类型消息体且 data 的字段都能被表示时，输出 type_url 为 type.googleapis.com/im.connect.Xxx 的强类型 Any；
+     * 否则（未启用、未定义、存在未定义字段）与 {@link #packAny(Object)} 一致输出 Struct。
+     *
+     * @param code IMessageWrap.code
+     * @param data 消息体
+     * @return Any
+     */
+    public static Any packAny(Integer code, Object data) {
+        if (!typedBodyEnabled || data == null || data instanceof Message
+                || isPrimitiveOrString(data) || data instanceof List) {
+            return packAny(data);
+        }
+        if (data instanceof Map<?, ?> map) {
+            Any typed = MessageBodyCodec.pack(code, map);
+            return typed != null ? typed : packAny(data);
+        }
+        // POJO 只转换一次 Map，回退时与 packAny(Object) 的 POJO 路径一致直接转为 Struct
+        Map<String, Object> map;
+        try {
+            map = MAPPER.convertValue(data, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (IllegalArgumentException e) {
+            return packAny(data);
+        }
+        Any typed = MessageBodyCodec.pack(code, map);
+        return typed != null ? typed : Any.pack(mapToStruct(map));
+    }
+
     /**
      * 把任意 Java 对象打包成 protobuf Any
      * <p>
@@ -106,6 +151,7 @@ public final class ProtoJsonUtils {
      * 把 com.google.protobuf.Any 解包成 Java 对象（Map/List/primitive 或 byte[]）
      * <p>
      * 解析策略（按优先级）：
+     * 0. 若 typeUrl 为强类型消息体（im.connect.SingleMessage 等），按定义解析为 Map
      * 1. 若 typeUrl 指向 google.protobuf.Struct/Value/ListValue，优先使用对应 parseFrom（protobuf 二进制解析）
      * 2. 若解析失败或 typeUrl 不是上述之一，尝试把 Any.value 当作 UTF-8 JSON 文本解析（能兼容 value = "\"registrar\""）
      * 3. 再退化：使用 JsonFormat.printer(any) 打印为 JSON 字符串并用 Jackson 转成 Java 对象
@@ -124,13 +170,22 @@ public final class ProtoJsonUtils {
         if (any == null) return null;
 
         String typeUrl = any.getTypeUrl();
-        byte[] raw = any.getValue() == null ? new byte[0] : any.getValue().toByteArray();
+        try {
+            Map<String, Object> typed = MessageBodyCodec.unpack(any);
+            if (typed != null) {
+                return typed;
+            }
+        } catch (InvalidProtocolBufferException e) {
+            // 格式错误，继续后续回退逻辑
+        }
 
-        // 优先使用 protobuf 解析 well-known 类型（Struct/Value/ListValue）
+        ByteString value = any.getValue();
+
+        // 优先使用 protobuf 解析 well-known 类型（Struct/Value/ListValue），直接从 ByteString 读取，不复制
         try {
             if (typeUrl != null && (typeUrl.endsWith("google.protobuf.Struct") || typeUrl.contains("Struct"))) {
                 try {
-                    Struct s = Struct.parseFrom(raw);
+                    Struct s = Struct.parseFrom(value);
                     return structToMap(s);
                 } catch (InvalidProtocolBufferException e) {
                     // 继续后续回退逻辑
@@ -139,7 +194,7 @@ public final class ProtoJsonUtils {
 
             if (typeUrl != null && (typeUrl.endsWith("google.protobuf.ListValue") || typeUrl.contains("ListValue"))) {
                 try {
-                    ListValue lv = ListValue.parseFrom(raw);
+                    ListValue lv = ListValue.parseFrom(value);
                     return listToList(lv);
                 } catch (InvalidProtocolBufferException e) {
                     // 继续后续回退逻辑
@@ -148,7 +203,7 @@ public final class ProtoJsonUtils {
 
             if (typeUrl != null && (typeUrl.endsWith("google.protobuf.Value") || typeUrl.contains("Value"))) {
                 try {
-                    Value v = Value.parseFrom(raw);
+                    Value v = Value.parseFrom(value);
                     return valueToJava(v);
                 } catch (InvalidProtocolBufferException e) {
                     // 继续后续回退逻辑
@@ -158,6 +213,8 @@ public final class ProtoJsonUtils {
             // 保护性 catch，避免解析异常影响主流程
         }
 
+        byte[] raw = value.toByteArray();
+
         // 回退 1：尝试把 raw 当作 UTF-8 JSON 文本解析（处理服务端把 JSON bytes 放进 Any.value 的情况）
         try {
             String text = new String(raw, java.nio.charset.StandardCharsets.UTF_8);
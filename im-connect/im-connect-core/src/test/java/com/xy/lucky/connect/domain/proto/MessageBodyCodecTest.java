@@ -0,0 +1,575 @@
+package com.xy.lucky.connect.domain.proto;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.MessageOptions;
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Message;
+import com.google.protobuf.Struct;
+import com.google.protobuf.StructProto;
+import com.google.protobuf.Value;
+import com.xy.lucky.connect.utils.ProtoJsonUtils;
+import com.xy.lucky.core.enums.IMessageType;
+import com.xy.lucky.core.proto.MessageBodyCodec;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MessageBodyCodec 往返测试
+ * <p>
+ * 除 MessageBodyCodec 自身的 pack / unpack 往返外，还用 im_message_body.proto 构建的描述符经 protobuf 自身的
+ * DynamicMessage 解析编码结果，确认与客户端生成代码看到的字段值一致。
+ */
+class MessageBodyCodecTest {
+
+    private static final String TYPE_URL_PREFIX = "type.googleapis.com/im.connect.";
+
+    /**
+     * 2^53 + 1，经 Struct（double）中转会变成 2^53
+     */
+    private static final long BEYOND_DOUBLE = (1L << 53) + 1;
+
+    private static Descriptors.FileDescriptor bodyProto;
+
+    @BeforeAll
+    static void loadDescriptor() throws Exception {
+        try (InputStream in = MessageBodyCodecTest.class.getClassLoader().getResourceAsStream("im_message_body.proto")) {
+            assertNotNull(in, "classpath 中缺少 im_message_body.proto");
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            bodyProto = Descriptors.FileDescriptor.buildFrom(ProtoFileParser.parse(source),
+                    new Descriptors.FileDescriptor[]{StructProto.getDescriptor()});
+        }
+    }
+
+    // ===============================
+    // 强类型编码与 Struct 回退
+    // ===============================
+
+    @Test
+    void singleMessageShouldRoundTripAsTypedBody() throws Exception {
+        Map<String, Object> body = chatBody();
+        body.put("toId", "u2");
+        body.put("messageBody", textBody("hello"));
+
+        Any any = MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), body);
+
+        assertNotNull(any);
+        assertEquals(TYPE_URL_PREFIX + "SingleMessage", any.getTypeUrl());
+        assertTrue(MessageBodyCodec.isTyped(any.getTypeUrl()));
+        assertEquals(body, MessageBodyCodec.unpack(any));
+        assertEquals(body, parseWithDescriptor(any));
+    }
+
+    @Test
+    void groupMessageShouldRoundTripRepeatedToList() throws Exception {
+        Map<String, Object> body = chatBody();
+        body.put("groupId", "g1");
+        body.put("toList", List.of("u2", "u3"));
+        body.put("messageBody", textBody("hi all"));
+
+        Any any = MessageBodyCodec.pack(IMessageType.GROUP_MESSAGE.getCode(), body);
+
+        assertNotNull(any);
+        assertEquals(TYPE_URL_PREFIX + "GroupMessage", any.getTypeUrl());
+        assertEquals(body, MessageBodyCodec.unpack(any));
+        assertEquals(body, parseWithDescriptor(any));
+    }
+
+    @Test
+    void registerMessageShouldRoundTripDriversMap() throws Exception {
+        Map<String, Object> drivers = new LinkedHashMap<>();
+        drivers.put("android", mapOf("deviceId", "d1", "deviceType", "MOBILE"));
+        drivers.put("web", mapOf("deviceId", "d2", "deviceType", "WEB"));
+        Map<String, Object> body = mapOf("userId", "u1", "token", "t", "brokerId", "b1");
+        body.put("drivers", drivers);
+
+        Any any = MessageBodyCodec.pack(IMessageType.REGISTER.getCode(), body);
+
+        assertNotNull(any);
+        assertEquals(TYPE_URL_PREFIX + "RegisterMessage", any.getTypeUrl());
+        assertEquals(body, MessageBodyCodec.unpack(any));
+        assertEquals(body, parseWithDescriptor(any));
+    }
+
+    @Test
+    void undefinedFieldShouldFallBackToStruct() {
+        Map<String, Object> body = chatBody();
+        body.put("recallTime", 1L);
+
+        assertNull(MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), body));
+
+        Any any = ProtoJsonUtils.packAny(IMessageType.SINGLE_MESSAGE.getCode(), body);
+        assertTrue(any.is(Struct.class));
+        assertFalse(MessageBodyCodec.isTyped(any.getTypeUrl()));
+    }
+
+    @Test
+    void mismatchedTypeShouldFallBackToStruct() {
+        Map<String, Object> body = chatBody();
+        body.put("messageTime", "yesterday");
+
+        assertNull(MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), body));
+        assertTrue(ProtoJsonUtils.packAny(IMessageType.SINGLE_MESSAGE.getCode(), body).is(Struct.class));
+    }
+
+    @Test
+    void codeWithoutSchemaShouldNotPack() {
+        assertNull(MessageBodyCodec.pack(IMessageType.MESSAGE_OPERATION.getCode(), chatBody()));
+        assertNull(MessageBodyCodec.pack(null, chatBody()));
+    }
+
+    // ===============================
+    // messageBody oneof
+    // ===============================
+
+    @Test
+    void textBodyShouldSelectTextField() throws Exception {
+        assertEquals("text_body", packedMessageBodyField(textBody("hello")));
+    }
+
+    @Test
+    void mediaBodyShouldSelectMediaField() throws Exception {
+        Map<String, Object> media = mapOf("key", "k/1.png", "name", "1.png", "suffix", "png");
+        media.put("size", 1024);
+        media.put("duration", 3);
+
+        assertEquals("media_body", packedMessageBodyField(media));
+    }
+
+    @Test
+    void otherBodyShouldSelectStructField() throws Exception {
+        Map<String, Object> location = new LinkedHashMap<>();
+        location.put("latitude", 31.2);
+        location.put("longitude", 121.5);
+        location.put("address", "上海");
+
+        assertEquals("struct_body", packedMessageBodyField(location));
+    }
+
+    // ===============================
+    // int64 精度
+    // ===============================
+
+    @Test
+    void int64ShouldKeepFullPrecision() throws Exception {
+        Map<String, Object> body = chatBody();
+        body.put("messageTime", BEYOND_DOUBLE);
+        body.put("sequence", Long.MAX_VALUE);
+
+        Any any = MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), body);
+        assertNotNull(any);
+
+        Map<String, Object> unpacked = MessageBodyCodec.unpack(any);
+        assertEquals(BEYOND_DOUBLE, unpacked.get("messageTime"));
+        assertEquals(Long.MAX_VALUE, unpacked.get("sequence"));
+
+        DynamicMessage message = DynamicMessage.parseFrom(descriptor("SingleMessage"), any.getValue());
+        assertEquals(BEYOND_DOUBLE, message.getField(field(message, "message_time")));
+        assertEquals(Long.MAX_VALUE, message.getField(field(message, "sequence")));
+    }
+
+    @Test
+    void integralDoubleShouldEncodeAsInteger() throws Exception {
+        // 经 Struct 中转的数字为 Double，整数值仍按 int32 / int64 编码
+        Map<String, Object> body = chatBody();
+        body.put("messageContentType", 1.0);
+        body.put("messageTime", 1.7e12);
+
+        Any any = MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), body);
+        assertNotNull(any);
+
+        Map<String, Object> unpacked = MessageBodyCodec.unpack(any);
+        assertEquals(1, unpacked.get("messageContentType"));
+        assertEquals(1_700_000_000_000L, unpacked.get("messageTime"));
+    }
+
+    @Test
+    void fractionalOrOverflowingNumberShouldFallBackToStruct() {
+        Map<String, Object> fractional = chatBody();
+        fractional.put("messageContentType", 1.5);
+        assertNull(MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), fractional));
+
+        Map<String, Object> overflow = chatBody();
+        overflow.put("messageContentType", Integer.MAX_VALUE + 1L);
+        assertNull(MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), overflow));
+    }
+
+    // ===============================
+    // 嵌套层数上限
+    // ===============================
+
+    @Test
+    void moderateNestingShouldRoundTrip() throws Exception {
+        Map<String, Object> body = chatBody();
+        body.put("extra", nestedMap(20));
+
+        Any any = MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), body);
+
+        assertNotNull(any);
+        assertEquals(body, MessageBodyCodec.unpack(any));
+        assertEquals(body, parseWithDescriptor(any));
+    }
+
+    @Test
+    void excessiveNestingShouldNotPack() {
+        Map<String, Object> body = chatBody();
+        body.put("extra", nestedMap(100));
+
+        assertNull(MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), body));
+        assertTrue(ProtoJsonUtils.packAny(IMessageType.SINGLE_MESSAGE.getCode(), body).is(Struct.class));
+    }
+
+    @Test
+    void excessiveNestingShouldBeRejectedOnUnpack() {
+        // 绕过 pack 直接构造深层嵌套的二进制，模拟恶意客户端
+        Struct extra = Struct.getDefaultInstance();
+        for (int i = 0; i < 100; i++) {
+            extra = Struct.newBuilder().putFields("n", Value.newBuilder().setStructValue(extra).build()).build();
+        }
+        DynamicMessage message = DynamicMessage.newBuilder(descriptor("SingleMessage"))
+                .setField(descriptor("SingleMessage").findFieldByName("extra"), extra)
+                .build();
+        Any any = Any.newBuilder()
+                .setTypeUrl(TYPE_URL_PREFIX + "SingleMessage")
+                .setValue(message.toByteString())
+                .build();
+
+        assertThrows(InvalidProtocolBufferException.class, () -> MessageBodyCodec.unpack(any));
+    }
+
+    // ===============================
+    // 工具方法
+    // ===============================
+
+    private static Map<String, Object> chatBody() {
+        Map<String, Object> body = mapOf("fromId", "u1", "messageTempId", "tmp-1", "messageId", "m-1");
+        body.put("messageContentType", 1);
+        body.put("messageTime", 1_700_000_000_000L);
+        body.put("readStatus", 0);
+        body.put("sequence", 42L);
+        body.put("messageType", 1000);
+        Map<String, Object> extra = new LinkedHashMap<>();
+        extra.put("client", "ios");
+        extra.put("retry", 2.0);
+        extra.put("tags", List.of("a", true));
+        extra.put("none", null);
+        body.put("extra", extra);
+        return body;
+    }
+
+    private static Map<String, Object> textBody(String text) {
+        Map<String, Object> reply = mapOf("messageId", "m-0", "fromId", "u2", "previewText", "prev");
+        reply.put("messageContentType", 1);
+        Map<String, Object> body = mapOf("text", text);
+        body.put("replyMessage", reply);
+        body.put("mentionedUserIds", List.of("u2", "u3"));
+        body.put("mentionAll", false);
+        return body;
+    }
+
+    private static Map<String, Object> nestedMap(int levels) {
+        Map<String, Object> map = mapOf("leaf", "v");
+        for (int i = 0; i < levels; i++) {
+            Map<String, Object> outer = new LinkedHashMap<>();
+            outer.put("n", map);
+            map = outer;
+        }
+        return map;
+    }
+
+    private static Map<String, Object> mapOf(Object... keyValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+
+    /**
+     * 打包单聊消息后，用 protobuf 解析 message_body oneof 实际选中的字段名，并校验往返结果
+     */
+    private static String packedMessageBodyField(Map<String, Object> messageBody) throws Exception {
+        Map<String, Object> body = chatBody();
+        body.put("messageBody", messageBody);
+
+        Any any = MessageBodyCodec.pack(IMessageType.SINGLE_MESSAGE.getCode(), body);
+        assertNotNull(any);
+        assertEquals(body, MessageBodyCodec.unpack(any));
+        assertEquals(body, parseWithDescriptor(any));
+
+        Descriptors.Descriptor type = descriptor("SingleMessage");
+        DynamicMessage message = DynamicMessage.parseFrom(type, any.getValue());
+        Descriptors.FieldDescriptor chosen = message.getOneofFieldDescriptor(type.getOneofs().get(0));
+        assertNotNull(chosen);
+        return chosen.getName();
+    }
+
+    private static Descriptors.Descriptor descriptor(String name) {
+        return bodyProto.findMessageTypeByName(name);
+    }
+
+    private static Descriptors.FieldDescriptor field(DynamicMessage message, String name) {
+        return message.getDescriptorForType().findFieldByName(name);
+    }
+
+    /**
+     * 用 protobuf 自身的解析器解码，并按 JSON 字段名转换为与 MessageBodyCodec.unpack 相同的 Map 形态
+     */
+    private static Map<String, Object> parseWithDescriptor(Any any) throws InvalidProtocolBufferException {
+        String name = any.getTypeUrl().substring(TYPE_URL_PREFIX.length());
+        return toMap(DynamicMessage.parseFrom(descriptor(name), any.getValue()));
+    }
+
+    private static Map<String, Object> toMap(Message message) throws InvalidProtocolBufferException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<Descriptors.FieldDescriptor, Object> entry : message.getAllFields().entrySet()) {
+            Descriptors.FieldDescriptor field = entry.getKey();
+            Descriptors.OneofDescriptor oneof = field.getRealContainingOneof();
+            String key = oneof != null ? lowerCamel(oneof.getName()) : field.getJsonName();
+            map.put(key, fieldValue(field, entry.getValue()));
+        }
+        return map;
+    }
+
+    private static Object fieldValue(Descriptors.FieldDescriptor field, Object value) throws InvalidProtocolBufferException {
+        if (field.isMapField()) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Object item : (List<?>) value) {
+                Message entry = (Message) item;
+                Descriptors.Descriptor entryType = entry.getDescriptorForType();
+                map.put((String) entry.getField(entryType.findFieldByNumber(1)),
+                        toMap((Message) entry.getField(entryType.findFieldByNumber(2))));
+            }
+            return map;
+        }
+        if (field.isRepeated()) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                list.add(singleValue(field, item));
+            }
+            return list;
+        }
+        return singleValue(field, value);
+    }
+
+    private static Object singleValue(Descriptors.FieldDescriptor field, Object value) throws InvalidProtocolBufferException {
+        if (field.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+            return value;
+        }
+        Message message = (Message) value;
+        if (message.getDescriptorForType().getFullName().equals(Struct.getDescriptor().getFullName())) {
+            return structToMap(Struct.parseFrom(message.toByteString()));
+        }
+        return toMap(message);
+    }
+
+    private static Map<String, Object> structToMap(Struct struct) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        struct.getFieldsMap().forEach((key, value) -> map.put(key, valueToJava(value)));
+        return map;
+    }
+
+    private static Object valueToJava(Value value) {
+        return switch (value.getKindCase()) {
+            case NUMBER_VALUE -> value.getNumberValue();
+            case STRING_VALUE -> value.getStringValue();
+            case BOOL_VALUE -> value.getBoolValue();
+            case STRUCT_VALUE -> structToMap(value.getStructValue());
+            case LIST_VALUE -> listToJava(value.getListValue());
+            default -> null;
+        };
+    }
+
+    private static List<Object> listToJava(ListValue list) {
+        List<Object> values = new ArrayList<>();
+        list.getValuesList().forEach(value -> values.add(valueToJava(value)));
+        return values;
+    }
+
+    private static String lowerCamel(String snake) {
+        StringBuilder sb = new StringBuilder();
+        boolean upper = false;
+        for (char c : snake.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                sb.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * im_message_body.proto 的最小解析器
+     * <p>
+     * 构建环境没有 protoc，这里只解析该文件用到的语法（message / optional / repeated / oneof / map），
+     * 生成 FileDescriptorProto 供 DynamicMessage 使用。
+     */
+    static final class ProtoFileParser {
+
+        private static final Pattern TOKEN = Pattern.compile("\"[^\"]*\"|[A-Za-z_][A-Za-z0-9_.]*|\\d+|[{}=;<>,]");
+
+        private final List<String> tokens = new ArrayList<>();
+        private String packageName;
+        private int pos;
+
+        private ProtoFileParser(String source) {
+            Matcher matcher = TOKEN.matcher(source.replaceAll("//[^\\n]*", ""));
+            while (matcher.find()) {
+                tokens.add(matcher.group());
+            }
+        }
+
+        static FileDescriptorProto parse(String source) throws IOException {
+            return new ProtoFileParser(source).file();
+        }
+
+        private FileDescriptorProto file() throws IOException {
+            FileDescriptorProto.Builder file = FileDescriptorProto.newBuilder()
+                    .setName("im_message_body.proto")
+                    .setSyntax("proto3");
+            while (pos < tokens.size()) {
+                String token = next();
+                switch (token) {
+                    case "syntax", "option" -> skipStatement();
+                    case "package" -> {
+                        packageName = next();
+                        file.setPackage(packageName);
+                        expect(";");
+                    }
+                    case "import" -> {
+                        String path = next();
+                        file.addDependency(path.substring(1, path.length() - 1));
+                        expect(";");
+                    }
+                    case "message" -> file.addMessageType(message());
+                    default -> throw new IOException("不支持的语法: " + token);
+                }
+            }
+            return file.build();
+        }
+
+        private DescriptorProto message() throws IOException {
+            String name = next();
+            DescriptorProto.Builder message = DescriptorProto.newBuilder().setName(name);
+            List<FieldDescriptorProto.Builder> optionals = new ArrayList<>();
+            expect("{");
+            while (!peek().equals("}")) {
+                String token = next();
+                switch (token) {
+                    case "oneof" -> {
+                        int index = message.getOneofDeclCount();
+                        message.addOneofDecl(OneofDescriptorProto.newBuilder().setName(next()));
+                        expect("{");
+                        while (!peek().equals("}")) {
+                            message.addField(field(next(), FieldDescriptorProto.Label.LABEL_OPTIONAL).setOneofIndex(index));
+                        }
+                        expect("}");
+                    }
+                    case "map" -> {
+                        expect("<");
+                        String keyType = next();
+                        expect(",");
+                        String valueType = next();
+                        expect(">");
+                        FieldDescriptorProto.Builder field = field(valueType, FieldDescriptorProto.Label.LABEL_REPEATED);
+                        String entryName = Character.toUpperCase(field.getName().charAt(0))
+                                + lowerCamel(field.getName()).substring(1) + "Entry";
+                        message.addNestedType(DescriptorProto.newBuilder()
+                                .setName(entryName)
+                                .setOptions(MessageOptions.newBuilder().setMapEntry(true))
+                                .addField(typed(FieldDescriptorProto.newBuilder().setName("key").setNumber(1), keyType)
+                                        .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL))
+                                .addField(typed(FieldDescriptorProto.newBuilder().setName("value").setNumber(2), valueType)
+                                        .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)));
+                        field.setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+                                .setTypeName("." + packageName + "." + name + "." + entryName);
+                        message.addField(field);
+                    }
+                    case "optional" -> optionals.add(field(next(), FieldDescriptorProto.Label.LABEL_OPTIONAL));
+                    case "repeated" -> message.addField(field(next(), FieldDescriptorProto.Label.LABEL_REPEATED));
+                    default -> message.addField(field(token, FieldDescriptorProto.Label.LABEL_OPTIONAL));
+                }
+            }
+            expect("}");
+            // proto3 optional：每个字段一个合成 oneof（必须排在真实 oneof 之后），显式写出的 0 / false / "" 才保留存在性
+            for (FieldDescriptorProto.Builder field : optionals) {
+                message.addOneofDecl(OneofDescriptorProto.newBuilder().setName("_" + field.getName()));
+                message.addField(field.setProto3Optional(true).setOneofIndex(message.getOneofDeclCount() - 1));
+            }
+            return message.build();
+        }
+
+        /**
+         * 解析 "类型已读取之后" 的 name = number;
+         */
+        private FieldDescriptorProto.Builder field(String type, FieldDescriptorProto.Label label) throws IOException {
+            String name = next();
+            expect("=");
+            int number = Integer.parseInt(next());
+            expect(";");
+            return typed(FieldDescriptorProto.newBuilder().setName(name).setNumber(number).setLabel(label), type);
+        }
+
+        private FieldDescriptorProto.Builder typed(FieldDescriptorProto.Builder field, String type) {
+            return switch (type) {
+                case "string" -> field.setType(FieldDescriptorProto.Type.TYPE_STRING);
+                case "int32" -> field.setType(FieldDescriptorProto.Type.TYPE_INT32);
+                case "int64" -> field.setType(FieldDescriptorProto.Type.TYPE_INT64);
+                case "bool" -> field.setType(FieldDescriptorProto.Type.TYPE_BOOL);
+                default -> field.setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+                        .setTypeName(type.contains(".") ? "." + type : "." + packageName + "." + type);
+            };
+        }
+
+        private void skipStatement() throws IOException {
+            while (!next().equals(";")) {
+                // 跳过到语句结束
+            }
+        }
+
+        private void expect(String expected) throws IOException {
+            String token = next();
+            if (!token.equals(expected)) {
+                throw new IOException("期望 " + expected + "，实际为 " + token);
+            }
+        }
+
+        private String peek() throws IOException {
+            if (pos >= tokens.size()) {
+                throw new IOException("proto 文件意外结束");
+            }
+            return tokens.get(pos);
+        }
+
+        private String next() throws IOException {
+            String token = peek();
+            pos++;
+            return token;
+        }
+    }
+}
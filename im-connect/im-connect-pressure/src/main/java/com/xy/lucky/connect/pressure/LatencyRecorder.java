@@ -0,0 +1,48 @@
+package com.xy.lucky.connect.pressure;
+
+import com.xy.lucky.connect.monitoring.metrics.LongHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 延迟直方图：同时保留打印周期内与全程两份数据，单位纳秒，输出为毫秒
+ */
+class LatencyRecorder {
+    private final String name;
+    private final LongHistogram total = new LongHistogram();
+    private final AtomicReference<LongHistogram> interval = new AtomicReference<>(new LongHistogram());
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    void recordNanos(long nanos) {
+        total.record(nanos);
+        interval.get().record(nanos);
+    }
+
+    String intervalLine() {
+        return format(interval.getAndSet(new LongHistogram()).snapshot());
+    }
+
+    String totalLine() {
+        return format(total.snapshot());
+    }
+
+    private String format(LongHistogram.Snapshot s) {
+        if (s.count() == 0) {
+            return name + "[n=0]";
+        }
+        return String.format(Locale.ROOT, "%s[n=%d, p50=%.2fms, p99=%.2fms, p999=%.2fms, max=%.2fms]",
+                name, s.count(),
+                millis(s.valueAtQuantile(0.5)),
+                millis(s.valueAtQuantile(0.99)),
+                millis(s.valueAtQuantile(0.999)),
+                millis(s.max()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000D;
+    }
+}
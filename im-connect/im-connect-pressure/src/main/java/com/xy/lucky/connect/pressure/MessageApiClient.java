@@ -0,0 +1,72 @@
+package com.xy.lucky.connect.pressure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 通过消息服务 HTTP 接口发送单聊/群聊消息，推送经 MQ 回到连接层后由接收方连接收到
+ */
+class MessageApiClient {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int TEXT_CONTENT_TYPE = 1;
+
+    private final HttpClient httpClient;
+    private final String apiUrl;
+    private final Duration timeout;
+
+    MessageApiClient(String apiUrl, int timeoutMs) {
+        this.apiUrl = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    CompletableFuture<Boolean> sendSingle(String token, String fromId, String toId, String messageTempId) {
+        Map<String, Object> body = baseBody(fromId, messageTempId);
+        body.put("toId", toId);
+        return post("/single", token, body);
+    }
+
+    CompletableFuture<Boolean> sendGroup(String token, String fromId, String groupId, String messageTempId) {
+        Map<String, Object> body = baseBody(fromId, messageTempId);
+        body.put("groupId", groupId);
+        return post("/group", token, body);
+    }
+
+    private Map<String, Object> baseBody(String fromId, String messageTempId) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("fromId", fromId);
+        body.put("messageTempId", messageTempId);
+        body.put("messageContentType", TEXT_CONTENT_TYPE);
+        body.put("messageTime", System.currentTimeMillis());
+        body.put("messageBody", Map.of("text", "pressure " + messageTempId));
+        body.put("extra", Map.of("from", "im-connect-pressure"));
+        return body;
+    }
+
+    private CompletableFuture<Boolean> post(String path, String token, Map<String, Object> body) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(apiUrl + path))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + token)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)))
+                    .build();
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> response.statusCode() / 100 == 2)
+                .exceptionally(e -> false);
+    }
+}
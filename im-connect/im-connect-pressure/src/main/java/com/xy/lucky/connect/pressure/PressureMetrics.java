@@ -8,6 +8,7 @@ public class PressureMetrics {
     final LongAdder connectSuccess = new LongAdder();
     final LongAdder connectFail = new LongAdder();
     final LongAdder reconnectScheduled = new LongAdder();
+    final LongAdder stormDisconnect = new LongAdder();
     final AtomicInteger activeConnections = new AtomicInteger(0);
 
     final LongAdder registerSent = new LongAdder();
@@ -15,27 +16,69 @@ public class PressureMetrics {
     final LongAdder heartbeatSent = new LongAdder();
     final LongAdder heartbeatAck = new LongAdder();
     final LongAdder businessSent = new LongAdder();
+    final LongAdder singleSent = new LongAdder();
+    final LongAdder groupSent = new LongAdder();
+    final LongAdder pushReceived = new LongAdder();
+    final LongAdder apiFail = new LongAdder();
+    final LongAdder probeLost = new LongAdder();
     final LongAdder sendFail = new LongAdder();
     final LongAdder received = new LongAdder();
 
-    final LongAdder handshakeLatencyMsTotal = new LongAdder();
-    final LongAdder handshakeLatencyCount = new LongAdder();
+    final LatencyRecorder handshakeLatency = new LatencyRecorder("handshake");
+    final LatencyRecorder registerLatency = new LatencyRecorder("register");
+    final LatencyRecorder heartbeatLatency = new LatencyRecorder("heartbeat");
+    final LatencyRecorder singleLatency = new LatencyRecorder("single");
+    final LatencyRecorder groupLatency = new LatencyRecorder("group");
+
+    LatencyRecorder latency(ProbeTracker.Kind kind) {
+        return switch (kind) {
+            case REGISTER -> registerLatency;
+            case HEARTBEAT -> heartbeatLatency;
+            case SINGLE -> singleLatency;
+            case GROUP -> groupLatency;
+        };
+    }
 
     String snapshotLine() {
-        long hsCount = handshakeLatencyCount.sum();
-        long avgHandshake = hsCount == 0 ? 0 : handshakeLatencyMsTotal.sum() / hsCount;
         return "attempt=" + connectAttempt.sum()
                 + ", success=" + connectSuccess.sum()
                 + ", fail=" + connectFail.sum()
                 + ", active=" + activeConnections.get()
                 + ", reconnect=" + reconnectScheduled.sum()
+                + ", storm=" + stormDisconnect.sum()
                 + ", regSent=" + registerSent.sum()
                 + ", regAck=" + registerAck.sum()
                 + ", hbSent=" + heartbeatSent.sum()
                 + ", hbAck=" + heartbeatAck.sum()
                 + ", bizSent=" + businessSent.sum()
+                + ", singleSent=" + singleSent.sum()
+                + ", groupSent=" + groupSent.sum()
+                + ", push=" + pushReceived.sum()
                 + ", recv=" + received.sum()
-                + ", sendFail=" + sendFail.sum()
-                + ", avgHandshakeMs=" + avgHandshake;
+                + ", apiFail=" + apiFail.sum()
+                + ", probeLost=" + probeLost.sum()
+                + ", sendFail=" + sendFail.sum();
+    }
+
+    /**
+     * 本打印周期内的延迟分布（读取后清零）
+     */
+    String intervalLatencyLine() {
+        return handshakeLatency.intervalLine()
+                + " " + registerLatency.intervalLine()
+                + " " + heartbeatLatency.intervalLine()
+                + " " + singleLatency.intervalLine()
+                + " " + groupLatency.intervalLine();
+    }
+
+    /**
+     * 全程延迟分布
+     */
+    String totalLatencyLine() {
+        return handshakeLatency.totalLine()
+                + " " + registerLatency.totalLine()
+                + " " + heartbeatLatency.totalLine()
+                + " " + singleLatency.totalLine()
+                + " " + groupLatency.totalLine();
     }
 }
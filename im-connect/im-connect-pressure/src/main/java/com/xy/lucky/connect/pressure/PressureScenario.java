@@ -0,0 +1,84 @@
+package com.xy.lucky.connect.pressure;
+
+import java.util.Locale;
+
+/**
+ * 压测场景：在连接/心跳基础上混合单聊、群聊扇出与重连风暴
+ * <p>
+ * 描述格式（逗号分隔，均可省略）：{@code single=200,group=5,heartbeat=25000,storm=60:0.3}
+ * <ul>
+ *   <li>single：每秒单聊消息数（发送方与接收方均为本实例连接，经消息服务 HTTP 接口投递）</li>
+ *   <li>group：每秒群聊消息数（群 ID 取自 --groupIds，发送方为随机在线连接）</li>
+ *   <li>heartbeat：心跳间隔毫秒，覆盖 --heartbeatIntervalMs</li>
+ *   <li>storm：每隔 N 秒同时断开比例为 R 的在线连接，触发集中重连</li>
+ * </ul>
+ */
+record PressureScenario(
+        int singlePerSecond,
+        int groupPerSecond,
+        int heartbeatIntervalMs,
+        int stormIntervalSeconds,
+        double stormRatio
+) {
+
+    static PressureScenario parse(String spec, int defaultHeartbeatIntervalMs) {
+        int single = 0;
+        int group = 0;
+        int heartbeat = defaultHeartbeatIntervalMs;
+        int stormInterval = 0;
+        double stormRatio = 0D;
+        if (spec != null && !spec.isBlank()) {
+            for (String part : spec.split(",")) {
+                String item = part.trim();
+                if (item.isEmpty()) {
+                    continue;
+                }
+                int idx = item.indexOf('=');
+                if (idx <= 0) {
+                    throw new IllegalArgumentException("scenario 片段格式错误: " + item);
+                }
+                String key = item.substring(0, idx).trim().toLowerCase(Locale.ROOT);
+                String value = item.substring(idx + 1).trim();
+                switch (key) {
+                    case "single" -> single = nonNegative(value, key);
+                    case "group" -> group = nonNegative(value, key);
+                    case "heartbeat" -> heartbeat = nonNegative(value, key);
+                    case "storm" -> {
+                        String[] pair = value.split(":");
+                        if (pair.length != 2) {
+                            throw new IllegalArgumentException("storm 格式应为 秒:比例，例如 storm=60:0.3");
+                        }
+                        stormInterval = nonNegative(pair[0].trim(), "storm 间隔");
+                        stormRatio = Double.parseDouble(pair[1].trim());
+                        if (stormRatio < 0 || stormRatio > 1) {
+                            throw new IllegalArgumentException("storm 比例必须在 0~1 之间");
+                        }
+                    }
+                    default -> throw new IllegalArgumentException("不支持的 scenario 项: " + key);
+                }
+            }
+        }
+        return new PressureScenario(single, group, heartbeat, stormInterval, stormRatio);
+    }
+
+    boolean hasChat() {
+        return singlePerSecond > 0 || groupPerSecond > 0;
+    }
+
+    boolean hasStorm() {
+        return stormIntervalSeconds > 0 && stormRatio > 0;
+    }
+
+    String describe() {
+        return "single=" + singlePerSecond + "/s, group=" + groupPerSecond + "/s, heartbeat=" + heartbeatIntervalMs
+                + "ms, storm=" + (hasStorm() ? stormIntervalSeconds + "s:" + stormRatio : "off");
+    }
+
+    private static int nonNegative(String value, String key) {
+        int result = Integer.parseInt(value);
+        if (result < 0) {
+            throw new IllegalArgumentException(key + " 不能小于 0");
+        }
+        return result;
+    }
+}
@@ -28,7 +28,11 @@ public record PressureTestConfig(
         int printIntervalSeconds,
         boolean autoReconnect,
         int reconnectDelayMs,
-        int workerThreads
+        int workerThreads,
+        PressureScenario scenario,
+        String apiUrl,
+        List<String> groupIds,
+        int probeTimeoutMs
 ) {
 
     enum Protocol {
@@ -58,6 +62,16 @@ public record PressureTestConfig(
         if (shardIndex >= shardTotal) {
             throw new IllegalArgumentException("shardIndex 必须小于 shardTotal");
         }
+        int heartbeatIntervalMs = parsePositiveInt(argMap.getOrDefault("heartbeatIntervalMs", "25000"), "heartbeatIntervalMs");
+        PressureScenario scenario = PressureScenario.parse(argMap.get("scenario"), heartbeatIntervalMs);
+        String apiUrl = trimToNull(argMap.get("apiUrl"));
+        List<String> groupIds = splitToList(argMap.get("groupIds"));
+        if (scenario.hasChat() && apiUrl == null) {
+            throw new IllegalArgumentException("scenario 包含单聊/群聊时必须提供 --apiUrl");
+        }
+        if (scenario.groupPerSecond() > 0 && groupIds.isEmpty()) {
+            throw new IllegalArgumentException("scenario 包含群聊时必须提供 --groupIds");
+        }
 
         return new PressureTestConfig(
                 url,
@@ -72,7 +86,7 @@ public record PressureTestConfig(
                 parsePositiveInt(argMap.getOrDefault("connections", "100"), "connections"),
                 parsePositiveInt(argMap.getOrDefault("connectRate", "50"), "connectRate"),
                 parsePositiveInt(argMap.getOrDefault("durationSeconds", "120"), "durationSeconds"),
-                parsePositiveInt(argMap.getOrDefault("heartbeatIntervalMs", "25000"), "heartbeatIntervalMs"),
+                heartbeatIntervalMs,
                 parseNonNegativeInt(argMap.getOrDefault("messageIntervalMs", "0"), "messageIntervalMs"),
                 parsePositiveInt(argMap.getOrDefault("messageCode", "1000"), "messageCode"),
                 parsePositiveInt(argMap.getOrDefault("registerCode", "200"), "registerCode"),
@@ -82,7 +96,11 @@ public record PressureTestConfig(
                 parsePositiveInt(argMap.getOrDefault("printIntervalSeconds", "5"), "printIntervalSeconds"),
                 Boolean.parseBoolean(argMap.getOrDefault("autoReconnect", "true")),
                 parsePositiveInt(argMap.getOrDefault("reconnectDelayMs", "3000"), "reconnectDelayMs"),
-                parsePositiveInt(argMap.getOrDefault("workerThreads", "4"), "workerThreads")
+                parsePositiveInt(argMap.getOrDefault("workerThreads", "4"), "workerThreads"),
+                scenario,
+                apiUrl,
+                groupIds,
+                parsePositiveInt(argMap.getOrDefault("probeTimeoutMs", "30000"), "probeTimeoutMs")
         );
     }
 
@@ -131,6 +149,17 @@ public record PressureTestConfig(
         }
     }
 
+    private static List<String> splitToList(String raw) {
+        String text = trimToNull(raw);
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(text.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
+
     private static Protocol parseProtocol(String raw) {
         String text = raw == null ? "" : raw.trim().toUpperCase(Locale.ROOT);
         return switch (text) {
@@ -203,6 +232,10 @@ public record PressureTestConfig(
                   --autoReconnect=true
                   --reconnectDelayMs=3000
                   --workerThreads=4
+                  --scenario=single=200,group=5,heartbeat=25000,storm=60:0.3
+                  --apiUrl=http://127.0.0.1:9090/api/message
+                  --groupIds=g1,g2
+                  --probeTimeoutMs=30000
                 """;
         System.out.println(help);
         System.exit(0);
@@ -0,0 +1,74 @@
+package com.xy.lucky.connect.pressure;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 往返探针：发送时以 requestId / messageTempId 登记发送时刻，收到回包或推送时计算往返耗时
+ * <p>
+ * 群聊消息会扇出到多个连接，收到时不移除，每次到达都记一次延迟，超时后统一清理
+ */
+class ProbeTracker {
+
+    enum Kind {
+        REGISTER, HEARTBEAT, SINGLE, GROUP
+    }
+
+    private record Probe(Kind kind, long sendNanos) {
+    }
+
+    private final Map<String, Probe> inflight = new ConcurrentHashMap<>();
+    private final PressureMetrics metrics;
+
+    ProbeTracker(PressureMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void start(String id, Kind kind) {
+        inflight.put(id, new Probe(kind, System.nanoTime()));
+    }
+
+    void cancel(String id) {
+        inflight.remove(id);
+    }
+
+    /**
+     * @return 是否命中已登记的探针
+     */
+    boolean complete(String id) {
+        if (id == null || id.isEmpty()) {
+            return false;
+        }
+        Probe probe = inflight.get(id);
+        if (probe == null) {
+            return false;
+        }
+        if (probe.kind() != Kind.GROUP && !inflight.remove(id, probe)) {
+            return false;
+        }
+        metrics.latency(probe.kind()).recordNanos(System.nanoTime() - probe.sendNanos());
+        return true;
+    }
+
+    /**
+     * 清理超时探针；非群聊探针超时计为丢失
+     */
+    void expire(long timeoutNanos) {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Probe>> it = inflight.entrySet().iterator();
+        while (it.hasNext()) {
+            Probe probe = it.next().getValue();
+            if (now - probe.sendNanos() > timeoutNanos) {
+                it.remove();
+                if (probe.kind() != Kind.GROUP) {
+                    metrics.probeLost.increment();
+                }
+            }
+        }
+    }
+
+    int inflight() {
+        return inflight.size();
+    }
+}
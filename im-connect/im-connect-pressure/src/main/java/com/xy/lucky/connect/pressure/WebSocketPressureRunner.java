@@ -3,6 +3,8 @@ package com.xy.lucky.connect.pressure;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xy.lucky.connect.domain.proto.IMessageProto;
+import com.xy.lucky.connect.utils.ProtoJsonUtils;
+import com.xy.lucky.core.utils.JwtUtil;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -32,9 +34,11 @@ import java.util.concurrent.atomic.AtomicLong;
 public class WebSocketPressureRunner {
     private static final Logger log = LoggerFactory.getLogger(WebSocketPressureRunner.class);
     private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int CHAT_TICK_MS = 100;
 
     private final PressureTestConfig config;
     private final PressureMetrics metrics = new PressureMetrics();
+    private final ProbeTracker probes = new ProbeTracker(metrics);
     private final AtomicBoolean running = new AtomicBoolean(true);
     private final ScheduledExecutorService scheduler;
     private final List<ClientSession> sessions;
@@ -45,6 +49,10 @@ public class WebSocketPressureRunner {
     private EventLoopGroup group;
     private Bootstrap bootstrap;
     private URI baseUri;
+    private MessageApiClient messageApiClient;
+    // 仅在聊天调度任务内读写（scheduleAtFixedRate 不会并发执行同一任务）
+    private double singleCredit;
+    private double groupCredit;
 
     public WebSocketPressureRunner(PressureTestConfig config) {
         this.config = config;
@@ -61,22 +69,38 @@ public class WebSocketPressureRunner {
                 .option(ChannelOption.SO_KEEPALIVE, true)
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.connectTimeoutMs());
-        log.info("pressure start, instanceTag={}, shard={}/{}, protocol={}, authMode={}, connections={}, connectRate={}/s",
+        PressureScenario scenario = config.scenario();
+        log.info("pressure start, instanceTag={}, shard={}/{}, protocol={}, authMode={}, connections={}, connectRate={}/s, scenario=[{}]",
                 config.instanceTag(), config.shardIndex(), config.shardTotal(), config.protocol(), config.authMode(),
-                config.connections(), config.connectRate());
+                config.connections(), config.connectRate(), scenario.describe());
 
-        scheduler.scheduleAtFixedRate(() -> log.info("metrics: {}", metrics.snapshotLine()),
+        scheduler.scheduleAtFixedRate(this::printMetrics,
                 config.printIntervalSeconds(),
                 config.printIntervalSeconds(),
                 TimeUnit.SECONDS);
 
-        if (config.heartbeatIntervalMs() > 0) {
+        if (scenario.heartbeatIntervalMs() > 0) {
             scheduler.scheduleAtFixedRate(this::broadcastHeartbeat,
-                    config.heartbeatIntervalMs(),
-                    config.heartbeatIntervalMs(),
+                    scenario.heartbeatIntervalMs(),
+                    scenario.heartbeatIntervalMs(),
                     TimeUnit.MILLISECONDS);
         }
 
+        if (scenario.hasChat()) {
+            this.messageApiClient = new MessageApiClient(config.apiUrl(), config.connectTimeoutMs());
+            scheduler.scheduleAtFixedRate(this::dispatchChatMessages,
+                    CHAT_TICK_MS,
+                    CHAT_TICK_MS,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        if (scenario.hasStorm()) {
+            scheduler.scheduleAtFixedRate(this::triggerReconnectStorm,
+                    scenario.stormIntervalSeconds(),
+                    scenario.stormIntervalSeconds(),
+                    TimeUnit.SECONDS);
+        }
+
         if (config.messageIntervalMs() > 0) {
             scheduler.scheduleAtFixedRate(this::broadcastBusinessMessage,
                     config.messageIntervalMs(),
@@ -88,6 +112,13 @@ public class WebSocketPressureRunner {
         scheduler.schedule(this::stop, config.durationSeconds(), TimeUnit.SECONDS);
         doneLatch.await();
         log.info("pressure test completed, final metrics: {}", metrics.snapshotLine());
+        log.info("pressure test completed, latency: {}", metrics.totalLatencyLine());
+    }
+
+    private void printMetrics() {
+        probes.expire(TimeUnit.MILLISECONDS.toNanos(config.probeTimeoutMs()));
+        log.info("metrics: {}, inflightProbes={}", metrics.snapshotLine(), probes.inflight());
+        log.info("latency: {}", metrics.intervalLatencyLine());
     }
 
     private void startConnectDispatcher() {
@@ -124,7 +155,7 @@ public class WebSocketPressureRunner {
         );
 
         Bootstrap perConnectionBootstrap = bootstrap.clone();
-        perConnectionBootstrap.handler(new ChannelInitializer<>() {
+        perConnectionBootstrap.handler(new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) {
                 ChannelPipeline pipeline = ch.pipeline();
@@ -144,7 +175,16 @@ public class WebSocketPressureRunner {
     }
 
     private void scheduleReconnect(ClientSession session) {
-        if (!running.get() || !config.autoReconnect()) {
+        if (!running.get()) {
+            return;
+        }
+        if (session.stormPending.compareAndSet(true, false)) {
+            // 重连风暴：所有被断开的连接几乎同时重连，只加很小的抖动
+            metrics.reconnectScheduled.increment();
+            scheduler.schedule(() -> connectSession(session), Math.floorMod(session.index, 50), TimeUnit.MILLISECONDS);
+            return;
+        }
+        if (!config.autoReconnect()) {
             return;
         }
         metrics.reconnectScheduled.increment();
@@ -158,7 +198,7 @@ public class WebSocketPressureRunner {
         }
         for (ClientSession session : sessions) {
             if (session.connected.get() && session.channel != null && session.channel.isActive()) {
-                sendMessage(session, 206, "heartbeat", true);
+                sendMessage(session, 206, "heartbeat", ProbeTracker.Kind.HEARTBEAT);
             }
         }
     }
@@ -169,22 +209,112 @@ public class WebSocketPressureRunner {
         }
         for (ClientSession session : sessions) {
             if (session.connected.get() && session.channel != null && session.channel.isActive()) {
-                sendMessage(session, config.messageCode(), "pressure-message", false);
+                sendMessage(session, config.messageCode(), "pressure-message", null);
+            }
+        }
+    }
+
+    private void dispatchChatMessages() {
+        if (!running.get()) {
+            return;
+        }
+        PressureScenario scenario = config.scenario();
+        singleCredit += scenario.singlePerSecond() * CHAT_TICK_MS / 1000D;
+        groupCredit += scenario.groupPerSecond() * CHAT_TICK_MS / 1000D;
+        int singles = (int) singleCredit;
+        int groups = (int) groupCredit;
+        singleCredit -= singles;
+        groupCredit -= groups;
+
+        for (int i = 0; i < singles; i++) {
+            ClientSession from = pickConnectedSession(null);
+            ClientSession to = from == null ? null : pickConnectedSession(from);
+            if (from == null || to == null) {
+                break;
+            }
+            String tempId = nextProbeId(from);
+            probes.start(tempId, ProbeTracker.Kind.SINGLE);
+            metrics.singleSent.increment();
+            messageApiClient.sendSingle(from.token, from.userId, to.userId, tempId)
+                    .thenAccept(ok -> onApiResult(ok, tempId));
+        }
+        List<String> groupIds = config.groupIds();
+        for (int i = 0; i < groups; i++) {
+            ClientSession from = pickConnectedSession(null);
+            if (from == null) {
+                break;
+            }
+            String groupId = groupIds.get(ThreadLocalRandom.current().nextInt(groupIds.size()));
+            String tempId = nextProbeId(from);
+            probes.start(tempId, ProbeTracker.Kind.GROUP);
+            metrics.groupSent.increment();
+            messageApiClient.sendGroup(from.token, from.userId, groupId, tempId)
+                    .thenAccept(ok -> onApiResult(ok, tempId));
+        }
+    }
+
+    private void onApiResult(boolean ok, String probeId) {
+        if (!ok) {
+            metrics.apiFail.increment();
+            probes.cancel(probeId);
+        }
+    }
+
+    /**
+     * 随机挑选一个已连接且能解析出用户 ID 的会话
+     *
+     * @param exclude 需要排除的会话（单聊时排除发送方自身），可为 null
+     */
+    private ClientSession pickConnectedSession(ClientSession exclude) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < 8; attempt++) {
+            ClientSession candidate = sessions.get(random.nextInt(sessions.size()));
+            if (candidate != exclude && candidate.userId != null && candidate.connected.get()) {
+                return candidate;
             }
         }
+        return null;
+    }
+
+    private void triggerReconnectStorm() {
+        if (!running.get()) {
+            return;
+        }
+        double ratio = config.scenario().stormRatio();
+        int dropped = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (ClientSession session : sessions) {
+            Channel channel = session.channel;
+            if (session.connected.get() && channel != null && channel.isActive() && random.nextDouble() < ratio) {
+                session.stormPending.set(true);
+                channel.close();
+                dropped++;
+            }
+        }
+        metrics.stormDisconnect.add(dropped);
+        log.info("reconnect storm triggered, dropped={}", dropped);
+    }
+
+    private String nextProbeId(ClientSession session) {
+        return session.requestIdPrefix + "-" + requestSeq.incrementAndGet();
     }
 
     private void sendRegister(ClientSession session) {
-        sendMessage(session, config.registerCode(), "register", false);
+        sendMessage(session, config.registerCode(), "register", ProbeTracker.Kind.REGISTER);
         metrics.registerSent.increment();
     }
 
-    private void sendMessage(ClientSession session, int code, String message, boolean heartbeat) {
-        WebSocketFrame frame = buildFrame(session, code, message);
+    private void sendMessage(ClientSession session, int code, String message, ProbeTracker.Kind probeKind) {
+        String requestId = nextProbeId(session);
+        WebSocketFrame frame = buildFrame(session, code, message, requestId);
+        if (probeKind != null) {
+            probes.start(requestId, probeKind);
+        }
         session.channel.writeAndFlush(frame).addListener((ChannelFutureListener) f -> {
             if (!f.isSuccess()) {
                 metrics.sendFail.increment();
-            } else if (heartbeat) {
+                probes.cancel(requestId);
+            } else if (probeKind == ProbeTracker.Kind.HEARTBEAT) {
                 metrics.heartbeatSent.increment();
             } else if (code == config.registerCode()) {
             } else {
@@ -193,9 +323,8 @@ public class WebSocketPressureRunner {
         });
     }
 
-    private WebSocketFrame buildFrame(ClientSession session, int code, String message) {
+    private WebSocketFrame buildFrame(ClientSession session, int code, String message, String requestId) {
         long now = Instant.now().toEpochMilli();
-        String requestId = session.requestIdPrefix + "-" + requestSeq.incrementAndGet();
         if (config.protocol() == PressureTestConfig.Protocol.JSON) {
             Map<String, Object> root = new LinkedHashMap<>();
             root.put("code", code);
@@ -224,22 +353,37 @@ public class WebSocketPressureRunner {
         return new BinaryWebSocketFrame(io.netty.buffer.Unpooled.wrappedBuffer(proto.toByteArray()));
     }
 
-    private int parseCode(WebSocketFrame frame) {
+    /**
+     * 解析服务端下行帧，只取统计所需字段；聊天推送额外取出 messageTempId 用于匹配往返探针
+     */
+    private Inbound parseInbound(WebSocketFrame frame) {
         try {
             if (frame instanceof TextWebSocketFrame textFrame) {
                 JsonNode node = MAPPER.readTree(textFrame.text());
-                return node.path("code").asInt(-1);
+                int code = node.path("code").asInt(-1);
+                String tempId = isChatCode(code) ? node.path("data").path("messageTempId").asText(null) : null;
+                return new Inbound(code, node.path("requestId").asText(null), tempId);
             }
             if (frame instanceof BinaryWebSocketFrame binaryFrame) {
                 IMessageProto.IMessageWrap proto = IMessageProto.IMessageWrap.parseFrom(binaryFrame.content().nioBuffer());
-                return proto.getCode();
+                String tempId = null;
+                if (isChatCode(proto.getCode()) && proto.hasData()
+                        && ProtoJsonUtils.unpackAny(proto.getData()) instanceof Map<?, ?> data
+                        && data.get("messageTempId") != null) {
+                    tempId = String.valueOf(data.get("messageTempId"));
+                }
+                return new Inbound(proto.getCode(), proto.getRequestId(), tempId);
             }
-            return -1;
+            return Inbound.UNKNOWN;
         } catch (Exception e) {
-            return -1;
+            return Inbound.UNKNOWN;
         }
     }
 
+    private static boolean isChatCode(int code) {
+        return code == 1000 || code == 1001;
+    }
+
     private URI buildUriForSession(ClientSession session) {
         if (config.authMode() == PressureTestConfig.AuthMode.URL) {
             String uri = appendQuery(baseUri.toString(), "token", session.token);
@@ -320,9 +464,7 @@ public class WebSocketPressureRunner {
             if (!handshaker.isHandshakeComplete()) {
                 FullHttpResponse response = (FullHttpResponse) msg;
                 handshaker.finishHandshake(ctx.channel(), response);
-                long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - session.connectStartNanos);
-                metrics.handshakeLatencyMsTotal.add(latencyMs);
-                metrics.handshakeLatencyCount.increment();
+                metrics.handshakeLatency.recordNanos(System.nanoTime() - session.connectStartNanos);
                 metrics.connectSuccess.increment();
                 if (session.connected.compareAndSet(false, true)) {
                     metrics.activeConnections.incrementAndGet();
@@ -335,12 +477,19 @@ public class WebSocketPressureRunner {
 
             if (msg instanceof WebSocketFrame frame) {
                 metrics.received.increment();
-                int code = parseCode(frame);
+                Inbound inbound = parseInbound(frame);
+                int code = inbound.code();
                 if (code == 209) {
                     metrics.registerAck.increment();
                 } else if (code == 207) {
                     metrics.heartbeatAck.increment();
                 }
+                if (isChatCode(code)) {
+                    metrics.pushReceived.increment();
+                    probes.complete(inbound.messageTempId());
+                } else {
+                    probes.complete(inbound.requestId());
+                }
                 if (frame instanceof CloseWebSocketFrame) {
                     ctx.close();
                 }
@@ -362,18 +511,33 @@ public class WebSocketPressureRunner {
         }
     }
 
+    private record Inbound(int code, String requestId, String messageTempId) {
+        static final Inbound UNKNOWN = new Inbound(-1, null, null);
+    }
+
     private static class ClientSession {
         final int index;
         final String token;
+        final String userId;
         final String requestIdPrefix;
         final AtomicBoolean connected = new AtomicBoolean(false);
+        final AtomicBoolean stormPending = new AtomicBoolean(false);
         volatile Channel channel;
         volatile long connectStartNanos;
 
         ClientSession(int index, String token, String instanceTag) {
             this.index = index;
             this.token = token;
+            this.userId = parseUserId(token);
             this.requestIdPrefix = instanceTag + "-" + index;
         }
+
+        private static String parseUserId(String token) {
+            try {
+                return token == null ? null : JwtUtil.getUsername(token);
+            } catch (Exception e) {
+                return null;
+            }
+        }
     }
 }
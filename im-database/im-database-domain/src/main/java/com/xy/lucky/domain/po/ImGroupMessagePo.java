@@ -73,6 +73,12 @@ public class ImGroupMessagePo extends BasePo {
     @TableField(value = "sequence")
     private Long sequence;
 
+    /**
+     * 群内消息序号（按群连续递增，未读数 = 群最大序号 - 成员已读游标）
+     */
+    @TableField(value = "group_seq")
+    private Long groupSeq;
+
     /**
      * 随机标识
      */
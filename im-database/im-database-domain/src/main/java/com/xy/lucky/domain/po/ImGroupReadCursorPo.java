@@ -0,0 +1,38 @@
+package com.xy.lucky.domain.po;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.xy.lucky.domain.BasePo;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "群聊成员已读游标")
+@TableName(value = "im_group_read_cursor", excludeProperty = {"delFlag"})
+public class ImGroupReadCursorPo extends BasePo {
+
+    /**
+     * 群组ID
+     */
+    @TableId(value = "group_id")
+    private String groupId;
+
+    /**
+     * 成员用户ID
+     */
+    @TableField(value = "member_id")
+    private String memberId;
+
+    /**
+     * 已读到的群内消息序号
+     */
+    @TableField(value = "read_seq")
+    private Long readSeq;
+}
@@ -43,11 +43,14 @@ public interface ImGroupMessageDubboService {
     Mono<Boolean> create(ImGroupMessagePo groupMessagePo);
 
     /**
-     * 批量创建群聊消息状态
+     * 批量创建群聊消息状态（写扩散旧模型，每成员每消息一行）
+     * <p>
+     * 已读状态改由成员已读游标推导，仅在迁移期双写时使用
      *
      * @param groupMessageStatusPoList 消息状态列表
      * @return 是否全部创建成功 Mono
      */
+    @Deprecated
     Mono<Boolean> createBatch(List<ImGroupMessageStatusPo> groupMessageStatusPoList);
 
     /**
@@ -76,12 +79,28 @@ public interface ImGroupMessageDubboService {
     Mono<ImGroupMessagePo> queryLast(String groupId, String userId);
 
     /**
-     * 查询群聊消息已读状态
+     * 标记成员在群内的消息为已读，即将成员已读游标推进到群内当前最大消息序号
+     *
+     * @param groupMessageStatusPo 群组消息状态（groupId、toId、readStatus）
+     * @return 游标是否前进 Mono
+     */
+    Mono<Boolean> modifyReadStatus(ImGroupMessageStatusPo groupMessageStatusPo);
+
+    /**
+     * 查询群聊消息已读状态数量，由群内最大消息序号与成员已读游标推导
      *
      * @param groupId 群组 ID
      * @param toId    接收者 ID
-     * @param code    状态码
+     * @param code    状态码（未读返回未读数，已读返回已读数）
      * @return 状态数量 Mono
      */
     Mono<Integer> queryReadStatus(String groupId, String toId, Integer code);
+
+    /**
+     * 查询群内当前最大消息序号
+     *
+     * @param groupId 群组 ID
+     * @return 最大消息序号，群内没有消息时返回 0
+     */
+    Mono<Long> queryMaxGroupSeq(String groupId);
 }
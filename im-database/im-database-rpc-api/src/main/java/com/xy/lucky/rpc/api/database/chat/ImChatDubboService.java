@@ -41,6 +41,18 @@ public interface ImChatDubboService {
      */
     Boolean modify(ImChatPo chatPo);
 
+    /**
+     * 批量推进同一会话对象下多个用户的会话时序（如群消息后更新所有成员的群会话）
+     * <p>
+     * 只更新已存在且时序小于 sequence 的会话，一条集合语句完成，不逐个查询
+     *
+     * @param toId     会话对象（对方用户ID或群组ID）
+     * @param chatType 会话类型
+     * @param sequence 时序
+     * @param ownerIds 会话所属用户
+     */
+    Boolean modifySequenceBatch(String toId, Integer chatType, Long sequence, List<String> ownerIds);
+
     /**
      * 创建或更新会话信息
      *
@@ -33,11 +33,14 @@ public interface ImGroupMessageDubboService {
     boolean creat(ImGroupMessagePo groupMessagePo);
 
     /**
-     * 批量插入群组消息
+     * 批量插入群组消息阅读状态（写扩散旧模型，每成员每消息一行）
+     * <p>
+     * 已读状态改由成员已读游标推导，仅在迁移期双写时使用
      *
-     * @param groupMessagePoList 群组消息列表
+     * @param groupMessagePoList 群组消息阅读状态列表
      * @return 是否成功
      */
+    @Deprecated
     boolean creatBatch(List<ImGroupMessageStatusPo> groupMessagePoList);
 
     /**
@@ -50,10 +53,10 @@ public interface ImGroupMessageDubboService {
 
 
     /**
-     * 批量更新群组消息
+     * 标记成员在群内的消息为已读，即将成员已读游标推进到群内当前最大消息序号
      *
-     * @param imGroupMessageStatusPo 群组消息状态
-     * @return 是否成功
+     * @param imGroupMessageStatusPo 群组消息状态（groupId、toId、readStatus）
+     * @return 游标是否前进
      */
     boolean modifyReadStatus(ImGroupMessageStatusPo imGroupMessageStatusPo);
 
@@ -75,12 +78,20 @@ public interface ImGroupMessageDubboService {
     ImGroupMessagePo queryLast(String groupId, String userId);
 
     /**
-     * 查询群组消息阅读状态
+     * 查询群组消息阅读状态数量，由群内最大消息序号与成员已读游标推导
      *
      * @param groupId 群组ID
-     * @param ownerId 群主ID
-     * @param code    群组消息状态码
-     * @return 群组消息阅读状态
+     * @param ownerId 成员ID
+     * @param code    群组消息状态码（未读返回未读数，已读返回已读数）
+     * @return 群组消息阅读状态数量
      */
     Integer queryReadStatus(String groupId, String ownerId, Integer code);
+
+    /**
+     * 查询群内当前最大消息序号
+     *
+     * @param groupId 群组ID
+     * @return 最大消息序号，群内没有消息时返回 0
+     */
+    Long queryMaxGroupSeq(String groupId);
 }
@@ -25,6 +25,14 @@ public interface IMOutboxDubboService {
      */
     IMOutboxPo queryOne(Long id);
 
+    /**
+     * 根据ID批量获取消息
+     *
+     * @param ids 消息ID列表
+     * @return 消息列表
+     */
+    List<IMOutboxPo> queryListByIds(List<Long> ids);
+
     /**
      * 保存消息
      *
@@ -49,6 +57,14 @@ public interface IMOutboxDubboService {
      */
     Boolean modify(IMOutboxPo outboxPo);
 
+    /**
+     * 批量更新消息（按主键，仅更新非空字段）
+     *
+     * @param list 待更新的消息列表
+     * @return 是否成功
+     */
+    Boolean modifyBatch(List<IMOutboxPo> list);
+
     /**
      * 保存或更新消息
      *
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -74,7 +75,12 @@ public class ImGroupMessageEntity {
     @Column("version")
     private Integer version;
 
-    @Schema(description = "阅读状态")
+    @Schema(description = "群内消息序号")
+    @Column("group_seq")
+    private Long groupSeq;
+
+    @ReadOnlyProperty
+    @Schema(description = "阅读状态（由成员已读游标推导，不落库）")
     @Column("read_status")
     private Integer readStatus;
 }
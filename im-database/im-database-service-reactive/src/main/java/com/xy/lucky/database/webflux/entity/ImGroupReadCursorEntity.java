@@ -0,0 +1,42 @@
+package com.xy.lucky.database.webflux.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Data
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("im_group_read_cursor")
+@Schema(description = "群成员已读游标实体")
+public class ImGroupReadCursorEntity {
+
+    @Schema(description = "群ID")
+    @Column("group_id")
+    private String groupId;
+
+    @Schema(description = "成员ID")
+    @Column("member_id")
+    private String memberId;
+
+    @Schema(description = "已读到的群内消息序号")
+    @Column("read_seq")
+    private Long readSeq;
+
+    @Schema(description = "创建时间")
+    @Column("create_time")
+    private Long createTime;
+
+    @Schema(description = "更新时间")
+    @Column("update_time")
+    private Long updateTime;
+
+    @Schema(description = "版本号")
+    @Column("version")
+    private Integer version;
+}
@@ -6,28 +6,44 @@ import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+/**
+ * 读扩散：成员已读状态由 im_group_read_cursor 推导，group_seq 不大于游标即为已读
+ */
 public interface ImGroupMessageRepository extends ReactiveCrudRepository<ImGroupMessageEntity, String> {
     @Query("""
-            select igm.*, igms.read_status
+            select igm.*,
+                   case when igm.group_seq <= coalesce(igrc.read_seq, 0) then 1 else 0 end as read_status
             from im_group_message igm
-            inner join im_group_message_status igms
-              on igm.message_id = igms.message_id and igm.group_id = igms.group_id
-            where igms.group_id = :groupId
-              and igms.to_id = :userId
-              and igm.message_time > :sequence
+            inner join im_group_member gm
+              on gm.group_id = igm.group_id and gm.member_id = :userId
+            left join im_group_read_cursor igrc
+              on igrc.group_id = igm.group_id and igrc.member_id = :userId
+            where igm.message_time > :sequence
+              and igm.message_time >= coalesce(gm.join_time, 0)
             order by igm.message_time
             """)
-    Flux<ImGroupMessageEntity> findListByUserIdAndSequence(String userId, String groupId, Long sequence);
+    Flux<ImGroupMessageEntity> findListByUserIdAndSequence(String userId, Long sequence);
 
     @Query("""
-            select igm.*, igms.read_status
+            select igm.*,
+                   case when igm.group_seq <= coalesce(igrc.read_seq, 0) then 1 else 0 end as read_status
             from im_group_message igm
-            inner join im_group_message_status igms
-              on igm.message_id = igms.message_id and igm.group_id = igms.group_id
-            where igms.group_id = :groupId
-              and igms.to_id = :userId
+            left join im_group_read_cursor igrc
+              on igrc.group_id = igm.group_id and igrc.member_id = :userId
+            where igm.group_id = :groupId
             order by igm.message_time desc
             limit 1
             """)
     Mono<ImGroupMessageEntity> findLastByGroupIdAndUserId(String groupId, String userId);
+
+    @Query("select coalesce(max(group_seq), 0) from im_group_message where group_id = :groupId")
+    Mono<Long> findMaxGroupSeq(String groupId);
+
+    @Query("""
+            select coalesce(max(group_seq), 0)
+            from im_group_message
+            where group_id = :groupId
+              and message_time < :messageTime
+            """)
+    Mono<Long> findMaxGroupSeqBefore(String groupId, Long messageTime);
 }
@@ -0,0 +1,29 @@
+package com.xy.lucky.database.webflux.repository;
+
+import com.xy.lucky.database.webflux.entity.ImGroupReadCursorEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+public interface ImGroupReadCursorRepository extends ReactiveCrudRepository<ImGroupReadCursorEntity, String> {
+
+    @Query("select read_seq from im_group_read_cursor where group_id = :groupId and member_id = :memberId")
+    Mono<Long> findReadSeq(String groupId, String memberId);
+
+    /**
+     * 推进已读游标：不存在时插入，存在时只前进不后退
+     */
+    @Modifying
+    @Query("""
+            insert into im_group_read_cursor (group_id, member_id, read_seq, create_time, update_time, version)
+            values (:groupId, :memberId, :readSeq, :updateTime, :updateTime, 1)
+            on conflict (group_id, member_id) do update
+            set read_seq = excluded.read_seq, update_time = excluded.update_time
+            where im_group_read_cursor.read_seq < excluded.read_seq
+            """)
+    Mono<Integer> advanceReadSeq(String groupId, String memberId, Long readSeq, Long updateTime);
+
+    @Query("select count(1) from im_group_read_cursor where group_id = :groupId and read_seq >= :groupSeq")
+    Mono<Long> countReadAtLeast(String groupId, Long groupSeq);
+}
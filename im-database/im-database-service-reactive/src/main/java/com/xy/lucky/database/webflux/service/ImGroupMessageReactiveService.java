@@ -4,8 +4,11 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xy.lucky.database.webflux.entity.ImGroupMessageEntity;
 import com.xy.lucky.database.webflux.entity.ImGroupMessageStatusEntity;
+import com.xy.lucky.core.enums.IMessageReadStatus;
+import com.xy.lucky.database.webflux.repository.ImGroupMemberRepository;
 import com.xy.lucky.database.webflux.repository.ImGroupMessageRepository;
 import com.xy.lucky.database.webflux.repository.ImGroupMessageStatusRepository;
+import com.xy.lucky.database.webflux.repository.ImGroupReadCursorRepository;
 import com.xy.lucky.domain.po.ImGroupMessagePo;
 import com.xy.lucky.domain.po.ImGroupMessageStatusPo;
 import com.xy.lucky.database.rpc.api.database.message.ImGroupMessageDubboService;
@@ -16,6 +19,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @DubboService
@@ -23,11 +27,13 @@ import java.util.List;
 public class ImGroupMessageReactiveService implements ImGroupMessageDubboService {
     private final ImGroupMessageRepository repository;
     private final ImGroupMessageStatusRepository statusRepository;
+    private final ImGroupReadCursorRepository cursorRepository;
+    private final ImGroupMemberRepository memberRepository;
     private final ObjectMapper objectMapper;
 
     @Override
     public Flux<ImGroupMessagePo> queryList(String userId, Long sequence) {
-        return repository.findListByUserIdAndSequence(userId, userId, sequence).map(this::toPo);
+        return repository.findListByUserIdAndSequence(userId, sequence).map(this::toPo);
     }
 
     @Override
@@ -61,9 +67,51 @@ public class ImGroupMessageReactiveService implements ImGroupMessageDubboService
         return repository.findLastByGroupIdAndUserId(groupId, userId).map(this::toPo);
     }
 
+    @Override
+    public Mono<Boolean> modifyReadStatus(ImGroupMessageStatusPo groupMessageStatusPo) {
+        // 游标只前进，标记未读不回退
+        if (!Objects.equals(groupMessageStatusPo.getReadStatus(), IMessageReadStatus.ALREADY_READ.getCode())) {
+            return Mono.just(false);
+        }
+        String groupId = groupMessageStatusPo.getGroupId();
+        return queryMaxGroupSeq(groupId)
+                .flatMap(maxSeq -> cursorRepository.advanceReadSeq(groupId, groupMessageStatusPo.getToId(), maxSeq,
+                        System.currentTimeMillis()))
+                .map(count -> count > 0);
+    }
+
+    /**
+     * 未读数 = 群最大序号 - max(已读游标, 入群基线)；已读数只统计入群之后的消息
+     */
     @Override
     public Mono<Integer> queryReadStatus(String groupId, String toId, Integer code) {
-        return statusRepository.countReadStatus(groupId, toId, code);
+        return Mono.zip(queryMaxGroupSeq(groupId), cursorRepository.findReadSeq(groupId, toId).defaultIfEmpty(0L))
+                .flatMap(t -> {
+                    long maxSeq = t.getT1();
+                    long cursor = t.getT2();
+                    // 游标已到最新时无需再查入群基线
+                    Mono<Long> baseline = cursor >= maxSeq ? Mono.just(0L) : queryJoinBaseline(groupId, toId);
+                    return baseline.map(base -> {
+                        long read = Math.min(maxSeq, Math.max(cursor, base));
+                        long count = Objects.equals(code, IMessageReadStatus.UNREAD.getCode()) ? maxSeq - read : read - base;
+                        return (int) Math.min(Integer.MAX_VALUE, Math.max(0L, count));
+                    });
+                });
+    }
+
+    @Override
+    public Mono<Long> queryMaxGroupSeq(String groupId) {
+        return repository.findMaxGroupSeq(groupId).defaultIfEmpty(0L);
+    }
+
+    /**
+     * 成员入群时间之前的最大群内序号，新成员或重新入群的成员不把入群前的历史计入未读
+     */
+    private Mono<Long> queryJoinBaseline(String groupId, String memberId) {
+        return memberRepository.findFirstByGroupIdAndMemberId(groupId, memberId)
+                .filter(member -> member.getJoinTime() != null)
+                .flatMap(member -> repository.findMaxGroupSeqBefore(groupId, member.getJoinTime()))
+                .defaultIfEmpty(0L);
     }
 
     private ImGroupMessagePo toPo(ImGroupMessageEntity e) {
@@ -96,6 +144,7 @@ public class ImGroupMessageReactiveService implements ImGroupMessageDubboService
         }
         p.setDelFlag(e.getDelFlag());
         p.setSequence(e.getSequence());
+        p.setGroupSeq(e.getGroupSeq());
         p.setMessageRandom(e.getMessageRandom());
         p.setCreateTime(e.getCreateTime());
         p.setUpdateTime(e.getUpdateTime());
@@ -134,11 +183,11 @@ public class ImGroupMessageReactiveService implements ImGroupMessageDubboService
         }
         e.setDelFlag(p.getDelFlag());
         e.setSequence(p.getSequence());
+        e.setGroupSeq(p.getGroupSeq());
         e.setMessageRandom(p.getMessageRandom());
         e.setCreateTime(p.getCreateTime());
         e.setUpdateTime(p.getUpdateTime());
         e.setVersion(p.getVersion());
-        e.setReadStatus(p.getReadStatus());
         return e;
     }
 
@@ -1,7 +1,9 @@
 package com.xy.lucky.database.webflux.service;
 
-import com.xy.lucky.database.webflux.entity.ImGroupMessageStatusEntity;
-import com.xy.lucky.database.webflux.repository.ImGroupMessageStatusRepository;
+import com.xy.lucky.core.enums.IMessageReadStatus;
+import com.xy.lucky.database.webflux.entity.ImGroupMessageEntity;
+import com.xy.lucky.database.webflux.repository.ImGroupMessageRepository;
+import com.xy.lucky.database.webflux.repository.ImGroupReadCursorRepository;
 import com.xy.lucky.domain.po.ImGroupMessageStatusPo;
 import com.xy.lucky.database.rpc.api.database.message.ImGroupMessageStatusDubboService;
 import lombok.RequiredArgsConstructor;
@@ -11,32 +13,32 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * 群消息阅读状态（读扩散）
+ * <p>
+ * 不再按成员逐条读写 im_group_message_status，单条消息的已读状态由成员已读游标推导：
+ * 消息 group_seq 不大于成员 read_seq 即为已读；标记某条消息已读即把游标推进到该消息序号
+ */
 @Service
 @DubboService
 @RequiredArgsConstructor
 public class ImGroupMessageStatusReactiveService implements ImGroupMessageStatusDubboService {
 
-    private final ImGroupMessageStatusRepository repository;
+    private final ImGroupMessageRepository messageRepository;
+    private final ImGroupReadCursorRepository cursorRepository;
 
     @Override
     public Mono<Boolean> saveOrUpdate(ImGroupMessageStatusPo statusPo) {
-        return repository.findByGroupIdAndMessageIdAndToId(statusPo.getGroupId(), statusPo.getMessageId(), statusPo.getToId())
-                .flatMap(entity -> {
-                    // Update
-                    entity.setReadStatus(statusPo.getReadStatus());
-                    entity.setUpdateTime(System.currentTimeMillis());
-                    return repository.save(entity);
-                })
-                .switchIfEmpty(Mono.defer(() -> {
-                    // Create
-                    ImGroupMessageStatusEntity entity = fromPo(statusPo);
-                    entity.setCreateTime(System.currentTimeMillis());
-                    entity.setUpdateTime(System.currentTimeMillis());
-                    entity.setVersion(1);
-                    return repository.save(entity);
-                }))
-                .map(e -> true);
+        // 游标只前进，标记未读不回退
+        if (!Objects.equals(statusPo.getReadStatus(), IMessageReadStatus.ALREADY_READ.getCode())) {
+            return Mono.just(true);
+        }
+        return findGroupSeq(statusPo.getGroupId(), statusPo.getMessageId())
+                .flatMap(groupSeq -> cursorRepository.advanceReadSeq(statusPo.getGroupId(), statusPo.getToId(), groupSeq,
+                        System.currentTimeMillis()))
+                .thenReturn(true);
     }
 
     @Override
@@ -48,36 +50,30 @@ public class ImGroupMessageStatusReactiveService implements ImGroupMessageStatus
 
     @Override
     public Mono<ImGroupMessageStatusPo> queryOne(String groupId, String messageId, String toId) {
-        return repository.findByGroupIdAndMessageIdAndToId(groupId, messageId, toId)
-                .map(this::toPo);
+        return findGroupSeq(groupId, messageId)
+                .flatMap(groupSeq -> cursorRepository.findReadSeq(groupId, toId).defaultIfEmpty(0L)
+                        .map(readSeq -> new ImGroupMessageStatusPo()
+                                .setGroupId(groupId)
+                                .setMessageId(messageId)
+                                .setToId(toId)
+                                .setReadStatus(groupSeq <= readSeq
+                                        ? IMessageReadStatus.ALREADY_READ.getCode()
+                                        : IMessageReadStatus.UNREAD.getCode())));
     }
 
     @Override
     public Mono<Long> countRead(String groupId, String messageId) {
-        return repository.countRead(groupId, messageId);
+        return findGroupSeq(groupId, messageId)
+                .flatMap(groupSeq -> cursorRepository.countReadAtLeast(groupId, groupSeq))
+                .defaultIfEmpty(0L);
     }
 
-    private ImGroupMessageStatusPo toPo(ImGroupMessageStatusEntity e) {
-        ImGroupMessageStatusPo p = new ImGroupMessageStatusPo();
-        p.setGroupId(e.getGroupId());
-        p.setMessageId(e.getMessageId());
-        p.setToId(e.getToId());
-        p.setReadStatus(e.getReadStatus());
-        p.setCreateTime(e.getCreateTime());
-        p.setUpdateTime(e.getUpdateTime());
-        p.setVersion(e.getVersion());
-        return p;
-    }
-
-    private ImGroupMessageStatusEntity fromPo(ImGroupMessageStatusPo p) {
-        ImGroupMessageStatusEntity e = new ImGroupMessageStatusEntity();
-        e.setGroupId(p.getGroupId());
-        e.setMessageId(p.getMessageId());
-        e.setToId(p.getToId());
-        e.setReadStatus(p.getReadStatus());
-        e.setCreateTime(p.getCreateTime());
-        e.setUpdateTime(p.getUpdateTime());
-        e.setVersion(p.getVersion());
-        return e;
+    /**
+     * 消息的群内序号；消息不存在、不属于该群或没有序号时为空
+     */
+    private Mono<Long> findGroupSeq(String groupId, String messageId) {
+        return messageRepository.findById(messageId)
+                .filter(message -> Objects.equals(message.getGroupId(), groupId))
+                .mapNotNull(ImGroupMessageEntity::getGroupSeq);
     }
 }
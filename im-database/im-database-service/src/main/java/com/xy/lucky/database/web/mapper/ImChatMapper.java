@@ -13,6 +13,10 @@ public interface ImChatMapper extends BaseMapper<ImChatPo> {
 
 
     List<ImChatPo> getChatList(@Param("ownerId") String ownerId, @Param("sequence") Long sequence);
+
+    int updateSequenceByOwners(@Param("toId") String toId, @Param("chatType") Integer chatType,
+                               @Param("sequence") Long sequence, @Param("ownerIds") List<String> ownerIds,
+                               @Param("updateTime") Long updateTime);
 }
 
 
@@ -6,6 +6,7 @@ import com.xy.lucky.domain.po.ImGroupMessagePo;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,11 +18,13 @@ public interface ImGroupMessageMapper extends BaseMapper<ImGroupMessagePo> {
 
     List<ImGroupMessagePo> selectGroupMessageByGroupId(@Param("userId") String userId, @Param("groupId") String groupId, @Param("sequence") Long sequence);
 
-    List<ImGroupMessagePo> selectGroupMessage(@Param("userId") String userId, @Param("sequence") Long sequence);
+    List<ImGroupMessagePo> selectGroupMessageByGroupIds(@Param("userId") String userId, @Param("groupIds") Collection<String> groupIds, @Param("sequence") Long sequence);
 
     ImGroupMessagePo selectLastGroupMessage(@Param("userId") String userId, @Param("groupId") String groupId);
 
-    Integer selectReadStatus(@Param("groupId") String groupId, @Param("toId") String toId, @Param("status") Integer code);
+    Long selectMaxGroupSeq(@Param("groupId") String groupId);
+
+    Long selectMaxGroupSeqBefore(@Param("groupId") String groupId, @Param("messageTime") Long messageTime);
 
 }
 
@@ -0,0 +1,19 @@
+package com.xy.lucky.database.web.mapper;
+
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.xy.lucky.domain.po.ImGroupReadCursorPo;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * @description 针对表【im_group_read_cursor】的数据库操作Mapper
+ */
+@Mapper
+public interface ImGroupReadCursorMapper extends BaseMapper<ImGroupReadCursorPo> {
+
+    Long selectReadSeq(@Param("groupId") String groupId, @Param("memberId") String memberId);
+
+    int advanceReadSeq(@Param("groupId") String groupId, @Param("memberId") String memberId,
+                       @Param("readSeq") Long readSeq, @Param("updateTime") Long updateTime);
+}
@@ -28,6 +28,14 @@ public class IMOutboxService extends ServiceImpl<IMOutboxPoMapper, IMOutboxPo> i
         return super.getById(id);
     }
 
+    @Override
+    public List<IMOutboxPo> queryListByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return imOutboxPoMapper.selectByIds(ids);
+    }
+
     @Override
     public boolean creatOrModify(IMOutboxPo outboxPo) {
         return imOutboxPoMapper.insertOrUpdate(outboxPo);
@@ -48,6 +56,14 @@ public class IMOutboxService extends ServiceImpl<IMOutboxPoMapper, IMOutboxPo> i
         return super.updateById(outboxPo);
     }
 
+    @Override
+    public Boolean modifyBatch(List<IMOutboxPo> list) {
+        if (list == null || list.isEmpty()) {
+            return false;
+        }
+        return super.updateBatchById(list);
+    }
+
     @Override
     public Boolean removeOne(Long id) {
         return super.removeById(id);
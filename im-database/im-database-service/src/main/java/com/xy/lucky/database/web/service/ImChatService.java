@@ -4,12 +4,17 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.xy.lucky.database.web.mapper.ImChatMapper;
+import com.xy.lucky.database.web.utils.DateTimeUtils;
+import com.xy.lucky.database.web.utils.MybatisBatchExecutor;
 import com.xy.lucky.domain.po.ImChatPo;
 import com.xy.lucky.rpc.api.database.chat.ImChatDubboService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboService;
+import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 
@@ -20,8 +25,15 @@ import java.util.Objects;
 public class ImChatService extends ServiceImpl<ImChatMapper, ImChatPo>
         implements ImChatDubboService {
 
+    /**
+     * 单条 IN 列表的最大用户数，超出后分片并通过批量执行器一次提交
+     */
+    private static final int SEQUENCE_BATCH_SIZE = 1000;
+
     private final ImChatMapper imChatMapper;
 
+    private final MybatisBatchExecutor batchExecutor;
+
     @Override
     public List<ImChatPo> queryList(String ownerId, Long sequence) {
         return imChatMapper.getChatList(ownerId, sequence);
@@ -48,6 +60,25 @@ public class ImChatService extends ServiceImpl<ImChatMapper, ImChatPo>
         return super.updateById(chatPo);
     }
 
+    @Override
+    public Boolean modifySequenceBatch(String toId, Integer chatType, Long sequence, List<String> ownerIds) {
+        if (CollectionUtils.isEmpty(ownerIds) || Objects.isNull(sequence)) {
+            return false;
+        }
+        List<String> owners = new ArrayList<>(new LinkedHashSet<>(ownerIds));
+        long updateTime = DateTimeUtils.getUTCDateTime();
+        if (owners.size() <= SEQUENCE_BATCH_SIZE) {
+            return imChatMapper.updateSequenceByOwners(toId, chatType, sequence, owners, updateTime) > 0;
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < owners.size(); i += SEQUENCE_BATCH_SIZE) {
+            chunks.add(owners.subList(i, Math.min(i + SEQUENCE_BATCH_SIZE, owners.size())));
+        }
+        batchExecutor.batchSave(chunks, ImChatMapper.class,
+                (mapper, chunk) -> mapper.updateSequenceByOwners(toId, chatType, sequence, chunk, updateTime));
+        return true;
+    }
+
     @Override
     public Boolean creatOrModify(ImChatPo chatPo) {
         return super.saveOrUpdate(chatPo);
@@ -1,16 +1,27 @@
 package com.xy.lucky.database.web.service;
 
-import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.xy.lucky.core.enums.IMessageReadStatus;
+import com.xy.lucky.database.web.mapper.ImGroupMemberMapper;
 import com.xy.lucky.database.web.mapper.ImGroupMessageMapper;
 import com.xy.lucky.database.web.mapper.ImGroupMessageStatusMapper;
+import com.xy.lucky.database.web.mapper.ImGroupReadCursorMapper;
+import com.xy.lucky.database.web.utils.DateTimeUtils;
+import com.xy.lucky.domain.po.ImGroupMemberPo;
 import com.xy.lucky.domain.po.ImGroupMessagePo;
 import com.xy.lucky.domain.po.ImGroupMessageStatusPo;
+import com.xy.lucky.domain.po.ImGroupReadCursorPo;
 import com.xy.lucky.rpc.api.database.message.ImGroupMessageDubboService;
 import lombok.RequiredArgsConstructor;
 import org.apache.dubbo.config.annotation.DubboService;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @DubboService
 @RequiredArgsConstructor
@@ -21,9 +32,26 @@ public class ImGroupMessageService extends ServiceImpl<ImGroupMessageMapper, ImG
 
     private final ImGroupMessageStatusMapper imGroupMessageStatusMapper;
 
+    private final ImGroupReadCursorMapper imGroupReadCursorMapper;
+
+    private final ImGroupMemberMapper imGroupMemberMapper;
+
     @Override
     public List<ImGroupMessagePo> queryList(String userId, Long sequence) {
-        return imGroupMessageMapper.selectGroupMessage(userId, sequence);
+        // 群ID -> 入群时间，只返回入群之后的消息
+        Map<String, Long> joinTimes = imGroupMemberMapper.selectList(new LambdaQueryWrapper<ImGroupMemberPo>()
+                        .select(ImGroupMemberPo::getGroupId, ImGroupMemberPo::getJoinTime)
+                        .eq(ImGroupMemberPo::getMemberId, userId))
+                .stream()
+                .collect(Collectors.toMap(ImGroupMemberPo::getGroupId,
+                        m -> m.getJoinTime() == null ? 0L : m.getJoinTime(), Math::max));
+        if (joinTimes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return imGroupMessageMapper.selectGroupMessageByGroupIds(userId, joinTimes.keySet(), sequence)
+                .stream()
+                .filter(m -> m.getMessageTime() == null || m.getMessageTime() >= joinTimes.get(m.getGroupId()))
+                .toList();
     }
 
     @Override
@@ -48,11 +76,12 @@ public class ImGroupMessageService extends ServiceImpl<ImGroupMessageMapper, ImG
 
     @Override
     public boolean modifyReadStatus(ImGroupMessageStatusPo imGroupMessageStatusPo) {
-        LambdaUpdateWrapper<ImGroupMessageStatusPo> updateWrapper = new LambdaUpdateWrapper<>();
-        updateWrapper.eq(ImGroupMessageStatusPo::getGroupId, imGroupMessageStatusPo.getGroupId())
-                .eq(ImGroupMessageStatusPo::getToId, imGroupMessageStatusPo.getToId())
-                .set(ImGroupMessageStatusPo::getReadStatus, imGroupMessageStatusPo.getReadStatus());
-        return imGroupMessageStatusMapper.update(updateWrapper) > 0;
+        // 游标只前进，标记未读不回退
+        if (!Objects.equals(imGroupMessageStatusPo.getReadStatus(), IMessageReadStatus.ALREADY_READ.getCode())) {
+            return false;
+        }
+        String groupId = imGroupMessageStatusPo.getGroupId();
+        return advanceReadCursor(groupId, imGroupMessageStatusPo.getToId(), queryMaxGroupSeq(groupId));
     }
 
     @Override
@@ -66,9 +95,65 @@ public class ImGroupMessageService extends ServiceImpl<ImGroupMessageMapper, ImG
     }
 
 
+    /**
+     * 未读数 = 群最大序号 - max(已读游标, 入群基线)；已读数只统计入群之后的消息
+     * <p>
+     * 入群基线为入群时间之前的最大序号：新成员尚无游标、或退群后重新入群时，入群前的历史消息不计入未读
+     */
     @Override
     public Integer queryReadStatus(String groupId, String toId, Integer code) {
-        return imGroupMessageMapper.selectReadStatus(groupId, toId, code);
+        long maxSeq = queryMaxGroupSeq(groupId);
+        Long readSeq = imGroupReadCursorMapper.selectReadSeq(groupId, toId);
+        long cursor = readSeq == null ? 0L : readSeq;
+        // 游标已到最新时无需再查入群基线
+        long baseline = cursor >= maxSeq ? 0L : queryJoinBaseline(groupId, toId);
+        long read = Math.min(maxSeq, Math.max(cursor, baseline));
+        long count = Objects.equals(code, IMessageReadStatus.UNREAD.getCode()) ? maxSeq - read : read - baseline;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0L, count));
+    }
+
+    @Override
+    public Long queryMaxGroupSeq(String groupId) {
+        Long maxSeq = imGroupMessageMapper.selectMaxGroupSeq(groupId);
+        return maxSeq == null ? 0L : maxSeq;
+    }
+
+    /**
+     * 成员入群时间之前的最大群内序号，成员不存在或无入群时间时返回 0
+     */
+    private long queryJoinBaseline(String groupId, String memberId) {
+        ImGroupMemberPo member = imGroupMemberMapper.selectOne(new LambdaQueryWrapper<ImGroupMemberPo>()
+                .select(ImGroupMemberPo::getJoinTime)
+                .eq(ImGroupMemberPo::getGroupId, groupId)
+                .eq(ImGroupMemberPo::getMemberId, memberId)
+                .last("limit 1"));
+        if (member == null || member.getJoinTime() == null) {
+            return 0L;
+        }
+        Long seq = imGroupMessageMapper.selectMaxGroupSeqBefore(groupId, member.getJoinTime());
+        return seq == null ? 0L : seq;
+    }
+
+    /**
+     * 推进成员已读游标：先条件更新，游标不存在时插入，并发插入冲突时再更新一次
+     */
+    private boolean advanceReadCursor(String groupId, String memberId, long readSeq) {
+        long now = DateTimeUtils.getUTCDateTime();
+        if (imGroupReadCursorMapper.advanceReadSeq(groupId, memberId, readSeq, now) > 0) {
+            return true;
+        }
+        if (imGroupReadCursorMapper.selectReadSeq(groupId, memberId) != null) {
+            return false;
+        }
+        try {
+            ImGroupReadCursorPo cursor = new ImGroupReadCursorPo()
+                    .setGroupId(groupId)
+                    .setMemberId(memberId)
+                    .setReadSeq(readSeq);
+            return imGroupReadCursorMapper.insert(cursor) > 0;
+        } catch (DuplicateKeyException e) {
+            return imGroupReadCursorMapper.advanceReadSeq(groupId, memberId, readSeq, now) > 0;
+        }
     }
 
 }
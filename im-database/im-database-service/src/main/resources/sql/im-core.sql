@@ -327,7 +327,8 @@ CREATE TABLE "public"."im_group_message" (
   "create_time" int8 NOT NULL,
   "update_time" int8,
   "version" int8,
-  "reply_to" varchar(255) COLLATE "pg_catalog"."default"
+  "reply_to" varchar(255) COLLATE "pg_catalog"."default",
+  "group_seq" int8
 )
 ;
 COMMENT ON COLUMN "public"."im_group_message"."message_id" IS '消息ID';
@@ -344,6 +345,28 @@ COMMENT ON COLUMN "public"."im_group_message"."create_time" IS '创建时间';
 COMMENT ON COLUMN "public"."im_group_message"."update_time" IS '更新时间';
 COMMENT ON COLUMN "public"."im_group_message"."version" IS '版本信息';
 COMMENT ON COLUMN "public"."im_group_message"."reply_to" IS '被引用的消息 ID';
+COMMENT ON COLUMN "public"."im_group_message"."group_seq" IS '群内消息序号（按群连续递增）';
+
+-- ----------------------------
+-- Table structure for im_group_read_cursor
+-- ----------------------------
+DROP TABLE IF EXISTS "public"."im_group_read_cursor";
+CREATE TABLE "public"."im_group_read_cursor" (
+  "group_id" varchar(250) COLLATE "pg_catalog"."default" NOT NULL,
+  "member_id" varchar(250) COLLATE "pg_catalog"."default" NOT NULL,
+  "read_seq" int8 NOT NULL DEFAULT 0,
+  "create_time" int8,
+  "update_time" int8,
+  "version" int8
+)
+;
+COMMENT ON COLUMN "public"."im_group_read_cursor"."group_id" IS '群组ID';
+COMMENT ON COLUMN "public"."im_group_read_cursor"."member_id" IS '成员用户ID';
+COMMENT ON COLUMN "public"."im_group_read_cursor"."read_seq" IS '已读到的群内消息序号';
+COMMENT ON COLUMN "public"."im_group_read_cursor"."create_time" IS '创建时间';
+COMMENT ON COLUMN "public"."im_group_read_cursor"."update_time" IS '更新时间';
+COMMENT ON COLUMN "public"."im_group_read_cursor"."version" IS '版本信息';
+COMMENT ON TABLE "public"."im_group_read_cursor" IS '群聊成员已读游标（读扩散），未读数 = 群最大 group_seq - read_seq';
 
 -- ----------------------------
 -- Table structure for im_group_message_status
@@ -670,12 +693,21 @@ ALTER TABLE "public"."im_group_member" ADD CONSTRAINT "im_group_member_pkey" PRI
 CREATE INDEX "idx_group_msg_group" ON "public"."im_group_message" USING btree (
   "group_id" COLLATE "pg_catalog"."default" "pg_catalog"."text_ops" ASC NULLS LAST
 );
+CREATE INDEX "idx_group_msg_group_seq" ON "public"."im_group_message" USING btree (
+  "group_id" COLLATE "pg_catalog"."default" "pg_catalog"."text_ops" ASC NULLS LAST,
+  "group_seq" "pg_catalog"."int8_ops" ASC NULLS LAST
+);
 
 -- ----------------------------
 -- Primary Key structure for table im_group_message
 -- ----------------------------
 ALTER TABLE "public"."im_group_message" ADD CONSTRAINT "im_group_message_pkey" PRIMARY KEY ("message_id");
 
+-- ----------------------------
+-- Primary Key structure for table im_group_read_cursor
+-- ----------------------------
+ALTER TABLE "public"."im_group_read_cursor" ADD CONSTRAINT "im_group_read_cursor_pkey" PRIMARY KEY ("group_id", "member_id");
+
 -- ----------------------------
 -- Primary Key structure for table im_group_message_status
 -- ----------------------------
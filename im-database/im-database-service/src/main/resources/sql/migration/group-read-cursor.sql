@@ -0,0 +1,99 @@
+/*
+ 群聊已读状态迁移：写扩散（im_group_message_status 每成员每消息一行）-> 读扩散（群内序号 + 成员已读游标）
+
+ Target Server Type    : PostgreSQL
+
+ 执行顺序：
+ 1. 执行本脚本第 1、2、3 步（可重复执行），回填历史消息的 group_seq 与成员游标
+ 2. 发布 im-database，再发布 im-message；message 首次为某群分配序号时从 max(group_seq) 初始化 Redis 计数器，
+    因此第 2 步必须在 im-message 发布前完成
+ 3. 观察期内如需保留回滚能力，可在 im-message 配置 message.group-read.legacy-status-enabled=true 继续双写状态表
+ 4. 确认无需回滚后关闭双写，并执行第 4 步清理状态表
+
+ 说明：
+ - 回填游标按 read_seq = 群最大序号 - 该成员未读行数 计算，迁移前后未读数保持一致
+ - 没有任何状态行的成员在旧模型下未读数为 0，游标按群最大序号初始化（第 3 步第二段），避免迁移后出现整群历史未读
+ - 迁移后新入群的成员没有游标，未读数按入群时间之前的最大序号作为基线计算，不会把入群前的历史计入未读
+ - 第 2 步之后、im-message 发布之前由旧实例写入的消息 group_seq 为空，不计入未读数
+*/
+
+-- ----------------------------
+-- 1. 表结构
+-- ----------------------------
+ALTER TABLE "public"."im_group_message" ADD COLUMN IF NOT EXISTS "group_seq" int8;
+COMMENT ON COLUMN "public"."im_group_message"."group_seq" IS '群内消息序号（按群连续递增）';
+
+CREATE TABLE IF NOT EXISTS "public"."im_group_read_cursor" (
+  "group_id" varchar(250) COLLATE "pg_catalog"."default" NOT NULL,
+  "member_id" varchar(250) COLLATE "pg_catalog"."default" NOT NULL,
+  "read_seq" int8 NOT NULL DEFAULT 0,
+  "create_time" int8,
+  "update_time" int8,
+  "version" int8,
+  CONSTRAINT "im_group_read_cursor_pkey" PRIMARY KEY ("group_id", "member_id")
+)
+;
+COMMENT ON TABLE "public"."im_group_read_cursor" IS '群聊成员已读游标（读扩散），未读数 = 群最大 group_seq - read_seq';
+
+-- 大表建议单独执行 CREATE INDEX CONCURRENTLY（不能放在事务内）
+CREATE INDEX IF NOT EXISTS "idx_group_msg_group_seq" ON "public"."im_group_message" USING btree (
+  "group_id" COLLATE "pg_catalog"."default" "pg_catalog"."text_ops" ASC NULLS LAST,
+  "group_seq" "pg_catalog"."int8_ops" ASC NULLS LAST
+);
+
+-- ----------------------------
+-- 2. 回填历史消息序号：按群、按发送时间编号，接在已有序号之后
+-- ----------------------------
+UPDATE "public"."im_group_message" m
+SET "group_seq" = n.seq
+FROM (
+  SELECT g."message_id",
+         coalesce(b."max_seq", 0)
+           + row_number() OVER (PARTITION BY g."group_id" ORDER BY g."message_time", g."message_id") AS seq
+  FROM "public"."im_group_message" g
+  LEFT JOIN (
+    SELECT "group_id", max("group_seq") AS "max_seq"
+    FROM "public"."im_group_message"
+    GROUP BY "group_id"
+  ) b ON b."group_id" = g."group_id"
+  WHERE g."group_seq" IS NULL
+) n
+WHERE m."message_id" = n."message_id";
+
+-- ----------------------------
+-- 3. 由状态表回填成员游标
+-- ----------------------------
+INSERT INTO "public"."im_group_read_cursor" ("group_id", "member_id", "read_seq", "create_time", "update_time")
+SELECT s."group_id",
+       s."to_id",
+       greatest(coalesce(max(mx."max_seq"), 0) - count(*) FILTER (WHERE coalesce(s."read_status", 0) = 0), 0),
+       (extract(epoch FROM now()) * 1000)::int8,
+       (extract(epoch FROM now()) * 1000)::int8
+FROM "public"."im_group_message_status" s
+JOIN (
+  SELECT "group_id", max("group_seq") AS "max_seq"
+  FROM "public"."im_group_message"
+  GROUP BY "group_id"
+) mx ON mx."group_id" = s."group_id"
+GROUP BY s."group_id", s."to_id"
+ON CONFLICT ("group_id", "member_id") DO NOTHING;
+
+-- 没有状态行的现有成员：游标置为群最大序号
+INSERT INTO "public"."im_group_read_cursor" ("group_id", "member_id", "read_seq", "create_time", "update_time")
+SELECT gm."group_id",
+       gm."member_id",
+       coalesce(mx."max_seq", 0),
+       (extract(epoch FROM now()) * 1000)::int8,
+       (extract(epoch FROM now()) * 1000)::int8
+FROM "public"."im_group_member" gm
+LEFT JOIN (
+  SELECT "group_id", max("group_seq") AS "max_seq"
+  FROM "public"."im_group_message"
+  GROUP BY "group_id"
+) mx ON mx."group_id" = gm."group_id"
+ON CONFLICT ("group_id", "member_id") DO NOTHING;
+
+-- ----------------------------
+-- 4. 清理（确认关闭双写且无需回滚后再执行）
+-- ----------------------------
+-- DROP TABLE IF EXISTS "public"."im_group_message_status";
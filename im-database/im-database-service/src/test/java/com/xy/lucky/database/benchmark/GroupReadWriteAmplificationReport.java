@@ -0,0 +1,131 @@
+package com.xy.lucky.database.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * 群聊已读状态写放大对比：写扩散（im_group_message_status 每成员每消息一行）vs 读扩散（group_seq + im_group_read_cursor）
+ * <p>
+ * 按固定随机种子模拟群聊负载：每条消息后每个成员以 READ_PROBABILITY 的概率上报已读，统计两种模型的
+ * - rows/msg：每条消息写入的行数（消息行 + 状态行）
+ * - rowVersions：已读上报产生的新行版本数（PostgreSQL UPDATE 产生新元组；更新列不在索引中，按 HOT 只计堆）
+ * - bytes/msg：按 PostgreSQL 页内布局估算的堆 + 索引写入字节（元组头 24B、行指针 4B、8 字节对齐，不含 WAL 与 TOAST）
+ * <p>
+ * 结果是模型估算，用于比较数量级；实际 IOPS 还受 HOT 更新、填充因子和 WAL 合并影响。
+ * <p>
+ * 运行：mvn -pl im-database/im-database-service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.xy.lucky.database.benchmark.GroupReadWriteAmplificationReport
+ */
+public final class GroupReadWriteAmplificationReport {
+
+    private static final int[] GROUP_SIZES = {10, 100, 500, 1000, 2000};
+    private static final int MESSAGES = 2_000;
+    private static final double READ_PROBABILITY = 0.2;
+
+    /**
+     * 雪花 ID 字符串长度（group_id / message_id / member_id）
+     */
+    private static final int ID_LENGTH = 19;
+    /**
+     * 典型文本消息体（JSON）长度
+     */
+    private static final int MESSAGE_BODY_LENGTH = 160;
+
+    private static final int TUPLE_HEADER = 24;
+    private static final int INDEX_TUPLE_HEADER = 8;
+    private static final int LINE_POINTER = 4;
+
+    private GroupReadWriteAmplificationReport() {
+    }
+
+    public static void main(String[] args) {
+        int messageRow = messageRowBytes();
+        int statusInsert = heapBytes(statusRowData()) + btreeBytes(varlena(ID_LENGTH) * 3);
+        int statusUpdate = heapBytes(statusRowData());
+        int cursorUpdate = heapBytes(cursorRowData());
+        System.out.printf("estimated bytes: message=%d, statusInsert=%d, statusUpdate=%d, cursorUpdate=%d, groupSeq=%d%n%n",
+                messageRow, statusInsert, statusUpdate, cursorUpdate, groupSeqBytes());
+        System.out.printf("%-8s | %10s %14s %12s | %10s %14s %12s | %8s%n",
+                "members", "rows/msg", "rowVersions", "bytes/msg", "rows/msg", "rowVersions", "bytes/msg", "ratio");
+        System.out.printf("%-8s | %38s | %38s |%n", "", "write-diffusion (status rows)", "read-diffusion (cursor)");
+        for (int members : GROUP_SIZES) {
+            Result result = simulate(members, new SplittableRandom(42));
+            long statusBytes = (long) MESSAGES * (messageRow + (long) members * statusInsert) + result.statusUpdates * statusUpdate;
+            long cursorBytes = (long) MESSAGES * (messageRow + groupSeqBytes()) + result.cursorUpdates * cursorUpdate;
+            System.out.printf("%-8d | %10d %14d %12d | %10d %14d %12d | %7.1fx%n",
+                    members,
+                    1 + members, result.statusUpdates, statusBytes / MESSAGES,
+                    1, result.cursorUpdates, cursorBytes / MESSAGES,
+                    (double) statusBytes / cursorBytes);
+        }
+    }
+
+    /**
+     * 状态表模型：已读上报把该成员所有未读行更新为已读；游标模型：每次上报更新一行游标
+     */
+    private static Result simulate(int members, SplittableRandom random) {
+        int[] unread = new int[members];
+        long statusUpdates = 0;
+        long cursorUpdates = 0;
+        for (int m = 0; m < MESSAGES; m++) {
+            for (int i = 0; i < members; i++) {
+                unread[i]++;
+                if (random.nextDouble() < READ_PROBABILITY) {
+                    statusUpdates += unread[i];
+                    cursorUpdates++;
+                    unread[i] = 0;
+                }
+            }
+        }
+        return new Result(statusUpdates, cursorUpdates);
+    }
+
+    /**
+     * im_group_message：4 个短 varchar 级字段 + 消息体 + int4/int2 + 4 个 int8，主键与 group_id 索引
+     */
+    private static int messageRowBytes() {
+        int data = align(varlena(ID_LENGTH) * 3 + varlena(MESSAGE_BODY_LENGTH) + varlena(ID_LENGTH), 4) + 4 + 2;
+        data = align(data, 8) + 8 * 5;
+        return heapBytes(data) + btreeBytes(varlena(ID_LENGTH)) + btreeBytes(varlena(ID_LENGTH));
+    }
+
+    /**
+     * im_group_message_status：group_id、message_id、to_id + read_status int4 + 3 个 int8（插入另计三列联合主键）
+     */
+    private static int statusRowData() {
+        int data = align(varlena(ID_LENGTH) * 3, 4) + 4;
+        return align(data, 8) + 8 * 3;
+    }
+
+    /**
+     * im_group_read_cursor：group_id、member_id + read_seq 与 3 个 int8；更新不涉及索引列，按 HOT 只计堆
+     */
+    private static int cursorRowData() {
+        return align(varlena(ID_LENGTH) * 2, 8) + 8 * 4;
+    }
+
+    /**
+     * 消息行新增 group_seq int8 列，以及 (group_id, group_seq) 索引项
+     */
+    private static int groupSeqBytes() {
+        return 8 + btreeBytes(align(varlena(ID_LENGTH), 8) + 8);
+    }
+
+    private static int heapBytes(int data) {
+        return align(TUPLE_HEADER + data, 8) + LINE_POINTER;
+    }
+
+    private static int btreeBytes(int keyData) {
+        return align(INDEX_TUPLE_HEADER + keyData, 8) + LINE_POINTER;
+    }
+
+    private static int varlena(int length) {
+        return length < 127 ? length + 1 : length + 4;
+    }
+
+    private static int align(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    private record Result(long statusUpdates, long cursorUpdates) {
+    }
+}
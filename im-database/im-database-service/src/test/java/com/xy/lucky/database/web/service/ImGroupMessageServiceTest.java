@@ -0,0 +1,194 @@
+package com.xy.lucky.database.web.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.xy.lucky.core.enums.IMessageReadStatus;
+import com.xy.lucky.database.web.mapper.ImGroupMemberMapper;
+import com.xy.lucky.database.web.mapper.ImGroupMessageMapper;
+import com.xy.lucky.database.web.mapper.ImGroupMessageStatusMapper;
+import com.xy.lucky.database.web.mapper.ImGroupReadCursorMapper;
+import com.xy.lucky.domain.po.ImGroupMemberPo;
+import com.xy.lucky.domain.po.ImGroupMessagePo;
+import com.xy.lucky.domain.po.ImGroupMessageStatusPo;
+import com.xy.lucky.domain.po.ImGroupReadCursorPo;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImGroupMessageServiceTest {
+
+    private static final String GROUP_ID = "g1";
+    private static final String MEMBER_ID = "u1";
+    private static final int UNREAD = IMessageReadStatus.UNREAD.getCode();
+    private static final int READ = IMessageReadStatus.ALREADY_READ.getCode();
+
+    @Mock
+    private ImGroupMessageMapper imGroupMessageMapper;
+
+    @Mock
+    private ImGroupMessageStatusMapper imGroupMessageStatusMapper;
+
+    @Mock
+    private ImGroupReadCursorMapper imGroupReadCursorMapper;
+
+    @Mock
+    private ImGroupMemberMapper imGroupMemberMapper;
+
+    private ImGroupMessageService service;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda 条件构造器依赖实体的列缓存
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), ImGroupMemberPo.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        service = new ImGroupMessageService(imGroupMessageMapper, imGroupMessageStatusMapper,
+                imGroupReadCursorMapper, imGroupMemberMapper);
+    }
+
+    @Test
+    void memberWithoutCursorShouldOnlyCountMessagesSinceJoin() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(100L);
+        when(imGroupReadCursorMapper.selectReadSeq(GROUP_ID, MEMBER_ID)).thenReturn(null);
+        joinedAt(5_000L);
+        when(imGroupMessageMapper.selectMaxGroupSeqBefore(GROUP_ID, 5_000L)).thenReturn(97L);
+
+        assertThat(service.queryReadStatus(GROUP_ID, MEMBER_ID, UNREAD)).isEqualTo(3);
+    }
+
+    @Test
+    void readCountShouldExcludeHistoryBeforeJoin() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(100L);
+        when(imGroupReadCursorMapper.selectReadSeq(GROUP_ID, MEMBER_ID)).thenReturn(98L);
+        joinedAt(5_000L);
+        when(imGroupMessageMapper.selectMaxGroupSeqBefore(GROUP_ID, 5_000L)).thenReturn(90L);
+
+        assertThat(service.queryReadStatus(GROUP_ID, MEMBER_ID, UNREAD)).isEqualTo(2);
+        assertThat(service.queryReadStatus(GROUP_ID, MEMBER_ID, READ)).isEqualTo(8);
+    }
+
+    @Test
+    void rejoinedMemberShouldNotCountMessagesWhileAway() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(25L);
+        when(imGroupReadCursorMapper.selectReadSeq(GROUP_ID, MEMBER_ID)).thenReturn(5L);
+        joinedAt(9_000L);
+        when(imGroupMessageMapper.selectMaxGroupSeqBefore(GROUP_ID, 9_000L)).thenReturn(20L);
+
+        assertThat(service.queryReadStatus(GROUP_ID, MEMBER_ID, UNREAD)).isEqualTo(5);
+    }
+
+    @Test
+    void cursorAtLatestShouldSkipJoinBaseline() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(40L);
+        when(imGroupReadCursorMapper.selectReadSeq(GROUP_ID, MEMBER_ID)).thenReturn(40L);
+
+        assertThat(service.queryReadStatus(GROUP_ID, MEMBER_ID, UNREAD)).isZero();
+        verify(imGroupMemberMapper, never()).selectOne(any());
+    }
+
+    @Test
+    void emptyGroupShouldHaveNoUnread() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(null);
+        when(imGroupReadCursorMapper.selectReadSeq(GROUP_ID, MEMBER_ID)).thenReturn(null);
+
+        assertThat(service.queryReadStatus(GROUP_ID, MEMBER_ID, UNREAD)).isZero();
+    }
+
+    @Test
+    void markReadShouldAdvanceCursorToGroupMax() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(12L);
+        when(imGroupReadCursorMapper.advanceReadSeq(eq(GROUP_ID), eq(MEMBER_ID), eq(12L), anyLong())).thenReturn(1);
+
+        assertThat(service.modifyReadStatus(status(READ))).isTrue();
+        verify(imGroupReadCursorMapper, never()).insert(any(ImGroupReadCursorPo.class));
+    }
+
+    @Test
+    void markReadWithoutCursorShouldInsertOne() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(12L);
+        when(imGroupReadCursorMapper.advanceReadSeq(eq(GROUP_ID), eq(MEMBER_ID), eq(12L), anyLong())).thenReturn(0);
+        when(imGroupReadCursorMapper.selectReadSeq(GROUP_ID, MEMBER_ID)).thenReturn(null);
+        when(imGroupReadCursorMapper.insert(any(ImGroupReadCursorPo.class))).thenReturn(1);
+
+        assertThat(service.modifyReadStatus(status(READ))).isTrue();
+
+        ArgumentCaptor<ImGroupReadCursorPo> cursor = ArgumentCaptor.forClass(ImGroupReadCursorPo.class);
+        verify(imGroupReadCursorMapper).insert(cursor.capture());
+        assertThat(cursor.getValue().getReadSeq()).isEqualTo(12L);
+    }
+
+    @Test
+    void concurrentCursorInsertShouldRetryUpdate() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(12L);
+        when(imGroupReadCursorMapper.advanceReadSeq(eq(GROUP_ID), eq(MEMBER_ID), eq(12L), anyLong())).thenReturn(0, 1);
+        when(imGroupReadCursorMapper.selectReadSeq(GROUP_ID, MEMBER_ID)).thenReturn(null);
+        when(imGroupReadCursorMapper.insert(any(ImGroupReadCursorPo.class))).thenThrow(new DuplicateKeyException("dup"));
+
+        assertThat(service.modifyReadStatus(status(READ))).isTrue();
+        verify(imGroupReadCursorMapper, times(2)).advanceReadSeq(eq(GROUP_ID), eq(MEMBER_ID), eq(12L), anyLong());
+    }
+
+    @Test
+    void cursorAlreadyAheadShouldNotMove() {
+        when(imGroupMessageMapper.selectMaxGroupSeq(GROUP_ID)).thenReturn(12L);
+        when(imGroupReadCursorMapper.advanceReadSeq(eq(GROUP_ID), eq(MEMBER_ID), eq(12L), anyLong())).thenReturn(0);
+        when(imGroupReadCursorMapper.selectReadSeq(GROUP_ID, MEMBER_ID)).thenReturn(12L);
+
+        assertThat(service.modifyReadStatus(status(READ))).isFalse();
+        verify(imGroupReadCursorMapper, never()).insert(any(ImGroupReadCursorPo.class));
+    }
+
+    @Test
+    void markUnreadShouldNotMoveCursorBack() {
+        assertThat(service.modifyReadStatus(status(UNREAD))).isFalse();
+        verify(imGroupReadCursorMapper, never()).advanceReadSeq(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void queryListShouldDropMessagesBeforeJoin() {
+        when(imGroupMemberMapper.selectList(any())).thenReturn(List.of(
+                new ImGroupMemberPo().setGroupId(GROUP_ID).setJoinTime(5_000L)));
+        when(imGroupMessageMapper.selectGroupMessageByGroupIds(MEMBER_ID, Set.of(GROUP_ID), 0L)).thenReturn(List.of(
+                message("m1", 4_000L),
+                message("m2", 5_000L),
+                message("m3", 6_000L)));
+
+        assertThat(service.queryList(MEMBER_ID, 0L))
+                .extracting(ImGroupMessagePo::getMessageId)
+                .containsExactly("m2", "m3");
+    }
+
+    private void joinedAt(long joinTime) {
+        when(imGroupMemberMapper.selectOne(any())).thenReturn(new ImGroupMemberPo().setJoinTime(joinTime));
+    }
+
+    private static ImGroupMessageStatusPo status(int readStatus) {
+        return new ImGroupMessageStatusPo().setGroupId(GROUP_ID).setToId(MEMBER_ID).setReadStatus(readStatus);
+    }
+
+    private static ImGroupMessagePo message(String messageId, long messageTime) {
+        return new ImGroupMessagePo().setMessageId(messageId).setGroupId(GROUP_ID).setMessageTime(messageTime);
+    }
+}
@@ -15,5 +15,8 @@ public @interface EventListener {
     // 监听的事件类型
     Class<?> value();
 
+    // 分区分发模式下在虚拟线程通道上执行，适合含阻塞 IO 的监听器；同一分区内仍保持顺序
+    boolean virtualThread() default false;
+
 }
 
@@ -12,7 +12,9 @@ import com.xy.lucky.spring.core.DisposableBean;
 import com.xy.lucky.spring.core.InitializingBean;
 import com.xy.lucky.spring.event.ApplicationEventBus;
 import com.xy.lucky.spring.event.ApplicationEventPublisher;
+import com.xy.lucky.spring.event.PartitionedEventDispatcher;
 import com.xy.lucky.spring.exception.CyclicDependencyException;
+import com.xy.lucky.spring.index.BeanIndex;
 import com.xy.lucky.spring.utils.ClassUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +57,8 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
     private final ApplicationEventBus applicationEventBus = new ApplicationEventBus();
     // 扫描到的类
     private final Set<Class<?>> scannedClasses = ConcurrentHashMap.newKeySet();
+    // 编译期索引中的 Bean（未使用索引时为空）
+    private final Map<Class<?>, BeanIndex.IndexedBean> indexedBeans = new ConcurrentHashMap<>();
     // 缓存
     private final ConcurrentHashMap<Class<?>, ConstructorPlan> constructorCache = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Class<?>, InjectionPoint[]> injectionPointCache = new ConcurrentHashMap<>();
@@ -110,6 +114,9 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
             this.environment = new StandardEnvironment();
         }
 
+        // 按配置启用事件分区分发
+        configureEventBus();
+
         // 扫描并注册 Bean 定义
         scanAndRegister();
 
@@ -177,6 +184,7 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
         injectionPointCache.clear();
         postConstructCache.clear();
         typeIndex.clear();
+        indexedBeans.clear();
     }
 
     @Override
@@ -347,6 +355,23 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
         return definitions.containsKey(name);
     }
 
+    /**
+     * 按 spring.event.* 配置事件总线：dispatcher=partitioned 时启用有界分区通道，默认沿用共享线程池
+     */
+    private void configureEventBus() {
+        String dispatcher = environment.getProperty("spring.event.dispatcher", "async");
+        if (!"partitioned".equalsIgnoreCase(dispatcher.trim())) {
+            return;
+        }
+        int lanes = environment.getProperty("spring.event.lanes", Integer.class,
+                Runtime.getRuntime().availableProcessors());
+        int laneCapacity = environment.getProperty("spring.event.lane-capacity", Integer.class, 1024);
+        long blockTimeoutMs = environment.getProperty("spring.event.block-timeout-ms", Long.class, 0L);
+        PartitionedEventDispatcher.RejectionPolicy policy = PartitionedEventDispatcher.RejectionPolicy.of(
+                environment.getProperty("spring.event.rejection-policy", "block"));
+        applicationEventBus.enablePartitionedDispatch(lanes, laneCapacity, policy, blockTimeoutMs);
+    }
+
     /**
      * 扫描并注册 Bean 定义
      */
@@ -370,7 +395,7 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
                 basePkg = componentScan.value();
             }
 
-            Set<Class<?>> classes = ClassUtils.scan(basePkg);
+            Set<Class<?>> classes = loadCandidateClasses(basePkg);
             scannedClasses.clear();
             scannedClasses.addAll(classes);
 
@@ -392,6 +417,33 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
         }
     }
 
+    /**
+     * 获取候选类：优先读取编译期 Bean 索引，仅加载索引中的类；无索引时回退到类路径扫描
+     */
+    private Set<Class<?>> loadCandidateClasses(String basePkg) throws Exception {
+        long start = System.nanoTime();
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        BeanIndex index = BeanIndex.load(classLoader);
+        List<BeanIndex.IndexedBean> beans = index != null ? index.getBeans(basePkg) : List.of();
+        if (beans.isEmpty()) {
+            Set<Class<?>> classes = ClassUtils.scan(basePkg);
+            log.info("Bean index not available for package {}, scanned {} classes in {} ms",
+                    basePkg, classes.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return classes;
+        }
+
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        indexedBeans.clear();
+        for (BeanIndex.IndexedBean bean : beans) {
+            Class<?> cls = ClassUtils.forName(bean.getClassName(), classLoader);
+            classes.add(cls);
+            indexedBeans.put(cls, bean);
+        }
+        log.info("Loaded {} bean candidates for package {} from bean index in {} ms",
+                classes.size(), basePkg, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return classes;
+    }
+
     private void registerConfigClassAndBeans(Class<?> cfgClass) {
         String cfgName = deriveBeanName(cfgClass);
         if (!definitions.containsKey(cfgName)) {
@@ -495,8 +547,7 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
     private void registerEventListeners() {
         for (Map.Entry<String, BeanDefinition> e : definitions.entrySet()) {
             BeanDefinition def = e.getValue();
-            if (Arrays.stream(def.getType().getDeclaredMethods())
-                    .anyMatch(m -> m.isAnnotationPresent(EventListener.class))) {
+            if (hasEventListener(def.getType())) {
                 try {
                     Object bean = getBean(e.getKey());
                     applicationEventBus.registerListener(bean);
@@ -507,6 +558,15 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
         }
     }
 
+    private boolean hasEventListener(Class<?> type) {
+        BeanIndex.IndexedBean indexed = indexedBeans.get(type);
+        if (indexed != null) {
+            return !indexed.getListenerMethods().isEmpty();
+        }
+        return Arrays.stream(type.getDeclaredMethods())
+                .anyMatch(m -> m.isAnnotationPresent(EventListener.class));
+    }
+
     private Object getSingleton(String name, BeanDefinition def) {
         Object singleton = singletons.get(name);
         if (singleton != null) return singleton;
@@ -717,19 +777,8 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
 
     private InjectionPoint[] getInjectionPointsForClass(Class<?> cls) {
         return injectionPointCache.computeIfAbsent(cls, key -> {
-            Field[] fields = key.getDeclaredFields();
-            if (fields.length == 0) return new InjectionPoint[0];
-
-            List<InjectionPoint> list = new ArrayList<>();
-            for (Field f : fields) {
-                Autowired autowired = f.getAnnotation(Autowired.class);
-                Value value = f.getAnnotation(Value.class);
-                if (autowired == null && value == null) continue;
-                list.add(autowired != null
-                        ? InjectionPoint.autowired(null, f.getName(), f.getType(), normalizeAutowiredName(autowired), autowired.required())
-                        : InjectionPoint.value(null, f.getName(), f.getType(), value.value()));
-            }
-
+            BeanIndex.IndexedBean indexed = indexedBeans.get(key);
+            List<InjectionPoint> list = indexed != null ? indexedInjectionPoints(key, indexed) : scanInjectionPoints(key);
             if (list.isEmpty()) return new InjectionPoint[0];
 
             MethodHandles.Lookup lookup = MethodHandles.lookup();
@@ -753,6 +802,35 @@ public class DefaultApplicationContext implements ConfigurableApplicationContext
         });
     }
 
+    private List<InjectionPoint> scanInjectionPoints(Class<?> cls) {
+        List<InjectionPoint> list = new ArrayList<>();
+        for (Field f : cls.getDeclaredFields()) {
+            Autowired autowired = f.getAnnotation(Autowired.class);
+            Value value = f.getAnnotation(Value.class);
+            if (autowired == null && value == null) continue;
+            list.add(autowired != null
+                    ? InjectionPoint.autowired(null, f.getName(), f.getType(), normalizeAutowiredName(autowired), autowired.required())
+                    : InjectionPoint.value(null, f.getName(), f.getType(), value.value()));
+        }
+        return list;
+    }
+
+    private List<InjectionPoint> indexedInjectionPoints(Class<?> cls, BeanIndex.IndexedBean indexed) {
+        List<InjectionPoint> list = new ArrayList<>(indexed.getFields().size());
+        for (BeanIndex.IndexedField f : indexed.getFields()) {
+            Class<?> type;
+            try {
+                type = ClassUtils.forName(f.typeName(), cls.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Cannot resolve indexed field type: " + cls.getName() + "." + f.name(), e);
+            }
+            list.add(f.autowired()
+                    ? InjectionPoint.autowired(null, f.name(), type, f.beanName(), f.required())
+                    : InjectionPoint.value(null, f.name(), type, f.valueExpression()));
+        }
+        return list;
+    }
+
     private Object resolveAutowiredDependency(InjectionPoint p) {
         Object dep = null;
         if (p.beanName != null && !p.beanName.isEmpty()) {
@@ -20,6 +20,7 @@ import java.util.concurrent.*;
  * - 异常处理：使用 SLF4J 日志替换 printStackTrace，支持异常传播或静默。
  * - 扩展：添加 unregisterListener；支持方法优先级（注解扩展）；泛型事件类型。
  * - 性能：异步减少延迟；CopyOnWrite 适合读多写少场景（事件发布频繁，注册少）。
+ * - 分区分发：启用后异步事件按分区键进入有界单线程通道，保证同键顺序并对发布者施加背压，见 {@link PartitionedEventDispatcher}。
  */
 @Slf4j
 public class ApplicationEventBus implements ApplicationEventPublisher {
@@ -33,6 +34,40 @@ public class ApplicationEventBus implements ApplicationEventPublisher {
             r -> new Thread(r, "EventBus-Executor")
     );
 
+    // 分区分发器，未启用时为 null，异步事件走共享线程池
+    private volatile PartitionedEventDispatcher partitionedDispatcher;
+
+    /**
+     * 启用分区分发（容器刷新时按配置调用，需在发布事件前完成）
+     *
+     * @param lanes          通道数
+     * @param laneCapacity   每个通道的队列容量
+     * @param policy         通道已满时的处理策略
+     * @param blockTimeoutMs BLOCK 策略下的最长等待时间，&lt;= 0 表示一直等待
+     */
+    public synchronized void enablePartitionedDispatch(int lanes, int laneCapacity,
+                                                       PartitionedEventDispatcher.RejectionPolicy policy,
+                                                       long blockTimeoutMs) {
+        if (partitionedDispatcher != null) {
+            return;
+        }
+        PartitionedEventDispatcher dispatcher = new PartitionedEventDispatcher(lanes, laneCapacity, policy, blockTimeoutMs);
+        // 启用前已注册 virtualThread 监听器时立即创建虚拟线程通道
+        boolean hasVirtual = listenerMap.values().stream()
+                .anyMatch(listeners -> listeners.stream().anyMatch(ListenerInvoker::virtualThread));
+        if (hasVirtual) {
+            dispatcher.enableVirtualLanes();
+        }
+        partitionedDispatcher = dispatcher;
+    }
+
+    /**
+     * @return 分区分发器，未启用时返回 null
+     */
+    public PartitionedEventDispatcher getPartitionedDispatcher() {
+        return partitionedDispatcher;
+    }
+
     /**
      * 注册监听器（容器初始化后调用）
      * 优化：使用 Stream 过滤注解方法，提高可读性；setAccessible 仅一次。
@@ -79,8 +114,13 @@ public class ApplicationEventBus implements ApplicationEventPublisher {
             } catch (Exception e) {
                 throw new IllegalStateException("解析事件监听器句柄失败: " + beanClass.getName() + "." + m.getName(), e);
             }
+            boolean virtualThread = m.getAnnotation(EventListener.class).virtualThread();
             listenerMap.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>())
-                    .add(new ListenerInvoker(handle, m.getName(), 0));
+                    .add(new ListenerInvoker(handle, m.getName(), 0, virtualThread));
+            PartitionedEventDispatcher dispatcher = partitionedDispatcher;
+            if (virtualThread && dispatcher != null) {
+                dispatcher.enableVirtualLanes();
+            }
         });
 
         log.debug("注册监听器: {} 个方法到 Bean {}", listenerMethods.size(), bean.getClass().getSimpleName());
@@ -113,6 +153,7 @@ public class ApplicationEventBus implements ApplicationEventPublisher {
      *
      * @param event 事件对象
      * @param async 是否异步（true: 非阻塞，false: 同步）
+     * @throws RejectedExecutionException 分区分发模式下通道已满且被拒绝时抛出
      */
     public void publishEvent(Object event, boolean async) {
         if (event == null) return;
@@ -125,7 +166,10 @@ public class ApplicationEventBus implements ApplicationEventPublisher {
             return;
         }
 
-        if (async) {
+        PartitionedEventDispatcher dispatcher = partitionedDispatcher;
+        if (async && dispatcher != null) {
+            dispatcher.dispatch(event, listeners, this::safeInvoke);
+        } else if (async) {
             for (ListenerInvoker invoker : listeners) {
                 CompletableFuture.runAsync(() -> safeInvoke(invoker, event), executor);
             }
@@ -155,6 +199,10 @@ public class ApplicationEventBus implements ApplicationEventPublisher {
      * 关闭资源（线程池）
      */
     public void close() {
+        PartitionedEventDispatcher dispatcher = partitionedDispatcher;
+        if (dispatcher != null) {
+            dispatcher.close(5000);
+        }
         executor.shutdown();
         try {
             if (!executor.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
@@ -171,7 +219,7 @@ public class ApplicationEventBus implements ApplicationEventPublisher {
     /**
      * 内部类：监听器调用器（record 高效，immutable）
      */
-    record ListenerInvoker(MethodHandle handle, String methodName, int priority) { // 可扩展优先级
+    record ListenerInvoker(MethodHandle handle, String methodName, int priority, boolean virtualThread) { // 可扩展优先级
 
         void invoke(Object event) throws Exception {
             try {
@@ -0,0 +1,15 @@
+package com.xy.lucky.spring.event;
+
+/**
+ * 带分区键的事件
+ * <p>
+ * 分区分发模式下，分区键相同的事件始终进入同一通道，按发布顺序串行处理（如以目标用户 ID 为键）。
+ * 未实现该接口的事件按事件类型分区。
+ */
+public interface PartitionedEvent {
+
+    /**
+     * @return 分区键，为 null 时按事件类型分区
+     */
+    Object partitionKey();
+}
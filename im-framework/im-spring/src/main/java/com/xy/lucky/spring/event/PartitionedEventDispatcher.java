@@ -0,0 +1,292 @@
+package com.xy.lucky.spring.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分区事件分发器
+ * <p>
+ * - 事件按分区键哈希到固定通道，每个通道一个线程 + 有界队列，同一分区键的事件严格按发布顺序处理
+ * - 队列满时按策略阻塞发布者（可设超时）或直接拒绝，避免无界队列撑爆内存
+ * - 声明 virtualThread 的监听器在独立的虚拟线程通道上执行，阻塞 IO 不占用平台线程，也不拖慢同通道的其他监听器；
+ * 虚拟线程通道在注册第一个 virtualThread 监听器时才创建，只用 execute 的分发器（如 MQ 分发）不会创建
+ */
+@Slf4j
+public class PartitionedEventDispatcher {
+
+    private final String name;
+    private final int laneCapacity;
+    private final Lane[] platformLanes;
+    private volatile Lane[] virtualLanes;
+    private volatile boolean closed;
+    private final RejectionPolicy rejectionPolicy;
+    private final long blockTimeoutMs;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param lanes          通道数
+     * @param laneCapacity   每个通道的队列容量
+     * @param policy         队列满时的处理策略
+     * @param blockTimeoutMs BLOCK 策略下的最长等待时间，&lt;= 0 表示一直等待
+     */
+    public PartitionedEventDispatcher(int lanes, int laneCapacity, RejectionPolicy policy, long blockTimeoutMs) {
+        this("EventBus", lanes, laneCapacity, policy, blockTimeoutMs);
+    }
+
+    /**
+     * @param name           通道线程名前缀，区分不同用途的分发器
+     * @param lanes          通道数
+     * @param laneCapacity   每个通道的队列容量
+     * @param policy         队列满时的处理策略
+     * @param blockTimeoutMs BLOCK 策略下的最长等待时间，&lt;= 0 表示一直等待
+     */
+    public PartitionedEventDispatcher(String name, int lanes, int laneCapacity, RejectionPolicy policy, long blockTimeoutMs) {
+        if (lanes <= 0 || laneCapacity <= 0) {
+            throw new IllegalArgumentException("lanes 与 laneCapacity 必须大于 0");
+        }
+        this.name = name;
+        this.laneCapacity = laneCapacity;
+        this.rejectionPolicy = policy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.platformLanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            platformLanes[i] = new Lane(laneCapacity, Thread.ofPlatform().daemon(true).name(name + "-Lane-" + i));
+        }
+        log.info("{} 分区分发已启用: lanes={}, laneCapacity={}, policy={}, blockTimeoutMs={}",
+                name, lanes, laneCapacity, policy, blockTimeoutMs);
+    }
+
+    /**
+     * 将事件投递到所属分区通道
+     *
+     * @throws RejectedExecutionException 通道已满且策略为拒绝（或等待超时）时抛出
+     */
+    void dispatch(Object event, List<ApplicationEventBus.ListenerInvoker> listeners, EventInvoker invoker) {
+        int lane = laneOf(event);
+        boolean hasPlatform = false;
+        boolean hasVirtual = false;
+        for (ApplicationEventBus.ListenerInvoker listener : listeners) {
+            if (listener.virtualThread()) {
+                hasVirtual = true;
+            } else {
+                hasPlatform = true;
+            }
+        }
+        if (hasPlatform) {
+            enqueue(platformLanes[lane], lane, () -> invokeAll(event, listeners, false, invoker));
+        }
+        if (hasVirtual) {
+            enqueue(virtualLanes()[lane], lane, () -> invokeAll(event, listeners, true, invoker));
+        }
+    }
+
+    /**
+     * 创建虚拟线程通道（已创建时不做任何事），由事件总线在注册 virtualThread 监听器时调用
+     *
+     * @throws RejectedExecutionException 分发器已关闭时抛出
+     */
+    void enableVirtualLanes() {
+        virtualLanes();
+    }
+
+    /**
+     * 虚拟线程通道，未创建时创建；总线注册监听器与启用分发器并发时在首次分发时兜底创建
+     */
+    private Lane[] virtualLanes() {
+        Lane[] lanes = virtualLanes;
+        if (lanes != null) {
+            return lanes;
+        }
+        synchronized (this) {
+            if (virtualLanes == null) {
+                if (closed) {
+                    throw new RejectedExecutionException(name + " 分发器已关闭");
+                }
+                Lane[] created = new Lane[platformLanes.length];
+                for (int i = 0; i < created.length; i++) {
+                    created[i] = new Lane(laneCapacity, Thread.ofVirtual().name(name + "-VLane-" + i));
+                }
+                virtualLanes = created;
+                log.info("{} 虚拟线程通道已创建: lanes={}", name, created.length);
+            }
+            return virtualLanes;
+        }
+    }
+
+    /**
+     * 按分区键直接提交任务（不经过监听器），供需要相同顺序保证的调用方复用通道，如 MQ 分发后确认模式
+     *
+     * @param partitionKey 分区键，为 null 时统一落到同一通道
+     * @throws RejectedExecutionException 通道已满且策略为拒绝（或等待超时）时抛出
+     */
+    public void execute(Object partitionKey, Runnable task) {
+        int lane = laneOfKey(partitionKey != null ? partitionKey.hashCode() : 0);
+        enqueue(platformLanes[lane], lane, task);
+    }
+
+    private static void invokeAll(Object event, List<ApplicationEventBus.ListenerInvoker> listeners,
+                                  boolean virtual, EventInvoker invoker) {
+        for (ApplicationEventBus.ListenerInvoker listener : listeners) {
+            if (listener.virtualThread() == virtual) {
+                invoker.invoke(listener, event);
+            }
+        }
+    }
+
+    private int laneOf(Object event) {
+        Object key = event instanceof PartitionedEvent partitioned ? partitioned.partitionKey() : null;
+        return laneOfKey(key != null ? key.hashCode() : event.getClass().hashCode());
+    }
+
+    private int laneOfKey(int h) {
+        // 扰动高位，避免连续 ID 集中在少数通道
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % platformLanes.length;
+    }
+
+    private void enqueue(Lane lane, int index, Runnable task) {
+        boolean accepted;
+        if (rejectionPolicy == RejectionPolicy.REJECT) {
+            accepted = lane.queue.offer(task);
+        } else {
+            try {
+                if (blockTimeoutMs > 0) {
+                    accepted = lane.queue.offer(task, blockTimeoutMs, TimeUnit.MILLISECONDS);
+                } else {
+                    lane.queue.put(task);
+                    accepted = true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        }
+        if (!accepted) {
+            rejected.increment();
+            throw new RejectedExecutionException("事件通道已满: lane=" + index + ", depth=" + lane.queue.size());
+        }
+    }
+
+    /**
+     * @return 通道数
+     */
+    public int laneCount() {
+        return platformLanes.length;
+    }
+
+    /**
+     * @param lane 通道序号
+     * @return 该通道当前排队的事件数（平台线程与虚拟线程通道之和）
+     */
+    public int laneDepth(int lane) {
+        Lane[] virtual = virtualLanes;
+        return platformLanes[lane].queue.size() + (virtual != null ? virtual[lane].queue.size() : 0);
+    }
+
+    /**
+     * @return 因通道已满被拒绝的事件总数
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 停止接收并等待已排队事件处理完毕
+     */
+    public void close(long timeoutMs) {
+        Lane[] virtual;
+        synchronized (this) {
+            closed = true;
+            virtual = virtualLanes;
+        }
+        for (int i = 0; i < platformLanes.length; i++) {
+            platformLanes[i].running = false;
+            if (virtual != null) {
+                virtual[i].running = false;
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (int i = 0; i < platformLanes.length; i++) {
+            platformLanes[i].awaitOrInterrupt(deadline);
+            if (virtual != null) {
+                virtual[i].awaitOrInterrupt(deadline);
+            }
+        }
+    }
+
+    /**
+     * 通道已满时的处理策略
+     */
+    public enum RejectionPolicy {
+        BLOCK, REJECT;
+
+        public static RejectionPolicy of(String value) {
+            if (value == null || value.isBlank()) {
+                return BLOCK;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("未知的事件通道拒绝策略: {}, 使用默认 block", value);
+                return BLOCK;
+            }
+        }
+    }
+
+    /**
+     * 监听器调用回调（异常隔离由事件总线负责）
+     */
+    @FunctionalInterface
+    interface EventInvoker {
+        void invoke(ApplicationEventBus.ListenerInvoker listener, Object event);
+    }
+
+    /**
+     * 单个通道：单消费线程 + 有界队列
+     */
+    private static final class Lane implements Runnable {
+        final BlockingQueue<Runnable> queue;
+        final Thread thread;
+        volatile boolean running = true;
+
+        Lane(int capacity, Thread.Builder builder) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = builder.start(this);
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Runnable task = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (task != null) {
+                        task.run();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void awaitOrInterrupt(long deadlineNanos) {
+            try {
+                long waitMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (waitMs > 0) {
+                    thread.join(waitMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                thread.interrupt();
+            }
+        }
+    }
+}
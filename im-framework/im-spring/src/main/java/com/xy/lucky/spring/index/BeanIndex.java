@@ -0,0 +1,199 @@
+package com.xy.lucky.spring.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BeanIndex - 编译期生成的 Bean 索引
+ * <p>
+ * 由 {@link BeanIndexProcessor} 在编译时写入 {@value #INDEX_LOCATION}，记录组件类、
+ * {@code @Autowired}/{@code @Value} 注入点、{@code @EventListener} 与 {@code @Scheduled} 方法。
+ * 容器启动时读取索引即可得到候选 Bean，无需扫描并加载包下的全部类。
+ * <p>
+ * 索引为 UTF-8 文本，每行一条记录，字段以制表符分隔：
+ * <pre>
+ * component      类名
+ * configuration  类名
+ * autowired      类名  字段名  字段类型  Bean 名称  是否必填
+ * value          类名  字段名  字段类型  占位符表达式
+ * listener       类名  方法名
+ * scheduled      类名  方法名  fixedRate
+ * </pre>
+ */
+public final class BeanIndex {
+
+    /**
+     * 索引文件位置（classpath 下可存在多个，逐个合并）
+     */
+    public static final String INDEX_LOCATION = "META-INF/im-spring/bean.index";
+
+    /**
+     * 设置为 true 时忽略索引，强制扫描类路径
+     */
+    public static final String IGNORE_INDEX_PROPERTY = "im.spring.index.ignore";
+
+    static final String COMPONENT = "component";
+    static final String CONFIGURATION = "configuration";
+    static final String AUTOWIRED = "autowired";
+    static final String VALUE = "value";
+    static final String LISTENER = "listener";
+    static final String SCHEDULED = "scheduled";
+
+    private final Map<String, IndexedBean> beans;
+
+    private BeanIndex(Map<String, IndexedBean> beans) {
+        this.beans = beans;
+    }
+
+    /**
+     * 加载类路径下的全部索引文件
+     *
+     * @param classLoader 类加载器
+     * @return 合并后的索引；未找到索引文件或已通过系统属性禁用时返回 null
+     * @throws IOException 读取索引失败时抛出
+     */
+    public static BeanIndex load(ClassLoader classLoader) throws IOException {
+        if (Boolean.getBoolean(IGNORE_INDEX_PROPERTY)) {
+            return null;
+        }
+        Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+        if (!urls.hasMoreElements()) {
+            return null;
+        }
+        Map<String, IndexedBean> beans = new LinkedHashMap<>();
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            try (InputStream in = url.openStream();
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    parseLine(beans, line);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Bean 索引格式错误: " + url, e);
+            }
+        }
+        return new BeanIndex(beans);
+    }
+
+    private static void parseLine(Map<String, IndexedBean> beans, String line) {
+        if (line.isBlank() || line.startsWith("#")) {
+            return;
+        }
+        String[] cols = line.split("\t", -1);
+        IndexedBean bean = beans.computeIfAbsent(cols[1], IndexedBean::new);
+        switch (cols[0]) {
+            case COMPONENT -> {
+            }
+            case CONFIGURATION -> bean.configuration = true;
+            case AUTOWIRED -> bean.fields.add(new IndexedField(cols[2], cols[3], true,
+                    unescape(cols[4]), Boolean.parseBoolean(cols[5]), null));
+            case VALUE -> bean.fields.add(new IndexedField(cols[2], cols[3], false,
+                    null, true, unescape(cols[4])));
+            case LISTENER -> bean.listenerMethods.add(cols[2]);
+            case SCHEDULED -> bean.scheduledMethods.add(new IndexedScheduled(cols[2], Long.parseLong(cols[3])));
+            default -> throw new IllegalArgumentException("未知的索引记录: " + line);
+        }
+    }
+
+    static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 获取指定包（含子包）下的索引 Bean
+     *
+     * @param basePackage 包路径，如 com.example
+     * @return 索引 Bean 列表，按索引文件顺序
+     */
+    public List<IndexedBean> getBeans(String basePackage) {
+        String prefix = basePackage + ".";
+        List<IndexedBean> result = new ArrayList<>();
+        for (IndexedBean bean : beans.values()) {
+            if (bean.className.startsWith(prefix)) {
+                result.add(bean);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 索引中的 Bean 类
+     */
+    public static final class IndexedBean {
+        private final String className;
+        private final List<IndexedField> fields = new ArrayList<>();
+        private final List<String> listenerMethods = new ArrayList<>();
+        private final List<IndexedScheduled> scheduledMethods = new ArrayList<>();
+        private boolean configuration;
+
+        IndexedBean(String className) {
+            this.className = className;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public boolean isConfiguration() {
+            return configuration;
+        }
+
+        public List<IndexedField> getFields() {
+            return Collections.unmodifiableList(fields);
+        }
+
+        public List<String> getListenerMethods() {
+            return Collections.unmodifiableList(listenerMethods);
+        }
+
+        public List<IndexedScheduled> getScheduledMethods() {
+            return Collections.unmodifiableList(scheduledMethods);
+        }
+    }
+
+    /**
+     * 注入点：autowired 为 true 时按 Bean 注入，否则为 @Value 占位符注入
+     */
+    public record IndexedField(String name, String typeName, boolean autowired,
+                               String beanName, boolean required, String valueExpression) {
+    }
+
+    /**
+     * 定时方法
+     */
+    public record IndexedScheduled(String methodName, long fixedRate) {
+    }
+}
@@ -0,0 +1,208 @@
+package com.xy.lucky.spring.index;
+
+import com.xy.lucky.spring.annotations.core.Autowired;
+import com.xy.lucky.spring.annotations.core.Component;
+import com.xy.lucky.spring.annotations.core.Configuration;
+import com.xy.lucky.spring.annotations.core.Scheduled;
+import com.xy.lucky.spring.annotations.core.Service;
+import com.xy.lucky.spring.annotations.core.Value;
+import com.xy.lucky.spring.annotations.event.EventListener;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BeanIndexProcessor - Bean 索引注解处理器
+ * <p>
+ * 编译期收集 {@code @Component}/{@code @Service}/{@code @Configuration} 类及其注入点、事件监听与定时方法，
+ * 写入 {@value BeanIndex#INDEX_LOCATION}。需在使用方模块的 annotationProcessorPaths 中声明 im-spring。
+ * <p>
+ * 增量编译时只会处理部分源文件，因此会合并上一次生成的索引中仍然存在且仍带组件注解的类。
+ */
+@SupportedAnnotationTypes({
+        "com.xy.lucky.spring.annotations.core.Component",
+        "com.xy.lucky.spring.annotations.core.Service",
+        "com.xy.lucky.spring.annotations.core.Configuration"
+})
+public class BeanIndexProcessor extends AbstractProcessor {
+
+    // 类名 -> 索引记录，保持处理顺序
+    private final Map<String, List<String>> records = new LinkedHashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element instanceof TypeElement type && isBeanClass(type)) {
+                    records.computeIfAbsent(binaryName(type), name -> describe(type, name));
+                }
+            }
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private static boolean isBeanClass(TypeElement type) {
+        ElementKind kind = type.getKind();
+        return kind == ElementKind.CLASS || kind == ElementKind.RECORD || kind == ElementKind.ENUM;
+    }
+
+    private static boolean hasComponentAnnotation(Element element) {
+        return element.getAnnotation(Component.class) != null
+                || element.getAnnotation(Service.class) != null
+                || element.getAnnotation(Configuration.class) != null;
+    }
+
+    private List<String> describe(TypeElement type, String className) {
+        List<String> lines = new ArrayList<>();
+        lines.add(join(type.getAnnotation(Configuration.class) != null ? BeanIndex.CONFIGURATION : BeanIndex.COMPONENT,
+                className));
+        // 与容器保持一致：只记录本类声明的字段和方法
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.FIELD) {
+                describeField((VariableElement) member, className, lines);
+            } else if (member.getKind() == ElementKind.METHOD) {
+                describeMethod((ExecutableElement) member, className, lines);
+            }
+        }
+        return lines;
+    }
+
+    private void describeField(VariableElement field, String className, List<String> lines) {
+        Autowired autowired = field.getAnnotation(Autowired.class);
+        Value value = field.getAnnotation(Value.class);
+        if (autowired == null && value == null) {
+            return;
+        }
+        String fieldName = field.getSimpleName().toString();
+        String typeName = typeName(field.asType());
+        if (autowired != null) {
+            String beanName = autowired.name().trim();
+            if (beanName.isEmpty()) {
+                beanName = autowired.value().trim();
+            }
+            lines.add(join(BeanIndex.AUTOWIRED, className, fieldName, typeName,
+                    BeanIndex.escape(beanName), String.valueOf(autowired.required())));
+        } else {
+            lines.add(join(BeanIndex.VALUE, className, fieldName, typeName, BeanIndex.escape(value.value())));
+        }
+    }
+
+    private void describeMethod(ExecutableElement method, String className, List<String> lines) {
+        String methodName = method.getSimpleName().toString();
+        if (method.getAnnotation(EventListener.class) != null) {
+            lines.add(join(BeanIndex.LISTENER, className, methodName));
+        }
+        Scheduled scheduled = method.getAnnotation(Scheduled.class);
+        if (scheduled != null) {
+            lines.add(join(BeanIndex.SCHEDULED, className, methodName, String.valueOf(scheduled.fixedRate())));
+        }
+    }
+
+    /**
+     * 运行时可由 ClassUtils.forName 加载的类型名：泛型擦除、内部类使用 $、数组以 [] 结尾
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased instanceof ArrayType array) {
+            return typeName(array.getComponentType()) + "[]";
+        }
+        if (erased instanceof DeclaredType declared) {
+            return binaryName((TypeElement) declared.asElement());
+        }
+        return erased.toString();
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private static String join(String... cols) {
+        return String.join("\t", cols);
+    }
+
+    private void writeIndex() {
+        Map<String, List<String>> merged = new LinkedHashMap<>(readPreviousIndex());
+        merged.putAll(records);
+        if (merged.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", BeanIndex.INDEX_LOCATION);
+            try (Writer writer = file.openWriter()) {
+                writer.write("# Generated by " + BeanIndexProcessor.class.getName() + ", do not edit\n");
+                for (List<String> lines : merged.values()) {
+                    for (String line : lines) {
+                        writer.write(line);
+                        writer.write('\n');
+                    }
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "写入 Bean 索引失败: " + e);
+        }
+    }
+
+    /**
+     * 读取上一次生成的索引，保留本轮未重新编译但仍然有效的类
+     */
+    private Map<String, List<String>> readPreviousIndex() {
+        Map<String, List<String>> previous = new LinkedHashMap<>();
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, "", BeanIndex.INDEX_LOCATION);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String className = line.split("\t", 3)[1];
+                    if (!records.containsKey(className) && isStillBean(className)) {
+                        previous.computeIfAbsent(className, k -> new ArrayList<>()).add(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // 首次编译时索引不存在
+        }
+        return previous;
+    }
+
+    private boolean isStillBean(String className) {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+        return type != null && hasComponentAnnotation(type);
+    }
+}
@@ -44,6 +44,22 @@ public final class IMConstant {
      * RabbitMQ 路由键前缀
      */
     public static final String MQ_ROUTERKEY_PREFIX = "IM-ROUTER-";
+    /**
+     * message -> connect 内部二进制载荷的 AMQP content-type（IMessageEnvelope protobuf）
+     */
+    public static final String MQ_CONTENT_TYPE_PROTO_ENVELOPE = "application/x-im-envelope+protobuf";
+    /**
+     * message -> connect 消息头：分区键（群聊为群 ID，单聊为双方 ID 组成的会话键），connect 据此保证同一会话的推送顺序
+     */
+    public static final String MQ_HEADER_PARTITION_KEY = "x-im-partition-key";
+    /**
+     * 群成员变更事件交换机（fanout，每个 message 服务实例各自绑定一个临时队列）
+     */
+    public static final String MQ_GROUP_MEMBER_EXCHANGE = "IM-GROUP-MEMBER";
+    /**
+     * Redis 中群成员版本号的 key 前缀（成员变更时 INCR，随变更事件下发）
+     */
+    public static final String GROUP_MEMBER_VERSION_PREFIX = "IM-GROUP-MEMBER-VERSION-";
     /**
      * Feign 内部调用标识
      */
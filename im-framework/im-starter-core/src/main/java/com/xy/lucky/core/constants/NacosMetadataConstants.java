@@ -9,6 +9,7 @@ public class NacosMetadataConstants {
     public static final String PROTOCOLS = "protocols";
     public static final String PRIORITY = "priority";
     public static final String CONNECTION = "connection";
+    public static final String DRAINING = "draining";
 
     private NacosMetadataConstants() {
     }
@@ -36,6 +36,7 @@ public enum IMessageType {
     HEART_BEAT_FAILED(208, "心跳失败"),
     REGISTER_SUCCESS(209, "注册成功"),
     REGISTER_FAILED(210, "注册失败"),
+    RECONNECT(211, "重连提示"),
 
     /* Message operations (300 - 399) */
     ACK (300, "确认"),
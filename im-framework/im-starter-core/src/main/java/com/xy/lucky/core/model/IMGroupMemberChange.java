@@ -0,0 +1,55 @@
+package com.xy.lucky.core.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 群成员变更事件
+ * <p>
+ * 由 business 在成员加入、退出、被移除、群解散后发布到 IMConstant.MQ_GROUP_MEMBER_EXCHANGE，
+ * message 服务据此失效本地群成员缓存。version 为该群的成员版本号，同一群内单调递增，小于等于 0 表示未知版本。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class IMGroupMemberChange implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 群 ID
+     */
+    private String groupId;
+
+    /**
+     * 成员版本号
+     */
+    private Long version;
+
+    /**
+     * 变更类型
+     */
+    private ChangeType changeType;
+
+    /**
+     * 涉及的成员 ID
+     */
+    private List<String> memberIds;
+
+    /**
+     * 变更时间（毫秒）
+     */
+    private Long changeTime;
+
+    public enum ChangeType {
+        JOIN, QUIT, KICK, DISMISS
+    }
+}
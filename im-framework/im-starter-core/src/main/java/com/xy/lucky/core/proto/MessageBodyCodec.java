@@ -0,0 +1,536 @@
+package com.xy.lucky.core.proto;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MessageBodyCodec - 强类型消息体编解码
+ * <p>
+ * 按 {@link MessageBodySchema} 直接在 Map（Jackson 反序列化形态）与 protobuf 二进制之间转换，
+ * 输出与 im_message_body.proto 生成代码完全兼容，不经过 google.protobuf.Struct 的中间对象：
+ * <ul>
+ *     <li>字段名不再随每条消息重复传输，数字按 varint 编码，int64 不会像 Struct 那样损失精度</li>
+ *     <li>编码只做一次长度计算 + 一次写入，没有 Struct/Value 对象分配</li>
+ * </ul>
+ * 消息体中存在未定义字段或类型不符时返回 null，由调用方回退为 Struct，保证不丢字段。
+ */
+public final class MessageBodyCodec {
+
+    /**
+     * 嵌套层数上限，防止恶意客户端构造深层嵌套耗尽栈
+     */
+    private static final int MAX_DEPTH = 64;
+
+    // google.protobuf.Value 各 kind 的 tag
+    private static final int VALUE_NULL = tag(1, WireFormat.WIRETYPE_VARINT);
+    private static final int VALUE_NUMBER = tag(2, WireFormat.WIRETYPE_FIXED64);
+    private static final int VALUE_STRING = tag(3, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int VALUE_BOOL = tag(4, WireFormat.WIRETYPE_VARINT);
+    private static final int VALUE_STRUCT = tag(5, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int VALUE_LIST = tag(6, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+
+    private MessageBodyCodec() {
+    }
+
+    /**
+     * 按消息类型打包为强类型 Any
+     *
+     * @param code IMessageWrap.code
+     * @param body 消息体（String 键的 Map）
+     * @return 强类型 Any；该消息类型没有强类型定义或消息体无法完整表示时返回 null
+     */
+    public static Any pack(Integer code, Map<?, ?> body) {
+        MessageBodySchema schema = MessageBodySchema.forCode(code);
+        if (schema == null || body == null) {
+            return null;
+        }
+        int size = messageSize(body, schema, 0);
+        if (size < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        try {
+            writeMessage(output, body, schema, 0);
+        } catch (IOException e) {
+            // 长度已预先计算，写入定长数组不会出现 IO 异常
+            throw new IllegalStateException("消息体编码长度不一致", e);
+        }
+        output.checkNoSpaceLeft();
+        return Any.newBuilder()
+                .setTypeUrl(schema.getTypeUrl())
+                .setValue(UnsafeByteOperations.unsafeWrap(bytes))
+                .build();
+    }
+
+    /**
+     * @param typeUrl Any.type_url
+     * @return 是否为强类型消息体
+     */
+    public static boolean isTyped(String typeUrl) {
+        return MessageBodySchema.forTypeUrl(typeUrl) != null;
+    }
+
+    /**
+     * 解包强类型 Any 为 Map（键为 JSON 字段名，数值为 Integer / Long，Struct 字段中的数字为 Double）
+     *
+     * @param any protobuf Any
+     * @return 消息体 Map；不是强类型消息体时返回 null
+     * @throws InvalidProtocolBufferException 二进制格式错误时抛出
+     */
+    public static Map<String, Object> unpack(Any any) throws InvalidProtocolBufferException {
+        MessageBodySchema schema = MessageBodySchema.forTypeUrl(any.getTypeUrl());
+        if (schema == null) {
+            return null;
+        }
+        try {
+            return readMessage(any.getValue().newCodedInput(), schema, 0);
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e);
+        }
+    }
+
+    // ===============================
+    // 长度计算（返回 -1 表示无法用该定义表示）
+    // ===============================
+
+    private static int messageSize(Map<?, ?> body, MessageBodySchema schema, int depth) {
+        if (depth > MAX_DEPTH) {
+            return -1;
+        }
+        int size = 0;
+        for (Map.Entry<?, ?> entry : body.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+            if (!(entry.getKey() instanceof String name)) {
+                return -1;
+            }
+            int fieldSize = -1;
+            for (MessageBodySchema.Field field : schema.fields(name)) {
+                fieldSize = fieldSize(field, value, depth);
+                if (fieldSize >= 0) {
+                    break;
+                }
+            }
+            if (fieldSize < 0) {
+                return -1;
+            }
+            size += fieldSize;
+        }
+        return size;
+    }
+
+    private static int fieldSize(MessageBodySchema.Field field, Object value, int depth) {
+        int number = field.number();
+        switch (field.kind()) {
+            case STRING:
+                return value instanceof String s ? CodedOutputStream.computeStringSize(number, s) : -1;
+            case INT32:
+                return isInt32(value) ? CodedOutputStream.computeInt32Size(number, ((Number) value).intValue()) : -1;
+            case INT64:
+                return isInt64(value) ? CodedOutputStream.computeInt64Size(number, ((Number) value).longValue()) : -1;
+            case BOOL:
+                return value instanceof Boolean b ? CodedOutputStream.computeBoolSize(number, b) : -1;
+            case REPEATED_STRING: {
+                if (!(value instanceof List<?> list)) {
+                    return -1;
+                }
+                int size = 0;
+                for (Object element : list) {
+                    if (!(element instanceof String s)) {
+                        return -1;
+                    }
+                    size += CodedOutputStream.computeStringSize(number, s);
+                }
+                return size;
+            }
+            case MESSAGE:
+                return value instanceof Map<?, ?> map
+                        ? delimitedSize(number, messageSize(map, field.nested(), depth + 1)) : -1;
+            case STRUCT:
+                return value instanceof Map<?, ?> map ? delimitedSize(number, structSize(map, depth + 1)) : -1;
+            case MAP: {
+                if (!(value instanceof Map<?, ?> map)) {
+                    return -1;
+                }
+                int size = 0;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    int entrySize = mapEntrySize(entry, field.nested(), depth + 1);
+                    if (entrySize < 0) {
+                        return -1;
+                    }
+                    size += delimitedSize(number, entrySize);
+                }
+                return size;
+            }
+            default:
+                return -1;
+        }
+    }
+
+    private static int mapEntrySize(Map.Entry<?, ?> entry, MessageBodySchema valueSchema, int depth) {
+        if (!(entry.getKey() instanceof String key) || !(entry.getValue() instanceof Map<?, ?> value)) {
+            return -1;
+        }
+        int valueSize = delimitedSize(2, messageSize(value, valueSchema, depth));
+        return valueSize < 0 ? -1 : CodedOutputStream.computeStringSize(1, key) + valueSize;
+    }
+
+    private static int structSize(Map<?, ?> struct, int depth) {
+        if (depth > MAX_DEPTH) {
+            return -1;
+        }
+        int size = 0;
+        for (Map.Entry<?, ?> entry : struct.entrySet()) {
+            int entrySize = delimitedSize(2, valueSize(entry.getValue(), depth + 1));
+            if (entrySize < 0) {
+                return -1;
+            }
+            size += delimitedSize(1, CodedOutputStream.computeStringSize(1, String.valueOf(entry.getKey())) + entrySize);
+        }
+        return size;
+    }
+
+    /**
+     * google.protobuf.Value 的长度；非 JSON 类型的值按 toString 写为字符串
+     */
+    private static int valueSize(Object value, int depth) {
+        if (value == null) {
+            return CodedOutputStream.computeEnumSize(1, 0);
+        }
+        if (value instanceof Boolean b) {
+            return CodedOutputStream.computeBoolSize(4, b);
+        }
+        if (value instanceof Number n) {
+            return CodedOutputStream.computeDoubleSize(2, n.doubleValue());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return delimitedSize(5, structSize(map, depth + 1));
+        }
+        if (value instanceof List<?> list) {
+            return delimitedSize(6, listSize(list, depth + 1));
+        }
+        return CodedOutputStream.computeStringSize(3, String.valueOf(value));
+    }
+
+    private static int listSize(List<?> list, int depth) {
+        if (depth > MAX_DEPTH) {
+            return -1;
+        }
+        int size = 0;
+        for (Object element : list) {
+            int elementSize = delimitedSize(1, valueSize(element, depth + 1));
+            if (elementSize < 0) {
+                return -1;
+            }
+            size += elementSize;
+        }
+        return size;
+    }
+
+    private static int delimitedSize(int number, int contentSize) {
+        if (contentSize < 0) {
+            return -1;
+        }
+        return CodedOutputStream.computeTagSize(number) + CodedOutputStream.computeUInt32SizeNoTag(contentSize) + contentSize;
+    }
+
+    private static boolean isInt32(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return true;
+        }
+        if (value instanceof Long l) {
+            return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE;
+        }
+        return isIntegral(value, Integer.MIN_VALUE, Integer.MAX_VALUE + 1.0);
+    }
+
+    private static boolean isInt64(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return true;
+        }
+        return isIntegral(value, -0x1p63, 0x1p63);
+    }
+
+    /**
+     * 经 Struct 中转的数字为 Double，整数值仍可按整型编码
+     */
+    private static boolean isIntegral(Object value, double min, double maxExclusive) {
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return d == Math.rint(d) && d >= min && d < maxExclusive;
+        }
+        return false;
+    }
+
+    // ===============================
+    // 写入（调用前已通过长度计算校验）
+    // ===============================
+
+    private static void writeMessage(CodedOutputStream output, Map<?, ?> body, MessageBodySchema schema, int depth)
+            throws IOException {
+        for (Map.Entry<?, ?> entry : body.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+            List<MessageBodySchema.Field> fields = schema.fields((String) entry.getKey());
+            MessageBodySchema.Field chosen = fields.get(0);
+            // oneof：与长度计算一致，选择第一个能表示该值的字段
+            for (int i = 0; fields.size() > 1 && i < fields.size(); i++) {
+                if (fieldSize(fields.get(i), value, depth) >= 0) {
+                    chosen = fields.get(i);
+                    break;
+                }
+            }
+            writeField(output, chosen, value, depth);
+        }
+    }
+
+    private static void writeField(CodedOutputStream output, MessageBodySchema.Field field, Object value, int depth)
+            throws IOException {
+        int number = field.number();
+        switch (field.kind()) {
+            case STRING -> output.writeString(number, (String) value);
+            case INT32 -> output.writeInt32(number, ((Number) value).intValue());
+            case INT64 -> output.writeInt64(number, ((Number) value).longValue());
+            case BOOL -> output.writeBool(number, (Boolean) value);
+            case REPEATED_STRING -> {
+                for (Object element : (List<?>) value) {
+                    output.writeString(number, (String) element);
+                }
+            }
+            case MESSAGE -> {
+                Map<?, ?> map = (Map<?, ?>) value;
+                writeDelimitedHeader(output, number, messageSize(map, field.nested(), depth + 1));
+                writeMessage(output, map, field.nested(), depth + 1);
+            }
+            case STRUCT -> {
+                Map<?, ?> map = (Map<?, ?>) value;
+                writeDelimitedHeader(output, number, structSize(map, depth + 1));
+                writeStruct(output, map, depth + 1);
+            }
+            case MAP -> {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    Map<?, ?> entryValue = (Map<?, ?>) entry.getValue();
+                    writeDelimitedHeader(output, number, mapEntrySize(entry, field.nested(), depth + 1));
+                    output.writeString(1, (String) entry.getKey());
+                    writeDelimitedHeader(output, 2, messageSize(entryValue, field.nested(), depth + 1));
+                    writeMessage(output, entryValue, field.nested(), depth + 1);
+                }
+            }
+        }
+    }
+
+    private static void writeStruct(CodedOutputStream output, Map<?, ?> struct, int depth) throws IOException {
+        for (Map.Entry<?, ?> entry : struct.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            int valueSize = valueSize(entry.getValue(), depth + 1);
+            writeDelimitedHeader(output, 1,
+                    CodedOutputStream.computeStringSize(1, key) + delimitedSize(2, valueSize));
+            output.writeString(1, key);
+            writeDelimitedHeader(output, 2, valueSize);
+            writeValue(output, entry.getValue(), depth + 1);
+        }
+    }
+
+    private static void writeValue(CodedOutputStream output, Object value, int depth) throws IOException {
+        if (value == null) {
+            output.writeEnum(1, 0);
+        } else if (value instanceof Boolean b) {
+            output.writeBool(4, b);
+        } else if (value instanceof Number n) {
+            output.writeDouble(2, n.doubleValue());
+        } else if (value instanceof Map<?, ?> map) {
+            writeDelimitedHeader(output, 5, structSize(map, depth + 1));
+            writeStruct(output, map, depth + 1);
+        } else if (value instanceof List<?> list) {
+            writeDelimitedHeader(output, 6, listSize(list, depth + 1));
+            for (Object element : list) {
+                writeDelimitedHeader(output, 1, valueSize(element, depth + 2));
+                writeValue(output, element, depth + 2);
+            }
+        } else {
+            output.writeString(3, String.valueOf(value));
+        }
+    }
+
+    private static void writeDelimitedHeader(CodedOutputStream output, int number, int contentSize) throws IOException {
+        output.writeTag(number, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(contentSize);
+    }
+
+    // ===============================
+    // 读取
+    // ===============================
+
+    private static Map<String, Object> readMessage(CodedInputStream input, MessageBodySchema schema, int depth)
+            throws IOException {
+        checkDepth(depth);
+        Map<String, Object> body = new LinkedHashMap<>();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            MessageBodySchema.Field field = schema.field(WireFormat.getTagFieldNumber(tag));
+            if (field == null || WireFormat.getTagWireType(tag) != wireType(field.kind())) {
+                input.skipField(tag);
+                continue;
+            }
+            switch (field.kind()) {
+                case STRING -> body.put(field.name(), input.readStringRequireUtf8());
+                case INT32 -> body.put(field.name(), input.readInt32());
+                case INT64 -> body.put(field.name(), input.readInt64());
+                case BOOL -> body.put(field.name(), input.readBool());
+                case REPEATED_STRING -> stringList(body, field.name()).add(input.readStringRequireUtf8());
+                case MESSAGE -> {
+                    int limit = input.pushLimit(input.readRawVarint32());
+                    body.put(field.name(), readMessage(input, field.nested(), depth + 1));
+                    input.popLimit(limit);
+                }
+                case STRUCT -> {
+                    int limit = input.pushLimit(input.readRawVarint32());
+                    body.put(field.name(), readStruct(input, depth + 1));
+                    input.popLimit(limit);
+                }
+                case MAP -> readMapEntry(input, field, nestedMap(body, field.name()), depth + 1);
+            }
+        }
+        return body;
+    }
+
+    private static void readMapEntry(CodedInputStream input, MessageBodySchema.Field field,
+                                     Map<String, Object> target, int depth) throws IOException {
+        int limit = input.pushLimit(input.readRawVarint32());
+        String key = "";
+        Map<String, Object> value = new LinkedHashMap<>();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag == tag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED)) {
+                key = input.readStringRequireUtf8();
+            } else if (tag == tag(2, WireFormat.WIRETYPE_LENGTH_DELIMITED)) {
+                int valueLimit = input.pushLimit(input.readRawVarint32());
+                value = readMessage(input, field.nested(), depth + 1);
+                input.popLimit(valueLimit);
+            } else {
+                input.skipField(tag);
+            }
+        }
+        input.popLimit(limit);
+        target.put(key, value);
+    }
+
+    private static Map<String, Object> readStruct(CodedInputStream input, int depth) throws IOException {
+        checkDepth(depth);
+        Map<String, Object> struct = new LinkedHashMap<>();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag != tag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED)) {
+                input.skipField(tag);
+                continue;
+            }
+            int limit = input.pushLimit(input.readRawVarint32());
+            String key = "";
+            Object value = null;
+            int entryTag;
+            while ((entryTag = input.readTag()) != 0) {
+                if (entryTag == tag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED)) {
+                    key = input.readStringRequireUtf8();
+                } else if (entryTag == tag(2, WireFormat.WIRETYPE_LENGTH_DELIMITED)) {
+                    int valueLimit = input.pushLimit(input.readRawVarint32());
+                    value = readValue(input, depth + 1);
+                    input.popLimit(valueLimit);
+                } else {
+                    input.skipField(entryTag);
+                }
+            }
+            input.popLimit(limit);
+            struct.put(key, value);
+        }
+        return struct;
+    }
+
+    private static Object readValue(CodedInputStream input, int depth) throws IOException {
+        checkDepth(depth);
+        Object value = null;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag == VALUE_NULL) {
+                input.readEnum();
+                value = null;
+            } else if (tag == VALUE_NUMBER) {
+                value = input.readDouble();
+            } else if (tag == VALUE_STRING) {
+                value = input.readStringRequireUtf8();
+            } else if (tag == VALUE_BOOL) {
+                value = input.readBool();
+            } else if (tag == VALUE_STRUCT) {
+                int limit = input.pushLimit(input.readRawVarint32());
+                value = readStruct(input, depth + 1);
+                input.popLimit(limit);
+            } else if (tag == VALUE_LIST) {
+                int limit = input.pushLimit(input.readRawVarint32());
+                value = readList(input, depth + 1);
+                input.popLimit(limit);
+            } else {
+                input.skipField(tag);
+            }
+        }
+        return value;
+    }
+
+    private static List<Object> readList(CodedInputStream input, int depth) throws IOException {
+        checkDepth(depth);
+        List<Object> list = new ArrayList<>();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag != tag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED)) {
+                input.skipField(tag);
+                continue;
+            }
+            int limit = input.pushLimit(input.readRawVarint32());
+            list.add(readValue(input, depth + 1));
+            input.popLimit(limit);
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> stringList(Map<String, Object> body, String name) {
+        return (List<Object>) body.computeIfAbsent(name, k -> new ArrayList<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> nestedMap(Map<String, Object> body, String name) {
+        return (Map<String, Object>) body.computeIfAbsent(name, k -> new LinkedHashMap<>());
+    }
+
+    private static int wireType(MessageBodySchema.Kind kind) {
+        return switch (kind) {
+            case INT32, INT64, BOOL -> WireFormat.WIRETYPE_VARINT;
+            default -> WireFormat.WIRETYPE_LENGTH_DELIMITED;
+        };
+    }
+
+    private static int tag(int number, int wireType) {
+        return (number << 3) | wireType;
+    }
+
+    private static void checkDepth(int depth) throws InvalidProtocolBufferException {
+        if (depth > MAX_DEPTH) {
+            throw new InvalidProtocolBufferException("消息体嵌套层数超过 " + MAX_DEPTH);
+        }
+    }
+}
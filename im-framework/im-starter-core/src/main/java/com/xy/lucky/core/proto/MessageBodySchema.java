@@ -0,0 +1,205 @@
+package com.xy.lucky.core.proto;
+
+import com.xy.lucky.core.enums.IMessageType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MessageBodySchema - 强类型消息体的字段定义
+ * <p>
+ * 与 im-connect-core 的 im_message_body.proto 一一对应：字段编号、类型一致，字段名取 JSON 名（驼峰）。
+ * 同一 JSON 字段可对应多个 proto 字段（oneof），编码时按声明顺序选择第一个能完整表示该值的字段。
+ */
+public final class MessageBodySchema {
+
+    /**
+     * Any.type_url 前缀
+     */
+    public static final String TYPE_URL_PREFIX = "type.googleapis.com/";
+
+    private static final String PACKAGE = "im.connect.";
+
+    private static final Map<Integer, MessageBodySchema> BY_CODE = new HashMap<>();
+    private static final Map<String, MessageBodySchema> BY_TYPE_URL = new HashMap<>();
+
+    static {
+        MessageBodySchema reply = new MessageBodySchema("ReplyMessageInfo",
+                Field.string(1, "messageId"),
+                Field.string(2, "fromId"),
+                Field.string(3, "previewText"),
+                Field.int32(4, "messageContentType"));
+        MessageBodySchema text = new MessageBodySchema("TextMessageBody",
+                Field.string(1, "text"),
+                Field.message(2, "replyMessage", reply),
+                Field.repeatedString(3, "mentionedUserIds"),
+                Field.bool(4, "mentionAll"));
+        MessageBodySchema media = new MessageBodySchema("MediaMessageBody",
+                Field.string(1, "key"),
+                Field.string(2, "name"),
+                Field.string(3, "suffix"),
+                Field.int32(4, "size"),
+                Field.int32(5, "duration"),
+                Field.message(6, "replyMessage", reply));
+
+        register(chatMessage("SingleMessage", text, media,
+                Field.string(12, "toId"),
+                Field.int32(13, "messageType")), IMessageType.SINGLE_MESSAGE);
+        register(chatMessage("GroupMessage", text, media,
+                Field.string(12, "groupId"),
+                Field.int32(13, "messageType"),
+                Field.repeatedString(14, "toList")), IMessageType.GROUP_MESSAGE);
+        register(chatMessage("SystemMessage", text, media,
+                Field.string(12, "toId"),
+                Field.int32(13, "messageType")), IMessageType.SYSTEM_MESSAGE);
+        register(new MessageBodySchema("VideoMessage",
+                Field.string(1, "fromId"),
+                Field.string(2, "toId"),
+                Field.string(3, "url"),
+                Field.int32(4, "type")), IMessageType.VIDEO_MESSAGE);
+        register(new MessageBodySchema("Heartbeat"),
+                IMessageType.HEART_BEAT_PING, IMessageType.HEART_BEAT_PONG);
+
+        MessageBodySchema driver = new MessageBodySchema("RegisterDriver",
+                Field.string(1, "deviceId"),
+                Field.string(2, "deviceType"));
+        register(new MessageBodySchema("RegisterMessage",
+                Field.string(1, "userId"),
+                Field.string(2, "token"),
+                Field.string(3, "brokerId"),
+                Field.map(4, "drivers", driver)), IMessageType.REGISTER);
+    }
+
+    private final String typeUrl;
+    private final Field[] byNumber;
+    private final Map<String, List<Field>> byName = new LinkedHashMap<>();
+
+    private MessageBodySchema(String name, Field... fields) {
+        this.typeUrl = TYPE_URL_PREFIX + PACKAGE + name;
+        int maxNumber = 0;
+        for (Field field : fields) {
+            maxNumber = Math.max(maxNumber, field.number());
+        }
+        this.byNumber = new Field[maxNumber + 1];
+        for (Field field : fields) {
+            byNumber[field.number()] = field;
+            byName.computeIfAbsent(field.name(), k -> new ArrayList<>(1)).add(field);
+        }
+    }
+
+    /**
+     * 单聊 / 群聊 / 系统消息的公共字段（对应 IMessage），messageBody 依次尝试文本、媒体、Struct
+     */
+    private static MessageBodySchema chatMessage(String name, MessageBodySchema text, MessageBodySchema media,
+                                                 Field... own) {
+        Field[] common = {
+                Field.string(1, "fromId"),
+                Field.string(2, "messageTempId"),
+                Field.string(3, "messageId"),
+                Field.int32(4, "messageContentType"),
+                Field.int64(5, "messageTime"),
+                Field.int32(6, "readStatus"),
+                Field.int64(7, "sequence"),
+                Field.struct(8, "extra"),
+                Field.message(9, "messageBody", text),
+                Field.message(10, "messageBody", media),
+                Field.struct(11, "messageBody")
+        };
+        Field[] fields = new Field[common.length + own.length];
+        System.arraycopy(common, 0, fields, 0, common.length);
+        System.arraycopy(own, 0, fields, common.length, own.length);
+        return new MessageBodySchema(name, fields);
+    }
+
+    private static void register(MessageBodySchema schema, IMessageType... types) {
+        for (IMessageType type : types) {
+            BY_CODE.put(type.getCode(), schema);
+        }
+        BY_TYPE_URL.put(schema.typeUrl, schema);
+    }
+
+    /**
+     * @param code IMessageWrap.code
+     * @return 该消息类型的强类型定义，没有定义时返回 null
+     */
+    public static MessageBodySchema forCode(Integer code) {
+        return code == null ? null : BY_CODE.get(code);
+    }
+
+    /**
+     * @param typeUrl Any.type_url
+     * @return 对应的强类型定义，不是强类型消息体时返回 null
+     */
+    public static MessageBodySchema forTypeUrl(String typeUrl) {
+        return typeUrl == null ? null : BY_TYPE_URL.get(typeUrl);
+    }
+
+    public String getTypeUrl() {
+        return typeUrl;
+    }
+
+    Field field(int number) {
+        return number < byNumber.length ? byNumber[number] : null;
+    }
+
+    /**
+     * @return JSON 字段名对应的候选 proto 字段，未定义时返回空列表
+     */
+    List<Field> fields(String name) {
+        return byName.getOrDefault(name, Collections.emptyList());
+    }
+
+    /**
+     * 字段类型（与 proto 标量 / 复合类型对应）
+     */
+    enum Kind {
+        STRING, INT32, INT64, BOOL, REPEATED_STRING, MESSAGE, STRUCT, MAP
+    }
+
+    /**
+     * 字段定义
+     *
+     * @param number proto 字段编号
+     * @param name   JSON 字段名
+     * @param kind   字段类型
+     * @param nested MESSAGE 的消息定义或 MAP 的 value 消息定义
+     */
+    record Field(int number, String name, Kind kind, MessageBodySchema nested) {
+
+        static Field string(int number, String name) {
+            return new Field(number, name, Kind.STRING, null);
+        }
+
+        static Field int32(int number, String name) {
+            return new Field(number, name, Kind.INT32, null);
+        }
+
+        static Field int64(int number, String name) {
+            return new Field(number, name, Kind.INT64, null);
+        }
+
+        static Field bool(int number, String name) {
+            return new Field(number, name, Kind.BOOL, null);
+        }
+
+        static Field repeatedString(int number, String name) {
+            return new Field(number, name, Kind.REPEATED_STRING, null);
+        }
+
+        static Field message(int number, String name, MessageBodySchema nested) {
+            return new Field(number, name, Kind.MESSAGE, nested);
+        }
+
+        static Field struct(int number, String name) {
+            return new Field(number, name, Kind.STRUCT, null);
+        }
+
+        static Field map(int number, String name, MessageBodySchema valueSchema) {
+            return new Field(number, name, Kind.MAP, valueSchema);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.xy.lucky.gateway.lb;
 
+import com.xy.lucky.core.constants.NacosMetadataConstants;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cloud.client.ServiceInstance;
@@ -40,8 +41,8 @@ public class NacosWebsocketClusterChooseRule implements ReactorServiceInstanceLo
     // 机器码
     private static final String IM_BROKER = "brokerId";
 
-    // metadata 中的连接数
-    private static final String CONNECTION_COUNT = "connection_count";
+    // metadata 中的连接数（与 im-connect 上报的键一致）
+    private static final String CONNECTION_COUNT = NacosMetadataConstants.CONNECTION;
 
     // 轮询计数器
     private final AtomicInteger position = new AtomicInteger(0);
@@ -90,12 +91,18 @@ public class NacosWebsocketClusterChooseRule implements ReactorServiceInstanceLo
     }
 
     /**
-     * 最少连接数负载均衡算法
+     * 最少连接数负载均衡算法，跳过正在迁移连接（metadata draining=true）的实例，全部在迁移时不过滤
      */
     private Response<ServiceInstance> chooseByLeastConnection(List<ServiceInstance> instances) {
-        ServiceInstance instance = instances.stream()
+        List<ServiceInstance> candidates = instances.stream()
+                .filter(i -> !Boolean.parseBoolean(i.getMetadata().get(NacosMetadataConstants.DRAINING)))
+                .toList();
+        if (candidates.isEmpty()) {
+            candidates = instances;
+        }
+        ServiceInstance instance = candidates.stream()
                 .min(Comparator.comparingInt(this::getConnectionCount))
-                .orElse(instances.get(Math.abs(position.incrementAndGet()) % instances.size()));
+                .orElse(candidates.get(Math.abs(position.incrementAndGet()) % candidates.size()));
 
         log.info("负载均衡结果：已选实例 {}, 当前连接数 {}", instance.getMetadata().get(IM_BROKER), getConnectionCount(instance));
         return new DefaultResponse(instance);
@@ -0,0 +1,34 @@
+package com.xy.lucky.message.config;
+
+import com.xy.lucky.core.constants.IMConstant;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 群成员变更事件订阅
+ * <p>
+ * 每个实例绑定一个独占、自动删除的临时队列到 fanout 交换机，保证所有实例的本地缓存都能收到失效事件
+ */
+@Configuration
+public class GroupMemberEventConfig {
+
+    @Bean
+    public FanoutExchange groupMemberExchange() {
+        return new FanoutExchange(IMConstant.MQ_GROUP_MEMBER_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Queue groupMemberChangeQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding groupMemberChangeBinding(Queue groupMemberChangeQueue, FanoutExchange groupMemberExchange) {
+        return BindingBuilder.bind(groupMemberChangeQueue).to(groupMemberExchange);
+    }
+}
@@ -79,6 +79,7 @@ public interface MessageBeanMapper {
             @Mapping(target = "readStatus", ignore = true),
             @Mapping(target = "delFlag", ignore = true),
             @Mapping(target = "messageRandom", ignore = true),
+            @Mapping(target = "groupSeq", ignore = true),
             @Mapping(target = "createTime", ignore = true),
             @Mapping(target = "updateTime", ignore = true),
             @Mapping(target = "version", ignore = true)
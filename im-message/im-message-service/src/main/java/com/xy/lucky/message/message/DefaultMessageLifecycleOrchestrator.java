@@ -1,10 +1,16 @@
 package com.xy.lucky.message.message;
 
 import com.xy.lucky.core.constants.IMConstant;
+import com.xy.lucky.core.model.IMGroupAction;
+import com.xy.lucky.core.model.IMGroupMessage;
 import com.xy.lucky.core.model.IMRegisterUser;
+import com.xy.lucky.core.model.IMSingleMessage;
+import com.xy.lucky.core.model.IMVideoMessage;
+import com.xy.lucky.core.model.IMessageAction;
 import com.xy.lucky.core.model.IMessageWrap;
 import com.xy.lucky.message.message.dispatch.LightweightTimeWheel;
 import com.xy.lucky.message.message.dispatch.MessageDispatchTask;
+import com.xy.lucky.message.message.dispatch.ProtoEnvelopeEncoder;
 import com.xy.lucky.message.message.monitor.MessageMetricsRecorder;
 import com.xy.lucky.message.message.offline.OfflineMessageRecord;
 import com.xy.lucky.message.message.offline.OfflineMessageService;
@@ -19,6 +25,8 @@ import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
 import org.springframework.amqp.core.ReturnedMessage;
 import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -85,6 +93,9 @@ public class DefaultMessageLifecycleOrchestrator implements MessageLifecycleOrch
     @Value("${message.dispatch.confirm-timeout-check-interval-ms:1000}")
     private long confirmTimeoutCheckIntervalMs;
 
+    @Value("${message.dispatch.binary-payload-enabled:false}")
+    private boolean binaryPayloadEnabled;
+
     private RabbitTemplate rabbitTemplate;
     private LightweightTimeWheel retryTimeWheel;
 
@@ -184,7 +195,8 @@ public class DefaultMessageLifecycleOrchestrator implements MessageLifecycleOrch
         }
         List<OfflineMessageRecord> records = offlineMessageService.pull(userId, OFFLINE_REPLAY_BATCH_SIZE);
         for (OfflineMessageRecord record : records) {
-            enqueueDispatch(record.messageId(), onlineUser.getBrokerId(), List.of(userId), record.payload(), 0, System.currentTimeMillis());
+            enqueueDispatch(record.messageId(), onlineUser.getBrokerId(), List.of(userId), userId, record.payload(), null,
+                    0, System.currentTimeMillis());
         }
     }
 
@@ -209,8 +221,24 @@ public class DefaultMessageLifecycleOrchestrator implements MessageLifecycleOrch
         pendingTaskMap.put(task.correlationId(), task);
         pendingTaskStartMap.put(task.correlationId(), System.currentTimeMillis());
         try {
-            rabbitTemplate.convertAndSend(IMConstant.MQ_EXCHANGE_NAME, task.brokerId(), task.payload(),
-                    new CorrelationData(task.correlationId()));
+            CorrelationData correlationData = new CorrelationData(task.correlationId());
+            String partitionKey = task.partitionKey();
+            if (task.binaryPayload() != null) {
+                Message message = MessageBuilder.withBody(task.binaryPayload())
+                        .setContentType(IMConstant.MQ_CONTENT_TYPE_PROTO_ENVELOPE)
+                        .build();
+                if (partitionKey != null) {
+                    message.getMessageProperties().setHeader(IMConstant.MQ_HEADER_PARTITION_KEY, partitionKey);
+                }
+                rabbitTemplate.send(IMConstant.MQ_EXCHANGE_NAME, task.brokerId(), message, correlationData);
+            } else {
+                rabbitTemplate.convertAndSend(IMConstant.MQ_EXCHANGE_NAME, task.brokerId(), task.payload(), message -> {
+                    if (partitionKey != null) {
+                        message.getMessageProperties().setHeader(IMConstant.MQ_HEADER_PARTITION_KEY, partitionKey);
+                    }
+                    return message;
+                }, correlationData);
+            }
         } catch (Exception e) {
             pendingTaskMap.remove(task.correlationId());
             pendingTaskStartMap.remove(task.correlationId());
@@ -310,25 +338,80 @@ public class DefaultMessageLifecycleOrchestrator implements MessageLifecycleOrch
      * 构建发送给 connect 节点的标准消息载荷。
      */
     private String buildPayload(Integer messageType, Object payload, List<String> userIds) {
-        IMessageWrap<Object> wrapper = new IMessageWrap<>()
+        return JacksonUtils.toJSONString(buildWrapper(messageType, payload, userIds));
+    }
+
+    private IMessageWrap<Object> buildWrapper(Integer messageType, Object payload, List<String> userIds) {
+        return new IMessageWrap<>()
                 .setCode(messageType)
                 .setData(payload)
                 .setIds(userIds);
-        return JacksonUtils.toJSONString(wrapper);
+    }
+
+    /**
+     * 构建发送给 connect 节点的二进制载荷，与 JSON 载荷共用同一 wrapper（requestId / timestamp 一致），失败时返回 null 回退为 JSON 发送。
+     */
+    private byte[] buildBinaryPayload(IMessageWrap<Object> wrapper, String payloadJson) {
+        if (!binaryPayloadEnabled) {
+            return null;
+        }
+        try {
+            return ProtoEnvelopeEncoder.encode(wrapper, payloadJson);
+        } catch (Exception e) {
+            log.warn("二进制载荷编码失败，回退 JSON: messageType={}", wrapper.getCode(), e);
+            return null;
+        }
     }
 
     /**
      * 在线用户分发入口：负责组装 payload 并入队。
      */
     private void enqueueOnlineDispatch(Integer messageType, Object payload, String messageId, String brokerId, List<String> userIds) {
-        String payloadJson = buildPayload(messageType, payload, userIds);
-        enqueueDispatch(messageId, brokerId, userIds, payloadJson, 0, System.currentTimeMillis());
+        IMessageWrap<Object> wrapper = buildWrapper(messageType, payload, userIds);
+        String payloadJson = JacksonUtils.toJSONString(wrapper);
+        byte[] binaryPayload = buildBinaryPayload(wrapper, payloadJson);
+        enqueueDispatch(messageId, brokerId, userIds, conversationKey(payload, userIds), payloadJson, binaryPayload,
+                0, System.currentTimeMillis());
+    }
+
+    /**
+     * 计算 MQ 分区键：群消息按群 ID，单聊按双方 ID 组成的会话键（与方向无关），其余按首个目标用户。
+     * <p>
+     * 同一会话的消息在 connect 端进入同一分发通道，按发送顺序推送；群消息按 broker 拆分后仍共用同一个键。
+     */
+    static String conversationKey(Object payload, List<String> userIds) {
+        String groupId = null;
+        String fromId = null;
+        String toId = null;
+        if (payload instanceof IMGroupMessage message) {
+            groupId = message.getGroupId();
+        } else if (payload instanceof IMGroupAction action) {
+            groupId = action.getGroupId();
+        } else if (payload instanceof IMessageAction action) {
+            groupId = action.getGroupId();
+            fromId = action.getFromId();
+            toId = action.getToId();
+        } else if (payload instanceof IMSingleMessage message) {
+            fromId = message.getFromId();
+            toId = message.getToId();
+        } else if (payload instanceof IMVideoMessage message) {
+            fromId = message.getFromId();
+            toId = message.getToId();
+        }
+        if (StringUtils.hasText(groupId)) {
+            return "group:" + groupId;
+        }
+        if (StringUtils.hasText(fromId) && StringUtils.hasText(toId)) {
+            return fromId.compareTo(toId) <= 0 ? "single:" + fromId + ":" + toId : "single:" + toId + ":" + fromId;
+        }
+        return CollectionUtils.isEmpty(userIds) ? null : userIds.get(0);
     }
 
     /**
      * 统一创建 Outbox 记录并生成分发任务，避免 dispatch/replay 逻辑重复。
      */
-    private void enqueueDispatch(String messageId, String brokerId, List<String> userIds, String payload, int attempt, long firstEnqueueAt) {
+    private void enqueueDispatch(String messageId, String brokerId, List<String> userIds, String partitionKey, String payload,
+                                 byte[] binaryPayload, int attempt, long firstEnqueueAt) {
         Long outboxId = outboxRecordService.createPending(
                 messageId,
                 payload,
@@ -341,7 +424,9 @@ public class DefaultMessageLifecycleOrchestrator implements MessageLifecycleOrch
                 .outboxId(outboxId)
                 .brokerId(brokerId)
                 .userIds(userIds)
+                .partitionKey(partitionKey)
                 .payload(payload)
+                .binaryPayload(binaryPayload)
                 .attempt(attempt)
                 .firstEnqueueAt(firstEnqueueAt)
                 .build();
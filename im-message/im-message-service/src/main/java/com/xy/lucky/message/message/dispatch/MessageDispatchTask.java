@@ -11,7 +11,9 @@ import java.util.List;
  * @param messageId     业务消息 ID
  * @param brokerId      目标 broker 路由键
  * @param userIds       当前任务对应的目标用户
- * @param payload       序列化后的消息内容
+ * @param partitionKey  MQ 分区键（会话 / 群 ID），connect 据此保证同一会话按序推送
+ * @param payload       序列化后的消息内容（JSON，用于 Outbox 与离线存储）
+ * @param binaryPayload 内部二进制载荷（IMessageEnvelope），为空时以 JSON 发送
  * @param attempt       当前重试次数
  */
 @Builder(toBuilder = true)
@@ -21,7 +23,9 @@ public record MessageDispatchTask(
         Long outboxId,
         String brokerId,
         List<String> userIds,
+        String partitionKey,
         String payload,
+        byte[] binaryPayload,
         int attempt,
         long firstEnqueueAt
 ) {
@@ -0,0 +1,179 @@
+package com.xy.lucky.message.message.dispatch;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.protobuf.Any;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.NullValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import com.google.protobuf.WireFormat;
+import com.xy.lucky.core.model.IMessageWrap;
+import com.xy.lucky.core.proto.MessageBodyCodec;
+import com.xy.lucky.core.proto.MessageBodySchema;
+import com.xy.lucky.utils.json.JacksonUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * message -> connect 内部二进制载荷编码器。
+ * <p>
+ * 输出格式为 connect 侧 im_message_wrap.proto 中定义的 IMessageEnvelope：
+ * <pre>
+ * message IMessageEnvelope {
+ *   repeated string ids = 1;   // 目标用户
+ *   IMessageWrap wrap = 2;     // 与下发给 protobuf 客户端的 IMessageWrap 完全一致
+ *   bytes json = 3;            // 原始 JSON 载荷（UTF-8），仅 data 回退为 Struct 时携带
+ * }
+ * </pre>
+ * wrap 的 code / request_id / timestamp 取自与 JSON 通道相同的 IMessageWrap，connect 按 request_id 去重，MQ 重投不会重复下发。
+ * data 与 connect 的 ProtoJsonUtils.packAny(code, data) 规则一致：有强类型定义的消息类型按 im_message_body.proto 编码，
+ * long 字段为 int64，无精度损失，connect 可直接由 wrap 还原 JSON / TCP 连接的下发对象；
+ * 无定义或存在未定义字段时打包为 google.protobuf.Struct，其数值均为 double，long 型字段（如 recallTime、超过 2^53 的 ID）
+ * 会丢失精度，此时才附带原始 JSON，非 protobuf 连接以该 JSON 为准。
+ */
+public final class ProtoEnvelopeEncoder {
+
+    private static final int ENVELOPE_IDS_FIELD = 1;
+    private static final int ENVELOPE_WRAP_FIELD = 2;
+    private static final int ENVELOPE_JSON_FIELD = 3;
+    private static final int WRAP_CODE_FIELD = 1;
+    private static final int WRAP_DATA_FIELD = 3;
+    private static final int WRAP_REQUEST_ID_FIELD = 6;
+    private static final int WRAP_TIMESTAMP_FIELD = 7;
+
+    private static final TypeReference<Map<String, Object>> BODY_TYPE = new TypeReference<>() {
+    };
+
+    private ProtoEnvelopeEncoder() {
+    }
+
+    /**
+     * 编码为 IMessageEnvelope 二进制。
+     *
+     * @param wrapper 发送给 connect 的消息（code / data / ids / requestId / timestamp）
+     * @param json    wrapper 序列化后的 JSON，仅 data 回退为 Struct 时携带，为空时不携带
+     * @return 二进制载荷
+     */
+    public static byte[] encode(IMessageWrap<?> wrapper, String json) throws IOException {
+        Integer messageType = wrapper.getCode();
+        Any typed = packTyped(messageType, wrapper.getData());
+        Any data = typed != null ? typed : Any.pack(toStruct(wrapper.getData()));
+        int code = messageType == null ? 0 : messageType;
+        String requestId = StringUtils.hasText(wrapper.getRequestId()) ? wrapper.getRequestId() : null;
+        long timestamp = wrapper.getTimestamp() == null ? 0L : wrapper.getTimestamp();
+        List<String> userIds = wrapper.getIds();
+
+        int wrapSize = CodedOutputStream.computeMessageSize(WRAP_DATA_FIELD, data);
+        if (code != 0) {
+            wrapSize += CodedOutputStream.computeInt32Size(WRAP_CODE_FIELD, code);
+        }
+        if (requestId != null) {
+            wrapSize += CodedOutputStream.computeStringSize(WRAP_REQUEST_ID_FIELD, requestId);
+        }
+        if (timestamp != 0L) {
+            wrapSize += CodedOutputStream.computeInt64Size(WRAP_TIMESTAMP_FIELD, timestamp);
+        }
+        int size = CodedOutputStream.computeTagSize(ENVELOPE_WRAP_FIELD)
+                + CodedOutputStream.computeUInt32SizeNoTag(wrapSize) + wrapSize;
+        if (userIds != null) {
+            for (String userId : userIds) {
+                size += CodedOutputStream.computeStringSize(ENVELOPE_IDS_FIELD, userId);
+            }
+        }
+        // 强类型消息体可由 wrap 无损还原，不再重复携带 JSON
+        byte[] jsonBytes = typed == null && json != null ? json.getBytes(StandardCharsets.UTF_8) : null;
+        if (jsonBytes != null) {
+            size += CodedOutputStream.computeByteArraySize(ENVELOPE_JSON_FIELD, jsonBytes);
+        }
+
+        byte[] bytes = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        if (userIds != null) {
+            for (String userId : userIds) {
+                output.writeString(ENVELOPE_IDS_FIELD, userId);
+            }
+        }
+        output.writeTag(ENVELOPE_WRAP_FIELD, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(wrapSize);
+        if (code != 0) {
+            output.writeInt32(WRAP_CODE_FIELD, code);
+        }
+        output.writeMessage(WRAP_DATA_FIELD, data);
+        if (requestId != null) {
+            output.writeString(WRAP_REQUEST_ID_FIELD, requestId);
+        }
+        if (timestamp != 0L) {
+            output.writeInt64(WRAP_TIMESTAMP_FIELD, timestamp);
+        }
+        if (jsonBytes != null) {
+            output.writeByteArray(ENVELOPE_JSON_FIELD, jsonBytes);
+        }
+        output.checkNoSpaceLeft();
+        return bytes;
+    }
+
+    /**
+     * 打包为强类型消息体，没有强类型定义或不能完整表示时返回 null，由调用方回退为 Struct
+     */
+    private static Any packTyped(Integer messageType, Object payload) {
+        if (payload == null || payload instanceof String || MessageBodySchema.forCode(messageType) == null) {
+            return null;
+        }
+        return MessageBodyCodec.pack(messageType, JacksonUtils.parseObject(payload, BODY_TYPE));
+    }
+
+    /**
+     * 与 connect 的 packAny 保持一致：对象转为 Struct，基础类型与数组包装为 {"value": v}。
+     */
+    private static Struct toStruct(Object payload) {
+        if (payload == null) {
+            return Struct.getDefaultInstance();
+        }
+        JsonNode node = JacksonUtils.parseJSONObject(payload);
+        if (node != null && node.isObject()) {
+            return toStruct(node);
+        }
+        return Struct.newBuilder().putFields("value", toValue(node)).build();
+    }
+
+    private static Struct toStruct(JsonNode node) {
+        Struct.Builder builder = Struct.newBuilder();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            builder.putFields(field.getKey(), toValue(field.getValue()));
+        }
+        return builder.build();
+    }
+
+    private static Value toValue(JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return Value.newBuilder().setNullValue(NullValue.NULL_VALUE).build();
+        }
+        if (node.isObject()) {
+            return Value.newBuilder().setStructValue(toStruct(node)).build();
+        }
+        if (node.isArray()) {
+            ListValue.Builder list = ListValue.newBuilder();
+            for (JsonNode element : node) {
+                list.addValues(toValue(element));
+            }
+            return Value.newBuilder().setListValue(list).build();
+        }
+        if (node.isBoolean()) {
+            return Value.newBuilder().setBoolValue(node.booleanValue()).build();
+        }
+        if (node.isNumber()) {
+            // protobuf Value.number_value 为 double，与 connect 侧转换规则一致；非 protobuf 客户端使用 json 字段，不受影响
+            return Value.newBuilder().setNumberValue(node.doubleValue()).build();
+        }
+        return Value.newBuilder().setStringValue(node.asText()).build();
+    }
+}
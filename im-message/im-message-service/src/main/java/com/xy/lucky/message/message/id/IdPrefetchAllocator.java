@@ -0,0 +1,173 @@
+package com.xy.lucky.message.message.id;
+
+import com.xy.lucky.core.model.IMetaId;
+import com.xy.lucky.rpc.api.leaf.ImIdDubboService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Leaf ID 本地预取分配器。
+ * <p>
+ * - 每个 (type, key) 维护一个本地缓冲，发送路径直接从缓冲取 ID，不再每条消息一次 ImIdDubboService#generateId 调用
+ * - 缓冲余量降到低水位时，在异步线程通过 generateIds 按块补充，同一缓冲同时只有一个补充任务
+ * - 缓冲为空时（冷启动或补充跟不上）回退为同步 generateId，单次发送最多仍是一次 RPC，并记录空缓冲次数
+ * - 雪花 ID 的时间戳取自补充时刻，缓冲内的 ID 会早于实际发送时间，块大小不宜过大；消息排序以 messageTime 为准
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdPrefetchAllocator {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<BufferKey, IdBuffer> buffers = new ConcurrentHashMap<>();
+
+    @DubboReference
+    private ImIdDubboService idDubboService;
+
+    @Resource(name = "asyncTaskExecutor")
+    private Executor asyncTaskExecutor;
+
+    @Value("${message.id-prefetch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${message.id-prefetch.block-size:200}")
+    private int blockSize;
+
+    @Value("${message.id-prefetch.low-water-mark:100}")
+    private int lowWaterMark;
+
+    /**
+     * 获取一个 ID
+     *
+     * @param type 策略类型：snowflake | redis | uid | uuid
+     * @param key  业务标识
+     * @return ID 对象
+     */
+    public IMetaId nextId(String type, String key) {
+        if (!enabled) {
+            return idDubboService.generateId(type, key);
+        }
+        IdBuffer buffer = buffers.computeIfAbsent(new BufferKey(type, key), this::createBuffer);
+        IMetaId id = buffer.ids.poll();
+        if (id != null) {
+            if (buffer.size.decrementAndGet() <= lowWaterMark) {
+                refillAsync(buffer);
+            }
+            return id;
+        }
+        buffer.emptyCounter.increment();
+        refillAsync(buffer);
+        return idDubboService.generateId(type, key);
+    }
+
+    /**
+     * 当前缓冲中的 ID 数量
+     */
+    public int buffered(String type, String key) {
+        IdBuffer buffer = buffers.get(new BufferKey(type, key));
+        return buffer == null ? 0 : buffer.size.get();
+    }
+
+    private void refillAsync(IdBuffer buffer) {
+        if (!buffer.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            asyncTaskExecutor.execute(() -> {
+                try {
+                    refill(buffer);
+                } finally {
+                    buffer.refilling.set(false);
+                }
+            });
+        } catch (Exception e) {
+            buffer.refilling.set(false);
+            log.warn("提交 ID 预取任务失败: type={}, key={}, error={}", buffer.key.type(), buffer.key.key(), e.getMessage());
+        }
+    }
+
+    private void refill(IdBuffer buffer) {
+        BufferKey key = buffer.key;
+        int count = Math.max(1, blockSize);
+        long start = System.nanoTime();
+        try {
+            List<IMetaId> ids = idDubboService.generateIds(key.type(), key.key(), count);
+            buffer.refillTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (CollectionUtils.isEmpty(ids)) {
+                log.warn("ID 预取返回为空: type={}, key={}", key.type(), key.key());
+                return;
+            }
+            for (IMetaId id : ids) {
+                if (id != null) {
+                    buffer.ids.offer(id);
+                    buffer.size.incrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("ID 预取失败，等待下次触发: type={}, key={}, error={}", key.type(), key.key(), e.getMessage());
+        }
+    }
+
+    private IdBuffer createBuffer(BufferKey key) {
+        IdBuffer buffer = new IdBuffer(key,
+                Timer.builder("im_message_id_prefetch_refill")
+                        .description("latency of leaf generateIds block refill")
+                        .tag("type", key.type())
+                        .tag("key", key.key())
+                        .register(meterRegistry),
+                Counter.builder("im_message_id_prefetch_empty_total")
+                        .description("id requests that found the prefetch buffer empty and fell back to generateId")
+                        .tag("type", key.type())
+                        .tag("key", key.key())
+                        .register(meterRegistry));
+        Gauge.builder("im_message_id_prefetch_buffered", buffer.size, AtomicInteger::get)
+                .description("ids currently held in the prefetch buffer")
+                .tag("type", key.type())
+                .tag("key", key.key())
+                .register(meterRegistry);
+        return buffer;
+    }
+
+    private record BufferKey(String type, String key) {
+        private BufferKey {
+            Objects.requireNonNull(type, "type");
+            Objects.requireNonNull(key, "key");
+        }
+    }
+
+    private static final class IdBuffer {
+        private final BufferKey key;
+        private final Queue<IMetaId> ids = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean(false);
+        private final Timer refillTimer;
+        private final Counter emptyCounter;
+
+        private IdBuffer(BufferKey key, Timer refillTimer, Counter emptyCounter) {
+            this.key = key;
+            this.refillTimer = refillTimer;
+            this.emptyCounter = emptyCounter;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.xy.lucky.message.message.member;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xy.lucky.core.model.IMGroupMemberChange;
+import com.xy.lucky.domain.po.ImGroupMemberPo;
+import com.xy.lucky.rpc.api.database.group.ImGroupMemberDubboService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 群成员本地缓存。
+ * <p>
+ * - 群消息、群操作、撤回通知每次都要拿到完整成员列表，缓存 groupId -> 成员 ID 数组，避免每条消息一次 Dubbo 查询
+ * - 失效依赖 business 发布的群成员变更事件（见 IMGroupMemberChange），事件携带该群单调递增的版本号：
+ * 加载时记录当时已知的最新版本，事件版本大于缓存版本才失效，重复或乱序到达的旧事件被忽略；版本未知（<= 0）时无条件失效
+ * - 按估算字节数限制容量，写入后过期作为事件丢失时的兜底
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GroupMemberCache {
+
+    /**
+     * 单个成员 ID 的估算开销：String 对象头 + byte[] 头 + 数组引用，字符按 Latin-1 计
+     */
+    private static final int MEMBER_ID_OVERHEAD_BYTES = 56;
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final MeterRegistry meterRegistry;
+
+    @DubboReference
+    private ImGroupMemberDubboService groupMemberDubboService;
+
+    @Value("${message.group-member-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${message.group-member-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${message.group-member-cache.expire-after-write-ms:600000}")
+    private long expireAfterWriteMs;
+
+    @Value("${message.group-member-cache.version-tracking-size:100000}")
+    private long versionTrackingSize;
+
+    private Cache<String, Snapshot> cache;
+
+    /**
+     * 各群已收到的最大事件版本，加载时作为快照版本
+     */
+    private Cache<String, Long> latestVersions;
+
+    private Counter invalidationCounter;
+    private Counter staleEventCounter;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(GroupMemberCache::weigh)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .build();
+        latestVersions = Caffeine.newBuilder()
+                .maximumSize(versionTrackingSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "group_member");
+        Gauge.builder("im_message_group_member_cache_weight_bytes", this, GroupMemberCache::weightedSize)
+                .description("estimated bytes held by group member cache")
+                .register(meterRegistry);
+        invalidationCounter = Counter.builder("im_message_group_member_cache_invalidation_total")
+                .description("group member cache entries invalidated by change events")
+                .register(meterRegistry);
+        staleEventCounter = Counter.builder("im_message_group_member_cache_stale_event_total")
+                .description("group member change events ignored as stale")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取群成员 ID 列表（只读）
+     *
+     * @param groupId 群 ID
+     * @return 成员 ID，群不存在或没有成员时返回空列表
+     */
+    public List<String> getMemberIds(String groupId) {
+        if (!StringUtils.hasText(groupId)) {
+            return Collections.emptyList();
+        }
+        if (!enabled) {
+            return toMemberIds(groupMemberDubboService.queryList(groupId));
+        }
+        // 加载函数返回 null 时不缓存，空群不会占位
+        Snapshot snapshot = cache.get(groupId, this::load);
+        if (snapshot != null && isStale(groupId, snapshot)) {
+            // 加载期间到达的事件看不到尚未写入的条目，读取时按版本补判一次
+            cache.asMap().remove(groupId, snapshot);
+            snapshot = cache.get(groupId, this::load);
+        }
+        return snapshot == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(snapshot.memberIds()));
+    }
+
+    /**
+     * 处理群成员变更事件
+     *
+     * @param event 变更事件
+     */
+    public void onChange(IMGroupMemberChange event) {
+        if (event == null || !StringUtils.hasText(event.getGroupId())) {
+            return;
+        }
+        String groupId = event.getGroupId();
+        long version = event.getVersion() == null ? 0L : event.getVersion();
+
+        // 先推进已知版本：此后开始的加载带上新版本，进行中的加载写入的旧快照会在下次读取时被识别
+        if (version > 0) {
+            latestVersions.asMap().merge(groupId, version, Math::max);
+        }
+
+        boolean[] removed = new boolean[1];
+        cache.asMap().computeIfPresent(groupId, (key, current) -> {
+            if (version <= 0 || current.version() < version) {
+                removed[0] = true;
+                return null;
+            }
+            return current;
+        });
+
+        if (removed[0]) {
+            invalidationCounter.increment();
+            log.debug("群成员缓存已失效: groupId={}, type={}, version={}", groupId, event.getChangeType(), version);
+        } else if (version > 0 && cache.asMap().containsKey(groupId)) {
+            staleEventCounter.increment();
+        }
+    }
+
+    /**
+     * 直接失效指定群的缓存
+     */
+    public void invalidate(String groupId) {
+        if (StringUtils.hasText(groupId)) {
+            cache.invalidate(groupId);
+        }
+    }
+
+    private Snapshot load(String groupId) {
+        Long known = latestVersions.getIfPresent(groupId);
+        String[] memberIds = toMemberIds(groupMemberDubboService.queryList(groupId)).toArray(String[]::new);
+        if (memberIds.length == 0) {
+            return null;
+        }
+        return new Snapshot(known == null ? 0L : known, memberIds);
+    }
+
+    private boolean isStale(String groupId, Snapshot snapshot) {
+        Long latest = latestVersions.getIfPresent(groupId);
+        return latest != null && snapshot.version() < latest;
+    }
+
+    private static List<String> toMemberIds(List<ImGroupMemberPo> members) {
+        if (CollectionUtils.isEmpty(members)) {
+            return Collections.emptyList();
+        }
+        return members.stream().map(ImGroupMemberPo::getMemberId).filter(Objects::nonNull).toList();
+    }
+
+    private static int weigh(String groupId, Snapshot snapshot) {
+        long bytes = ENTRY_OVERHEAD_BYTES + groupId.length();
+        for (String memberId : snapshot.memberIds()) {
+            bytes += MEMBER_ID_OVERHEAD_BYTES + memberId.length();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private double weightedSize() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * 缓存快照
+     *
+     * @param version   加载时已知的成员版本
+     * @param memberIds 成员 ID
+     */
+    record Snapshot(long version, String[] memberIds) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.xy.lucky.message.message.member;
+
+import com.xy.lucky.core.model.IMGroupMemberChange;
+import com.xy.lucky.utils.json.JacksonUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 消费群成员变更事件，失效本地群成员缓存
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GroupMemberChangeListener {
+
+    private final GroupMemberCache groupMemberCache;
+
+    @RabbitListener(queues = "#{groupMemberChangeQueue.name}")
+    public void onMessage(Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            groupMemberCache.onChange(JacksonUtils.parseObject(body, IMGroupMemberChange.class));
+        } catch (Exception e) {
+            log.error("处理群成员变更事件失败: body={}", body, e);
+        }
+    }
+}
@@ -5,15 +5,14 @@ import com.xy.lucky.rpc.api.database.outbox.IMOutboxDubboService;
 import com.xy.lucky.utils.id.IdUtils;
 import com.xy.lucky.utils.time.DateTimeUtils;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboReference;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 /**
  * 基于 Dubbo 数据服务的 Outbox 记录实现，负责状态机驱动的状态更新。
+ * 插入与 Broker 侧状态流转经 OutboxGroupCommitWriter 组提交：正常返回时记录已落库，抛出异常时记录未写入。
  */
-@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DubboOutboxRecordService implements OutboxRecordService {
@@ -23,6 +22,8 @@ public class DubboOutboxRecordService implements OutboxRecordService {
 
     private final OutboxStateMachine stateMachine;
 
+    private final OutboxGroupCommitWriter groupCommitWriter;
+
     /**
      * 创建待发送 Outbox 记录。
      *
@@ -47,7 +48,7 @@ public class DubboOutboxRecordService implements OutboxRecordService {
                 .setCreatedAt(now)
                 .setUpdatedAt(now)
                 .setNextTryAt(now);
-        outboxDubboService.creat(po);
+        groupCommitWriter.insert(po);
         return outboxId;
     }
 
@@ -59,7 +60,7 @@ public class DubboOutboxRecordService implements OutboxRecordService {
      */
     @Override
     public void markSent(Long outboxId, int attempts) {
-        updateById(outboxId, current -> stateMachine.transit(current, OutboxEvent.BROKER_ACK), attempts, null, null);
+        groupCommitWriter.transit(outboxId, OutboxEvent.BROKER_ACK, attempts, null, null);
     }
 
     /**
@@ -72,7 +73,7 @@ public class DubboOutboxRecordService implements OutboxRecordService {
      */
     @Override
     public void markPendingForRetry(Long outboxId, int attempts, long nextTryAt, String reason) {
-        updateById(outboxId, current -> stateMachine.transit(current, OutboxEvent.BROKER_NACK), attempts, nextTryAt, reason);
+        groupCommitWriter.transit(outboxId, OutboxEvent.BROKER_NACK, attempts, nextTryAt, reason);
     }
 
     /**
@@ -84,7 +85,7 @@ public class DubboOutboxRecordService implements OutboxRecordService {
      */
     @Override
     public void markDlx(Long outboxId, int attempts, String reason) {
-        updateById(outboxId, current -> stateMachine.transit(current, OutboxEvent.RETRY_EXHAUSTED), attempts, null, reason);
+        groupCommitWriter.transit(outboxId, OutboxEvent.RETRY_EXHAUSTED, attempts, null, reason);
     }
 
     /**
@@ -107,47 +108,4 @@ public class DubboOutboxRecordService implements OutboxRecordService {
                 now
         ));
     }
-
-    /**
-     * 读取当前记录并按状态机规则更新状态。
-     *
-     * @param outboxId           Outbox 主键 ID
-     * @param nextStateSupplier  下一个状态计算函数
-     * @param attempts           尝试次数
-     * @param nextTryAt          下次重试时间戳
-     * @param reason             失败原因
-     */
-    private void updateById(Long outboxId,
-                            java.util.function.Function<OutboxStatus, OutboxStatus> nextStateSupplier,
-                            int attempts,
-                            Long nextTryAt,
-                            String reason) {
-        if (outboxId == null) {
-            return;
-        }
-        IMOutboxPo original = outboxDubboService.queryOne(outboxId);
-        if (original == null) {
-            return;
-        }
-        OutboxStatus current = OutboxStatus.from(original.getStatus());
-        OutboxStatus next = nextStateSupplier.apply(current);
-        long now = DateTimeUtils.getCurrentUTCTimestamp();
-        IMOutboxPo update = new IMOutboxPo()
-                .setId(outboxId)
-                .setStatus(next.value())
-                .setAttempts(Math.max(0, attempts))
-                .setUpdatedAt(now);
-        if (nextTryAt != null) {
-            update.setNextTryAt(nextTryAt);
-        }
-        if (StringUtils.hasText(reason)) {
-            String trimmed = reason.length() > 1024 ? reason.substring(0, 1024) : reason;
-            update.setLastError(trimmed);
-        }
-        outboxDubboService.modify(update);
-        if (next == OutboxStatus.DLX) {
-            log.warn("outbox 进入 DLX: outboxId={}, messageId={}, attempts={}, reason={}",
-                    outboxId, original.getMessageId(), attempts, update.getLastError());
-        }
-    }
 }
@@ -0,0 +1,416 @@
+package com.xy.lucky.message.message.outbox;
+
+import com.xy.lucky.domain.po.IMOutboxPo;
+import com.xy.lucky.rpc.api.database.outbox.IMOutboxDubboService;
+import com.xy.lucky.utils.time.DateTimeUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Outbox 组提交写入器。
+ * <p>
+ * - 多个分发线程的 Outbox 插入与状态流转分别进入队列，由后台线程在 max-wait-ms 或 max-batch-size 先到者触发时合并为一次批量写
+ * - 调用方阻塞到自己所在批次提交完成才返回，返回即已落库，与逐条同步写入的持久化语义一致；批次失败时逐条重试，只有失败的记录向调用方抛出异常，
+ *   重试失败时按主键确认记录是否已被之前的批量写入提交
+ * - 提交线程写出前先认领记录；调用方等待超时时尝试撤回，撤回成功的记录不会再写入，已被认领的记录继续等待本次写入结果，
+ * 因此调用方收到异常即未落库、正常返回即已落库
+ * - 两个提交线程为独立的守护线程，不占用推送线程池
+ * - 状态流转按批次一次查询当前状态、按提交顺序依次经过状态机、一次批量更新，同一记录在批内的多次流转合并为一次更新
+ * - 批次只有一条记录时走单条接口，低负载下的数据库调用与原实现相同
+ */
+@Slf4j
+@Component
+public class OutboxGroupCommitWriter {
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final OutboxStateMachine stateMachine;
+    private final DistributionSummary insertBatchSummary;
+    private final DistributionSummary transitionBatchSummary;
+    private final Timer insertFlushTimer;
+    private final Timer transitionFlushTimer;
+
+    private BlockingQueue<PendingInsert> insertQueue;
+    private BlockingQueue<PendingTransition> transitionQueue;
+    private volatile boolean running;
+
+    @DubboReference
+    private IMOutboxDubboService outboxDubboService;
+
+    @Value("${message.outbox.group-commit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${message.outbox.group-commit.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${message.outbox.group-commit.max-wait-ms:2}")
+    private long maxWaitMs;
+
+    @Value("${message.outbox.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${message.outbox.group-commit.await-timeout-ms:5000}")
+    private long awaitTimeoutMs;
+
+    public OutboxGroupCommitWriter(OutboxStateMachine stateMachine, MeterRegistry meterRegistry) {
+        this.stateMachine = stateMachine;
+        this.insertBatchSummary = DistributionSummary.builder("im_message_outbox_batch_size")
+                .description("outbox records per group commit")
+                .tag("op", "insert")
+                .register(meterRegistry);
+        this.transitionBatchSummary = DistributionSummary.builder("im_message_outbox_batch_size")
+                .description("outbox records per group commit")
+                .tag("op", "transition")
+                .register(meterRegistry);
+        this.insertFlushTimer = Timer.builder("im_message_outbox_flush")
+                .description("outbox group commit latency")
+                .tag("op", "insert")
+                .register(meterRegistry);
+        this.transitionFlushTimer = Timer.builder("im_message_outbox_flush")
+                .description("outbox group commit latency")
+                .tag("op", "transition")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动插入与状态流转两个提交线程。
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        insertQueue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        transitionQueue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        running = true;
+        startCommitThread("im-outbox-insert", () -> commitLoop(insertQueue, this::flushInserts));
+        startCommitThread("im-outbox-transition", () -> commitLoop(transitionQueue, this::flushTransitions));
+        log.info("Outbox 组提交启动: maxBatchSize={}, maxWaitMs={}", maxBatchSize, maxWaitMs);
+    }
+
+    /**
+     * 停止提交线程，并在当前线程提交队列中剩余的记录。
+     */
+    @PreDestroy
+    public void destroy() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        drainRemaining(insertQueue, this::flushInserts);
+        drainRemaining(transitionQueue, this::flushTransitions);
+    }
+
+    private void startCommitThread(String name, Runnable loop) {
+        Thread.ofPlatform().name(name).daemon(true).start(loop);
+    }
+
+    /**
+     * 插入 Outbox 记录，返回时记录已落库。
+     *
+     * @param po Outbox 记录
+     */
+    public void insert(IMOutboxPo po) {
+        PendingInsert pending = new PendingInsert(po, new CompletableFuture<>());
+        if (!running || !insertQueue.offer(pending)) {
+            // 未启用或队列已满时同步写入，不丢记录
+            flushInserts(List.of(pending));
+        }
+        await(pending);
+    }
+
+    /**
+     * 按状态机推进 Outbox 记录状态，返回时更新已落库。
+     *
+     * @param outboxId  Outbox 主键 ID
+     * @param event     状态事件
+     * @param attempts  尝试次数
+     * @param nextTryAt 下次重试时间戳
+     * @param reason    失败原因
+     */
+    public void transit(Long outboxId, OutboxEvent event, int attempts, Long nextTryAt, String reason) {
+        if (outboxId == null) {
+            return;
+        }
+        PendingTransition pending = new PendingTransition(outboxId, event, attempts, nextTryAt, reason, new CompletableFuture<>());
+        if (!running || !transitionQueue.offer(pending)) {
+            flushTransitions(List.of(pending));
+        }
+        await(pending);
+    }
+
+    private <T> void commitLoop(BlockingQueue<T> queue, Consumer<List<T>> flusher) {
+        int batchSize = Math.max(1, maxBatchSize);
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxWaitMs));
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                T first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + waitNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flusher.accept(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Outbox 组提交循环异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+        // 退出前提交已取出和仍在队列中的记录，避免调用方一直等待
+        drainRemaining(queue, flusher);
+    }
+
+    private <T> void drainRemaining(BlockingQueue<T> queue, Consumer<List<T>> flusher) {
+        if (queue == null) {
+            return;
+        }
+        List<T> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flusher.accept(rest);
+        }
+    }
+
+    void flushInserts(List<PendingInsert> pendings) {
+        List<PendingInsert> batch = claim(pendings);
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        insertBatchSummary.record(batch.size());
+        if (batch.size() > 1) {
+            try {
+                outboxDubboService.creatBatch(batch.stream().map(PendingInsert::po).toList());
+                batch.forEach(pending -> pending.future().complete(null));
+                insertFlushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return;
+            } catch (Exception e) {
+                log.warn("Outbox 批量插入失败，逐条重试: size={}, error={}", batch.size(), e.getMessage());
+            }
+        }
+        for (PendingInsert pending : batch) {
+            try {
+                outboxDubboService.creat(pending.po());
+                pending.future().complete(null);
+            } catch (Exception e) {
+                if (isPersisted(pending.po(), e)) {
+                    pending.future().complete(null);
+                } else {
+                    pending.future().completeExceptionally(e);
+                }
+            }
+        }
+        insertFlushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 插入失败时按主键确认记录是否已落库。
+     * <p>
+     * 批量插入可能在数据库已提交后才因 RPC 超时等原因抛出异常，此时逐条重试会因主键冲突失败；
+     * 主键由调用方预先生成，能查到即说明记录已由之前的写入落库，按成功处理。
+     */
+    private boolean isPersisted(IMOutboxPo po, Exception cause) {
+        if (po.getId() == null) {
+            return false;
+        }
+        try {
+            if (outboxDubboService.queryOne(po.getId()) != null) {
+                log.info("Outbox 插入失败但记录已落库，按成功处理: outboxId={}, error={}", po.getId(), cause.getMessage());
+                return true;
+            }
+        } catch (Exception e) {
+            cause.addSuppressed(e);
+        }
+        return false;
+    }
+
+    void flushTransitions(List<PendingTransition> pendings) {
+        List<PendingTransition> batch = claim(pendings);
+        if (!batch.isEmpty()) {
+            writeTransitions(batch);
+        }
+    }
+
+    private void writeTransitions(List<PendingTransition> batch) {
+        long start = System.nanoTime();
+        transitionBatchSummary.record(batch.size());
+        try {
+            Map<Long, IMOutboxPo> originals = loadOriginals(batch);
+            Map<Long, IMOutboxPo> updates = foldTransitions(batch, originals);
+            writeUpdates(updates);
+            batch.forEach(pending -> pending.future().complete(null));
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                batch.get(0).future().completeExceptionally(e);
+            } else {
+                log.warn("Outbox 批量状态更新失败，逐条重试: size={}, error={}", batch.size(), e.getMessage());
+                batch.forEach(pending -> writeTransitions(List.of(pending)));
+            }
+        } finally {
+            transitionFlushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 认领待写出的记录，跳过调用方已因等待超时撤回的记录。
+     */
+    private static <T extends Pending> List<T> claim(List<T> pendings) {
+        List<T> claimed = new ArrayList<>(pendings.size());
+        for (T pending : pendings) {
+            if (pending.claimed().compareAndSet(false, true)) {
+                claimed.add(pending);
+            }
+        }
+        return claimed;
+    }
+
+    private Map<Long, IMOutboxPo> loadOriginals(List<PendingTransition> batch) {
+        Map<Long, IMOutboxPo> originals = new LinkedHashMap<>();
+        if (batch.size() == 1) {
+            IMOutboxPo original = outboxDubboService.queryOne(batch.get(0).outboxId());
+            if (original != null) {
+                originals.put(original.getId(), original);
+            }
+            return originals;
+        }
+        List<Long> ids = batch.stream().map(PendingTransition::outboxId).distinct().toList();
+        List<IMOutboxPo> list = outboxDubboService.queryListByIds(ids);
+        if (!CollectionUtils.isEmpty(list)) {
+            list.forEach(po -> originals.put(po.getId(), po));
+        }
+        return originals;
+    }
+
+    /**
+     * 按提交顺序依次推进状态，同一记录的多次流转合并为一条更新。
+     */
+    private Map<Long, IMOutboxPo> foldTransitions(List<PendingTransition> batch, Map<Long, IMOutboxPo> originals) {
+        Map<Long, IMOutboxPo> updates = new LinkedHashMap<>();
+        long now = DateTimeUtils.getCurrentUTCTimestamp();
+        for (PendingTransition pending : batch) {
+            IMOutboxPo original = originals.get(pending.outboxId());
+            if (original == null) {
+                continue;
+            }
+            IMOutboxPo update = updates.computeIfAbsent(pending.outboxId(), id -> new IMOutboxPo()
+                    .setId(id)
+                    .setStatus(original.getStatus()));
+            OutboxStatus next = stateMachine.transit(OutboxStatus.from(update.getStatus()), pending.event());
+            update.setStatus(next.value())
+                    .setAttempts(Math.max(0, pending.attempts()))
+                    .setUpdatedAt(now);
+            if (pending.nextTryAt() != null) {
+                update.setNextTryAt(pending.nextTryAt());
+            }
+            if (StringUtils.hasText(pending.reason())) {
+                String reason = pending.reason();
+                update.setLastError(reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason);
+            }
+            if (next == OutboxStatus.DLX) {
+                log.warn("outbox 进入 DLX: outboxId={}, messageId={}, attempts={}, reason={}",
+                        pending.outboxId(), original.getMessageId(), pending.attempts(), update.getLastError());
+            }
+        }
+        return updates;
+    }
+
+    private void writeUpdates(Map<Long, IMOutboxPo> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        if (updates.size() == 1) {
+            outboxDubboService.modify(updates.values().iterator().next());
+            return;
+        }
+        outboxDubboService.modifyBatch(new ArrayList<>(updates.values()));
+    }
+
+    private void await(Pending pending) {
+        CompletableFuture<Void> future = pending.future();
+        try {
+            try {
+                future.get(Math.max(1L, awaitTimeoutMs), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pending.claimed().compareAndSet(false, true)) {
+                    // 提交线程尚未取走：撤回后不会再写入，调用方可安全重试
+                    future.cancel(false);
+                    throw new IllegalStateException("Outbox 组提交等待超时，记录未写入: " + awaitTimeoutMs + "ms", e);
+                }
+                // 已在写入中：等待本次写入结果（受 Dubbo 调用超时约束），避免向调用方报告失败而记录随后落库
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Outbox 写入失败", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Outbox 组提交等待被中断", e);
+        }
+    }
+
+    /**
+     * 等待组提交的记录；claimed 由提交线程写出前或调用方超时撤回时抢占，二者只有一方成功。
+     */
+    interface Pending {
+        CompletableFuture<Void> future();
+
+        AtomicBoolean claimed();
+    }
+
+    record PendingInsert(IMOutboxPo po, CompletableFuture<Void> future, AtomicBoolean claimed) implements Pending {
+        PendingInsert(IMOutboxPo po, CompletableFuture<Void> future) {
+            this(po, future, new AtomicBoolean());
+        }
+    }
+
+    record PendingTransition(Long outboxId, OutboxEvent event, int attempts, Long nextTryAt, String reason,
+                             CompletableFuture<Void> future, AtomicBoolean claimed) implements Pending {
+        PendingTransition(Long outboxId, OutboxEvent event, int attempts, Long nextTryAt, String reason,
+                          CompletableFuture<Void> future) {
+            this(outboxId, event, attempts, nextTryAt, reason, future, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.xy.lucky.message.message.sequence;
+
+import com.xy.lucky.rpc.api.database.chat.ImChatDubboService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 会话时序批量更新。
+ * <p>
+ * - 群消息落库后需要把所有成员的群会话时序推进到该消息，逐个成员查询再更新会产生 N 次 Dubbo 调用与 N 条 UPDATE
+ * - 这里按 (会话对象, 会话类型) 聚合一个时间窗口内的提交：成员取并集、时序取最大值，窗口结束后一次调用
+ * ImChatDubboService#modifySequenceBatch，由数据库以一条集合语句完成
+ * - 数据库侧时序只前进，聚合后的乱序提交不会回退会话时序
+ */
+@Slf4j
+@Component
+public class ChatSequenceCoalescer {
+
+    private final Map<ChatKey, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    @DubboReference
+    private ImChatDubboService chatDubboService;
+
+    @Resource(name = "scheduledExecutor")
+    private ScheduledExecutorService scheduledExecutor;
+
+    @Resource(name = "lowPriorityExecutor")
+    private ExecutorService lowPriorityExecutor;
+
+    @Value("${message.chat-sequence.coalesce-enabled:true}")
+    private boolean coalesceEnabled;
+
+    @Value("${message.chat-sequence.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @PostConstruct
+    public void init() {
+        if (coalesceEnabled) {
+            long interval = Math.max(10L, flushIntervalMs);
+            scheduledExecutor.scheduleWithFixedDelay(this::scheduleFlush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * 提交会话时序更新
+     *
+     * @param toId     会话对象（群组ID）
+     * @param chatType 会话类型
+     * @param sequence 时序
+     * @param ownerIds 会话所属用户
+     */
+    public void submit(String toId, Integer chatType, Long sequence, Collection<String> ownerIds) {
+        if (toId == null || sequence == null || CollectionUtils.isEmpty(ownerIds)) {
+            return;
+        }
+        if (!coalesceEnabled) {
+            modifyBatch(new ChatKey(toId, chatType), sequence, new ArrayList<>(ownerIds));
+            return;
+        }
+        pending.compute(new ChatKey(toId, chatType), (key, current) -> {
+            Pending next = current == null ? new Pending() : current;
+            next.sequence = Math.max(next.sequence, sequence);
+            next.ownerIds.addAll(ownerIds);
+            return next;
+        });
+    }
+
+    /**
+     * 立即提交所有待更新的会话时序
+     */
+    public void flush() {
+        for (ChatKey key : pending.keySet()) {
+            Pending batch = pending.remove(key);
+            if (batch != null) {
+                modifyBatch(key, batch.sequence, new ArrayList<>(batch.ownerIds));
+            }
+        }
+    }
+
+    /**
+     * 定时器线程只负责投递，Dubbo 调用放到低优先级线程池，避免阻塞共享的调度线程
+     */
+    private void scheduleFlush() {
+        if (pending.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lowPriorityExecutor.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushing.set(false);
+                }
+            });
+        } catch (Exception e) {
+            flushing.set(false);
+            log.warn("提交会话时序批量更新失败，等待下个窗口: {}", e.getMessage());
+        }
+    }
+
+    private void modifyBatch(ChatKey key, long sequence, List<String> ownerIds) {
+        try {
+            chatDubboService.modifySequenceBatch(key.toId(), key.chatType(), sequence, ownerIds);
+        } catch (Exception e) {
+            log.error("批量更新会话时序失败: toId={}, chatType={}, owners={}", key.toId(), key.chatType(), ownerIds.size(), e);
+        }
+    }
+
+    private record ChatKey(String toId, Integer chatType) {
+    }
+
+    private static final class Pending {
+        private final Set<String> ownerIds = new HashSet<>();
+        private long sequence = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,76 @@
+package com.xy.lucky.message.message.sequence;
+
+import com.xy.lucky.message.exception.MessageException;
+import com.xy.lucky.rpc.api.database.message.ImGroupMessageDubboService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.dubbo.config.annotation.DubboReference;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 群内消息序号分配器。
+ * <p>
+ * - 每个群一个 Redis 计数器，INCR 得到按群连续递增的 group_seq，未读数 = 群最大序号 - 成员已读游标
+ * - 计数器不存在时（首次使用、迁移后或 Redis 数据丢失）从数据库当前最大序号初始化，初始化与自增在同一脚本内完成
+ * - 使用 StringRedisTemplate，计数器以纯数字存储，不经过 JSON 序列化
+ * - 分配失败时抛出异常使本次发送失败，不写入没有序号的消息（否则该消息永远不会被游标覆盖，一直计为未读）
+ */
+@Slf4j
+@Component
+public class GroupSequenceAllocator {
+
+    private static final String KEY_PREFIX = "im:group:seq:";
+
+    /**
+     * 返回 -1 表示计数器不存在且未提供初始值
+     */
+    private static final DefaultRedisScript<Long> NEXT_SEQ_SCRIPT = new DefaultRedisScript<>(
+            """
+                    if redis.call('EXISTS', KEYS[1]) == 0 then
+                      if ARGV[1] == '' then
+                        return -1
+                      end
+                      redis.call('SET', KEYS[1], ARGV[1], 'NX')
+                    end
+                    return redis.call('INCR', KEYS[1])
+                    """,
+            Long.class
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @DubboReference
+    private ImGroupMessageDubboService groupMessageDubboService;
+
+    public GroupSequenceAllocator(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 分配下一个群内消息序号
+     *
+     * @param groupId 群 ID
+     * @return 序号
+     * @throws MessageException 分配失败
+     */
+    public Long next(String groupId) {
+        String key = KEY_PREFIX + groupId;
+        try {
+            Long seq = stringRedisTemplate.execute(NEXT_SEQ_SCRIPT, List.of(key), "");
+            if (seq != null && seq < 0) {
+                Long current = groupMessageDubboService.queryMaxGroupSeq(groupId);
+                seq = stringRedisTemplate.execute(NEXT_SEQ_SCRIPT, List.of(key), String.valueOf(current == null ? 0L : current));
+            }
+            if (seq == null || seq <= 0) {
+                throw new IllegalStateException("invalid group seq: " + seq);
+            }
+            return seq;
+        } catch (Exception e) {
+            log.error("分配群消息序号失败: groupId={}", groupId, e);
+            throw new MessageException("群消息序号分配失败，请稍后重试");
+        }
+    }
+}
@@ -13,13 +13,15 @@ import com.xy.lucky.message.domain.dto.ChatDto;
 import com.xy.lucky.message.domain.mapper.MessageBeanMapper;
 import com.xy.lucky.message.exception.MessageException;
 import com.xy.lucky.message.message.MessageLifecycleOrchestrator;
+import com.xy.lucky.message.message.id.IdPrefetchAllocator;
+import com.xy.lucky.message.message.member.GroupMemberCache;
+import com.xy.lucky.message.message.sequence.ChatSequenceCoalescer;
+import com.xy.lucky.message.message.sequence.GroupSequenceAllocator;
 import com.xy.lucky.message.service.MessageService;
 import com.xy.lucky.message.service.MuteService;
 import com.xy.lucky.rpc.api.database.chat.ImChatDubboService;
-import com.xy.lucky.rpc.api.database.group.ImGroupMemberDubboService;
 import com.xy.lucky.rpc.api.database.message.ImGroupMessageDubboService;
 import com.xy.lucky.rpc.api.database.message.ImSingleMessageDubboService;
-import com.xy.lucky.rpc.api.leaf.ImIdDubboService;
 import com.xy.lucky.utils.id.IdUtils;
 import com.xy.lucky.utils.time.DateTimeUtils;
 import jakarta.annotation.Resource;
@@ -27,6 +29,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.dubbo.config.annotation.DubboReference;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
@@ -61,18 +64,24 @@ public class MessageServiceImpl implements MessageService {
     @DubboReference
     private ImChatDubboService chatDubboService;
     @DubboReference
-    private ImGroupMemberDubboService groupMemberDubboService;
-    @DubboReference
     private ImSingleMessageDubboService singleMessageDubboService;
     @DubboReference
     private ImGroupMessageDubboService groupMessageDubboService;
-    @DubboReference
-    private ImIdDubboService idDubboService;
 
     private final MuteService muteService;
 
     private final MessageBeanMapper messageBeanMapper;
     private final MessageLifecycleOrchestrator messageLifecycleOrchestrator;
+    private final GroupMemberCache groupMemberCache;
+    private final GroupSequenceAllocator groupSequenceAllocator;
+    private final ChatSequenceCoalescer chatSequenceCoalescer;
+    private final IdPrefetchAllocator idPrefetchAllocator;
+
+    /**
+     * 是否继续写入每成员每消息一行的群消息状态表（读扩散迁移期双写，默认关闭）
+     */
+    @Value("${message.group-read.legacy-status-enabled:false}")
+    private boolean legacyGroupStatusEnabled;
 
     @Resource
     @Qualifier("asyncTaskExecutor")
@@ -131,8 +140,8 @@ public class MessageServiceImpl implements MessageService {
         return lockExecutor.execute(lockKey, () -> {
 
             // 获取群成员
-            List<ImGroupMemberPo> members = groupMemberDubboService.queryList(dto.getGroupId());
-            if (CollectionUtils.isEmpty(members)) {
+            List<String> targetUserIds = groupMemberCache.getMemberIds(dto.getGroupId());
+            if (CollectionUtils.isEmpty(targetUserIds)) {
                 log.warn("群聊没有成员: groupId={}", dto.getGroupId());
                 return dto;
             }
@@ -147,11 +156,11 @@ public class MessageServiceImpl implements MessageService {
                     .setReadStatus(IMessageReadStatus.UNREAD.getCode())
                     .setSequence(messageTime);
 
-            // 持久化消息
-            asyncPersistGroupMessage(dto, messageId, messageTime, members);
+            // 群内序号，用于按已读游标计算未读数；分配失败时本次发送失败，不写入无序号的消息
+            Long groupSeq = groupSequenceAllocator.next(dto.getGroupId());
 
-            // 过滤群成员ID
-            List<String> targetUserIds = members.stream().map(ImGroupMemberPo::getMemberId).toList();
+            // 持久化消息
+            asyncPersistGroupMessage(dto, messageId, messageTime, groupSeq, targetUserIds);
 
             // 群聊消息投递
             messageLifecycleOrchestrator.dispatch(
@@ -182,8 +191,8 @@ public class MessageServiceImpl implements MessageService {
         String lockKey = LOCK_PREFIX + "groupAction:" + dto.getGroupId() + ":" + fromId;
 
         lockExecutor.execute(lockKey, () -> {
-            List<ImGroupMemberPo> members = groupMemberDubboService.queryList(dto.getGroupId());
-            if (CollectionUtils.isEmpty(members)) {
+            List<String> targetUserIds = groupMemberCache.getMemberIds(dto.getGroupId());
+            if (CollectionUtils.isEmpty(targetUserIds)) {
                 log.warn("群组操作没有成员: groupId={}", dto.getGroupId());
                 return;
             }
@@ -191,7 +200,6 @@ public class MessageServiceImpl implements MessageService {
 
             dto.setMessageId(String.valueOf(messageId));
 
-            List<String> targetUserIds = members.stream().map(ImGroupMemberPo::getMemberId).toList();
             messageLifecycleOrchestrator.dispatch(
                     IMessageType.GROUP_OPERATION.getCode(),
                     dto,
@@ -314,19 +322,23 @@ public class MessageServiceImpl implements MessageService {
 
     /**
      * 异步持久化群聊消息
+     * <p>
+     * 读扩散：消息只写一行，成员已读状态由已读游标推导；仅在迁移期开启双写时才按成员写状态行
      */
-    private void asyncPersistGroupMessage(IMGroupMessage dto, Long messageId, Long messageTime, List<ImGroupMemberPo> members) {
+    private void asyncPersistGroupMessage(IMGroupMessage dto, Long messageId, Long messageTime, Long groupSeq, List<String> memberIds) {
         asyncTaskExecutor.execute(() -> {
             try {
                 ImGroupMessagePo po = messageBeanMapper.toImGroupMessagePo(dto);
                 po.setDelFlag(IMStatus.YES.getCode());
+                po.setGroupSeq(groupSeq);
                 saveGroupMessage(po);
 
-                setGroupMessageReadStatus(String.valueOf(messageId), dto.getGroupId(), members);
-
-                for (ImGroupMemberPo member : members) {
-                    updateChatSequenceIfExists(member.getMemberId(), dto.getGroupId(), messageTime, IMessageType.GROUP_MESSAGE.getCode());
+                if (legacyGroupStatusEnabled) {
+                    setGroupMessageReadStatus(String.valueOf(messageId), dto.getGroupId(), memberIds);
                 }
+
+                // 所有成员的群会话时序合并为一次集合更新
+                chatSequenceCoalescer.submit(dto.getGroupId(), IMessageType.GROUP_MESSAGE.getCode(), messageTime, memberIds);
             } catch (Exception e) {
                 log.error("异步持久化群聊消息失败: messageId={}", messageId, e);
             }
@@ -452,11 +464,10 @@ public class MessageServiceImpl implements MessageService {
      * 发送撤回通知给群成员
      */
     private void sendRecallToGroupMembers(String groupId, IMessageAction recallAction) {
-        List<ImGroupMemberPo> members = groupMemberDubboService.queryList(groupId);
-        if (CollectionUtils.isEmpty(members)) {
+        List<String> targetUserIds = groupMemberCache.getMemberIds(groupId);
+        if (CollectionUtils.isEmpty(targetUserIds)) {
             return;
         }
-        List<String> targetUserIds = members.stream().map(ImGroupMemberPo::getMemberId).toList();
         messageLifecycleOrchestrator.dispatch(
                 IMessageType.MESSAGE_OPERATION.getCode(),
                 recallAction,
@@ -468,7 +479,7 @@ public class MessageServiceImpl implements MessageService {
     // ==================== 辅助方法 ====================
 
     private Long generateLongId(String type, String businessType) {
-        return idDubboService.generateId(type, businessType).getLongId();
+        return idPrefetchAllocator.nextId(type, businessType).getLongId();
     }
 
     private void saveSingleMessage(ImSingleMessagePo po) {
@@ -497,16 +508,16 @@ public class MessageServiceImpl implements MessageService {
         }
     }
 
-    private void setGroupMessageReadStatus(String messageId, String groupId, List<ImGroupMemberPo> members) {
+    private void setGroupMessageReadStatus(String messageId, String groupId, List<String> memberIds) {
         try {
-            List<ImGroupMessageStatusPo> statusList = Optional.ofNullable(members)
+            List<ImGroupMessageStatusPo> statusList = Optional.ofNullable(memberIds)
                     .orElse(Collections.emptyList())
                     .stream()
-                    .map(m -> new ImGroupMessageStatusPo()
+                    .map(memberId -> new ImGroupMessageStatusPo()
                             .setMessageId(messageId)
                             .setGroupId(groupId)
                             .setReadStatus(IMessageReadStatus.UNREAD.getCode())
-                            .setToId(m.getMemberId()))
+                            .setToId(memberId))
                     .collect(Collectors.toList());
             if (statusList.isEmpty()) {
                 return;
@@ -1,7 +1,9 @@
 package com.xy.lucky.message.message;
 
 import com.xy.lucky.core.constants.IMConstant;
+import com.xy.lucky.core.model.IMGroupMessage;
 import com.xy.lucky.core.model.IMRegisterUser;
+import com.xy.lucky.core.model.IMSingleMessage;
 import com.xy.lucky.message.message.monitor.MessageMetricsRecorder;
 import com.xy.lucky.message.message.offline.OfflineMessageRecord;
 import com.xy.lucky.message.message.offline.OfflineMessageService;
@@ -80,6 +82,34 @@ class DefaultMessageLifecycleOrchestratorTest {
         assertThat(queue).hasSize(1);
     }
 
+    @Test
+    void groupDispatchShouldPartitionByGroupIdForEveryBroker() {
+        when(redisUtil.batchGet(any())).thenReturn(List.of(
+                new IMRegisterUser().setUserId("u1").setBrokerId("broker-1"),
+                new IMRegisterUser().setUserId("u2").setBrokerId("broker-2")));
+        IMGroupMessage message = new IMGroupMessage();
+        message.setGroupId("g1");
+
+        orchestrator.dispatch(2, message, List.of("u1", "u2"), "m1");
+
+        BlockingQueue<MessageDispatchTask> queue =
+                (BlockingQueue<MessageDispatchTask>) ReflectionTestUtils.getField(orchestrator, "dispatchQueue");
+        assertThat(queue).extracting(MessageDispatchTask::partitionKey).containsExactly("group:g1", "group:g1");
+    }
+
+    @Test
+    void singleConversationKeyShouldNotDependOnDirection() {
+        IMSingleMessage aToB = new IMSingleMessage().setToId("b");
+        aToB.setFromId("a");
+        IMSingleMessage bToA = new IMSingleMessage().setToId("a");
+        bToA.setFromId("b");
+
+        assertThat(DefaultMessageLifecycleOrchestrator.conversationKey(aToB, List.of("a", "b")))
+                .isEqualTo("single:a:b")
+                .isEqualTo(DefaultMessageLifecycleOrchestrator.conversationKey(bToA, List.of("b", "a")));
+        assertThat(DefaultMessageLifecycleOrchestrator.conversationKey(Map.of("k", "v"), List.of("u1"))).isEqualTo("u1");
+    }
+
     @Test
     void replayOfflineMessagesShouldEnqueueReplayTasks() {
         IMRegisterUser onlineUser = new IMRegisterUser().setUserId("u1").setBrokerId("broker-1");
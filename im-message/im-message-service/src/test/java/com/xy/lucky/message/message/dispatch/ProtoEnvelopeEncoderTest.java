@@ -0,0 +1,113 @@
+package com.xy.lucky.message.message.dispatch;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Struct;
+import com.google.protobuf.WireFormat;
+import com.xy.lucky.core.enums.IMessageType;
+import com.xy.lucky.core.model.IMessageWrap;
+import com.xy.lucky.core.proto.MessageBodyCodec;
+import com.xy.lucky.utils.json.JacksonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProtoEnvelopeEncoderTest {
+
+    private static final long MESSAGE_TIME = (1L << 53) + 1;
+
+    @Test
+    void typedBodyShouldCarryRequestIdAndTimestampWithoutJson() throws IOException {
+        IMessageWrap<Object> wrapper = wrapper(singleMessage());
+
+        Envelope envelope = Envelope.decode(ProtoEnvelopeEncoder.encode(wrapper, JacksonUtils.toJSONString(wrapper)));
+
+        assertThat(envelope.ids).containsExactly("u2");
+        assertThat(envelope.code).isEqualTo(IMessageType.SINGLE_MESSAGE.getCode());
+        assertThat(envelope.requestId).isEqualTo(wrapper.getRequestId()).isNotBlank();
+        assertThat(envelope.timestamp).isEqualTo(wrapper.getTimestamp());
+        assertThat(envelope.json).isNull();
+        assertThat(MessageBodyCodec.isTyped(envelope.data.getTypeUrl())).isTrue();
+        Map<String, Object> body = MessageBodyCodec.unpack(envelope.data);
+        assertThat(body).containsEntry("messageId", "m1").containsEntry("messageTime", MESSAGE_TIME);
+    }
+
+    @Test
+    void structFallbackShouldAttachJson() throws IOException {
+        Map<String, Object> payload = singleMessage();
+        payload.put("recallTime", MESSAGE_TIME);
+        IMessageWrap<Object> wrapper = wrapper(payload);
+        String json = JacksonUtils.toJSONString(wrapper);
+
+        Envelope envelope = Envelope.decode(ProtoEnvelopeEncoder.encode(wrapper, json));
+
+        assertThat(envelope.data.is(Struct.class)).isTrue();
+        assertThat(envelope.json).isEqualTo(json);
+        assertThat(envelope.requestId).isEqualTo(wrapper.getRequestId());
+        assertThat(envelope.timestamp).isEqualTo(wrapper.getTimestamp());
+    }
+
+    private static IMessageWrap<Object> wrapper(Object payload) {
+        return new IMessageWrap<>()
+                .setCode(IMessageType.SINGLE_MESSAGE.getCode())
+                .setData(payload)
+                .setIds(List.of("u2"));
+    }
+
+    private static Map<String, Object> singleMessage() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("fromId", "u1");
+        payload.put("toId", "u2");
+        payload.put("messageId", "m1");
+        payload.put("messageTime", MESSAGE_TIME);
+        payload.put("messageBody", Map.of("text", "hello"));
+        return payload;
+    }
+
+    /**
+     * 按 im_message_wrap.proto 解析 IMessageEnvelope 及其 wrap
+     */
+    private static final class Envelope {
+        final List<String> ids = new ArrayList<>();
+        int code;
+        Any data;
+        String requestId = "";
+        long timestamp;
+        String json;
+
+        static Envelope decode(byte[] bytes) throws IOException {
+            Envelope envelope = new Envelope();
+            CodedInputStream input = CodedInputStream.newInstance(bytes);
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 1 -> envelope.ids.add(input.readString());
+                    case 2 -> envelope.decodeWrap(input.readBytes());
+                    case 3 -> envelope.json = input.readBytes().toString(StandardCharsets.UTF_8);
+                    default -> input.skipField(tag);
+                }
+            }
+            return envelope;
+        }
+
+        private void decodeWrap(ByteString wrap) throws IOException {
+            CodedInputStream input = wrap.newCodedInput();
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 1 -> code = input.readInt32();
+                    case 3 -> data = Any.parseFrom(input.readBytes());
+                    case 6 -> requestId = input.readString();
+                    case 7 -> timestamp = input.readInt64();
+                    default -> input.skipField(tag);
+                }
+            }
+        }
+    }
+}
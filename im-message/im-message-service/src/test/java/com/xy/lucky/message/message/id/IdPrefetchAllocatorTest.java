@@ -0,0 +1,126 @@
+package com.xy.lucky.message.message.id;
+
+import com.xy.lucky.core.model.IMetaId;
+import com.xy.lucky.rpc.api.leaf.ImIdDubboService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdPrefetchAllocatorTest {
+
+    private static final String TYPE = "snowflake";
+    private static final String KEY = "private_message_id";
+
+    @Mock
+    private ImIdDubboService idDubboService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdPrefetchAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        allocator = new IdPrefetchAllocator(meterRegistry);
+        ReflectionTestUtils.setField(allocator, "idDubboService", idDubboService);
+        // 同步执行补充任务，便于断言
+        ReflectionTestUtils.setField(allocator, "asyncTaskExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(allocator, "enabled", true);
+        ReflectionTestUtils.setField(allocator, "blockSize", 4);
+        ReflectionTestUtils.setField(allocator, "lowWaterMark", 1);
+    }
+
+    @Test
+    void emptyBufferShouldFallBackAndRefill() {
+        when(idDubboService.generateId(TYPE, KEY)).thenReturn(id(100L));
+        when(idDubboService.generateIds(TYPE, KEY, 4)).thenReturn(ids(1, 4));
+
+        assertThat(allocator.nextId(TYPE, KEY).getLongId()).isEqualTo(100L);
+
+        assertThat(allocator.buffered(TYPE, KEY)).isEqualTo(4);
+        assertThat(meterRegistry.get("im_message_id_prefetch_empty_total").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("im_message_id_prefetch_refill").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void bufferedIdsShouldBeServedWithoutRpcUntilLowWaterMark() {
+        when(idDubboService.generateId(TYPE, KEY)).thenReturn(id(100L));
+        when(idDubboService.generateIds(TYPE, KEY, 4))
+                .thenReturn(ids(1, 4))
+                .thenReturn(ids(5, 8));
+
+        allocator.nextId(TYPE, KEY);
+
+        assertThat(allocator.nextId(TYPE, KEY).getLongId()).isEqualTo(1L);
+        assertThat(allocator.nextId(TYPE, KEY).getLongId()).isEqualTo(2L);
+        verify(idDubboService, times(1)).generateIds(TYPE, KEY, 4);
+
+        // 余量降到低水位触发下一块
+        assertThat(allocator.nextId(TYPE, KEY).getLongId()).isEqualTo(3L);
+        verify(idDubboService, times(2)).generateIds(TYPE, KEY, 4);
+        assertThat(allocator.buffered(TYPE, KEY)).isEqualTo(5);
+
+        verify(idDubboService, times(1)).generateId(TYPE, KEY);
+    }
+
+    @Test
+    void failedRefillShouldKeepFallingBack() {
+        when(idDubboService.generateId(TYPE, KEY)).thenReturn(id(100L));
+        when(idDubboService.generateIds(TYPE, KEY, 4)).thenThrow(new RuntimeException("leaf unavailable"));
+
+        assertThat(allocator.nextId(TYPE, KEY).getLongId()).isEqualTo(100L);
+        assertThat(allocator.nextId(TYPE, KEY).getLongId()).isEqualTo(100L);
+
+        verify(idDubboService, times(2)).generateIds(TYPE, KEY, 4);
+        assertThat(meterRegistry.get("im_message_id_prefetch_empty_total").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void buffersShouldBeSeparatedByKey() {
+        when(idDubboService.generateId(anyString(), anyString())).thenReturn(id(100L));
+        when(idDubboService.generateIds(TYPE, KEY, 4)).thenReturn(ids(1, 4));
+        when(idDubboService.generateIds(TYPE, "group_message_id", 4)).thenReturn(ids(11, 14));
+
+        allocator.nextId(TYPE, KEY);
+        allocator.nextId(TYPE, "group_message_id");
+
+        assertThat(allocator.nextId(TYPE, KEY).getLongId()).isEqualTo(1L);
+        assertThat(allocator.nextId(TYPE, "group_message_id").getLongId()).isEqualTo(11L);
+    }
+
+    @Test
+    void disabledShouldCallGenerateIdDirectly() {
+        ReflectionTestUtils.setField(allocator, "enabled", false);
+        when(idDubboService.generateId(TYPE, KEY)).thenReturn(id(100L));
+
+        allocator.nextId(TYPE, KEY);
+        allocator.nextId(TYPE, KEY);
+
+        verify(idDubboService, times(2)).generateId(TYPE, KEY);
+        verify(idDubboService, never()).generateIds(anyString(), anyString(), anyInt());
+    }
+
+    private static IMetaId id(long value) {
+        return IMetaId.builder().metaId(value).longId(value).stringId(String.valueOf(value)).build();
+    }
+
+    private static List<IMetaId> ids(long from, long to) {
+        return LongStream.rangeClosed(from, to).mapToObj(IdPrefetchAllocatorTest::id).toList();
+    }
+}
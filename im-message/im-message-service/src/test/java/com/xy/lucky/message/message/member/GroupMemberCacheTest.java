@@ -0,0 +1,145 @@
+package com.xy.lucky.message.message.member;
+
+import com.xy.lucky.core.model.IMGroupMemberChange;
+import com.xy.lucky.domain.po.ImGroupMemberPo;
+import com.xy.lucky.rpc.api.database.group.ImGroupMemberDubboService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GroupMemberCacheTest {
+
+    @Mock
+    private ImGroupMemberDubboService groupMemberDubboService;
+
+    private GroupMemberCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new GroupMemberCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "groupMemberDubboService", groupMemberDubboService);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1024 * 1024L);
+        ReflectionTestUtils.setField(cache, "expireAfterWriteMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "versionTrackingSize", 1000L);
+        cache.init();
+    }
+
+    @Test
+    void getMemberIdsShouldQueryOnceAndServeFromCache() {
+        when(groupMemberDubboService.queryList("g1")).thenReturn(members("u1", "u2"));
+
+        assertThat(cache.getMemberIds("g1")).containsExactly("u1", "u2");
+        assertThat(cache.getMemberIds("g1")).containsExactly("u1", "u2");
+
+        verify(groupMemberDubboService, times(1)).queryList("g1");
+    }
+
+    @Test
+    void emptyGroupShouldNotBeCached() {
+        when(groupMemberDubboService.queryList("g1")).thenReturn(Collections.emptyList());
+
+        assertThat(cache.getMemberIds("g1")).isEmpty();
+        assertThat(cache.getMemberIds("g1")).isEmpty();
+
+        verify(groupMemberDubboService, times(2)).queryList("g1");
+    }
+
+    @Test
+    void newerVersionEventShouldInvalidateEntry() {
+        when(groupMemberDubboService.queryList("g1"))
+                .thenReturn(members("u1"))
+                .thenReturn(members("u1", "u2"));
+
+        assertThat(cache.getMemberIds("g1")).containsExactly("u1");
+        cache.onChange(change("g1", 1L));
+
+        assertThat(cache.getMemberIds("g1")).containsExactly("u1", "u2");
+        verify(groupMemberDubboService, times(2)).queryList("g1");
+    }
+
+    @Test
+    void staleOrDuplicateEventShouldBeIgnored() {
+        when(groupMemberDubboService.queryList("g1"))
+                .thenReturn(members("u1"))
+                .thenReturn(members("u1", "u2"));
+
+        assertThat(cache.getMemberIds("g1")).containsExactly("u1");
+        cache.onChange(change("g1", 2L));
+        assertThat(cache.getMemberIds("g1")).containsExactly("u1", "u2");
+
+        // 重投的旧事件不应再次失效已包含该变更的快照
+        cache.onChange(change("g1", 2L));
+        cache.onChange(change("g1", 1L));
+        assertThat(cache.getMemberIds("g1")).containsExactly("u1", "u2");
+
+        verify(groupMemberDubboService, times(2)).queryList("g1");
+    }
+
+    @Test
+    void unknownVersionEventShouldAlwaysInvalidate() {
+        when(groupMemberDubboService.queryList("g1")).thenReturn(members("u1"));
+
+        cache.getMemberIds("g1");
+        cache.onChange(change("g1", 0L));
+        cache.getMemberIds("g1");
+        cache.onChange(change("g1", null));
+        cache.getMemberIds("g1");
+
+        verify(groupMemberDubboService, times(3)).queryList("g1");
+    }
+
+    @Test
+    void snapshotLoadedBeforeConcurrentEventShouldBeReloadedOnNextRead() {
+        // 模拟事件在加载过程中到达：加载读取的是旧版本，事件到达时条目尚未写入
+        when(groupMemberDubboService.queryList("g1")).thenAnswer(invocation -> {
+            cache.onChange(change("g1", 3L));
+            return members("u1");
+        }).thenReturn(members("u1", "u2"));
+
+        assertThat(cache.getMemberIds("g1")).containsExactly("u1", "u2");
+        verify(groupMemberDubboService, times(2)).queryList("g1");
+    }
+
+    @Test
+    void disabledCacheShouldAlwaysQuery() {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+        when(groupMemberDubboService.queryList("g1")).thenReturn(members("u1"));
+
+        cache.getMemberIds("g1");
+        cache.getMemberIds("g1");
+
+        verify(groupMemberDubboService, times(2)).queryList("g1");
+    }
+
+    private static List<ImGroupMemberPo> members(String... memberIds) {
+        return Arrays.stream(memberIds)
+                .map(id -> {
+                    ImGroupMemberPo po = new ImGroupMemberPo();
+                    po.setMemberId(id);
+                    return po;
+                })
+                .toList();
+    }
+
+    private static IMGroupMemberChange change(String groupId, Long version) {
+        return new IMGroupMemberChange()
+                .setGroupId(groupId)
+                .setVersion(version)
+                .setChangeType(IMGroupMemberChange.ChangeType.JOIN);
+    }
+}
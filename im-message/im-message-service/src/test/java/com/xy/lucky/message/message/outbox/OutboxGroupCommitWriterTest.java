@@ -0,0 +1,245 @@
+package com.xy.lucky.message.message.outbox;
+
+import com.xy.lucky.domain.po.IMOutboxPo;
+import com.xy.lucky.rpc.api.database.outbox.IMOutboxDubboService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxGroupCommitWriterTest {
+
+    @Mock
+    private IMOutboxDubboService outboxDubboService;
+
+    private ExecutorService executor;
+    private OutboxGroupCommitWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        writer = new OutboxGroupCommitWriter(new OutboxStateMachine(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "outboxDubboService", outboxDubboService);
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        ReflectionTestUtils.setField(writer, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(writer, "maxWaitMs", 200L);
+        ReflectionTestUtils.setField(writer, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(writer, "awaitTimeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.destroy();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentInsertsShouldShareOneBatchAndReturnAfterCommit() throws Exception {
+        writer.init();
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> callers = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            IMOutboxPo po = new IMOutboxPo().setId(id);
+            callers.add(CompletableFuture.runAsync(() -> {
+                awaitQuietly(start);
+                writer.insert(po);
+            }, executor));
+        }
+        start.countDown();
+        CompletableFuture.allOf(callers.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<IMOutboxPo>> rows = ArgumentCaptor.forClass(List.class);
+        verify(outboxDubboService, times(1)).creatBatch(rows.capture());
+        assertThat(rows.getValue()).extracting(IMOutboxPo::getId).containsExactlyInAnyOrder(1L, 2L, 3L);
+        verify(outboxDubboService, never()).creat(any());
+    }
+
+    @Test
+    void failedBatchShouldRetryPerRecordAndOnlyFailBadRecord() {
+        IMOutboxPo good = new IMOutboxPo().setId(1L);
+        IMOutboxPo bad = new IMOutboxPo().setId(2L);
+        doThrow(new RuntimeException("batch failed")).when(outboxDubboService).creatBatch(anyList());
+        doThrow(new RuntimeException("duplicate key")).when(outboxDubboService).creat(bad);
+        OutboxGroupCommitWriter.PendingInsert first = new OutboxGroupCommitWriter.PendingInsert(good, new CompletableFuture<>());
+        OutboxGroupCommitWriter.PendingInsert second = new OutboxGroupCommitWriter.PendingInsert(bad, new CompletableFuture<>());
+
+        writer.flushInserts(List.of(first, second));
+
+        assertThat(first.future()).isCompleted();
+        assertThat(second.future()).isCompletedExceptionally();
+        verify(outboxDubboService).creat(good);
+    }
+
+    @Test
+    void retryOfAlreadyCommittedBatchShouldSucceed() {
+        // 批量插入已提交但 RPC 超时，逐条重试时主键冲突
+        IMOutboxPo committed = new IMOutboxPo().setId(1L);
+        IMOutboxPo other = new IMOutboxPo().setId(2L);
+        doThrow(new RuntimeException("rpc timeout")).when(outboxDubboService).creatBatch(anyList());
+        doThrow(new RuntimeException("Duplicate entry '1' for key 'PRIMARY'")).when(outboxDubboService).creat(any());
+        when(outboxDubboService.queryOne(1L)).thenReturn(committed);
+        OutboxGroupCommitWriter.PendingInsert first = new OutboxGroupCommitWriter.PendingInsert(committed, new CompletableFuture<>());
+        OutboxGroupCommitWriter.PendingInsert second = new OutboxGroupCommitWriter.PendingInsert(other, new CompletableFuture<>());
+
+        writer.flushInserts(List.of(first, second));
+
+        assertThat(first.future()).isCompleted().isNotCompletedExceptionally();
+        assertThat(second.future()).isCompletedExceptionally();
+    }
+
+    @Test
+    void timedOutInsertShouldBeWithdrawnAndNeverWritten() {
+        ReflectionTestUtils.setField(writer, "maxWaitMs", 500L);
+        ReflectionTestUtils.setField(writer, "awaitTimeoutMs", 50L);
+        writer.init();
+
+        assertThatThrownBy(() -> writer.insert(new IMOutboxPo().setId(1L)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("记录未写入");
+        verify(outboxDubboService, after(1000).never()).creat(any());
+        verify(outboxDubboService, never()).creatBatch(anyList());
+    }
+
+    @Test
+    void claimedInsertShouldBeSkipped() {
+        OutboxGroupCommitWriter.PendingInsert withdrawn = new OutboxGroupCommitWriter.PendingInsert(
+                new IMOutboxPo().setId(1L), new CompletableFuture<>());
+        withdrawn.claimed().set(true);
+
+        writer.flushInserts(List.of(withdrawn));
+
+        verify(outboxDubboService, never()).creat(any());
+    }
+
+    @Test
+    void disabledInsertShouldWriteSynchronously() {
+        ReflectionTestUtils.setField(writer, "enabled", false);
+        writer.init();
+        IMOutboxPo po = new IMOutboxPo().setId(1L);
+
+        writer.insert(po);
+
+        verify(outboxDubboService).creat(po);
+        verify(outboxDubboService, never()).creatBatch(anyList());
+    }
+
+    @Test
+    void insertFailureShouldPropagateToCaller() {
+        ReflectionTestUtils.setField(writer, "enabled", false);
+        writer.init();
+        IMOutboxPo po = new IMOutboxPo().setId(1L);
+        doThrow(new IllegalStateException("db down")).when(outboxDubboService).creat(po);
+
+        assertThatThrownBy(() -> writer.insert(po)).isInstanceOf(IllegalStateException.class).hasMessage("db down");
+    }
+
+    @Test
+    void transitionsShouldBeLoadedAndUpdatedInOneBatch() {
+        when(outboxDubboService.queryListByIds(List.of(1L, 2L))).thenReturn(List.of(
+                outbox(1L, OutboxStatus.PENDING),
+                outbox(2L, OutboxStatus.PENDING)));
+
+        writer.flushTransitions(List.of(
+                transition(1L, OutboxEvent.BROKER_ACK, 1, null, null),
+                transition(2L, OutboxEvent.RETRY_EXHAUSTED, 4, null, "nack")));
+
+        Map<Long, IMOutboxPo> updates = captureBatchUpdates();
+        assertThat(updates.get(1L).getStatus()).isEqualTo(OutboxStatus.SENT.value());
+        assertThat(updates.get(1L).getAttempts()).isEqualTo(1);
+        assertThat(updates.get(2L).getStatus()).isEqualTo(OutboxStatus.DLX.value());
+        assertThat(updates.get(2L).getLastError()).isEqualTo("nack");
+    }
+
+    @Test
+    void transitionsOfSameRecordShouldFoldInOrder() {
+        when(outboxDubboService.queryListByIds(List.of(1L, 2L))).thenReturn(List.of(
+                outbox(1L, OutboxStatus.PENDING),
+                outbox(2L, OutboxStatus.PENDING)));
+
+        writer.flushTransitions(List.of(
+                transition(1L, OutboxEvent.BROKER_NACK, 1, 1000L, "timeout"),
+                transition(2L, OutboxEvent.BROKER_ACK, 1, null, null),
+                transition(1L, OutboxEvent.BROKER_ACK, 2, null, null)));
+
+        Map<Long, IMOutboxPo> updates = captureBatchUpdates();
+        assertThat(updates).hasSize(2);
+        assertThat(updates.get(1L).getStatus()).isEqualTo(OutboxStatus.SENT.value());
+        assertThat(updates.get(1L).getAttempts()).isEqualTo(2);
+        assertThat(updates.get(1L).getNextTryAt()).isEqualTo(1000L);
+    }
+
+    @Test
+    void singleTransitionShouldUseSingleRecordCalls() {
+        when(outboxDubboService.queryOne(1L)).thenReturn(outbox(1L, OutboxStatus.PENDING));
+
+        writer.flushTransitions(List.of(transition(1L, OutboxEvent.BROKER_ACK, 1, null, null)));
+
+        ArgumentCaptor<IMOutboxPo> update = ArgumentCaptor.forClass(IMOutboxPo.class);
+        verify(outboxDubboService).modify(update.capture());
+        assertThat(update.getValue().getStatus()).isEqualTo(OutboxStatus.SENT.value());
+        verify(outboxDubboService, never()).modifyBatch(anyList());
+    }
+
+    @Test
+    void missingRecordShouldBeSkipped() {
+        when(outboxDubboService.queryListByIds(List.of(1L, 2L))).thenReturn(List.of(outbox(1L, OutboxStatus.PENDING)));
+        OutboxGroupCommitWriter.PendingTransition missing = transition(2L, OutboxEvent.BROKER_ACK, 1, null, null);
+
+        writer.flushTransitions(List.of(transition(1L, OutboxEvent.BROKER_ACK, 1, null, null), missing));
+
+        assertThat(missing.future()).isCompleted();
+        verify(outboxDubboService).modify(any());
+    }
+
+    private Map<Long, IMOutboxPo> captureBatchUpdates() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<IMOutboxPo>> rows = ArgumentCaptor.forClass(List.class);
+        verify(outboxDubboService).modifyBatch(rows.capture());
+        return rows.getValue().stream().collect(Collectors.toMap(IMOutboxPo::getId, po -> po));
+    }
+
+    private static IMOutboxPo outbox(Long id, OutboxStatus status) {
+        return new IMOutboxPo().setId(id).setMessageId("m" + id).setStatus(status.value());
+    }
+
+    private static OutboxGroupCommitWriter.PendingTransition transition(Long id, OutboxEvent event, int attempts,
+                                                                        Long nextTryAt, String reason) {
+        return new OutboxGroupCommitWriter.PendingTransition(id, event, attempts, nextTryAt, reason, new CompletableFuture<>());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
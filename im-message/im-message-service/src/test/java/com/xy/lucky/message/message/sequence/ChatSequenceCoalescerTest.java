@@ -0,0 +1,109 @@
+package com.xy.lucky.message.message.sequence;
+
+import com.xy.lucky.rpc.api.database.chat.ImChatDubboService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChatSequenceCoalescerTest {
+
+    private static final int GROUP = 1001;
+
+    @Mock
+    private ImChatDubboService chatDubboService;
+
+    private ChatSequenceCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new ChatSequenceCoalescer();
+        ReflectionTestUtils.setField(coalescer, "chatDubboService", chatDubboService);
+        ReflectionTestUtils.setField(coalescer, "coalesceEnabled", true);
+    }
+
+    @Test
+    void submitsInWindowShouldMergeIntoOneCall() {
+        coalescer.submit("g1", GROUP, 200L, List.of("u1", "u2"));
+        coalescer.submit("g1", GROUP, 100L, List.of("u2", "u3"));
+
+        coalescer.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> owners = ArgumentCaptor.forClass(List.class);
+        verify(chatDubboService, times(1)).modifySequenceBatch(eq("g1"), eq(GROUP), eq(200L), owners.capture());
+        assertThat(owners.getValue()).containsExactlyInAnyOrder("u1", "u2", "u3");
+    }
+
+    @Test
+    void differentGroupsShouldFlushSeparately() {
+        coalescer.submit("g1", GROUP, 100L, List.of("u1"));
+        coalescer.submit("g2", GROUP, 110L, List.of("u1"));
+
+        coalescer.flush();
+
+        verify(chatDubboService).modifySequenceBatch(eq("g1"), eq(GROUP), eq(100L), any());
+        verify(chatDubboService).modifySequenceBatch(eq("g2"), eq(GROUP), eq(110L), any());
+    }
+
+    @Test
+    void flushShouldDrainPending() {
+        coalescer.submit("g1", GROUP, 100L, List.of("u1"));
+
+        coalescer.flush();
+        coalescer.flush();
+
+        verify(chatDubboService, times(1)).modifySequenceBatch(anyString(), anyInt(), anyLong(), any());
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(coalescer, "pending")).isEmpty();
+    }
+
+    @Test
+    void failedFlushShouldNotPropagate() {
+        when(chatDubboService.modifySequenceBatch(anyString(), anyInt(), anyLong(), any()))
+                .thenThrow(new RuntimeException("rpc timeout"));
+        coalescer.submit("g1", GROUP, 100L, List.of("u1"));
+
+        coalescer.flush();
+
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(coalescer, "pending")).isEmpty();
+    }
+
+    @Test
+    void disabledShouldCallImmediately() {
+        ReflectionTestUtils.setField(coalescer, "coalesceEnabled", false);
+
+        coalescer.submit("g1", GROUP, 100L, List.of("u1", "u2"));
+
+        verify(chatDubboService).modifySequenceBatch("g1", GROUP, 100L, List.of("u1", "u2"));
+    }
+
+    @Test
+    void emptyInputShouldBeIgnored() {
+        coalescer.submit(null, GROUP, 100L, List.of("u1"));
+        coalescer.submit("g1", GROUP, null, List.of("u1"));
+        coalescer.submit("g1", GROUP, 100L, Collections.emptyList());
+
+        coalescer.flush();
+
+        verify(chatDubboService, never()).modifySequenceBatch(anyString(), anyInt(), anyLong(), any());
+    }
+}
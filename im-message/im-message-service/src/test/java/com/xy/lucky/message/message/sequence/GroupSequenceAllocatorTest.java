@@ -0,0 +1,77 @@
+package com.xy.lucky.message.message.sequence;
+
+import com.xy.lucky.message.exception.MessageException;
+import com.xy.lucky.rpc.api.database.message.ImGroupMessageDubboService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GroupSequenceAllocatorTest {
+
+    private static final String GROUP_ID = "g1";
+    private static final List<String> KEYS = List.of("im:group:seq:" + GROUP_ID);
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ImGroupMessageDubboService groupMessageDubboService;
+
+    private GroupSequenceAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new GroupSequenceAllocator(stringRedisTemplate);
+        ReflectionTestUtils.setField(allocator, "groupMessageDubboService", groupMessageDubboService);
+    }
+
+    @Test
+    void existingCounterShouldBeIncremented() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(KEYS), eq(""))).thenReturn(8L);
+
+        assertThat(allocator.next(GROUP_ID)).isEqualTo(8L);
+
+        verify(groupMessageDubboService, never()).queryMaxGroupSeq(GROUP_ID);
+    }
+
+    @Test
+    void missingCounterShouldBeSeededFromDatabaseMax() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(KEYS), eq(""))).thenReturn(-1L);
+        when(groupMessageDubboService.queryMaxGroupSeq(GROUP_ID)).thenReturn(41L);
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(KEYS), eq("41"))).thenReturn(42L);
+
+        assertThat(allocator.next(GROUP_ID)).isEqualTo(42L);
+    }
+
+    @Test
+    void redisFailureShouldFailTheSend() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any()))
+                .thenThrow(new IllegalStateException("redis down"));
+
+        assertThatThrownBy(() -> allocator.next(GROUP_ID)).isInstanceOf(MessageException.class);
+    }
+
+    @Test
+    void missingResultShouldFailTheSend() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(KEYS), eq(""))).thenReturn(null);
+
+        assertThatThrownBy(() -> allocator.next(GROUP_ID)).isInstanceOf(MessageException.class);
+    }
+}